@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.benchmarks;
+
+import com.ibm.cos.spring.boot.COSAutoConfiguration;
+import com.ibm.cos.spring.core.env.PropertyTreeBinder;
+import com.ibm.cos.spring.framework.EnableCOS;
+import com.ibm.cos.spring.test.LocalCOSServer;
+import com.ibm.cos.spring.test.LocalCOSServerProperties;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+/**
+ * Creates the servers and application contexts used by the benchmarks. Properties passed to the
+ * benchmark JVM, e.g. {@code -jvmArgsAppend -Dcos.client.profile=high-throughput}, override the
+ * defaults here, so client settings can be compared without code changes.
+ */
+final class BenchmarkContexts {
+
+  private BenchmarkContexts() {}
+
+  /**
+   * @param endpoint endpoint of the local server
+   * @return properties connecting the client to the server with HMAC credentials
+   */
+  static Map<String, Object> properties(URL endpoint) {
+    Map<String, Object> properties = new HashMap<String, Object>();
+    properties.put("cos.endpoint", endpoint.toString());
+    properties.put("cos.location", "us");
+    properties.put("cos.access-key", "benchmark");
+    properties.put("cos.secret-key", "benchmark");
+    return properties;
+  }
+
+  /**
+   * Start a local server configured by {@code cos.test-server.*} system properties, e.g. {@code
+   * -Dcos.test-server.latency=lognormal:20-400} to measure the client against a slower store.
+   *
+   * @return the running server
+   * @throws IOException if the server cannot be started
+   */
+  static LocalCOSServer startServer() throws IOException {
+    return PropertyTreeBinder.bind(
+            new StandardEnvironment(), "cos.test-server", new LocalCOSServerProperties())
+        .createServer();
+  }
+
+  /** @return a refreshed context using the Spring Boot auto-configuration */
+  static ConfigurableApplicationContext autoConfiguration(Map<String, Object> properties) {
+    return refresh(COSAutoConfiguration.class, properties);
+  }
+
+  /** @return a refreshed context using {@link EnableCOS} */
+  static ConfigurableApplicationContext enableCOS(Map<String, Object> properties) {
+    return refresh(EnableCOSConfig.class, properties);
+  }
+
+  private static ConfigurableApplicationContext refresh(
+      Class<?> configuration, Map<String, Object> properties) {
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    // after the system properties, so they take precedence
+    context
+        .getEnvironment()
+        .getPropertySources()
+        .addLast(new MapPropertySource("benchmark", properties));
+    context.register(configuration);
+    context.refresh();
+    return context;
+  }
+
+  @Configuration
+  @EnableCOS
+  static class EnableCOSConfig {}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Accepts the JMH command line, plus {@code --threads
+ * 1,8,32} to run the selected benchmarks once per thread count, writing the results of each run to
+ * {@code jmh-result-t<threads>.json}.
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {}
+
+  public static void main(String[] args) throws Exception {
+    List<String> jmhArgs = new ArrayList<String>();
+    String threads = null;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--threads") && i + 1 < args.length) {
+        threads = args[++i];
+      } else {
+        jmhArgs.add(args[i]);
+      }
+    }
+    if (threads == null) {
+      Main.main(args);
+      return;
+    }
+
+    CommandLineOptions options = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+    for (String count : threads.split(",")) {
+      int threadCount = Integer.parseInt(count.trim());
+      new Runner(
+              new OptionsBuilder()
+                  .parent(options)
+                  .threads(threadCount)
+                  .resultFormat(ResultFormatType.JSON)
+                  .result(String.format("jmh-result-t%d.json", threadCount))
+                  .build())
+          .run();
+    }
+  }
+}
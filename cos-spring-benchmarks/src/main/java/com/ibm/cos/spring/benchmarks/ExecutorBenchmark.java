@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.benchmarks;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cos.spring.core.concurrent.VirtualThreads;
+import com.ibm.cos.spring.core.listing.BucketLister;
+import com.ibm.cos.spring.core.transfer.TransferExecutorFactory;
+import com.ibm.cos.spring.test.LatencyDistribution;
+import com.ibm.cos.spring.test.LocalCOSServer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Platform thread pools against semaphore-limited virtual threads ({@code cos.virtual-threads}) for
+ * a burst of blocking calls. Each operation fans out many small GETs on the transfer executor or
+ * lists many prefixes in parallel, against a server answering after 20 ms unless {@code
+ * -Dcos.test-server.latency} says otherwise. The virtual runs require Java 21 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ExecutorBenchmark {
+
+  private static final String BUCKET = "benchmark";
+
+  /** GETs per fan-out operation */
+  private static final int BATCH = 1000;
+
+  private static final int PREFIXES = 256;
+
+  @Param({"platform", "virtual"})
+  public String threads;
+
+  /** platform pool size, or permits of the virtual thread executor */
+  @Param({"16", "256"})
+  public int concurrency;
+
+  private LocalCOSServer server;
+
+  private ConfigurableApplicationContext context;
+
+  private AmazonS3 client;
+
+  private ExecutorService executor;
+
+  private BucketLister lister;
+
+  private String[] prefixes;
+
+  @Setup
+  public void setUp() throws IOException {
+    boolean virtual = "virtual".equals(threads);
+    if (virtual && !VirtualThreads.isAvailable()) {
+      throw new IllegalStateException("virtual threads require Java 21 or later");
+    }
+
+    server = BenchmarkContexts.startServer();
+    if (System.getProperty("cos.test-server.latency") == null) {
+      server.getFaults().setLatency(LatencyDistribution.fixed(20));
+    }
+    server.createBucket(BUCKET);
+    prefixes = new String[PREFIXES];
+    for (int i = 0; i < PREFIXES; i++) {
+      prefixes[i] = String.format("p%03d/", i);
+      server.putObject(BUCKET, prefixes[i] + "object", new byte[1024]);
+    }
+
+    Map<String, Object> properties = BenchmarkContexts.properties(server.getEndpoint());
+    properties.put("cos.client.max-connections", concurrency);
+    properties.put("cos.transfer.threads", concurrency);
+    properties.put("cos.listing.concurrency", concurrency);
+    properties.put("cos.virtual-threads.enabled", virtual);
+    properties.put("cos.virtual-threads.max-concurrency", concurrency);
+    context = BenchmarkContexts.autoConfiguration(properties);
+    client = context.getBean(AmazonS3.class);
+    executor = context.getBean(TransferExecutorFactory.class).newExecutor();
+    lister = context.getBean(BucketLister.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+    server.close();
+  }
+
+  @Benchmark
+  public long getBatch() throws InterruptedException, ExecutionException {
+    List<Future<Integer>> results = new ArrayList<Future<Integer>>(BATCH);
+    for (int i = 0; i < BATCH; i++) {
+      String key = prefixes[i % PREFIXES] + "object";
+      results.add(executor.submit(() -> get(key)));
+    }
+    long total = 0;
+    for (Future<Integer> result : results) {
+      total += result.get();
+    }
+    return total;
+  }
+
+  @Benchmark
+  public long listPrefixes() {
+    return lister.streamPrefixes(BUCKET, prefixes).count();
+  }
+
+  private int get(String key) throws IOException {
+    try (S3Object object = client.getObject(BUCKET, key)) {
+      return StreamUtils.copyToByteArray(object.getObjectContent()).length;
+    }
+  }
+}
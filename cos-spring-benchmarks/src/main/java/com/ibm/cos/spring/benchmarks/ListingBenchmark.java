@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.benchmarks;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Request;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Result;
+import com.ibm.cos.spring.core.listing.BucketLister;
+import com.ibm.cos.spring.test.LocalCOSServer;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Time to list a whole bucket page by page, with the prefetching {@link BucketLister} and with
+ * partitions listed in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ListingBenchmark {
+
+  private static final String BUCKET = "benchmark";
+
+  /** number of first level prefixes the objects are spread over */
+  private static final int PARTITIONS = 16;
+
+  @Param({"1000", "10000"})
+  public int objectCount;
+
+  private LocalCOSServer server;
+
+  private ConfigurableApplicationContext context;
+
+  private AmazonS3 client;
+
+  private BucketLister lister;
+
+  @Setup
+  public void setUp() throws IOException {
+    server = BenchmarkContexts.startServer();
+    server.createBucket(BUCKET);
+    byte[] empty = new byte[0];
+    for (int i = 0; i < objectCount; i++) {
+      server.putObject(BUCKET, String.format("p%02d/%06d", i % PARTITIONS, i), empty);
+    }
+    context =
+        BenchmarkContexts.autoConfiguration(BenchmarkContexts.properties(server.getEndpoint()));
+    client = context.getBean(AmazonS3.class);
+    lister = context.getBean(BucketLister.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+    server.close();
+  }
+
+  @Benchmark
+  public long listObjectsV2() {
+    ListObjectsV2Request request = new ListObjectsV2Request().withBucketName(BUCKET);
+    long count = 0;
+    ListObjectsV2Result page;
+    do {
+      page = client.listObjectsV2(request);
+      count += page.getObjectSummaries().size();
+      request.setContinuationToken(page.getNextContinuationToken());
+    } while (page.isTruncated());
+    return count;
+  }
+
+  @Benchmark
+  public long bucketLister() {
+    return lister.stream(BUCKET, "").count();
+  }
+
+  @Benchmark
+  public long bucketListerPartitioned() {
+    return lister.streamPartitioned(BUCKET, "", "/").count();
+  }
+}
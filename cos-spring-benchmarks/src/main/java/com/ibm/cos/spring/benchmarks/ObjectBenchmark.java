@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.benchmarks;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectResult;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cos.spring.test.LocalCOSServer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * GET and PUT throughput and latency for a range of object sizes. All benchmark threads share one
+ * client, so the thread count ({@code -t}) is the request concurrency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ObjectBenchmark {
+
+  private static final String BUCKET = "benchmark";
+
+  /** number of distinct keys read and written, so threads rarely use the same object */
+  private static final int KEYS = 64;
+
+  @Param({"1024", "262144", "4194304"})
+  public int objectSize;
+
+  private LocalCOSServer server;
+
+  private ConfigurableApplicationContext context;
+
+  private AmazonS3 client;
+
+  private byte[] content;
+
+  @Setup
+  public void setUp() throws IOException {
+    content = new byte[objectSize];
+    new Random(objectSize).nextBytes(content);
+
+    server = BenchmarkContexts.startServer();
+    server.createBucket(BUCKET);
+    for (int i = 0; i < KEYS; i++) {
+      server.putObject(BUCKET, key(i), content);
+    }
+    context =
+        BenchmarkContexts.autoConfiguration(BenchmarkContexts.properties(server.getEndpoint()));
+    client = context.getBean(AmazonS3.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+    server.close();
+  }
+
+  @Benchmark
+  public PutObjectResult put() {
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(content.length);
+    return client.putObject(
+        new PutObjectRequest(BUCKET, randomKey(), new ByteArrayInputStream(content), metadata));
+  }
+
+  @Benchmark
+  public long get() throws IOException {
+    try (S3Object object = client.getObject(BUCKET, randomKey());
+        InputStream input = object.getObjectContent()) {
+      byte[] buffer = new byte[64 * 1024];
+      long total = 0;
+      int n;
+      while ((n = input.read(buffer)) >= 0) {
+        total += n;
+      }
+      return total;
+    }
+  }
+
+  private static String randomKey() {
+    return key(ThreadLocalRandom.current().nextInt(KEYS));
+  }
+
+  private static String key(int i) {
+    return String.format("objects/%03d", i);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.benchmarks;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Time to refresh and close a context with the COS configuration for each {@code cos.startup.mode}.
+ * The client is never called, so this measures configuration and SDK initialization only, which a
+ * lazy client defers. Run with {@code -bm ss -f 20} to measure cold starts instead of steady state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+public class StartupBenchmark {
+
+  @Param({"eager", "lazy"})
+  public String mode;
+
+  private Map<String, Object> properties;
+
+  @Setup
+  public void setUp() throws Exception {
+    properties = BenchmarkContexts.properties(new URL("http://127.0.0.1:9"));
+    properties.put("cos.startup.mode", mode);
+  }
+
+  @Benchmark
+  public AmazonS3 autoConfiguration() {
+    try (ConfigurableApplicationContext context = BenchmarkContexts.autoConfiguration(properties)) {
+      return context.getBean(AmazonS3.class);
+    }
+  }
+
+  @Benchmark
+  public AmazonS3 enableCOS() {
+    try (ConfigurableApplicationContext context = BenchmarkContexts.enableCOS(properties)) {
+      return context.getBean(AmazonS3.class);
+    }
+  }
+}
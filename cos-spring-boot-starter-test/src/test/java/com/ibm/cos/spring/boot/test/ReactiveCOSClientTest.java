@@ -0,0 +1,200 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.boot.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Request;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Result;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectResult;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectInputStream;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectSummary;
+import com.ibm.cos.spring.boot.COSAutoConfiguration;
+import com.ibm.cos.spring.reactive.COSReactiveAutoConfiguration;
+import com.ibm.cos.spring.reactive.ReactiveCOSClient;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.StreamUtils;
+import reactor.core.publisher.Flux;
+
+@SuppressWarnings("deprecation")
+public class ReactiveCOSClientTest {
+
+  private AnnotationConfigApplicationContext context;
+
+  private AmazonS3 client;
+
+  private ReactiveCOSClient reactiveClient;
+
+  @Before
+  public void setUp() {
+    this.context = new AnnotationConfigApplicationContext();
+    this.client = mock(AmazonS3.class);
+    this.reactiveClient = new ReactiveCOSClient(client, 2, new DefaultDataBufferFactory(), 4);
+  }
+
+  @After
+  public void cleanup() {
+    this.reactiveClient.destroy();
+    if (this.context != null) {
+      this.context.close();
+    }
+  }
+
+  @Test
+  public void reactiveClientBeanCreation() {
+    this.context.register(COSAutoConfiguration.class, COSReactiveAutoConfiguration.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.reactive.concurrency=4");
+    this.context.refresh();
+
+    ReactiveCOSClient reactiveClient = this.context.getBean(ReactiveCOSClient.class);
+    assertThat(reactiveClient, is(not(nullValue())));
+  }
+
+  @Test
+  public void getObjectStreamsBody() {
+    S3Object object = new S3Object();
+    object.setObjectContent(
+        new S3ObjectInputStream(
+            new ByteArrayInputStream("hello world".getBytes(StandardCharsets.UTF_8)),
+            new HttpGet()));
+    when(client.getObject("myBucket", "myKey")).thenReturn(object);
+
+    List<DataBuffer> buffers = reactiveClient.getObject("myBucket", "myKey").collectList().block();
+
+    // 11 bytes in buffers of 4 bytes
+    assertThat(buffers.size(), is(3));
+    assertThat(toString(buffers), is("hello world"));
+  }
+
+  @Test
+  public void putObjectStreamsBody() {
+    ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+    when(client.putObject(any(PutObjectRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              PutObjectRequest request = invocation.getArgument(0);
+              StreamUtils.copy(request.getInputStream(), uploaded);
+              return new PutObjectResult();
+            });
+
+    DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+    Flux<DataBuffer> body =
+        Flux.just("hello", " ", "world")
+            .map(part -> bufferFactory.wrap(part.getBytes(StandardCharsets.UTF_8)));
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(11);
+
+    reactiveClient.putObject("myBucket", "myKey", body, metadata).block();
+
+    assertThat(new String(uploaded.toByteArray(), StandardCharsets.UTF_8), is("hello world"));
+  }
+
+  @Test
+  public void getObjectPipedIntoPutObjectWithOneThread() {
+    byte[] content = new byte[1000];
+    S3Object object = new S3Object();
+    object.setObjectContent(
+        new S3ObjectInputStream(new ByteArrayInputStream(content), new HttpGet()));
+    when(client.getObject("myBucket", "source")).thenReturn(object);
+    ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+    when(client.putObject(any(PutObjectRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              PutObjectRequest request = invocation.getArgument(0);
+              StreamUtils.copy(request.getInputStream(), uploaded);
+              return new PutObjectResult();
+            });
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(content.length);
+    ReactiveCOSClient singleThreaded =
+        new ReactiveCOSClient(client, 1, new DefaultDataBufferFactory(), 100);
+
+    try {
+      singleThreaded
+          .putObject("myBucket", "copy", singleThreaded.getObject("myBucket", "source"), metadata)
+          .block(Duration.ofSeconds(10));
+    } finally {
+      singleThreaded.destroy();
+    }
+
+    assertThat(uploaded.size(), is(content.length));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void putObjectRequiresContentLength() {
+    reactiveClient.putObject("myBucket", "myKey", Flux.empty(), new ObjectMetadata()).block();
+  }
+
+  @Test
+  public void listObjectsFollowsContinuationTokens() {
+    ListObjectsV2Result first = page("a", "b");
+    first.setTruncated(true);
+    first.setNextContinuationToken("token");
+    ListObjectsV2Result second = page("c");
+    when(client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(first, second);
+
+    List<S3ObjectSummary> summaries =
+        reactiveClient.listObjects("myBucket", null).collectList().block();
+
+    assertThat(summaries.size(), is(3));
+    assertThat(summaries.get(2).getKey(), is("c"));
+  }
+
+  private static ListObjectsV2Result page(String... keys) {
+    ListObjectsV2Result result = new ListObjectsV2Result();
+    for (String key : keys) {
+      S3ObjectSummary summary = new S3ObjectSummary();
+      summary.setKey(key);
+      result.getObjectSummaries().add(summary);
+    }
+    return result;
+  }
+
+  private static String toString(List<DataBuffer> buffers) {
+    StringBuilder builder = new StringBuilder();
+    for (DataBuffer buffer : buffers) {
+      byte[] bytes = new byte[buffer.readableByteCount()];
+      buffer.read(bytes);
+      builder.append(new String(bytes, StandardCharsets.UTF_8));
+    }
+    return builder.toString();
+  }
+}
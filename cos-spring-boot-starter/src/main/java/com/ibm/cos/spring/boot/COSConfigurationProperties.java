@@ -14,8 +14,28 @@
 
 package com.ibm.cos.spring.boot;
 
+import com.ibm.cos.spring.core.auth.IamProperties;
+import com.ibm.cos.spring.core.cache.CacheManagerProperties;
+import com.ibm.cos.spring.core.cache.CacheProperties;
+import com.ibm.cos.spring.core.changes.ChangesProperties;
+import com.ibm.cos.spring.core.client.ClientProperties;
+import com.ibm.cos.spring.core.compression.CompressionProperties;
+import com.ibm.cos.spring.core.concurrent.VirtualThreadProperties;
+import com.ibm.cos.spring.core.delete.BulkDeleteProperties;
+import com.ibm.cos.spring.core.hedge.HedgeProperties;
+import com.ibm.cos.spring.core.index.IndexProperties;
+import com.ibm.cos.spring.core.listing.ListingProperties;
+import com.ibm.cos.spring.core.metrics.MetricsProperties;
+import com.ibm.cos.spring.core.pack.PackProperties;
+import com.ibm.cos.spring.core.retry.RetryProperties;
+import com.ibm.cos.spring.core.startup.StartupProperties;
+import com.ibm.cos.spring.core.tracing.TracingProperties;
+import com.ibm.cos.spring.core.transfer.TransferProperties;
+import com.ibm.cos.spring.core.warmup.WarmupProperties;
+import com.ibm.cos.spring.core.writebehind.WriteBehindProperties;
 import java.net.URL;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
 /**
  * COS Configuration properties. For authentication, either apiKey (IAM) or accessKey and secretKey
@@ -42,6 +62,67 @@ public class COSConfigurationProperties {
   /** HMAC Secret Key */
   private String secretKey;
 
+  /** IAM token refresh settings, used with apiKey */
+  @NestedConfigurationProperty private IamProperties iam = new IamProperties();
+
+  /** HTTP transport settings of the client */
+  @NestedConfigurationProperty private ClientProperties client = new ClientProperties();
+
+  /** TransferManager settings */
+  @NestedConfigurationProperty private TransferProperties transfer = new TransferProperties();
+
+  /** local disk cache of object bodies */
+  @NestedConfigurationProperty private CacheProperties cache = new CacheProperties();
+
+  /** Micrometer metrics of the client */
+  @NestedConfigurationProperty private MetricsProperties metrics = new MetricsProperties();
+
+  /** connection warm-up at startup */
+  @NestedConfigurationProperty private WarmupProperties warmup = new WarmupProperties();
+
+  /** retry backoff, budget and circuit breaker of the client */
+  @NestedConfigurationProperty private RetryProperties retry = new RetryProperties();
+
+  /** hedged GET requests for latency-critical reads */
+  @NestedConfigurationProperty private HedgeProperties hedge = new HedgeProperties();
+
+  /** bulk deletion with batched DeleteObjects requests */
+  @NestedConfigurationProperty private BulkDeleteProperties bulkDelete = new BulkDeleteProperties();
+
+  /** pipelined and partitioned bucket listings */
+  @NestedConfigurationProperty private ListingProperties listing = new ListingProperties();
+
+  /** Spring cache manager storing entries in COS */
+  @NestedConfigurationProperty
+  private CacheManagerProperties cacheManager = new CacheManagerProperties();
+
+  /** transparent compression of object bodies */
+  @NestedConfigurationProperty
+  private CompressionProperties compression = new CompressionProperties();
+
+  /** packing of small records into bundle objects */
+  @NestedConfigurationProperty private PackProperties pack = new PackProperties();
+
+  /** asynchronous uploads with coalescing and backpressure */
+  @NestedConfigurationProperty
+  private WriteBehindProperties writeBehind = new WriteBehindProperties();
+
+  /** virtual thread execution of transfers, listings and hedged requests */
+  @NestedConfigurationProperty
+  private VirtualThreadProperties virtualThreads = new VirtualThreadProperties();
+
+  /** startup mode of the default client */
+  @NestedConfigurationProperty private StartupProperties startup = new StartupProperties();
+
+  /** per-request phase tracing and slow-request logging of the default client */
+  @NestedConfigurationProperty private TracingProperties tracing = new TracingProperties();
+
+  /** polling a bucket for new and changed objects */
+  @NestedConfigurationProperty private ChangesProperties changes = new ChangesProperties();
+
+  /** local index of the keys of a bucket */
+  @NestedConfigurationProperty private IndexProperties index = new IndexProperties();
+
   public URL getEndpoint() {
     return endpoint;
   }
@@ -89,4 +170,156 @@ public class COSConfigurationProperties {
   public void setSecretKey(String secretKey) {
     this.secretKey = secretKey;
   }
+
+  public IamProperties getIam() {
+    return iam;
+  }
+
+  public void setIam(IamProperties iam) {
+    this.iam = iam;
+  }
+
+  public ClientProperties getClient() {
+    return client;
+  }
+
+  public void setClient(ClientProperties client) {
+    this.client = client;
+  }
+
+  public TransferProperties getTransfer() {
+    return transfer;
+  }
+
+  public void setTransfer(TransferProperties transfer) {
+    this.transfer = transfer;
+  }
+
+  public CacheProperties getCache() {
+    return cache;
+  }
+
+  public void setCache(CacheProperties cache) {
+    this.cache = cache;
+  }
+
+  public MetricsProperties getMetrics() {
+    return metrics;
+  }
+
+  public void setMetrics(MetricsProperties metrics) {
+    this.metrics = metrics;
+  }
+
+  public WarmupProperties getWarmup() {
+    return warmup;
+  }
+
+  public void setWarmup(WarmupProperties warmup) {
+    this.warmup = warmup;
+  }
+
+  public RetryProperties getRetry() {
+    return retry;
+  }
+
+  public void setRetry(RetryProperties retry) {
+    this.retry = retry;
+  }
+
+  public HedgeProperties getHedge() {
+    return hedge;
+  }
+
+  public void setHedge(HedgeProperties hedge) {
+    this.hedge = hedge;
+  }
+
+  public BulkDeleteProperties getBulkDelete() {
+    return bulkDelete;
+  }
+
+  public void setBulkDelete(BulkDeleteProperties bulkDelete) {
+    this.bulkDelete = bulkDelete;
+  }
+
+  public ListingProperties getListing() {
+    return listing;
+  }
+
+  public void setListing(ListingProperties listing) {
+    this.listing = listing;
+  }
+
+  public CacheManagerProperties getCacheManager() {
+    return cacheManager;
+  }
+
+  public void setCacheManager(CacheManagerProperties cacheManager) {
+    this.cacheManager = cacheManager;
+  }
+
+  public CompressionProperties getCompression() {
+    return compression;
+  }
+
+  public void setCompression(CompressionProperties compression) {
+    this.compression = compression;
+  }
+
+  public PackProperties getPack() {
+    return pack;
+  }
+
+  public void setPack(PackProperties pack) {
+    this.pack = pack;
+  }
+
+  public WriteBehindProperties getWriteBehind() {
+    return writeBehind;
+  }
+
+  public void setWriteBehind(WriteBehindProperties writeBehind) {
+    this.writeBehind = writeBehind;
+  }
+
+  public VirtualThreadProperties getVirtualThreads() {
+    return virtualThreads;
+  }
+
+  public void setVirtualThreads(VirtualThreadProperties virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+
+  public StartupProperties getStartup() {
+    return startup;
+  }
+
+  public void setStartup(StartupProperties startup) {
+    this.startup = startup;
+  }
+
+  public TracingProperties getTracing() {
+    return tracing;
+  }
+
+  public void setTracing(TracingProperties tracing) {
+    this.tracing = tracing;
+  }
+
+  public ChangesProperties getChanges() {
+    return changes;
+  }
+
+  public void setChanges(ChangesProperties changes) {
+    this.changes = changes;
+  }
+
+  public IndexProperties getIndex() {
+    return index;
+  }
+
+  public void setIndex(IndexProperties index) {
+    this.index = index;
+  }
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Request;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Result;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectSummary;
+import com.ibm.cos.spring.core.listing.BucketLister;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BucketListerTest {
+
+  private final AmazonS3 client = mock(AmazonS3.class);
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  private final TreeSet<String> keys = new TreeSet<String>();
+
+  private final AtomicInteger requests = new AtomicInteger();
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  /** common prefixes returned but not yet listed */
+  private final AtomicInteger waitingPrefixes = new AtomicInteger();
+
+  private final AtomicInteger maxWaitingPrefixes = new AtomicInteger();
+
+  private BucketLister lister;
+
+  @Before
+  public void setUp() {
+    for (int day = 0; day < 4; day++) {
+      for (int i = 0; i < 25; i++) {
+        keys.add(String.format("logs/day%d/%03d", day, i));
+      }
+    }
+    keys.add("logs/index");
+    keys.add("other");
+    when(client.listObjectsV2(any(ListObjectsV2Request.class)))
+        .thenAnswer(invocation -> list(invocation.getArgument(0)));
+    this.lister = new BucketLister(client, executor, 10, 3);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void prefixIsListedInKeyOrder() {
+    List<String> listed =
+        lister
+            .stream("myBucket", "logs/")
+            .map(S3ObjectSummary::getKey)
+            .collect(Collectors.toList());
+
+    assertThat(listed, is(new ArrayList<String>(keys.headSet("other"))));
+    assertThat(requests.get(), is(11));
+    assertThat(maxInFlight.get(), is(1));
+  }
+
+  @Test
+  public void listingIsLazy() {
+    S3ObjectSummary first = lister.iterator("myBucket", "").next();
+
+    assertThat(first.getKey(), is("logs/day0/000"));
+    // the first page and the prefetched second page
+    assertThat(requests.get() <= 2, is(true));
+  }
+
+  @Test
+  public void delimiterPartitionsAreListedConcurrently() {
+    Set<String> listed =
+        lister
+            .streamPartitioned("myBucket", "logs/", "/")
+            .map(S3ObjectSummary::getKey)
+            .collect(Collectors.toSet());
+
+    assertThat(listed, is(keys.headSet("other")));
+    assertThat(maxInFlight.get() > 1, is(true));
+    assertThat(maxInFlight.get() <= 3, is(true));
+  }
+
+  @Test
+  public void waitingPrefixesAreLimited() {
+    keys.clear();
+    for (int i = 0; i < 300; i++) {
+      keys.add(String.format("logs/p%03d/a", i));
+    }
+
+    long listed = lister.streamPartitioned("myBucket", "logs/", "/").count();
+
+    assertThat(listed, is(300L));
+    // concurrency * page size, plus the page that reached the limit and the requests in flight
+    assertThat(maxWaitingPrefixes.get() <= 3 * 10 + 10 + 3, is(true));
+  }
+
+  @Test
+  public void rangesCoverKeyspaceOnce() {
+    List<String> listed =
+        lister
+            .streamRanges("myBucket", "logs/day2/010", "logs/day1/005")
+            .map(S3ObjectSummary::getKey)
+            .collect(Collectors.toList());
+
+    assertThat(listed.size(), is(keys.size()));
+    assertThat(new TreeSet<String>(listed), is(keys));
+  }
+
+  @Test
+  public void prefixesAreListed() {
+    Set<String> listed =
+        lister
+            .streamPrefixes("myBucket", "logs/day0/", "logs/day3/")
+            .map(S3ObjectSummary::getKey)
+            .collect(Collectors.toSet());
+
+    assertThat(listed.size(), is(50));
+  }
+
+  private ListObjectsV2Result list(ListObjectsV2Request request) throws InterruptedException {
+    requests.incrementAndGet();
+    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    Thread.sleep(10);
+    inFlight.decrementAndGet();
+
+    String prefix = request.getPrefix() == null ? "" : request.getPrefix();
+    String after =
+        request.getContinuationToken() != null
+            ? request.getContinuationToken()
+            : request.getStartAfter();
+    ListObjectsV2Result result = new ListObjectsV2Result();
+    Set<String> commonPrefixes = new TreeSet<String>();
+    int count = 0;
+    for (String key : after == null ? keys : keys.tailSet(after, false)) {
+      if (!key.startsWith(prefix)) {
+        continue;
+      }
+      if (count == request.getMaxKeys()) {
+        result.setTruncated(true);
+        break;
+      }
+      int delimiter =
+          request.getDelimiter() == null
+              ? -1
+              : key.indexOf(request.getDelimiter(), prefix.length());
+      if (delimiter < 0) {
+        S3ObjectSummary summary = new S3ObjectSummary();
+        summary.setKey(key);
+        result.getObjectSummaries().add(summary);
+        count++;
+      } else if (commonPrefixes.add(key.substring(0, delimiter + 1))) {
+        count++;
+      }
+      result.setNextContinuationToken(key);
+    }
+    result.getCommonPrefixes().addAll(commonPrefixes);
+    if (request.getDelimiter() != null) {
+      maxWaitingPrefixes.accumulateAndGet(
+          waitingPrefixes.addAndGet(commonPrefixes.size()), Math::max);
+    } else if (after == null && prefix.endsWith("/") && !prefix.equals("logs/")) {
+      waitingPrefixes.decrementAndGet();
+    }
+    return result;
+  }
+}
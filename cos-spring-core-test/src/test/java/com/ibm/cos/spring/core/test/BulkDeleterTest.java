@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.AmazonS3Exception;
+import com.ibm.cloud.objectstorage.services.s3.model.DeleteObjectsRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.DeleteObjectsResult;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Request;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Result;
+import com.ibm.cloud.objectstorage.services.s3.model.MultiObjectDeleteException;
+import com.ibm.cloud.objectstorage.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectSummary;
+import com.ibm.cos.spring.core.delete.BulkDeleteResult;
+import com.ibm.cos.spring.core.delete.BulkDeleter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class BulkDeleterTest {
+
+  private final AmazonS3 client = mock(AmazonS3.class);
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void keysAreDeletedInBatches() {
+    when(client.deleteObjects(any(DeleteObjectsRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              DeleteObjectsRequest request = invocation.getArgument(0);
+              assertThat(request.getQuiet(), is(true));
+              batchSizes.add(request.getKeys().size());
+              return new DeleteObjectsResult(Collections.emptyList());
+            });
+
+    List<Integer> progress = Collections.synchronizedList(new ArrayList<Integer>());
+    BulkDeleteResult result =
+        new BulkDeleter(client, executor, 10, 2)
+            .delete(
+                "myBucket",
+                keys("a", 25).iterator(),
+                (deleted, errors, total) -> progress.add(deleted));
+
+    assertThat(result.getDeletedCount(), is(25L));
+    assertThat(result.getBatchCount(), is(3L));
+    assertThat(result.isSuccessful(), is(true));
+    Collections.sort(batchSizes);
+    assertThat(batchSizes, is(Arrays.asList(5, 10, 10)));
+    assertThat(progress.size(), is(3));
+  }
+
+  @Test
+  public void concurrencyIsLimited() {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    when(client.deleteObjects(any(DeleteObjectsRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+              Thread.sleep(20);
+              inFlight.decrementAndGet();
+              return new DeleteObjectsResult(Collections.emptyList());
+            });
+
+    BulkDeleteResult result =
+        new BulkDeleter(client, executor, 1, 2).delete("myBucket", keys("a", 10).iterator());
+
+    assertThat(result.getDeletedCount(), is(10L));
+    assertThat(maxInFlight.get() <= 2, is(true));
+  }
+
+  @Test
+  public void failedKeysAreReported() {
+    when(client.deleteObjects(any(DeleteObjectsRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              DeleteObjectsRequest request = invocation.getArgument(0);
+              String first = request.getKeys().get(0).getKey();
+              if (first.equals("a0")) {
+                DeleteError error = new DeleteError();
+                error.setKey("a1");
+                error.setCode("AccessDenied");
+                throw new MultiObjectDeleteException(
+                    Collections.singletonList(error), Collections.emptyList());
+              }
+              throw new AmazonS3Exception("unavailable");
+            });
+
+    BulkDeleteResult result =
+        new BulkDeleter(client, executor, 3, 1).delete("myBucket", keys("a", 6).iterator());
+
+    assertThat(result.getDeletedCount(), is(2L));
+    assertThat(result.isSuccessful(), is(false));
+    List<String> failed = new ArrayList<String>(result.getFailedKeys());
+    Collections.sort(failed);
+    assertThat(failed, is(Arrays.asList("a1", "a3", "a4", "a5")));
+  }
+
+  @Test
+  public void prefixIsListedPageByPage() {
+    when(client.listObjectsV2(any(ListObjectsV2Request.class)))
+        .thenAnswer(
+            invocation -> {
+              ListObjectsV2Request request = invocation.getArgument(0);
+              ListObjectsV2Result listing = new ListObjectsV2Result();
+              boolean first = request.getContinuationToken() == null;
+              for (String key : keys(first ? "p1-" : "p2-", 4)) {
+                S3ObjectSummary summary = new S3ObjectSummary();
+                summary.setKey(key);
+                listing.getObjectSummaries().add(summary);
+              }
+              listing.setTruncated(first);
+              listing.setNextContinuationToken("page2");
+              return listing;
+            });
+    when(client.deleteObjects(any(DeleteObjectsRequest.class)))
+        .thenReturn(new DeleteObjectsResult(Collections.emptyList()));
+
+    BulkDeleteResult result =
+        new BulkDeleter(client, executor, 1000, 2).deletePrefix("myBucket", "logs/");
+
+    assertThat(result.getDeletedCount(), is(8L));
+    assertThat(result.getBatchCount(), is(1L));
+  }
+
+  private static List<String> keys(String prefix, int count) {
+    List<String> keys = new ArrayList<String>(count);
+    for (int i = 0; i < count; i++) {
+      keys.add(prefix + i);
+    }
+    return keys;
+  }
+}
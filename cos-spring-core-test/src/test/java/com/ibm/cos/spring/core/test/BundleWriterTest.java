@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.AmazonS3Exception;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import com.ibm.cos.spring.core.pack.BundleReader;
+import com.ibm.cos.spring.core.pack.BundleWriter;
+import com.ibm.cos.spring.core.pack.RecordLocation;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BundleWriterTest {
+
+  private static final String BUCKET = LocalCOSServerRule.BUCKET;
+
+  @Rule public LocalCOSServerRule cos = new LocalCOSServerRule();
+
+  @Test
+  public void recordsArePackedIntoBundles() {
+    BundleWriter writer = new BundleWriter(cos.getClient(), BUCKET, "bundles/", 1024, 0, 4);
+    List<RecordLocation> locations = new ArrayList<RecordLocation>();
+    for (int i = 0; i < 100; i++) {
+      locations.add(writer.append("record" + i, record(i)));
+    }
+    long requests = cos.getServer().getRequestCount();
+    writer.flush();
+
+    // each bundle is one PUT for the data and one for its index
+    assertThat(writer.getBundleCount() < 10, is(true));
+    assertThat(cos.getServer().getObjectCount(BUCKET), is((int) writer.getBundleCount() * 2));
+    assertThat(cos.getServer().getRequestCount() - requests <= 2, is(true));
+
+    BundleReader reader = new BundleReader(cos.getClient(), BUCKET, 4);
+    for (int i = 0; i < 100; i++) {
+      RecordLocation location = RecordLocation.parse(locations.get(i).toString());
+      assertThat(reader.read(location), is(record(i)));
+    }
+  }
+
+  @Test
+  public void recordIsReadByKeyThroughIndex() {
+    BundleWriter writer = new BundleWriter(cos.getClient(), BUCKET, "bundles/", 1024 * 1024, 0, 4);
+    RecordLocation location = writer.append("a", record(1));
+    writer.append("b", record(2));
+    writer.flush();
+
+    BundleReader reader = new BundleReader(cos.getClient(), BUCKET, 4);
+    String bundleKey = location.getBundleKey();
+
+    assertThat(reader.read(bundleKey, "b"), is(record(2)));
+    long requests = cos.getServer().getRequestCount();
+    assertThat(reader.read(bundleKey, "c"), is(nullValue()));
+    assertThat(reader.getIndex(bundleKey).get("a"), is(location));
+    // the index is cached
+    assertThat(cos.getServer().getRequestCount(), is(requests));
+  }
+
+  @Test
+  public void bundleIsFlushedAfterInterval() throws Exception {
+    BundleWriter writer = new BundleWriter(cos.getClient(), BUCKET, "bundles/", 1024 * 1024, 50, 4);
+    writer.append("a", record(1));
+
+    Thread.sleep(300);
+
+    assertThat(writer.getBundleCount(), is(1L));
+    writer.destroy();
+  }
+
+  @Test
+  public void failedBundleIsRetried() {
+    cos.getServer().getFaults().setSlowDownRate(1);
+    BundleWriter writer = new BundleWriter(cos.getClient(), BUCKET, "bundles/", 1024 * 1024, 0, 4);
+    writer.append("a", record(1));
+
+    try {
+      writer.flush();
+      fail("upload succeeded");
+    } catch (AmazonS3Exception e) {
+      // retried below
+    }
+    assertThat(writer.getPendingBundleCount(), is(1));
+    cos.getServer().getFaults().setSlowDownRate(0);
+    writer.flush();
+
+    assertThat(writer.getPendingBundleCount(), is(0));
+    assertThat(writer.getBundleCount(), is(1L));
+  }
+
+  @Test
+  public void failedBundleDoesNotBlockLaterBundles() {
+    AmazonS3 client = mock(AmazonS3.class, delegatesTo(cos.getClient()));
+    BundleWriter writer = new BundleWriter(client, BUCKET, "bundles/", 1024 * 1024, 0, 4);
+    RecordLocation failing = writer.append("a", record(1));
+    doThrow(new AmazonS3Exception("Service Unavailable"))
+        .when(client)
+        .putObject(
+            argThat((PutObjectRequest request) -> request.getKey().equals(failing.getBundleKey())));
+    try {
+      writer.flush();
+      fail("upload succeeded");
+    } catch (AmazonS3Exception e) {
+      // the bundle stays sealed
+    }
+
+    RecordLocation later = writer.append("b", record(2));
+    try {
+      writer.flush();
+      fail("upload succeeded");
+    } catch (AmazonS3Exception e) {
+      // the first bundle failed again
+    }
+
+    assertThat(writer.getPendingBundleCount(), is(1));
+    assertThat(writer.getBundleCount(), is(1L));
+    assertThat(new BundleReader(client, BUCKET, 4).read(later), is(record(2)));
+  }
+
+  @Test
+  public void appendsFailOnceTooManyBundlesWait() {
+    AmazonS3 client = mock(AmazonS3.class, delegatesTo(cos.getClient()));
+    AtomicBoolean failing = new AtomicBoolean(true);
+    doAnswer(
+            invocation -> {
+              throw new AmazonS3Exception("Service Unavailable");
+            })
+        .when(client)
+        .putObject(argThat((PutObjectRequest request) -> failing.get()));
+    BundleWriter writer = new BundleWriter(client, BUCKET, "bundles/", 16, 0, 2);
+    for (int i = 0; i < 2; i++) {
+      try {
+        writer.append("key" + i, record(100 + i));
+        fail("upload succeeded");
+      } catch (AmazonS3Exception e) {
+        // the full bundle stays sealed
+      }
+    }
+    assertThat(writer.getPendingBundleCount(), is(2));
+
+    try {
+      writer.append("key2", record(102));
+      fail("record appended while two bundles wait");
+    } catch (AmazonS3Exception e) {
+      assertThat(writer.getPendingBundleCount(), is(2));
+    }
+
+    failing.set(false);
+    writer.append("key2", record(102));
+    writer.flush();
+    assertThat(writer.getPendingBundleCount(), is(0));
+    assertThat(writer.getBundleCount(), is(3L));
+    assertThat(writer.getRecordCount(), is(3L));
+  }
+
+  @Test
+  public void longKeyIsRejected() {
+    BundleWriter writer = new BundleWriter(cos.getClient(), BUCKET, "bundles/", 1024 * 1024, 0, 4);
+    char[] key = new char[40_000];
+    Arrays.fill(key, 'é');
+
+    try {
+      writer.append(new String(key), record(1));
+      fail("key longer than 65535 bytes");
+    } catch (IllegalArgumentException e) {
+      // 80000 bytes in UTF-8
+    }
+    writer.append(new String(key, 0, 20_000), record(1));
+    writer.flush();
+
+    assertThat(writer.getBundleCount(), is(1L));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void closedWriterRejectsRecords() {
+    BundleWriter writer = new BundleWriter(cos.getClient(), BUCKET, "bundles/", 1024, 0, 4);
+    writer.destroy();
+    writer.append("a", record(1));
+  }
+
+  private static byte[] record(int i) {
+    return ("{\"id\":" + i + ",\"value\":\"" + i * 31 + "\"}").getBytes(StandardCharsets.UTF_8);
+  }
+}
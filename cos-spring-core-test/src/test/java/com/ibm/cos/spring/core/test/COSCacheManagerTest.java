@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static com.ibm.cos.spring.core.test.LocalCOSServerRule.BUCKET;
+import static org.hamcrest.CoreMatchers.endsWith;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cos.spring.core.cache.COSCache;
+import com.ibm.cos.spring.core.cache.COSCacheManager;
+import com.ibm.cos.spring.core.cache.CacheManagerProperties;
+import com.ibm.cos.spring.core.delete.BulkDeleter;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class COSCacheManagerTest {
+
+  @Rule public LocalCOSServerRule cos = new LocalCOSServerRule();
+
+  private CacheManagerProperties properties;
+
+  @Before
+  public void setUp() {
+    this.properties = new CacheManagerProperties();
+    properties.setBucket(BUCKET);
+  }
+
+  @Test
+  public void valuesAreCompressedAndReadBack() {
+    char[] report = new char[100_000];
+    Arrays.fill(report, 'r');
+    properties.setNearCacheSize(0);
+    COSCacheManager cacheManager = createCacheManager();
+
+    cacheManager.getCache("reports").put("2018-06", new String(report));
+
+    assertThat(
+        cos.getServer().getObject(BUCKET, "cache/reports/2018-06").length < 10_000, is(true));
+    assertThat(
+        cos.getClient().getObjectMetadata(BUCKET, "cache/reports/2018-06").getContentEncoding(),
+        is("gzip"));
+    COSCache cache = (COSCache) createCacheManager().getCache("reports");
+    assertThat(cache.get("2018-06").get(), is(new String(report)));
+    assertThat(cache.getHitCount(), is(1L));
+  }
+
+  @Test
+  public void largeValueIsUploadedInParts() {
+    byte[] value = new byte[9 * 1024 * 1024];
+    new Random(42).nextBytes(value);
+    properties.setNearCacheSize(0);
+    createCacheManager().getCache("reports").put("large", value);
+
+    assertThat(
+        cos.getClient().getObjectMetadata(BUCKET, "cache/reports/large").getETag(), endsWith("-2"));
+    COSCache cache = (COSCache) createCacheManager().getCache("reports");
+    assertThat(Arrays.equals((byte[]) cache.get("large").get(), value), is(true));
+  }
+
+  @Test
+  public void nearCacheAnswersRepeatedReads() {
+    COSCache writer = (COSCache) createCacheManager().getCache("reports");
+    writer.put("a", "value");
+    COSCache cache = (COSCache) createCacheManager().getCache("reports");
+    long requests = cos.getServer().getRequestCount();
+
+    assertThat(cache.get("a").get(), is("value"));
+    assertThat(cache.get("a").get(), is("value"));
+    assertThat(cache.get("a").get(), is("value"));
+
+    assertThat(cos.getServer().getRequestCount() - requests, is(1L));
+    assertThat(cache.getNearHitCount(), is(2L));
+  }
+
+  @Test
+  public void nearCacheIsBoundedBySerializedSize() {
+    properties.setNearCacheMaxBytes(50_000);
+    COSCache cache = (COSCache) createCacheManager().getCache("reports");
+
+    cache.put("a", new byte[20_000]);
+    cache.put("b", new byte[20_000]);
+    cache.put("c", new byte[20_000]);
+
+    assertThat(cache.getNearCacheSize(), is(2));
+    assertThat(cache.getNearCacheBytes() <= 50_000, is(true));
+    long requests = cos.getServer().getRequestCount();
+    assertThat(((byte[]) cache.get("a").get()).length, is(20_000));
+    assertThat(cos.getServer().getRequestCount() - requests, is(1L));
+  }
+
+  @Test
+  public void valueLargerThanNearCacheIsReadFromCOS() {
+    properties.setNearCacheMaxBytes(10_000);
+    COSCache cache = (COSCache) createCacheManager().getCache("reports");
+    cache.put("small", "value");
+    cache.put("large", new byte[20_000]);
+    long requests = cos.getServer().getRequestCount();
+
+    assertThat(((byte[]) cache.get("large").get()).length, is(20_000));
+    assertThat(cache.get("small").get(), is("value"));
+
+    assertThat(cos.getServer().getRequestCount() - requests, is(1L));
+    assertThat(cache.getNearCacheSize(), is(1));
+  }
+
+  @Test
+  public void expiredEntryIsMiss() throws Exception {
+    properties.setTtl(200);
+    properties.setNearCacheSize(0);
+    COSCache cache = (COSCache) createCacheManager().getCache("reports");
+    cache.put("a", "value");
+    assertThat(cache.get("a").get(), is("value"));
+
+    Thread.sleep(300);
+
+    assertThat(cache.get("a"), is(nullValue()));
+    assertThat(cache.getMissCount(), is(1L));
+  }
+
+  @Test
+  public void missingEntryIsLoaded() {
+    COSCache cache = (COSCache) createCacheManager().getCache("reports");
+
+    assertThat(cache.get("a", () -> "loaded"), is("loaded"));
+    assertThat(cache.get("a", () -> "reloaded"), is("loaded"));
+    assertThat(cos.getServer().getObject(BUCKET, "cache/reports/a") != null, is(true));
+  }
+
+  @Test
+  public void nullValuesAreCached() {
+    COSCache cache = (COSCache) createCacheManager().getCache("reports");
+    cache.put("a", null);
+
+    COSCache reader = (COSCache) createCacheManager().getCache("reports");
+    assertThat(reader.get("a").get(), is(nullValue()));
+  }
+
+  @Test
+  public void unserializableValueIsNotStored() {
+    COSCache cache = (COSCache) createCacheManager().getCache("reports");
+    cache.put("a", "value");
+
+    try {
+      cache.put("a", Arrays.asList("value", new Object()));
+      fail("expected AmazonClientException");
+    } catch (AmazonClientException e) {
+      // the previous entry is neither overwritten nor truncated
+      COSCache reader = (COSCache) createCacheManager().getCache("reports");
+      assertThat(reader.get("a").get(), is("value"));
+    }
+  }
+
+  @Test
+  public void evictDeletesEntry() {
+    COSCache cache = (COSCache) createCacheManager().getCache("reports");
+    cache.put("a", "value");
+
+    cache.evict("a");
+
+    assertThat(cos.getServer().getObject(BUCKET, "cache/reports/a"), is(nullValue()));
+    assertThat(cache.getNearCacheSize(), is(0));
+  }
+
+  @Test
+  public void clearDeletesAllEntries() {
+    COSCache cache = (COSCache) createCacheManager().getCache("reports");
+    cache.put("a", "value");
+    cache.put("b", "value");
+    createCacheManager().getCache("other").put("a", "value");
+
+    cache.clear();
+
+    assertThat(cos.getServer().getObjectCount(BUCKET), is(1));
+    assertThat(cache.get("a"), is(nullValue()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void bucketIsRequired() {
+    new CacheManagerProperties().validate();
+  }
+
+  private COSCacheManager createCacheManager() {
+    AmazonS3 client = cos.getClient();
+    return properties.createCacheManager(
+        client, new BulkDeleter(client, Runnable::run, 1000, 1), null);
+  }
+}
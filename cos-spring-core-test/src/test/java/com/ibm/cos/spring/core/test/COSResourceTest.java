@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.CompleteMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.InitiateMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.InitiateMultipartUploadResult;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectInputStream;
+import com.ibm.cloud.objectstorage.services.s3.model.UploadPartRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.UploadPartResult;
+import com.ibm.cos.spring.core.io.COSInputStream;
+import com.ibm.cos.spring.core.io.COSOutputStream;
+import com.ibm.cos.spring.core.io.COSProtocolResolver;
+import com.ibm.cos.spring.core.io.COSResource;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.util.StreamUtils;
+
+public class COSResourceTest {
+
+  private static final byte[] CONTENT = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+
+  private AmazonS3 client;
+
+  private List<long[]> ranges;
+
+  @Before
+  public void setUp() {
+    this.client = mock(AmazonS3.class);
+    this.ranges = new ArrayList<long[]>();
+    when(client.getObject(any(GetObjectRequest.class)))
+        .thenAnswer(invocation -> rangedGet(invocation.getArgument(0)));
+  }
+
+  @Test
+  public void headerReadFetchesFirstRangeOnly() throws Exception {
+    try (COSInputStream input = new COSInputStream(client, "myBucket", "myKey", 4, 16)) {
+      byte[] header = new byte[4];
+      assertThat(input.read(header), is(4));
+      assertThat(new String(header, StandardCharsets.US_ASCII), is("0123"));
+      assertThat(input.getLength(), is(20L));
+    }
+
+    assertThat(ranges.size(), is(1));
+    assertThat(ranges.get(0), is(new long[] {0, 3}));
+  }
+
+  @Test
+  public void sequentialReadDoublesRangeSize() throws Exception {
+    try (COSInputStream input = new COSInputStream(client, "myBucket", "myKey", 4, 16)) {
+      assertThat(StreamUtils.copyToByteArray(input), is(CONTENT));
+    }
+
+    assertThat(ranges.size(), is(3));
+    assertThat(ranges.get(1), is(new long[] {4, 11}));
+    assertThat(ranges.get(2), is(new long[] {12, 27}));
+  }
+
+  @Test
+  public void seekStartsNewRange() throws Exception {
+    try (COSInputStream input = new COSInputStream(client, "myBucket", "myKey", 4, 16)) {
+      input.seek(15);
+      assertThat((char) input.read(), is('f'));
+      assertThat(input.getPosition(), is(16L));
+    }
+
+    assertThat(ranges.get(0), is(new long[] {15, 18}));
+  }
+
+  @Test
+  public void outputStreamUsesSinglePutForSmallContent() throws Exception {
+    try (OutputStream output = new COSResource(client, "myBucket", "myKey").getOutputStream()) {
+      output.write(CONTENT);
+    }
+
+    verify(client).putObject(any(PutObjectRequest.class));
+    verify(client, never()).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+  }
+
+  @Test
+  public void outputStreamUploadsParts() throws Exception {
+    InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+    initiated.setUploadId("myUploadId");
+    when(client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+        .thenReturn(initiated);
+    List<Long> partSizes = new ArrayList<Long>();
+    when(client.uploadPart(any(UploadPartRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              UploadPartRequest request = invocation.getArgument(0);
+              partSizes.add(request.getPartSize());
+              UploadPartResult result = new UploadPartResult();
+              result.setPartNumber(request.getPartNumber());
+              result.setETag("etag" + request.getPartNumber());
+              return result;
+            });
+
+    int partSize = 5 * 1024 * 1024;
+    try (OutputStream output =
+        new COSOutputStream(client, "myBucket", "myKey", new ObjectMetadata(), partSize)) {
+      output.write(new byte[partSize + 1024]);
+    }
+
+    assertThat(partSizes, is(Arrays.asList((long) partSize, 1024L)));
+    verify(client, times(1)).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    verify(client, never()).putObject(any(PutObjectRequest.class));
+  }
+
+  @Test
+  public void protocolResolverResolvesLocation() {
+    DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+    resourceLoader.addProtocolResolver(new COSProtocolResolver(client));
+
+    COSResource resource = (COSResource) resourceLoader.getResource("cos://myBucket/a/b.txt");
+    assertThat(resource.getBucket(), is("myBucket"));
+    assertThat(resource.getKey(), is("a/b.txt"));
+
+    COSResource relative = (COSResource) resource.createRelative("c.txt");
+    assertThat(relative.getKey(), is("a/c.txt"));
+  }
+
+  private S3Object rangedGet(GetObjectRequest request) {
+    long[] range = request.getRange();
+    ranges.add(range);
+    int start = (int) range[0];
+    int end = (int) Math.min(range[1], CONTENT.length - 1);
+
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(end - start + 1);
+    metadata.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + CONTENT.length);
+    metadata.setHeader("ETag", "myETag");
+
+    S3Object object = new S3Object();
+    object.setObjectMetadata(metadata);
+    object.setObjectContent(
+        new S3ObjectInputStream(
+            new ByteArrayInputStream(CONTENT, start, end - start + 1), new HttpGet()));
+    return object;
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ibm.cloud.objectstorage.auth.AWSCredentials;
+import com.ibm.cloud.objectstorage.auth.AWSCredentialsProvider;
+import com.ibm.cloud.objectstorage.auth.BasicAWSCredentials;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cos.spring.core.startup.ClientStartup;
+import com.ibm.cos.spring.core.startup.StartupMode;
+import com.ibm.cos.spring.core.startup.StartupProperties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClientStartupTest {
+
+  private final AmazonS3 client = mock(AmazonS3.class);
+
+  private final AtomicInteger builds = new AtomicInteger();
+
+  private final Supplier<AmazonS3> factory =
+      () -> {
+        builds.incrementAndGet();
+        return client;
+      };
+
+  @Before
+  public void setUp() {
+    when(client.doesBucketExist("myBucket")).thenReturn(true);
+  }
+
+  @Test
+  public void eagerModeBuildsClientImmediately() {
+    ClientStartup clientStartup = new ClientStartup(StartupMode.EAGER);
+
+    assertThat(clientStartup.createClient(factory), is(client));
+    assertThat(builds.get(), is(1));
+    assertThat(clientStartup.isInitialized(), is(true));
+    assertThat(clientStartup.getPhase(ClientStartup.CLIENT), is(not(nullValue())));
+  }
+
+  @Test
+  public void lazyModeBuildsClientOnFirstCall() {
+    ClientStartup clientStartup = new ClientStartup(StartupMode.LAZY);
+    AmazonS3 lazy = clientStartup.createClient(factory);
+    assertThat(builds.get(), is(0));
+    assertThat(clientStartup.isInitialized(), is(false));
+
+    assertThat(lazy.doesBucketExist("myBucket"), is(true));
+    assertThat(lazy.doesBucketExist("myBucket"), is(true));
+
+    assertThat(builds.get(), is(1));
+    assertThat(clientStartup.isInitialized(), is(true));
+    assertThat(clientStartup.getPhase(ClientStartup.CLIENT_INITIALIZATION), is(not(nullValue())));
+    assertThat(clientStartup.getPhase(ClientStartup.FIRST_USE_WAIT), is(not(nullValue())));
+  }
+
+  @Test
+  public void shutdownOfUnusedClientDoesNotBuildIt() {
+    ClientStartup clientStartup = new ClientStartup(StartupMode.LAZY);
+    AmazonS3 lazy = clientStartup.createClient(factory);
+
+    lazy.shutdown();
+
+    assertThat(builds.get(), is(0));
+    verify(client, never()).shutdown();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void callAfterShutdownFails() {
+    AmazonS3 lazy = new ClientStartup(StartupMode.LAZY).createClient(factory);
+    lazy.shutdown();
+
+    lazy.doesBucketExist("myBucket");
+  }
+
+  @Test
+  public void failedBuildIsRetriedOnNextCall() {
+    AtomicInteger attempts = new AtomicInteger();
+    AmazonS3 lazy =
+        new ClientStartup(StartupMode.LAZY)
+            .createClient(
+                () -> {
+                  if (attempts.incrementAndGet() == 1) {
+                    throw new IllegalArgumentException("invalid endpoint");
+                  }
+                  return client;
+                });
+
+    try {
+      lazy.doesBucketExist("myBucket");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage(), is("invalid endpoint"));
+    }
+    assertThat(lazy.doesBucketExist("myBucket"), is(true));
+    assertThat(attempts.get(), is(2));
+  }
+
+  @Test
+  public void backgroundModeBuildsClientWhenReady() throws Exception {
+    ClientStartup clientStartup = new ClientStartup(StartupMode.BACKGROUND);
+    clientStartup.createClient(factory);
+    assertThat(builds.get(), is(0));
+
+    clientStartup.ready();
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!clientStartup.isInitialized() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(clientStartup.isInitialized(), is(true));
+    assertThat(builds.get(), is(1));
+    assertThat(clientStartup.getPhase(ClientStartup.FIRST_USE_WAIT), is(nullValue()));
+  }
+
+  @Test
+  public void lazyCredentialsAreResolvedOnce() {
+    AtomicInteger resolved = new AtomicInteger();
+    AWSCredentialsProvider provider =
+        new ClientStartup(StartupMode.LAZY)
+            .createCredentialsProvider(
+                () -> {
+                  resolved.incrementAndGet();
+                  return new BasicAWSCredentials("myAccessKey", "mySecretKey");
+                });
+    assertThat(resolved.get(), is(0));
+
+    AWSCredentials credentials = provider.getCredentials();
+
+    assertThat(credentials.getAWSAccessKeyId(), is("myAccessKey"));
+    assertThat(provider.getCredentials(), is(credentials));
+    assertThat(resolved.get(), is(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownModeIsRejected() {
+    StartupProperties properties = new StartupProperties();
+    properties.setMode("sometimes");
+
+    properties.createClientStartup();
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.AmazonServiceException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.HeadBucketRequest;
+import com.ibm.cos.spring.core.warmup.ConnectionWarmer;
+import java.util.Collections;
+import org.junit.Test;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.StaticApplicationContext;
+
+public class ConnectionWarmerTest {
+
+  private final AmazonS3 client = mock(AmazonS3.class);
+
+  @Test
+  public void headRequestsSpreadOverBuckets() {
+    ConnectionWarmer warmer = new ConnectionWarmer(client, new String[] {"a", "b"}, 4, 5_000);
+
+    assertThat(warmer.warmUp(), is(4));
+    verify(client, times(4)).headBucket(any(HeadBucketRequest.class));
+    assertThat(warmer.getWarmedConnections(), is(4));
+  }
+
+  @Test
+  public void bucketListingWithoutBuckets() {
+    when(client.listBuckets()).thenReturn(Collections.emptyList());
+    ConnectionWarmer warmer = new ConnectionWarmer(client, new String[0], 2, 5_000);
+
+    assertThat(warmer.warmUp(), is(2));
+    verify(client, times(2)).listBuckets();
+  }
+
+  @Test
+  public void errorResponsesCountAsWarmed() {
+    when(client.headBucket(any(HeadBucketRequest.class)))
+        .thenThrow(new AmazonServiceException("Forbidden"));
+    ConnectionWarmer warmer = new ConnectionWarmer(client, new String[] {"a"}, 2, 5_000);
+
+    assertThat(warmer.warmUp(), is(2));
+  }
+
+  @Test
+  public void connectionFailuresDoNotCount() {
+    when(client.headBucket(any(HeadBucketRequest.class)))
+        .thenThrow(new AmazonClientException("Connection refused"));
+    ConnectionWarmer warmer = new ConnectionWarmer(client, new String[] {"a"}, 2, 5_000);
+
+    assertThat(warmer.warmUp(), is(0));
+  }
+
+  @Test
+  public void warmUpStopsWaitingAtTimeout() {
+    when(client.headBucket(any(HeadBucketRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(10_000);
+              return null;
+            });
+    ConnectionWarmer warmer = new ConnectionWarmer(client, new String[] {"a"}, 2, 100);
+
+    assertThat(warmer.warmUp(), is(0));
+    assertThat(warmer.getWarmupTime(), is(lessThan(5_000L)));
+  }
+
+  @Test
+  public void warmUpRunsOnFirstRefreshOnly() {
+    ConnectionWarmer warmer = new ConnectionWarmer(client, new String[] {"a"}, 1, 5_000);
+    assertThat(warmer.getWarmupTime(), is(-1L));
+
+    StaticApplicationContext context = new StaticApplicationContext();
+    warmer.onApplicationEvent(new ContextRefreshedEvent(context));
+    warmer.onApplicationEvent(new ContextRefreshedEvent(context));
+
+    verify(client, times(1)).headBucket(any(HeadBucketRequest.class));
+  }
+}
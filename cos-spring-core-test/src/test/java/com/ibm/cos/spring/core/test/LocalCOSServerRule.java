@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import com.ibm.cloud.objectstorage.auth.AWSStaticCredentialsProvider;
+import com.ibm.cloud.objectstorage.auth.BasicAWSCredentials;
+import com.ibm.cloud.objectstorage.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3ClientBuilder;
+import com.ibm.cos.spring.test.LocalCOSServer;
+import org.junit.rules.ExternalResource;
+
+/**
+ * Runs a {@link LocalCOSServer} with the bucket {@code myBucket} for each test and provides a
+ * client of it, so tests exercise ranged reads, multipart uploads and listings as COS answers them.
+ */
+public class LocalCOSServerRule extends ExternalResource {
+
+  public static final String BUCKET = "myBucket";
+
+  private LocalCOSServer server;
+
+  private AmazonS3 client;
+
+  @Override
+  protected void before() throws Throwable {
+    server = LocalCOSServer.start();
+    server.createBucket(BUCKET);
+    client =
+        AmazonS3ClientBuilder.standard()
+            .withEndpointConfiguration(
+                new EndpointConfiguration(server.getEndpoint().toString(), "us-standard"))
+            .withCredentials(
+                new AWSStaticCredentialsProvider(new BasicAWSCredentials("local", "local")))
+            .withPathStyleAccessEnabled(true)
+            .build();
+  }
+
+  @Override
+  protected void after() {
+    client.shutdown();
+    server.close();
+  }
+
+  public LocalCOSServer getServer() {
+    return server;
+  }
+
+  public AmazonS3 getClient() {
+    return client;
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import com.ibm.cloud.objectstorage.DefaultRequest;
+import com.ibm.cloud.objectstorage.Response;
+import com.ibm.cloud.objectstorage.http.HttpResponse;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import com.ibm.cloud.objectstorage.util.AWSRequestMetrics;
+import com.ibm.cloud.objectstorage.util.AWSRequestMetrics.Field;
+import com.ibm.cloud.objectstorage.util.AWSRequestMetricsFullSupport;
+import com.ibm.cos.spring.core.metrics.MicrometerMetricCollector;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.File;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MicrometerMetricCollectorTest {
+
+  private SimpleMeterRegistry registry;
+
+  private MicrometerMetricCollector collector;
+
+  @Before
+  public void setUp() {
+    this.registry = new SimpleMeterRegistry();
+    this.collector = new MicrometerMetricCollector(registry, "default", 1);
+  }
+
+  @Test
+  public void requestLatencyAndBytes() {
+    DefaultRequest<GetObjectRequest> request =
+        new DefaultRequest<GetObjectRequest>(new GetObjectRequest("myBucket", "myKey"), "s3");
+    AWSRequestMetrics metrics = newMetrics(request);
+    metrics.setCounter(Field.HttpClientPoolLeasedCount, 3);
+    metrics.setCounter(Field.HttpClientPoolAvailableCount, 7);
+    metrics.setCounter(Field.HttpClientPoolPendingCount, 1);
+
+    collector.collectMetrics(request, newResponse(request, 200, 1024));
+
+    Timer timer =
+        registry
+            .find("cos.client.requests")
+            .tags(
+                "client",
+                "default",
+                "operation",
+                "GetObject",
+                "bucket",
+                "myBucket",
+                "status",
+                "200")
+            .timer();
+    assertThat(timer, is(notNullValue()));
+    assertThat(timer.count(), is(1L));
+    assertThat(registry.find("cos.client.bytes.received").counter().count(), is(1024.0));
+    assertThat(registry.find("cos.client.pool.leased").gauge().value(), is(3.0));
+    assertThat(registry.find("cos.client.pool.available").gauge().value(), is(7.0));
+    assertThat(registry.find("cos.client.pool.pending").gauge().value(), is(1.0));
+  }
+
+  @Test
+  public void retriesAndThrottling() {
+    DefaultRequest<PutObjectRequest> request =
+        new DefaultRequest<PutObjectRequest>(
+            new PutObjectRequest("myBucket", "myKey", new File("myFile")), "s3");
+    request.addHeader("Content-Length", "2048");
+    AWSRequestMetrics metrics = newMetrics(request);
+    metrics.setCounter(Field.RequestCount, 3);
+    metrics.incrementCounter(Field.ThrottleException);
+    metrics.incrementCounter(Field.ThrottleException);
+
+    collector.collectMetrics(request, newResponse(request, 200, 0));
+
+    assertThat(
+        registry.find("cos.client.retries").tags("operation", "PutObject").counter().count(),
+        is(2.0));
+    assertThat(registry.find("cos.client.throttled").counter().count(), is(2.0));
+    assertThat(registry.find("cos.client.bytes.sent").counter().count(), is(2048.0));
+  }
+
+  @Test
+  public void bucketTagsAreBounded() {
+    for (String bucket : new String[] {"first", "second", "third"}) {
+      DefaultRequest<GetObjectRequest> request =
+          new DefaultRequest<GetObjectRequest>(new GetObjectRequest(bucket, "myKey"), "s3");
+      newMetrics(request);
+      collector.collectMetrics(request, newResponse(request, 200, 0));
+    }
+
+    assertThat(
+        registry.find("cos.client.requests").tags("bucket", "first").timer().count(), is(1L));
+    assertThat(
+        registry.find("cos.client.requests").tags("bucket", "other").timer().count(), is(2L));
+  }
+
+  private static AWSRequestMetrics newMetrics(DefaultRequest<?> request) {
+    AWSRequestMetrics metrics = new AWSRequestMetricsFullSupport();
+    metrics.getTimingInfo().endTiming();
+    request.setAWSRequestMetrics(metrics);
+    return metrics;
+  }
+
+  private static <T> Response<T> newResponse(
+      DefaultRequest<T> request, int statusCode, long contentLength) {
+    HttpResponse httpResponse = new HttpResponse(request, null);
+    httpResponse.setStatusCode(statusCode);
+    if (contentLength > 0) {
+      httpResponse.addHeader("Content-Length", Long.toString(contentLength));
+    }
+    return new Response<T>(null, httpResponse);
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cos.spring.core.cache.CacheProperties;
+import com.ibm.cos.spring.core.cache.ObjectCache;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ObjectCacheTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private AmazonS3 client;
+
+  /** object content by key; the ETag is the content itself */
+  private Map<String, String> objects;
+
+  private int fullGets;
+
+  @Before
+  public void setUp() {
+    this.client = mock(AmazonS3.class);
+    this.objects = new HashMap<String, String>();
+    when(client.getObject(any(GetObjectRequest.class)))
+        .thenAnswer(invocation -> get(invocation.getArgument(0)));
+  }
+
+  @Test
+  public void unchangedObjectIsReadFromDisk() throws Exception {
+    objects.put("myKey", "myContent");
+    ObjectCache cache = newCache(1024);
+    AmazonS3 cachingClient = cache.wrap(client);
+
+    assertThat(cachingClient.getObjectAsString("myBucket", "myKey"), is("myContent"));
+    assertThat(cachingClient.getObjectAsString("myBucket", "myKey"), is("myContent"));
+
+    assertThat(fullGets, is(1));
+    assertThat(cache.getMissCount(), is(1L));
+    assertThat(cache.getHitCount(), is(1L));
+    assertThat(cache.getHitBytes(), is(9L));
+    verify(client, times(2)).getObject(any(GetObjectRequest.class));
+  }
+
+  @Test
+  public void changedObjectIsDownloadedAgain() throws Exception {
+    objects.put("myKey", "myContent");
+    ObjectCache cache = newCache(1024);
+    AmazonS3 cachingClient = cache.wrap(client);
+
+    cachingClient.getObjectAsString("myBucket", "myKey");
+    objects.put("myKey", "newContent");
+
+    assertThat(cachingClient.getObjectAsString("myBucket", "myKey"), is("newContent"));
+    assertThat(cache.getMissCount(), is(2L));
+    assertThat(cache.getSize(), is(10L));
+  }
+
+  @Test
+  public void leastRecentlyUsedObjectIsEvicted() throws Exception {
+    objects.put("a", "0123456789");
+    objects.put("b", "abcdefghij");
+    objects.put("c", "ABCDEFGHIJ");
+    ObjectCache cache = newCache(20);
+    AmazonS3 cachingClient = cache.wrap(client);
+
+    cachingClient.getObjectAsString("myBucket", "a");
+    cachingClient.getObjectAsString("myBucket", "b");
+    cachingClient.getObjectAsString("myBucket", "a");
+    cachingClient.getObjectAsString("myBucket", "c");
+
+    assertThat(cache.getEvictionCount(), is(1L));
+    assertThat(cache.getSize(), is(20L));
+    cachingClient.getObjectAsString("myBucket", "a");
+    assertThat(cache.getHitCount(), is(2L));
+    cachingClient.getObjectAsString("myBucket", "b");
+    assertThat(cache.getMissCount(), is(4L));
+  }
+
+  @Test
+  public void entriesSurviveRestart() throws Exception {
+    objects.put("myKey", "myContent");
+    newCache(1024).wrap(client).getObjectAsString("myBucket", "myKey");
+
+    ObjectCache restarted = newCache(1024);
+    S3Object object = restarted.wrap(client).getObject("myBucket", "myKey");
+    object.close();
+
+    assertThat(restarted.getHitCount(), is(1L));
+    assertThat(object.getObjectMetadata().getETag(), is("myContent"));
+    assertThat(object.getObjectMetadata().getContentType(), is("text/plain"));
+  }
+
+  @Test
+  public void otherFilesInTheDirectoryAreKept() throws Exception {
+    File notes = folder.newFile("notes.txt");
+    File temp = folder.newFile("upload.tmp");
+    File data = folder.newFile("0123456789abcdef0123456789abcdef.data");
+    data.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+
+    newCache(1024);
+
+    assertThat(notes.exists(), is(true));
+    assertThat(temp.exists(), is(true));
+    // the directory is not marked as the cache's own, so even stale cache files stay
+    assertThat(data.exists(), is(true));
+    assertThat(new File(folder.getRoot(), ".cos-cache").exists(), is(false));
+  }
+
+  @Test
+  public void onlyAbandonedCacheFilesAreDeleted() throws Exception {
+    newCache(1024);
+    assertThat(new File(folder.getRoot(), ".cos-cache").exists(), is(true));
+    long old = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+    File abandoned = folder.newFile("0123456789abcdef0123456789abcdef123.tmp");
+    abandoned.setLastModified(old);
+    File orphan = folder.newFile("0123456789abcdef0123456789abcdef.data");
+    orphan.setLastModified(old);
+    // written by another instance sharing the directory
+    File inProgress = folder.newFile("fedcba9876543210fedcba9876543210456.tmp");
+    File moved = folder.newFile("fedcba9876543210fedcba9876543210.data");
+
+    newCache(1024);
+
+    assertThat(abandoned.exists(), is(false));
+    assertThat(orphan.exists(), is(false));
+    assertThat(inProgress.exists(), is(true));
+    assertThat(moved.exists(), is(true));
+  }
+
+  @Test
+  public void rangedGetBypassesCache() throws Exception {
+    objects.put("myKey", "myContent");
+    ObjectCache cache = newCache(1024);
+
+    cache.wrap(client).getObject(new GetObjectRequest("myBucket", "myKey").withRange(0, 1)).close();
+
+    assertThat(cache.getMissCount(), is(0L));
+    assertThat(cache.getSize(), is(0L));
+  }
+
+  @Test
+  public void proxyIdentity() throws Exception {
+    AmazonS3 cachingClient = newCache(1024).wrap(client);
+
+    assertThat(cachingClient.equals(cachingClient), is(true));
+    assertThat(cachingClient, not(sameInstance(client)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void maxObjectSizeAboveMaxSize() {
+    CacheProperties properties = new CacheProperties();
+    properties.setMaxSize(1024);
+    properties.setMaxObjectSize(2048);
+    properties.validate();
+  }
+
+  private ObjectCache newCache(long maxSize) throws Exception {
+    CacheProperties properties = new CacheProperties();
+    properties.setDirectory(folder.getRoot().getPath());
+    properties.setMaxSize(maxSize);
+    properties.setMaxObjectSize(maxSize);
+    return properties.createCache();
+  }
+
+  private S3Object get(GetObjectRequest request) {
+    String content = objects.get(request.getKey());
+    if (request.getNonmatchingETagConstraints().contains(content)) {
+      return null;
+    }
+    fullGets++;
+    byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setHeader("ETag", content);
+    metadata.setContentLength(bytes.length);
+    metadata.setContentType("text/plain");
+
+    S3Object object = new S3Object();
+    object.setBucketName(request.getBucketName());
+    object.setKey(request.getKey());
+    object.setObjectMetadata(metadata);
+    object.setObjectContent(new ByteArrayInputStream(bytes));
+    return object;
+  }
+}
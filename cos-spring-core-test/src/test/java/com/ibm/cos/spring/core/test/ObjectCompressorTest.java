@@ -0,0 +1,290 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.AmazonS3Exception;
+import com.ibm.cloud.objectstorage.services.s3.model.CompleteMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.InitiateMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.PartETag;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectResult;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cloud.objectstorage.services.s3.model.UploadPartRequest;
+import com.ibm.cos.spring.core.compression.CompressionCodec;
+import com.ibm.cos.spring.core.compression.CompressionProperties;
+import com.ibm.cos.spring.core.compression.ObjectCompressor;
+import com.ibm.cos.spring.core.io.COSInputStream;
+import com.ibm.cos.spring.core.io.COSResource;
+import com.ibm.cos.spring.core.transfer.ParallelDownloader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+public class ObjectCompressorTest {
+
+  private static final String BUCKET = LocalCOSServerRule.BUCKET;
+
+  @Rule public LocalCOSServerRule cos = new LocalCOSServerRule();
+
+  private ObjectCompressor compressor;
+
+  private AmazonS3 compressing;
+
+  @Before
+  public void setUp() {
+    CompressionProperties properties = new CompressionProperties();
+    properties.setPrefixes(new String[] {BUCKET + "/logs/", "otherBucket=gzip"});
+    this.compressor = properties.createCompressor();
+    this.compressing = compressor.wrap(cos.getClient());
+  }
+
+  @Test
+  public void matchingUploadIsCompressedAndDecompressed() throws Exception {
+    byte[] content = csv(10_000);
+    ObjectMetadata uploaded = new ObjectMetadata();
+    uploaded.setContentLength(content.length);
+    uploaded.setContentType("text/csv");
+
+    PutObjectResult result =
+        compressing.putObject(BUCKET, "logs/day1.csv", new ByteArrayInputStream(content), uploaded);
+
+    assertThat(result.getETag() != null, is(true));
+    assertThat(
+        cos.getServer().getObject(BUCKET, "logs/day1.csv").length < content.length / 5, is(true));
+    ObjectMetadata stored = cos.getClient().getObjectMetadata(BUCKET, "logs/day1.csv");
+    assertThat(stored.getUserMetaDataOf(ObjectCompressor.CODEC_METADATA), is("gzip"));
+    assertThat(stored.getContentType(), is("text/csv"));
+
+    S3Object object = compressing.getObject(new GetObjectRequest(BUCKET, "logs/day1.csv"));
+    assertThat(object.getObjectMetadata().getContentLength(), is((long) content.length));
+    assertThat(StreamUtils.copyToByteArray(object.getObjectContent()), is(content));
+    assertThat(compressor.getCompressedCount(), is(1L));
+    assertThat(compressor.getDecompressedCount(), is(1L));
+  }
+
+  @Test
+  public void otherUploadIsUnchanged() throws Exception {
+    compressing.putObject(
+        new PutObjectRequest(
+            BUCKET,
+            "images/a.txt",
+            new ByteArrayInputStream("plain".getBytes(StandardCharsets.UTF_8)),
+            new ObjectMetadata()));
+
+    assertThat(
+        new String(cos.getServer().getObject(BUCKET, "images/a.txt"), StandardCharsets.UTF_8),
+        is("plain"));
+    S3Object object = compressing.getObject(new GetObjectRequest(BUCKET, "images/a.txt"));
+    assertThat(
+        object.getObjectMetadata().getUserMetaDataOf(ObjectCompressor.CODEC_METADATA),
+        is(nullValue()));
+    assertThat(
+        StreamUtils.copyToString(object.getObjectContent(), StandardCharsets.UTF_8), is("plain"));
+    assertThat(compressor.getDecompressedCount(), is(0L));
+  }
+
+  @Test
+  public void headReportsUncompressedLength() {
+    byte[] content = csv(1_000);
+    compressing.putObject(
+        new PutObjectRequest(
+            BUCKET, "logs/day1.csv", new ByteArrayInputStream(content), new ObjectMetadata()));
+
+    assertThat(
+        compressing.getObjectMetadata(BUCKET, "logs/day1.csv").getContentLength(),
+        is((long) content.length));
+  }
+
+  @Test
+  public void rangedReadReturnsUncompressedBytes() throws Exception {
+    byte[] content = csv(10_000);
+    compressing.putObject(
+        new PutObjectRequest(
+            BUCKET, "logs/day1.csv", new ByteArrayInputStream(content), new ObjectMetadata()));
+    int stored = cos.getServer().getObject(BUCKET, "logs/day1.csv").length;
+
+    S3Object object =
+        compressing.getObject(new GetObjectRequest(BUCKET, "logs/day1.csv").withRange(100, 199));
+    assertThat(
+        StreamUtils.copyToByteArray(object.getObjectContent()),
+        is(Arrays.copyOfRange(content, 100, 200)));
+    assertThat(object.getObjectMetadata().getContentLength(), is(100L));
+    assertThat(object.getObjectMetadata().getInstanceLength(), is((long) content.length));
+
+    // starts beyond the stored bytes, ends beyond the content
+    object =
+        compressing.getObject(
+            new GetObjectRequest(BUCKET, "logs/day1.csv")
+                .withRange(stored + 10, content.length + 100));
+    assertThat(
+        StreamUtils.copyToByteArray(object.getObjectContent()),
+        is(Arrays.copyOfRange(content, stored + 10, content.length)));
+
+    try {
+      compressing.getObject(
+          new GetObjectRequest(BUCKET, "logs/day1.csv").withRange(content.length, content.length));
+      fail("range after the end of the content");
+    } catch (AmazonS3Exception e) {
+      assertThat(e.getStatusCode(), is(416));
+    }
+  }
+
+  @Test
+  public void multipartUploadIsCompressedInPartOrder() throws Exception {
+    byte[] content = csv(10_000);
+    int half = content.length / 2;
+    String uploadId =
+        compressing
+            .initiateMultipartUpload(new InitiateMultipartUploadRequest(BUCKET, "logs/day1.csv"))
+            .getUploadId();
+
+    List<PartETag> parts = new ArrayList<PartETag>();
+    parts.add(uploadPart(uploadId, 2, Arrays.copyOfRange(content, half, content.length)));
+    parts.add(uploadPart(uploadId, 1, Arrays.copyOfRange(content, 0, half)));
+    compressing.completeMultipartUpload(
+        new CompleteMultipartUploadRequest(BUCKET, "logs/day1.csv", uploadId, parts));
+
+    assertThat(
+        cos.getServer().getObject(BUCKET, "logs/day1.csv").length < content.length / 5, is(true));
+    assertThat(
+        StreamUtils.copyToByteArray(
+            compressing.getObject(BUCKET, "logs/day1.csv").getObjectContent()),
+        is(content));
+    assertThat(compressor.getCompressedCount(), is(1L));
+  }
+
+  @Test
+  public void resourceRoundTrip() throws Exception {
+    // larger than a part, so the resource writes a multipart upload
+    byte[] content = csv(400_000);
+    COSResource resource = new COSResource(compressing, BUCKET, "logs/big.csv");
+    try (OutputStream output = resource.getOutputStream()) {
+      output.write(content);
+    }
+
+    assertThat(
+        cos.getServer().getObject(BUCKET, "logs/big.csv").length < content.length / 5, is(true));
+    assertThat(resource.contentLength(), is((long) content.length));
+    long requests = cos.getServer().getRequestCount();
+    try (InputStream input = resource.getInputStream()) {
+      assertThat(StreamUtils.copyToByteArray(input), is(content));
+    }
+    // the first range and the rest, each a ranged GET and a GET of the whole object
+    assertThat(cos.getServer().getRequestCount() - requests, is(4L));
+    try (COSInputStream input = (COSInputStream) resource.getInputStream()) {
+      input.seek(content.length - 1000);
+      assertThat(
+          StreamUtils.copyToByteArray(input),
+          is(Arrays.copyOfRange(content, content.length - 1000, content.length)));
+      assertThat(input.getLength(), is((long) content.length));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    File file = File.createTempFile("download", ".csv");
+    try {
+      new ParallelDownloader(compressing, executor, 1024 * 1024, 1, false, true)
+          .download(BUCKET, "logs/big.csv", file);
+      assertThat(Files.readAllBytes(file.toPath()), is(content));
+    } finally {
+      executor.shutdown();
+      file.delete();
+    }
+  }
+
+  @Test
+  public void multipartUploadOfUnknownLengthRecordsLength() throws Exception {
+    // incompressible and larger than a part, so the compressed stream is uploaded in parts
+    byte[] content = new byte[9 * 1024 * 1024];
+    new Random(42).nextBytes(content);
+
+    PutObjectResult result =
+        compressing.putObject(
+            BUCKET, "logs/random.bin", new ByteArrayInputStream(content), new ObjectMetadata());
+
+    ObjectMetadata stored = cos.getClient().getObjectMetadata(BUCKET, "logs/random.bin");
+    assertThat(
+        stored.getUserMetaDataOf(ObjectCompressor.LENGTH_METADATA),
+        is(Integer.toString(content.length)));
+    assertThat(stored.getETag(), is(result.getETag()));
+
+    long requests = cos.getServer().getRequestCount();
+    S3Object object =
+        compressing.getObject(
+            new GetObjectRequest(BUCKET, "logs/random.bin")
+                .withRange(content.length - 10, content.length - 1));
+    assertThat(
+        StreamUtils.copyToByteArray(object.getObjectContent()),
+        is(Arrays.copyOfRange(content, content.length - 10, content.length)));
+    assertThat(cos.getServer().getRequestCount() - requests, is(2L));
+  }
+
+  @Test
+  public void longestRuleApplies() {
+    CompressionCodec gzip = CompressionCodec.forName("gzip");
+
+    assertThat(compressor.getCodec(BUCKET, "logs/a").getName(), is(gzip.getName()));
+    assertThat(compressor.getCodec("otherBucket", "a").getName(), is(gzip.getName()));
+    assertThat(compressor.getCodec(BUCKET, "images/a"), is(nullValue()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownCodecIsRejected() {
+    CompressionProperties properties = new CompressionProperties();
+    properties.setCodec("brotli");
+    properties.validate();
+  }
+
+  private PartETag uploadPart(String uploadId, int number, byte[] content) {
+    return compressing
+        .uploadPart(
+            new UploadPartRequest()
+                .withBucketName(BUCKET)
+                .withKey("logs/day1.csv")
+                .withUploadId(uploadId)
+                .withPartNumber(number)
+                .withInputStream(new ByteArrayInputStream(content))
+                .withPartSize(content.length))
+        .getPartETag();
+  }
+
+  private static byte[] csv(int rows) {
+    StringBuilder csv = new StringBuilder();
+    for (int i = 0; i < rows; i++) {
+      csv.append(i).append(",sensor-").append(i % 10).append(",20.5\n");
+    }
+    return csv.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
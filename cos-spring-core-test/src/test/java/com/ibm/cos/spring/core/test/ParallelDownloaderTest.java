@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectInputStream;
+import com.ibm.cos.spring.core.transfer.ParallelDownloader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParallelDownloaderTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final byte[] content = new byte[1_000_000];
+
+  private final AtomicInteger gets = new AtomicInteger();
+
+  private final AmazonS3 client = mock(AmazonS3.class);
+
+  private ExecutorService executor;
+
+  /** GET request that fails after 1000 bytes, 0 for none */
+  private int failingGet;
+
+  @Before
+  public void setUp() throws Exception {
+    new Random(42).nextBytes(content);
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(content.length);
+    metadata.setHeader("ETag", md5(content));
+    when(client.getObjectMetadata(anyString(), anyString())).thenReturn(metadata);
+    when(client.getObject(any(GetObjectRequest.class)))
+        .thenAnswer(invocation -> rangedGet(invocation.getArgument(0)));
+    this.executor = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void downloadWritesPartsThroughChannel() throws Exception {
+    File file = folder.newFile();
+    new ParallelDownloader(client, executor, 100_000, 3, false, true)
+        .download("myBucket", "myKey", file);
+
+    assertThat(Files.readAllBytes(file.toPath()), is(content));
+    assertThat(gets.get(), is(10));
+  }
+
+  @Test
+  public void downloadWritesPartsIntoMappedRegions() throws Exception {
+    File file = folder.newFile();
+    new ParallelDownloader(client, executor, 300_000, 3, true, true)
+        .download("myBucket", "myKey", file);
+
+    assertThat(Files.readAllBytes(file.toPath()), is(content));
+    assertThat(gets.get(), is(4));
+  }
+
+  @Test
+  public void failedPartIsResumed() throws Exception {
+    failingGet = 1;
+    File file = folder.newFile();
+    new ParallelDownloader(client, executor, 1_000_000, 3, false, true)
+        .download("myBucket", "myKey", file);
+
+    assertThat(Files.readAllBytes(file.toPath()), is(content));
+    assertThat(gets.get(), is(2));
+  }
+
+  @Test
+  public void checksumMismatchDeletesFile() throws Exception {
+    File file = folder.newFile();
+    content[500_000] ^= 1;
+    try {
+      new ParallelDownloader(client, executor, 100_000, 3, false, true)
+          .download("myBucket", "myKey", file);
+      fail("expected AmazonClientException");
+    } catch (AmazonClientException e) {
+      assertThat(file.exists(), is(false));
+    }
+  }
+
+  private S3Object rangedGet(GetObjectRequest request) {
+    long[] range = request.getRange();
+    int start = (int) range[0];
+    int end = (int) range[1];
+    InputStream in = new ByteArrayInputStream(content, start, end - start + 1);
+    if (gets.incrementAndGet() == failingGet) {
+      in = new FailingInputStream(in, 1000);
+    }
+    S3Object object = new S3Object();
+    object.setObjectContent(new S3ObjectInputStream(in, new HttpGet()));
+    return object;
+  }
+
+  private static String md5(byte[] bytes) throws Exception {
+    StringBuilder hex = new StringBuilder();
+    for (byte b : MessageDigest.getInstance("MD5").digest(bytes)) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  /** Simulates a connection reset after a number of bytes. */
+  private static class FailingInputStream extends InputStream {
+
+    private final InputStream in;
+
+    private int remaining;
+
+    FailingInputStream(InputStream in, int failAfter) {
+      this.in = in;
+      this.remaining = failAfter;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining == 0) {
+        throw new IOException("Connection reset");
+      }
+      int read = in.read(b, off, Math.min(len, remaining));
+      remaining -= Math.max(0, read);
+      return read;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.ibm.cloud.objectstorage.oauth.Token;
+import com.ibm.cloud.objectstorage.oauth.TokenProvider;
+import com.ibm.cos.spring.core.auth.RefreshingTokenManager;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class RefreshingTokenManagerTest {
+
+  private final AtomicInteger fetches = new AtomicInteger();
+
+  private RefreshingTokenManager tokenManager;
+
+  @After
+  public void tearDown() {
+    if (tokenManager != null) {
+      tokenManager.destroy();
+    }
+  }
+
+  @Test
+  public void prefetchedTokenIsReused() {
+    tokenManager = new RefreshingTokenManager(provider(3600), 600_000, 10_000);
+    tokenManager.prefetch(false);
+
+    assertThat(tokenManager.getToken(), is("token1"));
+    assertThat(tokenManager.getToken(), is("token1"));
+    assertThat(fetches.get(), is(1));
+    assertThat(tokenManager.getRefreshCount(), is(1L));
+    assertThat(tokenManager.getExpiresAt(), is(greaterThan(System.currentTimeMillis())));
+  }
+
+  @Test
+  public void firstRequestFetchesTokenWithoutPrefetch() {
+    tokenManager = new RefreshingTokenManager(provider(3600), 600_000, 10_000);
+
+    assertThat(tokenManager.getExpiresAt(), is(0L));
+    assertThat(tokenManager.getToken(), is("token1"));
+    assertThat(fetches.get(), is(1));
+  }
+
+  @Test
+  public void tokenIsRefreshedAheadOfExpiry() throws Exception {
+    // a 2 second token refreshed 1.9 seconds before expiry is refreshed after the retry interval
+    tokenManager = new RefreshingTokenManager(provider(2), 1_900, 50);
+    tokenManager.prefetch(false);
+
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (tokenManager.getRefreshCount() < 3 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(tokenManager.getRefreshCount(), is(greaterThan(2L)));
+    assertThat(tokenManager.getToken(), is(not("token1")));
+  }
+
+  @Test
+  public void failedPrefetchIsCountedAndRetriedOnRequest() {
+    AtomicInteger failures = new AtomicInteger(1);
+    TokenProvider valid = provider(3600);
+    tokenManager =
+        new RefreshingTokenManager(
+            () -> {
+              if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("IAM unavailable");
+              }
+              return valid.retrieveToken();
+            },
+            600_000,
+            60_000);
+
+    tokenManager.prefetch(false);
+    assertThat(tokenManager.getFailureCount(), is(1L));
+
+    assertThat(tokenManager.getToken(), is("token1"));
+    assertThat(tokenManager.getRefreshCount(), is(1L));
+  }
+
+  @Test
+  public void failedRequestFetchPropagates() {
+    tokenManager =
+        new RefreshingTokenManager(
+            () -> {
+              throw new IllegalStateException("IAM unavailable");
+            },
+            600_000,
+            60_000);
+
+    try {
+      tokenManager.getToken();
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertThat(tokenManager.getFailureCount(), is(1L));
+    }
+  }
+
+  private TokenProvider provider(long expiresIn) {
+    return () -> {
+      Token token = new Token();
+      token.setAccess_token("token" + fetches.incrementAndGet());
+      token.setExpiration(String.valueOf(System.currentTimeMillis() / 1000 + expiresIn));
+      return token;
+    };
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.AmazonS3Exception;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectInputStream;
+import com.ibm.cos.spring.core.hedge.RequestHedger;
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestHedgerTest {
+
+  private final AmazonS3 client = mock(AmazonS3.class);
+
+  private final AtomicInteger attempts = new AtomicInteger();
+
+  private RequestHedger hedger;
+
+  @Before
+  public void setUp() {
+    this.hedger = new RequestHedger(new String[] {"myBucket/small/"}, 0.95, 50, 5, 0.05, 1);
+  }
+
+  @After
+  public void tearDown() {
+    hedger.destroy();
+  }
+
+  @Test
+  public void slowRequestIsHedged() {
+    // the first attempt stalls, the hedge answers at once
+    when(client.getObject(anyString(), anyString()))
+        .thenAnswer(
+            invocation -> {
+              int attempt = attempts.incrementAndGet();
+              return respond(attempt, attempt == 1 ? 5_000 : 0);
+            });
+
+    S3Object object = hedger.wrap(client).getObject("myBucket", "small/a");
+
+    assertThat(object.getKey(), is("attempt2"));
+    assertThat(hedger.getRequestCount(), is(1L));
+    assertThat(hedger.getHedgeCount(), is(1L));
+    assertThat(hedger.getHedgeWinCount(), is(1L));
+  }
+
+  @Test
+  public void fastRequestIsNotHedged() {
+    when(client.getObject(any(GetObjectRequest.class)))
+        .thenAnswer(invocation -> respond(attempts.incrementAndGet(), 0));
+
+    S3Object object = hedger.wrap(client).getObject(new GetObjectRequest("myBucket", "small/a"));
+
+    assertThat(object.getKey(), is("attempt1"));
+    assertThat(hedger.getHedgeCount(), is(0L));
+    verify(client, times(1)).getObject(any(GetObjectRequest.class));
+  }
+
+  @Test
+  public void budgetCapsHedges() {
+    when(client.getObject(anyString(), anyString()))
+        .thenAnswer(invocation -> respond(attempts.incrementAndGet(), 200));
+    AmazonS3 hedged = hedger.wrap(client);
+
+    hedged.getObject("myBucket", "small/a");
+    hedged.getObject("myBucket", "small/b");
+
+    assertThat(hedger.getRequestCount(), is(2L));
+    assertThat(hedger.getHedgeCount(), is(1L));
+  }
+
+  @Test
+  public void otherPrefixesAreNotHedged() {
+    when(client.getObject(anyString(), anyString()))
+        .thenAnswer(invocation -> respond(attempts.incrementAndGet(), 200));
+
+    hedger.wrap(client).getObject("myBucket", "large/a");
+
+    assertThat(hedger.getRequestCount(), is(0L));
+    verify(client, times(1)).getObject(anyString(), anyString());
+  }
+
+  @Test
+  public void requestWithoutBudgetRunsOnCallerThread() {
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    when(client.getObject(anyString(), anyString()))
+        .thenAnswer(
+            invocation -> {
+              threads.add(Thread.currentThread());
+              return respond(attempts.incrementAndGet(), 200);
+            });
+    AmazonS3 hedged = hedger.wrap(client);
+
+    hedged.getObject("myBucket", "small/a");
+    threads.clear();
+    S3Object object = hedged.getObject("myBucket", "small/b");
+
+    assertThat(object.getKey(), is("attempt3"));
+    assertThat(threads, is(Collections.singleton(Thread.currentThread())));
+  }
+
+  @Test
+  public void busyExecutorSendsNoHedge() {
+    hedger.destroy();
+    hedger = new RequestHedger(new String[0], 0.95, 50, 5, 0.05, 1, 1);
+    when(client.getObject(anyString(), anyString()))
+        .thenAnswer(invocation -> respond(attempts.incrementAndGet(), 200));
+
+    S3Object object = hedger.wrap(client).getObject("myBucket", "small/a");
+
+    // the only thread runs the first attempt, so the hedge is not sent
+    assertThat(object.getKey(), is("attempt1"));
+    assertThat(hedger.getHedgeCount(), is(0L));
+    assertThat(hedger.getSaturatedCount(), is(1L));
+  }
+
+  @Test
+  public void queuingExecutorIsNotWaitedFor() {
+    hedger.destroy();
+    // an executor that queues instead of rejecting, like a VirtualThreadExecutor at its limit
+    hedger =
+        new RequestHedger(
+            new String[0], 0.95, 50, 5, 0.05, 1, 1, Executors.newSingleThreadExecutor());
+    when(client.getObject(anyString(), anyString()))
+        .thenAnswer(invocation -> respond(attempts.incrementAndGet(), 200));
+
+    S3Object object = hedger.wrap(client).getObject("myBucket", "small/a");
+
+    // the hedge is not queued behind the first attempt
+    assertThat(object.getKey(), is("attempt1"));
+    assertThat(hedger.getHedgeCount(), is(0L));
+    assertThat(hedger.getSaturatedCount(), is(1L));
+    assertThat(attempts.get(), is(1));
+  }
+
+  @Test(expected = AmazonS3Exception.class)
+  public void errorsArePropagated() {
+    when(client.getObject(anyString(), anyString())).thenThrow(new AmazonS3Exception("NoSuchKey"));
+
+    hedger.wrap(client).getObject("myBucket", "small/a");
+  }
+
+  private static S3Object respond(int attempt, long delay) throws InterruptedException {
+    Thread.sleep(delay);
+    S3Object object = new S3Object();
+    object.setKey("attempt" + attempt);
+    object.setObjectContent(
+        new S3ObjectInputStream(new ByteArrayInputStream(new byte[0]), new HttpGet()));
+    return object;
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.ibm.cloud.objectstorage.AmazonServiceException;
+import com.ibm.cloud.objectstorage.retry.RetryPolicy;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cos.spring.core.retry.CircuitBreakerOpenException;
+import com.ibm.cos.spring.core.retry.FullJitterBackoffStrategy;
+import com.ibm.cos.spring.core.retry.RetryController;
+import com.ibm.cos.spring.core.retry.RetryProperties;
+import org.junit.Test;
+
+public class RetryControllerTest {
+
+  private static final GetObjectRequest REQUEST = new GetObjectRequest("myBucket", "myKey");
+
+  @Test
+  public void budgetLimitsRetries() {
+    RetryProperties properties = new RetryProperties();
+    properties.setBudgetCapacity(10);
+    properties.setBudgetRetryCost(5);
+    RetryController controller = properties.createRetryController();
+    RetryPolicy policy = controller.createRetryPolicy();
+
+    assertThat(shouldRetry(policy, 0), is(true));
+    assertThat(shouldRetry(policy, 1), is(true));
+    assertThat(shouldRetry(policy, 2), is(false));
+    assertThat(controller.getBudgetAvailable(), is(0));
+    assertThat(controller.getBudgetExhaustedCount(), is(1L));
+
+    for (int i = 0; i < 20; i++) {
+      controller.afterResponse(null, null);
+    }
+    assertThat(controller.getBudgetAvailable(), is(10));
+    assertThat(shouldRetry(policy, 0), is(true));
+    assertThat(controller.getRetryCount(), is(3L));
+  }
+
+  @Test
+  public void breakerOpensAfterConsecutiveFailures() throws Exception {
+    RetryProperties properties = new RetryProperties();
+    properties.setBreakerThreshold(3);
+    properties.setBreakerOpenTime(100);
+    RetryController controller = properties.createRetryController();
+
+    controller.afterError(null, null, serviceException(503));
+    controller.afterError(null, null, serviceException(503));
+    controller.afterError(null, null, serviceException(404));
+    controller.afterError(null, null, serviceException(500));
+    assertThat(controller.isBreakerOpen(), is(false));
+
+    controller.afterError(null, null, serviceException(503));
+    controller.afterError(null, null, serviceException(503));
+    assertThat(controller.isBreakerOpen(), is(true));
+    assertThat(controller.getBreakerOpenedCount(), is(1L));
+    assertThat(shouldRetry(controller.createRetryPolicy(), 0), is(false));
+    try {
+      controller.beforeExecution(REQUEST);
+      fail("expected CircuitBreakerOpenException");
+    } catch (CircuitBreakerOpenException e) {
+      assertThat(controller.getRejectedCount(), is(1L));
+    }
+
+    Thread.sleep(150);
+    assertThat(controller.beforeExecution(REQUEST), is(REQUEST));
+    controller.afterError(null, null, serviceException(503));
+    assertThat(controller.isBreakerOpen(), is(true));
+    assertThat(controller.getBreakerOpenedCount(), is(2L));
+
+    Thread.sleep(150);
+    assertThat(controller.beforeExecution(REQUEST), is(REQUEST));
+    controller.afterResponse(null, null);
+    assertThat(controller.isBreakerOpen(), is(false));
+    assertThat(controller.beforeExecution(REQUEST), is(REQUEST));
+    assertThat(controller.beforeExecution(REQUEST), is(REQUEST));
+  }
+
+  @Test
+  public void halfOpenBreakerLetsOneProbeThrough() throws Exception {
+    RetryProperties properties = new RetryProperties();
+    properties.setBreakerThreshold(1);
+    properties.setBreakerOpenTime(100);
+    RetryController controller = properties.createRetryController();
+    controller.afterError(null, null, serviceException(503));
+
+    Thread.sleep(150);
+    assertThat(controller.isBreakerOpen(), is(false));
+    assertThat(controller.beforeExecution(REQUEST), is(REQUEST));
+    for (int i = 0; i < 3; i++) {
+      try {
+        controller.beforeExecution(REQUEST);
+        fail("expected CircuitBreakerOpenException");
+      } catch (CircuitBreakerOpenException e) {
+        assertThat(controller.getRejectedCount(), is(i + 1L));
+      }
+    }
+
+    // a probe that never completes is replaced after the open time
+    Thread.sleep(150);
+    assertThat(controller.beforeExecution(REQUEST), is(REQUEST));
+    try {
+      controller.beforeExecution(REQUEST);
+      fail("expected CircuitBreakerOpenException");
+    } catch (CircuitBreakerOpenException e) {
+      assertThat(controller.getRejectedCount(), is(4L));
+    }
+    controller.afterResponse(null, null);
+    assertThat(controller.beforeExecution(REQUEST), is(REQUEST));
+  }
+
+  @Test
+  public void maxErrorRetryOverridesSdkDefault() {
+    RetryProperties properties = new RetryProperties();
+    properties.setMaxErrorRetry(7);
+    RetryPolicy policy = properties.createRetryController().createRetryPolicy();
+
+    assertThat(policy.getMaxErrorRetry(), is(7));
+    assertThat(policy.isMaxErrorRetryInClientConfigHonored(), is(false));
+  }
+
+  @Test
+  public void fullJitterBackoffStaysWithinWindow() {
+    FullJitterBackoffStrategy backoff = new FullJitterBackoffStrategy(100, 1_000);
+    for (int i = 0; i < 1_000; i++) {
+      assertThat(backoff.delayBeforeNextRetry(REQUEST, null, 0), is(lessThanOrEqualTo(100L)));
+      assertThat(backoff.delayBeforeNextRetry(REQUEST, null, 2), is(lessThanOrEqualTo(400L)));
+      assertThat(backoff.delayBeforeNextRetry(REQUEST, null, 80), is(lessThanOrEqualTo(1_000L)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownBackoff() {
+    RetryProperties properties = new RetryProperties();
+    properties.setBackoff("linear");
+    properties.validate();
+  }
+
+  private static boolean shouldRetry(RetryPolicy policy, int retriesAttempted) {
+    return policy.getRetryCondition().shouldRetry(REQUEST, serviceException(503), retriesAttempted);
+  }
+
+  private static AmazonServiceException serviceException(int statusCode) {
+    AmazonServiceException e = new AmazonServiceException("myError");
+    e.setStatusCode(statusCode);
+    return e;
+  }
+}
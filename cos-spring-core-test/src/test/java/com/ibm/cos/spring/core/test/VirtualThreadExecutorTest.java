@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.ibm.cloud.objectstorage.services.s3.transfer.TransferManager;
+import com.ibm.cloud.objectstorage.services.s3.transfer.TransferManagerBuilder;
+import com.ibm.cloud.objectstorage.services.s3.transfer.Upload;
+import com.ibm.cos.spring.core.concurrent.VirtualThreadExecutor;
+import com.ibm.cos.spring.core.concurrent.VirtualThreads;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class VirtualThreadExecutorTest {
+
+  @Rule public LocalCOSServerRule cos = new LocalCOSServerRule();
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void limitsRunningTasks() throws Exception {
+    VirtualThreadExecutor executor = new VirtualThreadExecutor(Executors.defaultThreadFactory(), 3);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<Future<?>> results = new ArrayList<Future<?>>();
+    for (int i = 0; i < 30; i++) {
+      results.add(
+          executor.submit(
+              () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                running.decrementAndGet();
+                return null;
+              }));
+    }
+    for (Future<?> result : results) {
+      result.get();
+    }
+
+    assertThat(maxRunning.get(), is(3));
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+  }
+
+  @Test
+  public void shutdownNowDiscardsWaitingTasks() throws Exception {
+    VirtualThreadExecutor executor = new VirtualThreadExecutor(Executors.defaultThreadFactory(), 1);
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicInteger interrupted = new AtomicInteger();
+    AtomicInteger discarded = new AtomicInteger();
+    executor.execute(
+        () -> {
+          started.countDown();
+          try {
+            Thread.sleep(10_000);
+          } catch (InterruptedException e) {
+            interrupted.incrementAndGet();
+          }
+        });
+    for (int i = 0; i < 5; i++) {
+      executor.execute(discarded::incrementAndGet);
+    }
+    started.await();
+    assertThat(executor.getActiveCount(), is(1));
+    assertThat(executor.getTaskCount(), is(6));
+
+    executor.shutdownNow();
+
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    assertThat(interrupted.get(), is(1));
+    assertThat(discarded.get(), is(0));
+  }
+
+  @Test(timeout = 30_000)
+  public void multipartUploadsBeyondConcurrencyComplete() throws Exception {
+    VirtualThreadExecutor executor = new VirtualThreadExecutor(Executors.defaultThreadFactory(), 2);
+    TransferManager transferManager =
+        TransferManagerBuilder.standard()
+            .withS3Client(cos.getClient())
+            .withExecutorFactory(() -> executor)
+            .withMultipartUploadThreshold(1024L * 1024)
+            .withMinimumUploadPartSize(1024L * 1024)
+            .build();
+    File file = folder.newFile();
+    Files.write(file.toPath(), new byte[3 * 1024 * 1024 + 1]);
+
+    // each upload waits for its four parts on a task of its own
+    List<Upload> uploads = new ArrayList<Upload>();
+    for (int i = 0; i < 8; i++) {
+      uploads.add(transferManager.upload(LocalCOSServerRule.BUCKET, "key" + i, file));
+    }
+    for (Upload upload : uploads) {
+      upload.waitForUploadResult();
+    }
+
+    assertThat(cos.getServer().getObjectCount(LocalCOSServerRule.BUCKET), is(8));
+    assertThat(
+        cos.getServer().getObject(LocalCOSServerRule.BUCKET, "key7").length,
+        is((int) file.length()));
+    transferManager.shutdownNow(false);
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void rejectsTasksAfterShutdown() {
+    VirtualThreadExecutor executor = new VirtualThreadExecutor(Executors.defaultThreadFactory(), 1);
+    executor.shutdown();
+    executor.execute(() -> {});
+  }
+
+  @Test
+  public void runsOnVirtualThreads() throws Exception {
+    Assume.assumeTrue(VirtualThreads.isAvailable());
+    VirtualThreadExecutor executor = new VirtualThreadExecutor("cos-test-", 10);
+
+    String name = executor.submit(() -> Thread.currentThread().toString()).get();
+
+    assertThat(name.startsWith("VirtualThread[#"), is(true));
+    assertThat(name.contains("cos-test-1"), is(true));
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.AmazonS3Exception;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectResult;
+import com.ibm.cos.spring.core.writebehind.OverflowPolicy;
+import com.ibm.cos.spring.core.writebehind.WriteBehindUploader;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.StreamUtils;
+
+public class WriteBehindUploaderTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final AmazonS3 client = mock(AmazonS3.class);
+
+  private final Map<String, String> contents = new ConcurrentHashMap<String, String>();
+
+  private final AtomicInteger failures = new AtomicInteger();
+
+  /** released to let uploads of the key "blocker" complete */
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private final CountDownLatch blocking = new CountDownLatch(1);
+
+  @Before
+  public void setUp() {
+    when(client.putObject(any(PutObjectRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              PutObjectRequest request = invocation.getArgument(0);
+              if (request.getKey().equals("blocker")) {
+                blocking.countDown();
+                release.await();
+              }
+              if (failures.getAndDecrement() > 0) {
+                throw new AmazonS3Exception("Service Unavailable");
+              }
+              contents.put(
+                  request.getKey(),
+                  StreamUtils.copyToString(request.getInputStream(), StandardCharsets.UTF_8));
+              return new PutObjectResult();
+            });
+  }
+
+  @Test
+  public void queuedPayloadsOfSameKeyAreCoalesced() throws Exception {
+    WriteBehindUploader uploader = uploader(1, 1024, null, OverflowPolicy.BLOCK);
+    block(uploader);
+    for (int i = 0; i < 3; i++) {
+      uploader.submit("myBucket", "myKey", bytes("v" + i), null);
+    }
+    assertThat(uploader.getQueuedCount(), is(1));
+    release.countDown();
+
+    assertThat(uploader.flush(5000), is(true));
+    assertThat(contents.get("myKey"), is("v2"));
+    assertThat(uploader.getCoalescedCount(), is(2L));
+    verify(client, times(2)).putObject(any(PutObjectRequest.class));
+    uploader.destroy();
+  }
+
+  @Test
+  public void payloadsBeyondMemoryLimitAreSpilled() throws Exception {
+    File spillDirectory = folder.newFolder();
+    WriteBehindUploader uploader = uploader(1, 10, spillDirectory, OverflowPolicy.FAIL);
+    block(uploader);
+    for (int i = 0; i < 3; i++) {
+      uploader.submit("myBucket", "key" + i, bytes("payload" + i), null);
+    }
+    assertThat(uploader.getQueuedBytes(), is(8L));
+    assertThat(uploader.getSpilledBytes(), is(16L));
+    assertThat(spillDirectory.list().length, is(2));
+    release.countDown();
+
+    assertThat(uploader.flush(5000), is(true));
+    for (int i = 0; i < 3; i++) {
+      assertThat(contents.get("key" + i), is("payload" + i));
+    }
+    assertThat(uploader.getSpilledBytes(), is(0L));
+    assertThat(spillDirectory.list().length, is(0));
+    uploader.destroy();
+  }
+
+  @Test
+  public void failedSpillReleasesReservedBytes() throws Exception {
+    File spillDirectory = folder.newFolder();
+    WriteBehindUploader uploader = uploader(1, 10, spillDirectory, OverflowPolicy.FAIL);
+    block(uploader);
+    uploader.submit("myBucket", "key0", bytes("payload0"), null);
+    assertThat(spillDirectory.delete(), is(true));
+    try {
+      uploader.submit("myBucket", "key1", bytes("payload1"), null);
+      fail("expected AmazonClientException");
+    } catch (AmazonClientException e) {
+      assertThat(uploader.getSpilledBytes(), is(0L));
+    } finally {
+      release.countDown();
+      uploader.destroy();
+    }
+  }
+
+  @Test
+  public void destroyDeletesSpillFilesOfDiscardedPayloads() throws Exception {
+    File spillDirectory = folder.newFolder();
+    WriteBehindUploader uploader =
+        new WriteBehindUploader(
+            client, 1, 10, spillDirectory, 1024, OverflowPolicy.FAIL, 3, 10, 100);
+    block(uploader);
+    for (int i = 0; i < 3; i++) {
+      uploader.submit("myBucket", "key" + i, bytes("payload" + i), null);
+    }
+    assertThat(spillDirectory.list().length, is(2));
+
+    uploader.destroy();
+
+    assertThat(uploader.getQueuedCount(), is(0));
+    assertThat(uploader.getSpilledBytes(), is(0L));
+    assertThat(spillDirectory.list().length, is(0));
+  }
+
+  @Test
+  public void fullQueueDropsPayloads() throws Exception {
+    WriteBehindUploader uploader = uploader(1, 10, null, OverflowPolicy.DROP);
+    block(uploader);
+    assertThat(uploader.submit("myBucket", "key0", bytes("payload0"), null), is(true));
+    assertThat(uploader.submit("myBucket", "key1", bytes("payload1"), null), is(false));
+    assertThat(uploader.getDroppedCount(), is(1L));
+    release.countDown();
+    uploader.destroy();
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void fullQueueRejectsPayloads() throws Exception {
+    WriteBehindUploader uploader = uploader(1, 10, null, OverflowPolicy.FAIL);
+    block(uploader);
+    uploader.submit("myBucket", "key0", bytes("payload0"), null);
+    try {
+      uploader.submit("myBucket", "key1", bytes("payload1"), null);
+    } finally {
+      release.countDown();
+      uploader.destroy();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void payloadLargerThanQueueIsRejected() throws Exception {
+    WriteBehindUploader uploader = uploader(1, 10, null, OverflowPolicy.BLOCK);
+    try {
+      uploader.submit("myBucket", "key0", bytes("payload larger than the queue"), null);
+    } finally {
+      uploader.destroy();
+    }
+  }
+
+  @Test
+  public void destroyReleasesBlockedSubmitters() throws Exception {
+    WriteBehindUploader uploader = uploader(1, 10, null, OverflowPolicy.BLOCK);
+    block(uploader);
+    uploader.submit("myBucket", "key0", bytes("payload0"), null);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Boolean> blocked =
+          executor.submit(() -> uploader.submit("myBucket", "key1", bytes("payload1"), null));
+      Thread.sleep(100);
+      assertThat(blocked.isDone(), is(false));
+
+      Future<?> destroyed =
+          executor.submit(
+              () -> {
+                uploader.destroy();
+                return null;
+              });
+      try {
+        blocked.get(5, TimeUnit.SECONDS);
+        fail("submit returned after destroy");
+      } catch (ExecutionException e) {
+        assertThat(e.getCause() instanceof IllegalStateException, is(true));
+      }
+      release.countDown();
+      destroyed.get(5, TimeUnit.SECONDS);
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void failedUploadsAreRetried() throws Exception {
+    failures.set(2);
+    WriteBehindUploader uploader = uploader(2, 1024, null, OverflowPolicy.BLOCK);
+    uploader.submit("myBucket", "myKey", bytes("value"), null);
+
+    assertThat(uploader.flush(5000), is(true));
+    assertThat(contents.get("myKey"), is("value"));
+    assertThat(uploader.getUploadedCount(), is(1L));
+    verify(client, times(3)).putObject(any(PutObjectRequest.class));
+    uploader.destroy();
+  }
+
+  @Test
+  public void destroyUploadsQueuedPayloads() throws Exception {
+    WriteBehindUploader uploader = uploader(2, 1024, null, OverflowPolicy.BLOCK);
+    for (int i = 0; i < 10; i++) {
+      uploader.submit("myBucket", "key" + i, bytes("payload" + i), null);
+    }
+    uploader.destroy();
+
+    assertThat(contents.size(), is(10));
+    assertThat(uploader.getQueuedCount(), is(0));
+  }
+
+  private WriteBehindUploader uploader(
+      int threads, long maxQueuedBytes, File spillDirectory, OverflowPolicy overflowPolicy) {
+    return new WriteBehindUploader(
+        client, threads, maxQueuedBytes, spillDirectory, 1024, overflowPolicy, 3, 10, 5000);
+  }
+
+  /** Occupy the only upload thread until {@link #release} is counted down. */
+  private void block(WriteBehindUploader uploader) throws InterruptedException {
+    uploader.submit("myBucket", "blocker", new byte[0], null);
+    blocking.await();
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
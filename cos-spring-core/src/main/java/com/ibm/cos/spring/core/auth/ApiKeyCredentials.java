@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.auth;
+
+import com.ibm.cloud.objectstorage.oauth.BasicIBMOAuthCredentials;
+import com.ibm.cloud.objectstorage.oauth.TokenManager;
+
+/**
+ * OAuth credentials of a client using an API key whose tokens come from a shared {@link
+ * TokenManager}, e.g. a {@link RefreshingTokenManager}, instead of one created by the SDK. The API
+ * key is still reported for diagnostics.
+ */
+public class ApiKeyCredentials extends BasicIBMOAuthCredentials {
+
+  private final String apiKey;
+
+  /**
+   * @param apiKey IAM API key the token manager was created for
+   * @param tokenManager token manager supplying the bearer tokens
+   * @param serviceInstanceId (optional) resource instance id, required to create buckets
+   */
+  public ApiKeyCredentials(String apiKey, TokenManager tokenManager, String serviceInstanceId) {
+    super(tokenManager, serviceInstanceId);
+    this.apiKey = apiKey;
+  }
+
+  @Override
+  public String getApiKey() {
+    return apiKey;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.auth;
+
+import com.ibm.cloud.objectstorage.oauth.DefaultTokenProvider;
+
+/**
+ * IAM token settings for clients authenticating with an API key, bound from {@code cos.iam.*}.
+ * Durations are in milliseconds.
+ */
+public class IamProperties {
+
+  /** fetch the token when the context starts instead of on the first request */
+  private boolean prefetch = true;
+
+  /** fetch the token at startup in the background; requests before it completes wait for it */
+  private boolean asyncPrefetch = true;
+
+  /** time before expiry at which the token is refreshed in the background */
+  private long refreshBefore = 10 * 60 * 1000;
+
+  /** delay before a failed refresh is retried */
+  private long retryInterval = 10 * 1000;
+
+  /** (optional) IAM token endpoint, defaults to the public IBM Cloud IAM endpoint */
+  private String endpoint;
+
+  /**
+   * Validate these settings and create a token manager for the given API key, prefetching its token
+   * if configured.
+   *
+   * @param apiKey IAM API key
+   * @return a started token manager
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public RefreshingTokenManager createTokenManager(String apiKey) {
+    return createTokenManager(apiKey, prefetch);
+  }
+
+  /**
+   * Validate these settings and create a token manager for the given API key.
+   *
+   * @param apiKey IAM API key
+   * @param prefetch fetch the token now, overriding {@code cos.iam.prefetch}
+   * @return a started token manager
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public RefreshingTokenManager createTokenManager(String apiKey, boolean prefetch) {
+    validate();
+
+    DefaultTokenProvider tokenProvider = new DefaultTokenProvider(apiKey);
+    if (endpoint != null) {
+      tokenProvider.setIamEndpoint(endpoint);
+    }
+    RefreshingTokenManager tokenManager =
+        new RefreshingTokenManager(tokenProvider, refreshBefore, retryInterval);
+    if (prefetch) {
+      tokenManager.prefetch(asyncPrefetch);
+    }
+    return tokenManager;
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (refreshBefore < 0) {
+      throw new IllegalArgumentException("cos.iam.refresh-before must not be negative");
+    }
+    if (retryInterval < 1) {
+      throw new IllegalArgumentException("cos.iam.retry-interval must be greater than 0");
+    }
+  }
+
+  public boolean isPrefetch() {
+    return prefetch;
+  }
+
+  public void setPrefetch(boolean prefetch) {
+    this.prefetch = prefetch;
+  }
+
+  public boolean isAsyncPrefetch() {
+    return asyncPrefetch;
+  }
+
+  public void setAsyncPrefetch(boolean asyncPrefetch) {
+    this.asyncPrefetch = asyncPrefetch;
+  }
+
+  public long getRefreshBefore() {
+    return refreshBefore;
+  }
+
+  public void setRefreshBefore(long refreshBefore) {
+    this.refreshBefore = refreshBefore;
+  }
+
+  public long getRetryInterval() {
+    return retryInterval;
+  }
+
+  public void setRetryInterval(long retryInterval) {
+    this.retryInterval = retryInterval;
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public void setEndpoint(String endpoint) {
+    this.endpoint = endpoint;
+  }
+}
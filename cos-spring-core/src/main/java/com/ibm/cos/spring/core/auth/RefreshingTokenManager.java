@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.auth;
+
+import com.ibm.cloud.objectstorage.oauth.Token;
+import com.ibm.cloud.objectstorage.oauth.TokenManager;
+import com.ibm.cloud.objectstorage.oauth.TokenProvider;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * IAM token manager that refreshes the token on a background thread ahead of its expiry, so
+ * requests read a valid token without waiting for IAM. A request only fetches the token itself if
+ * no valid token is available, i.e. before the first fetch completed or after refreshes failed
+ * until expiry.
+ */
+public class RefreshingTokenManager implements TokenManager, DisposableBean {
+
+  private static final Log logger = LogFactory.getLog(RefreshingTokenManager.class);
+
+  private final TokenProvider tokenProvider;
+
+  private final long refreshBefore;
+
+  private final long retryInterval;
+
+  private final ScheduledExecutorService scheduler;
+
+  private volatile CurrentToken current;
+
+  /** pending background refresh, guarded by this */
+  private ScheduledFuture<?> scheduledRefresh;
+
+  private final AtomicLong refreshCount = new AtomicLong();
+
+  private final AtomicLong failureCount = new AtomicLong();
+
+  private final AtomicLong refreshNanos = new AtomicLong();
+
+  /**
+   * @param tokenProvider provider fetching tokens from IAM
+   * @param refreshBefore milliseconds before expiry at which the token is refreshed
+   * @param retryInterval milliseconds before a failed refresh is retried
+   */
+  public RefreshingTokenManager(
+      TokenProvider tokenProvider, long refreshBefore, long retryInterval) {
+    this.tokenProvider = tokenProvider;
+    this.refreshBefore = refreshBefore;
+    this.retryInterval = retryInterval;
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cos-iam-refresh-");
+    threadFactory.setDaemon(true);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+  }
+
+  /**
+   * Fetch the first token now. A failed fetch is logged and retried in the background.
+   *
+   * @param async fetch on the background thread instead of the calling thread
+   */
+  public void prefetch(boolean async) {
+    if (async) {
+      scheduler.execute(this::refreshQuietly);
+    } else {
+      refreshQuietly();
+    }
+  }
+
+  @Override
+  public String getToken() {
+    CurrentToken valid = current;
+    if (valid == null || valid.isExpired()) {
+      valid = refresh(false);
+    }
+    return valid.token.getAccess_token();
+  }
+
+  private void refreshQuietly() {
+    try {
+      refresh(true);
+    } catch (RuntimeException e) {
+      logger.warn("Unable to refresh IAM token, retrying in " + retryInterval + " ms", e);
+    }
+  }
+
+  private synchronized CurrentToken refresh(boolean force) {
+    CurrentToken valid = current;
+    if (!force && valid != null && !valid.isExpired()) {
+      // refreshed by another thread while this one was waiting
+      return valid;
+    }
+
+    long start = System.nanoTime();
+    try {
+      CurrentToken fresh = new CurrentToken(tokenProvider.retrieveToken());
+      current = fresh;
+      refreshCount.incrementAndGet();
+      schedule(
+          Math.max(retryInterval, fresh.expiresAt - refreshBefore - System.currentTimeMillis()));
+      return fresh;
+    } catch (RuntimeException e) {
+      failureCount.incrementAndGet();
+      schedule(retryInterval);
+      throw e;
+    } finally {
+      refreshNanos.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+  private synchronized void schedule(long delay) {
+    if (scheduler.isShutdown()) {
+      return;
+    }
+    if (scheduledRefresh != null) {
+      scheduledRefresh.cancel(false);
+    }
+    scheduledRefresh = scheduler.schedule(this::refreshQuietly, delay, TimeUnit.MILLISECONDS);
+  }
+
+  /** @return number of successful token fetches */
+  public long getRefreshCount() {
+    return refreshCount.get();
+  }
+
+  /** @return number of failed token fetches */
+  public long getFailureCount() {
+    return failureCount.get();
+  }
+
+  /**
+   * @param unit unit of the returned time
+   * @return total time spent fetching tokens, successfully or not
+   */
+  public double getTotalRefreshTime(TimeUnit unit) {
+    return refreshNanos.get() / (double) TimeUnit.NANOSECONDS.convert(1, unit);
+  }
+
+  /** @return expiry of the current token in epoch milliseconds, 0 before the first fetch */
+  public long getExpiresAt() {
+    CurrentToken valid = current;
+    return valid != null ? valid.expiresAt : 0;
+  }
+
+  @Override
+  public void destroy() {
+    scheduler.shutdownNow();
+  }
+
+  private static final class CurrentToken {
+
+    final Token token;
+
+    /** expiry in epoch milliseconds */
+    final long expiresAt;
+
+    CurrentToken(Token token) {
+      this.token = token;
+      this.expiresAt =
+          token.getExpiration() != null
+              ? Long.parseLong(token.getExpiration()) * 1000
+              : System.currentTimeMillis() + Long.parseLong(token.getExpires_in()) * 1000;
+    }
+
+    boolean isExpired() {
+      return System.currentTimeMillis() >= expiresAt;
+    }
+  }
+}
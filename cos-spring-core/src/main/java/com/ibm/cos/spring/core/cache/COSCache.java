@@ -0,0 +1,346 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.cache;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.AmazonServiceException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cos.spring.core.io.COSOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Spring {@link org.springframework.cache.Cache} storing each entry as an object below the prefix
+ * of the cache. Values are serialized and compressed while they are uploaded and decoded while they
+ * are downloaded. Entries with a time to live carry their expiry in the object metadata and are
+ * ignored once it has passed.
+ *
+ * <p>Recently used values are additionally kept in an in-memory near cache bounded by entry count
+ * and serialized size, which answers repeated reads without a request. A value changed by another
+ * instance is seen once its near cache entry expires.
+ */
+public class COSCache extends AbstractValueAdaptingCache {
+
+  /** user metadata holding the expiry of an entry in epoch millis */
+  public static final String EXPIRES_METADATA = "cache-expires";
+
+  private static final String GZIP_ENCODING = "gzip";
+
+  /** longest cache key used in object keys as is, longer keys are hashed */
+  private static final int MAX_PLAIN_KEY_LENGTH = 512;
+
+  private static final int LOCK_STRIPES = 64;
+
+  private final String name;
+
+  private final String prefix;
+
+  private final COSCacheManager manager;
+
+  private final NearCache nearCache;
+
+  private final Object[] locks = new Object[LOCK_STRIPES];
+
+  private final AtomicLong nearHitCount = new AtomicLong();
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  COSCache(COSCacheManager manager, String name, String prefix) {
+    super(manager.isAllowNullValues());
+    this.manager = manager;
+    this.name = name;
+    this.prefix = prefix;
+    this.nearCache =
+        new NearCache(
+            manager.getNearCacheSize(), manager.getNearCacheMaxBytes(), manager.getNearCacheTtl());
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      locks[i] = new Object();
+    }
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /** @return the client storing the entries */
+  @Override
+  public AmazonS3 getNativeCache() {
+    return manager.getClient();
+  }
+
+  /** @return key prefix of the entries of this cache */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  @Override
+  protected Object lookup(Object key) {
+    String objectKey = toObjectKey(key);
+    Object value = nearCache.get(objectKey);
+    if (value != null) {
+      nearHitCount.incrementAndGet();
+      return value;
+    }
+
+    S3Object object;
+    try {
+      object = manager.getClient().getObject(manager.getBucket(), objectKey);
+    } catch (AmazonServiceException e) {
+      if (e.getStatusCode() == 404) {
+        missCount.incrementAndGet();
+        return null;
+      }
+      throw e;
+    }
+
+    long expires = getExpires(object.getObjectMetadata());
+    if (expires > 0 && expires <= System.currentTimeMillis()) {
+      object.getObjectContent().abort();
+      missCount.incrementAndGet();
+      return null;
+    }
+    CountingInputStream serialized;
+    try (InputStream content = object.getObjectContent()) {
+      serialized =
+          new CountingInputStream(
+              GZIP_ENCODING.equals(object.getObjectMetadata().getContentEncoding())
+                  ? new GZIPInputStream(content)
+                  : content);
+      value = manager.getSerializer().deserialize(serialized);
+    } catch (IOException e) {
+      throw new AmazonClientException("Unable to read cache entry " + objectKey, e);
+    }
+    hitCount.incrementAndGet();
+    nearCache.put(objectKey, value, serialized.count, expires);
+    return value;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Callable<T> valueLoader) {
+    ValueWrapper cached = get(key);
+    if (cached != null) {
+      return (T) cached.get();
+    }
+    // loads of the same key are not run concurrently within this instance
+    synchronized (locks[(key.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES]) {
+      cached = get(key);
+      if (cached != null) {
+        return (T) cached.get();
+      }
+      T value;
+      try {
+        value = valueLoader.call();
+      } catch (Exception e) {
+        throw new ValueRetrievalException(key, valueLoader, e);
+      }
+      put(key, value);
+      return value;
+    }
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    String objectKey = toObjectKey(key);
+    Object storeValue = toStoreValue(value);
+
+    ObjectMetadata metadata = new ObjectMetadata();
+    long expires = 0;
+    if (manager.getTtl() > 0) {
+      expires = System.currentTimeMillis() + manager.getTtl();
+      metadata.addUserMetadata(EXPIRES_METADATA, Long.toString(expires));
+      metadata.setHttpExpiresDate(new Date(expires));
+    }
+    if (manager.isCompression()) {
+      metadata.setContentEncoding(GZIP_ENCODING);
+    }
+
+    // remove first, so a failed upload does not leave the previous value in the near cache
+    nearCache.remove(objectKey);
+    COSOutputStream upload =
+        new COSOutputStream(
+            manager.getClient(),
+            manager.getBucket(),
+            objectKey,
+            metadata,
+            COSOutputStream.DEFAULT_PART_SIZE);
+    CountingOutputStream serialized;
+    try {
+      if (manager.isCompression()) {
+        GZIPOutputStream compressed = new GZIPOutputStream(upload, 8 * 1024);
+        serialized = new CountingOutputStream(compressed);
+        manager.getSerializer().serialize(storeValue, serialized);
+        compressed.finish();
+      } else {
+        serialized = new CountingOutputStream(upload);
+        manager.getSerializer().serialize(storeValue, serialized);
+      }
+      // only a completely serialized value is uploaded
+      upload.close();
+    } catch (IOException | RuntimeException e) {
+      upload.abort();
+      throw new AmazonClientException("Unable to write cache entry " + objectKey, e);
+    }
+    nearCache.put(objectKey, storeValue, serialized.count, expires);
+  }
+
+  /**
+   * Store a value unless the key is present. COS has no conditional writes, so the check and the
+   * write are not atomic across instances.
+   */
+  @Override
+  public ValueWrapper putIfAbsent(Object key, Object value) {
+    ValueWrapper existing = get(key);
+    if (existing == null) {
+      put(key, value);
+    }
+    return existing;
+  }
+
+  @Override
+  public void evict(Object key) {
+    String objectKey = toObjectKey(key);
+    nearCache.remove(objectKey);
+    manager.getClient().deleteObject(manager.getBucket(), objectKey);
+  }
+
+  /** Delete all entries below the prefix of this cache. */
+  @Override
+  public void clear() {
+    nearCache.clear();
+    manager.getDeleter().deletePrefix(manager.getBucket(), prefix);
+  }
+
+  /** @return number of reads answered by the near cache */
+  public long getNearHitCount() {
+    return nearHitCount.get();
+  }
+
+  /** @return number of reads answered by COS */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /** @return number of reads finding no current entry */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /** @return number of values in the near cache */
+  public int getNearCacheSize() {
+    return nearCache.size();
+  }
+
+  /** @return serialized size of the values in the near cache in bytes */
+  public long getNearCacheBytes() {
+    return nearCache.bytes();
+  }
+
+  private String toObjectKey(Object key) {
+    String plain = key.toString();
+    if (plain.isEmpty() || plain.length() > MAX_PLAIN_KEY_LENGTH) {
+      return prefix + DigestUtils.md5DigestAsHex(plain.getBytes(StandardCharsets.UTF_8));
+    }
+    return prefix + plain;
+  }
+
+  private static long getExpires(ObjectMetadata metadata) {
+    String expires = metadata.getUserMetaDataOf(EXPIRES_METADATA);
+    if (expires == null) {
+      return 0;
+    }
+    try {
+      return Long.parseLong(expires);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static final class CountingInputStream extends FilterInputStream {
+
+    long count;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if (b >= 0) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = in.read(b, off, len);
+      if (n > 0) {
+        count += n;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = in.skip(n);
+      count += skipped;
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
+
+  private static final class CountingOutputStream extends FilterOutputStream {
+
+    long count;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+}
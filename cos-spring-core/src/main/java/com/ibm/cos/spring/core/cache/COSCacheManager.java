@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.cache;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cos.spring.core.delete.BulkDeleter;
+import java.util.Collection;
+import java.util.Collections;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractCacheManager;
+
+/**
+ * Spring {@link org.springframework.cache.CacheManager} creating a {@link COSCache} for every
+ * requested cache name. The entries of a cache are stored below {@code <prefix><name>/} in a single
+ * bucket, so caches can be cleared and expired independently, e.g. with lifecycle rules.
+ */
+public class COSCacheManager extends AbstractCacheManager {
+
+  private final AmazonS3 client;
+
+  private final BulkDeleter deleter;
+
+  private final CacheSerializer serializer;
+
+  private final String bucket;
+
+  private final String prefix;
+
+  private final long ttl;
+
+  private final boolean compression;
+
+  private final int nearCacheSize;
+
+  private final long nearCacheMaxBytes;
+
+  private final long nearCacheTtl;
+
+  private final boolean allowNullValues;
+
+  /**
+   * @param client client storing the entries
+   * @param deleter deleter clearing whole caches
+   * @param serializer serializer of the values
+   * @param bucket bucket holding all caches
+   * @param prefix key prefix of all caches, empty or ending with a delimiter
+   * @param ttl time to live of entries in milliseconds, 0 for none
+   * @param compression gzip values while uploading them
+   * @param nearCacheSize maximum number of values kept in memory per cache, 0 to disable
+   * @param nearCacheMaxBytes maximum serialized size of the values kept in memory per cache
+   * @param nearCacheTtl time in milliseconds a value is served from memory without a request
+   * @param allowNullValues cache null values
+   */
+  public COSCacheManager(
+      AmazonS3 client,
+      BulkDeleter deleter,
+      CacheSerializer serializer,
+      String bucket,
+      String prefix,
+      long ttl,
+      boolean compression,
+      int nearCacheSize,
+      long nearCacheMaxBytes,
+      long nearCacheTtl,
+      boolean allowNullValues) {
+    this.client = client;
+    this.deleter = deleter;
+    this.serializer = serializer;
+    this.bucket = bucket;
+    this.prefix = prefix;
+    this.ttl = ttl;
+    this.compression = compression;
+    this.nearCacheSize = nearCacheSize;
+    this.nearCacheMaxBytes = nearCacheMaxBytes;
+    this.nearCacheTtl = nearCacheTtl;
+    this.allowNullValues = allowNullValues;
+  }
+
+  @Override
+  protected Collection<? extends Cache> loadCaches() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  protected Cache getMissingCache(String name) {
+    return new COSCache(this, name, prefix + name + "/");
+  }
+
+  AmazonS3 getClient() {
+    return client;
+  }
+
+  BulkDeleter getDeleter() {
+    return deleter;
+  }
+
+  CacheSerializer getSerializer() {
+    return serializer;
+  }
+
+  public String getBucket() {
+    return bucket;
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  public long getTtl() {
+    return ttl;
+  }
+
+  public boolean isCompression() {
+    return compression;
+  }
+
+  public int getNearCacheSize() {
+    return nearCacheSize;
+  }
+
+  public long getNearCacheMaxBytes() {
+    return nearCacheMaxBytes;
+  }
+
+  public long getNearCacheTtl() {
+    return nearCacheTtl;
+  }
+
+  public boolean isAllowNullValues() {
+    return allowNullValues;
+  }
+}
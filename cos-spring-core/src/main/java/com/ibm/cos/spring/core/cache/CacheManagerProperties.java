@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.cache;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cos.spring.core.delete.BulkDeleter;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Spring cache manager settings, bound from {@code cos.cache-manager.*}. Durations are in
+ * milliseconds. The cache manager is disabled unless {@code cos.cache-manager.enabled} is set.
+ */
+public class CacheManagerProperties {
+
+  /** provide a CacheManager storing cache entries in COS */
+  private boolean enabled;
+
+  /** bucket holding the cache entries */
+  private String bucket;
+
+  /** key prefix of all caches, each cache uses {@code <prefix><cache name>/} */
+  private String prefix = "cache/";
+
+  /** time to live of entries, 0 for none */
+  private long ttl;
+
+  /** gzip values while uploading them */
+  private boolean compression = true;
+
+  /** maximum number of values kept in memory per cache, 0 to disable the near cache */
+  private int nearCacheSize = 100;
+
+  /**
+   * maximum serialized size in bytes of the values kept in memory per cache, larger values are
+   * always read from COS
+   */
+  private long nearCacheMaxBytes = 16 * 1024 * 1024;
+
+  /** time a value is served from memory before it is read from COS again */
+  private long nearCacheTtl = 60_000;
+
+  /** cache null values */
+  private boolean allowNullValues = true;
+
+  /**
+   * Validate these settings and create a cache manager.
+   *
+   * @param client client storing the entries
+   * @param deleter deleter clearing whole caches
+   * @param serializer (optional) serializer of the values, Java serialization if null
+   * @return a cache manager using these settings
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public COSCacheManager createCacheManager(
+      AmazonS3 client, BulkDeleter deleter, CacheSerializer serializer) {
+    validate();
+    return new COSCacheManager(
+        client,
+        deleter,
+        serializer != null
+            ? serializer
+            : new JdkCacheSerializer(ClassUtils.getDefaultClassLoader()),
+        bucket,
+        prefix != null ? prefix : "",
+        ttl,
+        compression,
+        nearCacheSize,
+        nearCacheMaxBytes,
+        nearCacheTtl,
+        allowNullValues);
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (!StringUtils.hasText(bucket)) {
+      throw new IllegalArgumentException("cos.cache-manager.bucket must be set");
+    }
+    if (ttl < 0) {
+      throw new IllegalArgumentException("cos.cache-manager.ttl must not be negative");
+    }
+    if (nearCacheSize < 0) {
+      throw new IllegalArgumentException("cos.cache-manager.near-cache-size must not be negative");
+    }
+    if (nearCacheMaxBytes < 0) {
+      throw new IllegalArgumentException(
+          "cos.cache-manager.near-cache-max-bytes must not be negative");
+    }
+    if (nearCacheTtl < 0) {
+      throw new IllegalArgumentException("cos.cache-manager.near-cache-ttl must not be negative");
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public String getBucket() {
+    return bucket;
+  }
+
+  public void setBucket(String bucket) {
+    this.bucket = bucket;
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  public void setPrefix(String prefix) {
+    this.prefix = prefix;
+  }
+
+  public long getTtl() {
+    return ttl;
+  }
+
+  public void setTtl(long ttl) {
+    this.ttl = ttl;
+  }
+
+  public boolean isCompression() {
+    return compression;
+  }
+
+  public void setCompression(boolean compression) {
+    this.compression = compression;
+  }
+
+  public int getNearCacheSize() {
+    return nearCacheSize;
+  }
+
+  public void setNearCacheSize(int nearCacheSize) {
+    this.nearCacheSize = nearCacheSize;
+  }
+
+  public long getNearCacheMaxBytes() {
+    return nearCacheMaxBytes;
+  }
+
+  public void setNearCacheMaxBytes(long nearCacheMaxBytes) {
+    this.nearCacheMaxBytes = nearCacheMaxBytes;
+  }
+
+  public long getNearCacheTtl() {
+    return nearCacheTtl;
+  }
+
+  public void setNearCacheTtl(long nearCacheTtl) {
+    this.nearCacheTtl = nearCacheTtl;
+  }
+
+  public boolean isAllowNullValues() {
+    return allowNullValues;
+  }
+
+  public void setAllowNullValues(boolean allowNullValues) {
+    this.allowNullValues = allowNullValues;
+  }
+}
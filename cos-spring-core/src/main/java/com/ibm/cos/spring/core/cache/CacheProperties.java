@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.cache;
+
+import java.io.File;
+
+/**
+ * Local disk cache settings, bound from {@code cos.cache.*}. Sizes are in bytes. The cache is
+ * disabled unless {@code cos.cache.enabled} is set.
+ */
+public class CacheProperties {
+
+  /** cache object bodies of plain GET requests on local disk */
+  private boolean enabled;
+
+  /** cache directory, defaults to cos-cache in the temporary directory */
+  private String directory;
+
+  /** total size of cached objects after which the least recently used are evicted */
+  private long maxSize = 1024L * 1024 * 1024;
+
+  /** largest object that is cached, larger objects are streamed without caching */
+  private long maxObjectSize = 64L * 1024 * 1024;
+
+  /**
+   * Validate these settings and create the cache they describe.
+   *
+   * @return a cache reading any entries left in its directory
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public ObjectCache createCache() {
+    validate();
+    return new ObjectCache(getDirectoryFile(), maxSize, maxObjectSize);
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("cos.cache.max-size must be greater than 0");
+    }
+    if (maxObjectSize < 1 || maxObjectSize > maxSize) {
+      throw new IllegalArgumentException(
+          "cos.cache.max-object-size must be greater than 0 and not exceed cos.cache.max-size");
+    }
+  }
+
+  private File getDirectoryFile() {
+    if (directory == null) {
+      return new File(System.getProperty("java.io.tmpdir"), "cos-cache");
+    }
+    return new File(directory);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public String getDirectory() {
+    return directory;
+  }
+
+  public void setDirectory(String directory) {
+    this.directory = directory;
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public long getMaxObjectSize() {
+    return maxObjectSize;
+  }
+
+  public void setMaxObjectSize(long maxObjectSize) {
+    this.maxObjectSize = maxObjectSize;
+  }
+}
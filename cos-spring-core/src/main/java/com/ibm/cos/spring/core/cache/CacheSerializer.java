@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Converts the values of a {@link COSCache} to and from the bodies of their objects. Values are
+ * written to and read from streams, so large values are never held as a byte array.
+ */
+public interface CacheSerializer {
+
+  /**
+   * Write a value.
+   *
+   * @param value value to write, not null
+   * @param output stream receiving the serialized form, closed by the caller
+   * @throws IOException if the value cannot be written
+   */
+  void serialize(Object value, OutputStream output) throws IOException;
+
+  /**
+   * Read a value written by {@link #serialize(Object, OutputStream)}.
+   *
+   * @param input stream of the serialized form, closed by the caller
+   * @return the value
+   * @throws IOException if the value cannot be read
+   */
+  Object deserialize(InputStream input) throws IOException;
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.cache;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Routes whole-object reads of an {@link AmazonS3} proxy through an {@link ObjectCache} and passes
+ * every other call to the wrapped client.
+ */
+final class CachingClientHandler implements InvocationHandler {
+
+  private final AmazonS3 client;
+
+  private final ObjectCache cache;
+
+  CachingClientHandler(AmazonS3 client, ObjectCache cache) {
+    this.client = client;
+    this.cache = cache;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String name = method.getName();
+    Class<?>[] types = method.getParameterTypes();
+    if (name.equals("equals") && types.length == 1) {
+      return proxy == args[0];
+    }
+    if (name.equals("hashCode") && types.length == 0) {
+      return System.identityHashCode(proxy);
+    }
+
+    if (name.equals("getObject") && types.length == 2 && types[0] == String.class) {
+      return cache.getObject(client, (String) args[0], (String) args[1]);
+    }
+    if (name.equals("getObjectAsString") && types.length == 2) {
+      return readString(cache.getObject(client, (String) args[0], (String) args[1]));
+    }
+    if (name.equals("getObject") && types[0] == GetObjectRequest.class) {
+      GetObjectRequest request = (GetObjectRequest) args[0];
+      if (isCacheable(request)) {
+        S3Object object = cache.getObject(client, request.getBucketName(), request.getKey());
+        return types.length == 1 ? object : copy(object, (File) args[1]);
+      }
+    }
+
+    try {
+      return method.invoke(client, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  /** Only requests for the current version of the whole object can be answered from the cache. */
+  private static boolean isCacheable(GetObjectRequest request) {
+    return request.getRange() == null
+        && request.getVersionId() == null
+        && request.getMatchingETagConstraints().isEmpty()
+        && request.getNonmatchingETagConstraints().isEmpty()
+        && request.getModifiedSinceConstraint() == null
+        && request.getUnmodifiedSinceConstraint() == null
+        && request.getSSECustomerKey() == null
+        && request.getResponseHeaders() == null;
+  }
+
+  private static String readString(S3Object object) {
+    try (InputStream in = object.getObjectContent()) {
+      return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new AmazonClientException("Unable to read " + object.getKey(), e);
+    }
+  }
+
+  private static Object copy(S3Object object, File destination) {
+    try (InputStream in = object.getObjectContent()) {
+      Files.copy(in, destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new AmazonClientException("Unable to write " + destination, e);
+    }
+    return object.getObjectMetadata();
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import org.springframework.core.ConfigurableObjectInputStream;
+
+/** Serializes cache values with Java serialization, the default of {@link COSCacheManager}. */
+public class JdkCacheSerializer implements CacheSerializer {
+
+  private final ClassLoader classLoader;
+
+  /** @param classLoader class loader resolving the classes of read values */
+  public JdkCacheSerializer(ClassLoader classLoader) {
+    this.classLoader = classLoader;
+  }
+
+  @Override
+  public void serialize(Object value, OutputStream output) throws IOException {
+    ObjectOutputStream objectOutput = new ObjectOutputStream(output);
+    objectOutput.writeObject(value);
+    objectOutput.flush();
+  }
+
+  @Override
+  public Object deserialize(InputStream input) throws IOException {
+    ObjectInputStream objectInput = new ConfigurableObjectInputStream(input, classLoader);
+    try {
+      return objectInput.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Unable to resolve class of cached value", e);
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Bounded in-memory map of recently used values with a time to live, evicting the eldest. Values
+ * are weighed by their serialized size, values larger than the byte limit are not kept.
+ */
+final class NearCache {
+
+  private final int maxEntries;
+
+  private final long maxBytes;
+
+  private final long ttl;
+
+  /** entries by object key in access order, guarded by this */
+  private final LinkedHashMap<String, Value> entries =
+      new LinkedHashMap<String, Value>(16, 0.75f, true);
+
+  /** serialized size of all entries, guarded by this */
+  private long bytes;
+
+  NearCache(int maxEntries, long maxBytes, long ttl) {
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.ttl = ttl;
+  }
+
+  /** @return the stored value, or null if absent or expired */
+  synchronized Object get(String key) {
+    Value entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.expires <= System.currentTimeMillis()) {
+      remove(key);
+      return null;
+    }
+    return entry.value;
+  }
+
+  /**
+   * @param key object key
+   * @param value stored value
+   * @param size serialized size of the value in bytes
+   * @param expires expiry of the COS entry in epoch millis, 0 for none
+   */
+  synchronized void put(String key, Object value, long size, long expires) {
+    if (maxEntries == 0 || size > maxBytes) {
+      remove(key);
+      return;
+    }
+    long nearExpires = System.currentTimeMillis() + ttl;
+    Value previous =
+        entries.put(
+            key,
+            new Value(value, size, expires > 0 ? Math.min(expires, nearExpires) : nearExpires));
+    if (previous != null) {
+      bytes -= previous.size;
+    }
+    bytes += size;
+    Iterator<Value> eldest = entries.values().iterator();
+    while (entries.size() > maxEntries || bytes > maxBytes) {
+      bytes -= eldest.next().size;
+      eldest.remove();
+    }
+  }
+
+  synchronized void remove(String key) {
+    Value removed = entries.remove(key);
+    if (removed != null) {
+      bytes -= removed.size;
+    }
+  }
+
+  synchronized void clear() {
+    entries.clear();
+    bytes = 0;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized long bytes() {
+    return bytes;
+  }
+
+  private static final class Value {
+
+    final Object value;
+
+    final long size;
+
+    final long expires;
+
+    Value(Object value, long size, long expires) {
+      this.value = value;
+      this.size = size;
+      this.expires = expires;
+    }
+  }
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.cache;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.AmazonServiceException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Read-through cache of object bodies on local disk. A cached entry is revalidated with {@code
+ * If-None-Match} on every read, so an unchanged object costs a 304 response instead of a download.
+ * The least recently used entries are evicted once the cached objects exceed the maximum size.
+ *
+ * <p>Each entry is stored as a data file and a properties file with its ETag and metadata, named
+ * after a hash of bucket and key, so the cache survives restarts when its directory does. The cache
+ * marks a directory as its own with a {@value #MARKER} file, and only does so while the directory
+ * holds nothing but cache files. At startup it only deletes files named like its own, only in a
+ * marked directory, and only once they have not been written for an hour, so instances sharing a
+ * directory do not remove each other's downloads in progress.
+ */
+public class ObjectCache {
+
+  private static final Log logger = LogFactory.getLog(ObjectCache.class);
+
+  private static final String DATA_SUFFIX = ".data";
+
+  private static final String META_SUFFIX = ".meta";
+
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  /** name of the file marking a directory as a cache directory */
+  private static final String MARKER = ".cos-cache";
+
+  /** names of data, meta and temporary files, see {@link File#createTempFile} */
+  private static final Pattern CACHE_FILE =
+      Pattern.compile("[0-9a-f]{32}(\\.data|\\.meta|[0-9]*\\.tmp)");
+
+  /** files not written for this long are left over from a crashed or finished instance */
+  private static final long ABANDONED_AGE = TimeUnit.HOURS.toMillis(1);
+
+  private static final String USER_METADATA_PREFIX = "x-amz-meta-";
+
+  private final File directory;
+
+  private final long maxSize;
+
+  private final long maxObjectSize;
+
+  /** entries by cache id in access order, guarded by this */
+  private final LinkedHashMap<String, Entry> entries =
+      new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+  /** total length of all entries, guarded by this */
+  private long size;
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  private final AtomicLong hitBytes = new AtomicLong();
+
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  /**
+   * Create a cache in the given directory, picking up entries left by a previous instance.
+   *
+   * @param directory cache directory, created if missing
+   * @param maxSize total size of cached objects in bytes
+   * @param maxObjectSize largest object in bytes that is cached
+   */
+  public ObjectCache(File directory, long maxSize, long maxObjectSize) {
+    this.directory = directory;
+    this.maxSize = maxSize;
+    this.maxObjectSize = maxObjectSize;
+    load();
+  }
+
+  /**
+   * Wrap a client so that plain GET requests of whole objects are served through this cache. All
+   * other requests, including ranged and versioned GETs, are passed through unchanged.
+   *
+   * @param client client to wrap
+   * @return a caching client
+   */
+  public AmazonS3 wrap(AmazonS3 client) {
+    return (AmazonS3)
+        Proxy.newProxyInstance(
+            AmazonS3.class.getClassLoader(),
+            new Class<?>[] {AmazonS3.class},
+            new CachingClientHandler(client, this));
+  }
+
+  /**
+   * Get an object through the cache. A cached copy is returned if COS confirms its ETag is current,
+   * otherwise the object is downloaded into the cache.
+   *
+   * @param client client used for the conditional or full GET
+   * @param bucket bucket name
+   * @param key object key
+   * @return the object, with its content read from disk when cached
+   */
+  public S3Object getObject(AmazonS3 client, String bucket, String key) {
+    String id = DigestUtils.md5DigestAsHex((bucket + "/" + key).getBytes(StandardCharsets.UTF_8));
+    Entry entry = get(id);
+    InputStream content = entry != null ? open(id, entry) : null;
+    if (content != null) {
+      S3Object object;
+      try {
+        object =
+            client.getObject(
+                new GetObjectRequest(bucket, key).withNonmatchingETagConstraint(entry.etag));
+      } catch (RuntimeException e) {
+        closeQuietly(content);
+        if (e instanceof AmazonServiceException
+            && ((AmazonServiceException) e).getStatusCode() == 404) {
+          remove(id, entry);
+        }
+        throw e;
+      }
+      // the SDK returns null when the ETag constraint is not met, i.e. on 304 Not Modified
+      if (object == null) {
+        hitCount.incrementAndGet();
+        hitBytes.addAndGet(entry.length);
+        // keeps the recency order across restarts
+        dataFile(id).setLastModified(System.currentTimeMillis());
+        return toObject(entry, content);
+      }
+      closeQuietly(content);
+      missCount.incrementAndGet();
+      return store(id, bucket, key, object);
+    }
+    missCount.incrementAndGet();
+    return store(id, bucket, key, client.getObject(new GetObjectRequest(bucket, key)));
+  }
+
+  /** @return number of reads answered from disk after a 304 response */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /** @return number of reads that downloaded the object */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /** @return bytes read from disk instead of being downloaded */
+  public long getHitBytes() {
+    return hitBytes.get();
+  }
+
+  /** @return number of entries evicted to stay within the maximum size */
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  /** @return total size of the cached objects in bytes */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  private S3Object store(String id, String bucket, String key, S3Object object) {
+    ObjectMetadata metadata = object.getObjectMetadata();
+    if (metadata.getETag() == null || metadata.getContentLength() > maxObjectSize) {
+      remove(id, get(id));
+      return object;
+    }
+
+    File data;
+    try {
+      data = File.createTempFile(id, TEMP_SUFFIX, directory);
+    } catch (IOException e) {
+      logger.warn("Unable to create a cache file in " + directory + ", reading uncached", e);
+      return object;
+    }
+
+    Entry entry = new Entry(toProperties(bucket, key, metadata));
+    File meta = null;
+    InputStream content;
+    try {
+      try (OutputStream out = new FileOutputStream(data)) {
+        StreamUtils.copy(object.getObjectContent(), out);
+      }
+      object.close();
+      meta = File.createTempFile(id, TEMP_SUFFIX, directory);
+      try (OutputStream out = new FileOutputStream(meta)) {
+        entry.properties.store(out, null);
+      }
+      Files.move(data.toPath(), dataFile(id).toPath(), StandardCopyOption.REPLACE_EXISTING);
+      Files.move(meta.toPath(), metaFile(id).toPath(), StandardCopyOption.REPLACE_EXISTING);
+      // opened before the entry is visible, so concurrent eviction cannot pull the file away
+      content = new FileInputStream(dataFile(id));
+    } catch (IOException e) {
+      object.getObjectContent().abort();
+      data.delete();
+      if (meta != null) {
+        meta.delete();
+      }
+      throw new AmazonClientException("Unable to cache " + bucket + "/" + key, e);
+    }
+    add(id, entry);
+    return toObject(entry, content);
+  }
+
+  private InputStream open(String id, Entry entry) {
+    try {
+      return new FileInputStream(dataFile(id));
+    } catch (FileNotFoundException e) {
+      remove(id, entry);
+      return null;
+    }
+  }
+
+  private synchronized Entry get(String id) {
+    return entries.get(id);
+  }
+
+  private synchronized void add(String id, Entry entry) {
+    Entry previous = entries.put(id, entry);
+    if (previous != null) {
+      size -= previous.length;
+    }
+    size += entry.length;
+    evict();
+  }
+
+  private synchronized void remove(String id, Entry entry) {
+    if (entry != null && entries.remove(id, entry)) {
+      size -= entry.length;
+      deleteFiles(id);
+    }
+  }
+
+  private synchronized void evict() {
+    Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+    while (size > maxSize && eldest.hasNext()) {
+      Map.Entry<String, Entry> next = eldest.next();
+      eldest.remove();
+      size -= next.getValue().length;
+      deleteFiles(next.getKey());
+      evictionCount.incrementAndGet();
+    }
+  }
+
+  private synchronized void load() {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IllegalArgumentException("Unable to create cache directory " + directory);
+    }
+
+    File[] files = directory.listFiles();
+    files = files != null ? files : new File[0];
+    boolean owned = markOwned(files);
+    long abandoned = System.currentTimeMillis() - ABANDONED_AGE;
+
+    List<File> dataFiles = new ArrayList<File>();
+    for (File file : files) {
+      String name = file.getName();
+      if (!CACHE_FILE.matcher(name).matches()) {
+        continue;
+      }
+      if (name.endsWith(DATA_SUFFIX)) {
+        dataFiles.add(file);
+      } else if (owned && file.lastModified() < abandoned) {
+        // a temporary file of a crashed write, or a meta file whose data file is gone
+        if (name.endsWith(TEMP_SUFFIX) || !dataFile(name.substring(0, 32)).exists()) {
+          file.delete();
+        }
+      }
+    }
+    Collections.sort(
+        dataFiles,
+        new Comparator<File>() {
+          @Override
+          public int compare(File a, File b) {
+            return Long.compare(a.lastModified(), b.lastModified());
+          }
+        });
+
+    for (File file : dataFiles) {
+      String id = file.getName().substring(0, file.getName().length() - DATA_SUFFIX.length());
+      Properties properties = new Properties();
+      try (InputStream in = new FileInputStream(metaFile(id))) {
+        properties.load(in);
+        Entry entry = new Entry(properties);
+        if (entry.etag != null && entry.length == file.length()) {
+          entries.put(id, entry);
+          size += entry.length;
+          continue;
+        }
+      } catch (IOException | RuntimeException e) {
+        logger.debug("Skipping unreadable cache entry " + id, e);
+      }
+      // another instance may be writing the entry right now
+      if (owned && file.lastModified() < abandoned) {
+        deleteFiles(id);
+      }
+    }
+    evict();
+  }
+
+  /**
+   * Check that the directory is marked as a cache directory, marking it if it only holds files
+   * named like cache files.
+   *
+   * @return true if stale cache files may be deleted from the directory
+   */
+  private boolean markOwned(File[] files) {
+    File marker = new File(directory, MARKER);
+    if (marker.isFile()) {
+      return true;
+    }
+    for (File file : files) {
+      if (!CACHE_FILE.matcher(file.getName()).matches()) {
+        logger.warn(
+            "Cache directory "
+                + directory
+                + " holds other files and is not marked with "
+                + MARKER
+                + ", stale cache files are left in place");
+        return false;
+      }
+    }
+    try {
+      marker.createNewFile();
+    } catch (IOException e) {
+      logger.warn("Unable to mark cache directory " + directory, e);
+    }
+    return marker.isFile();
+  }
+
+  private void deleteFiles(String id) {
+    dataFile(id).delete();
+    metaFile(id).delete();
+  }
+
+  private File dataFile(String id) {
+    return new File(directory, id + DATA_SUFFIX);
+  }
+
+  private File metaFile(String id) {
+    return new File(directory, id + META_SUFFIX);
+  }
+
+  private static Properties toProperties(String bucket, String key, ObjectMetadata metadata) {
+    Properties properties = new Properties();
+    properties.setProperty("bucket", bucket);
+    properties.setProperty("key", key);
+    properties.setProperty("etag", metadata.getETag());
+    properties.setProperty("length", Long.toString(metadata.getContentLength()));
+    if (metadata.getLastModified() != null) {
+      properties.setProperty("last-modified", Long.toString(metadata.getLastModified().getTime()));
+    }
+    setIfPresent(properties, "content-type", metadata.getContentType());
+    setIfPresent(properties, "content-encoding", metadata.getContentEncoding());
+    setIfPresent(properties, "content-language", metadata.getContentLanguage());
+    setIfPresent(properties, "content-disposition", metadata.getContentDisposition());
+    setIfPresent(properties, "cache-control", metadata.getCacheControl());
+    for (Map.Entry<String, String> user : metadata.getUserMetadata().entrySet()) {
+      properties.setProperty(USER_METADATA_PREFIX + user.getKey(), user.getValue());
+    }
+    return properties;
+  }
+
+  private static void setIfPresent(Properties properties, String name, String value) {
+    if (value != null) {
+      properties.setProperty(name, value);
+    }
+  }
+
+  private static S3Object toObject(Entry entry, InputStream content) {
+    Properties properties = entry.properties;
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setHeader("ETag", entry.etag);
+    metadata.setContentLength(entry.length);
+    if (properties.getProperty("last-modified") != null) {
+      metadata.setLastModified(new Date(Long.parseLong(properties.getProperty("last-modified"))));
+    }
+    metadata.setContentType(properties.getProperty("content-type"));
+    metadata.setContentEncoding(properties.getProperty("content-encoding"));
+    metadata.setContentLanguage(properties.getProperty("content-language"));
+    metadata.setContentDisposition(properties.getProperty("content-disposition"));
+    metadata.setCacheControl(properties.getProperty("cache-control"));
+    for (String name : properties.stringPropertyNames()) {
+      if (name.startsWith(USER_METADATA_PREFIX)) {
+        metadata.addUserMetadata(
+            name.substring(USER_METADATA_PREFIX.length()), properties.getProperty(name));
+      }
+    }
+
+    S3Object object = new S3Object();
+    object.setBucketName(properties.getProperty("bucket"));
+    object.setKey(properties.getProperty("key"));
+    object.setObjectMetadata(metadata);
+    object.setObjectContent(content);
+    return object;
+  }
+
+  private static void closeQuietly(InputStream in) {
+    try {
+      in.close();
+    } catch (IOException e) {
+      // nothing was read from it
+    }
+  }
+
+  private static final class Entry {
+
+    final Properties properties;
+
+    final String etag;
+
+    final long length;
+
+    Entry(Properties properties) {
+      this.properties = properties;
+      this.etag = properties.getProperty("etag");
+      this.length = Long.parseLong(properties.getProperty("length"));
+    }
+  }
+}
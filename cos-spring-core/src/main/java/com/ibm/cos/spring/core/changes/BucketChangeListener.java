@@ -0,0 +1,31 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.changes;
+
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectSummary;
+import java.util.List;
+
+/** Receives the new and changed objects found by a {@link BucketChangePoller}. */
+public interface BucketChangeListener {
+
+  /**
+   * Called on the poller thread with the changes of up to one listing page, in key order. The
+   * cursor only advances past these objects once all listeners returned, so an exception makes the
+   * next poll deliver them again.
+   *
+   * @param objects new or changed objects
+   */
+  void objectsChanged(List<S3ObjectSummary> objects);
+}
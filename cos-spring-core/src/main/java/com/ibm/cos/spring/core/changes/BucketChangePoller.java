@@ -0,0 +1,382 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.changes;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Request;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Result;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectSummary;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Polls a bucket prefix for new and changed objects and passes them to the listeners, see {@link
+ * ChangeDetectionMode} for how changes are found. Delivery is at least once: the cursor is saved
+ * after the listeners accepted each batch, so a failed listener or a restart repeats at most the
+ * batch in progress.
+ *
+ * <p>The first poll without a saved cursor only records the current state unless {@code
+ * emitExisting} is set. Polls run one at a time on a single background thread; the delay between
+ * them varies randomly by up to {@code jitter} times the interval, so that instances started
+ * together do not list in lockstep. Deleted objects are not reported.
+ *
+ * <p>As a bean, the poller starts once the application context has been refreshed and stops with
+ * it; {@link #start()} and {@link #stop()} control it otherwise.
+ */
+public class BucketChangePoller implements SmartLifecycle, DisposableBean {
+
+  private static final Log logger = LogFactory.getLog(BucketChangePoller.class);
+
+  private final AmazonS3 client;
+
+  private final String bucket;
+
+  private final String prefix;
+
+  private final ChangeDetectionMode mode;
+
+  private final int pageSize;
+
+  private final long pollInterval;
+
+  private final double jitter;
+
+  private final long lookback;
+
+  private final boolean emitExisting;
+
+  private final CursorStore cursorStore;
+
+  private final List<BucketChangeListener> listeners;
+
+  /** key of a cursor object inside the polled bucket, never reported */
+  private final String cursorKey;
+
+  private final ScheduledExecutorService scheduler;
+
+  /** guards running and next, polls hold this instead */
+  private final Object lifecycleLock = new Object();
+
+  private volatile boolean running;
+
+  /** the scheduled background poll, guarded by lifecycleLock */
+  private ScheduledFuture<?> next;
+
+  /** loaded on the first poll, guarded by this */
+  private ChangeCursor cursor;
+
+  private final AtomicLong pollCount = new AtomicLong();
+
+  private final AtomicLong changeCount = new AtomicLong();
+
+  private final AtomicLong failureCount = new AtomicLong();
+
+  /**
+   * @param client client listing the bucket
+   * @param bucket bucket to poll
+   * @param prefix key prefix to poll, empty for the whole bucket
+   * @param mode how changes are found
+   * @param pageSize keys per listing request, at most 1000
+   * @param pollInterval milliseconds between the end of a poll and the start of the next
+   * @param jitter random variation of the interval as a fraction between 0 and 1
+   * @param lookback milliseconds before the high-water mark still considered in {@link
+   *     ChangeDetectionMode#MODIFIED} mode
+   * @param emitExisting report the objects found by the first poll without a saved cursor
+   * @param cursorStore (optional) store of the cursor, kept in memory only if null
+   * @param listeners receivers of the changes
+   */
+  public BucketChangePoller(
+      AmazonS3 client,
+      String bucket,
+      String prefix,
+      ChangeDetectionMode mode,
+      int pageSize,
+      long pollInterval,
+      double jitter,
+      long lookback,
+      boolean emitExisting,
+      CursorStore cursorStore,
+      List<BucketChangeListener> listeners) {
+    this.client = client;
+    this.bucket = bucket;
+    this.prefix = prefix;
+    this.mode = mode;
+    this.pageSize = pageSize;
+    this.pollInterval = pollInterval;
+    this.jitter = jitter;
+    this.lookback = lookback;
+    this.emitExisting = emitExisting;
+    this.cursorStore = cursorStore;
+    this.listeners = new ArrayList<BucketChangeListener>(listeners);
+    this.cursorKey =
+        cursorStore instanceof ObjectCursorStore
+                && bucket.equals(((ObjectCursorStore) cursorStore).getBucket())
+            ? ((ObjectCursorStore) cursorStore).getKey()
+            : null;
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cos-changes-");
+    threadFactory.setDaemon(true);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+  }
+
+  /**
+   * Start polling in the background, the first poll after a random share of the jitter. Does
+   * nothing if the poller is running.
+   */
+  @Override
+  public void start() {
+    synchronized (lifecycleLock) {
+      if (running) {
+        return;
+      }
+      running = true;
+      long delay = (long) (pollInterval * jitter * ThreadLocalRandom.current().nextDouble());
+      next = scheduler.schedule(this::pollAndReschedule, delay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Stop polling in the background; a poll in progress completes. */
+  @Override
+  public void stop() {
+    synchronized (lifecycleLock) {
+      running = false;
+      if (next != null) {
+        next.cancel(false);
+        next = null;
+      }
+    }
+  }
+
+  @Override
+  public void stop(Runnable callback) {
+    stop();
+    callback.run();
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public boolean isAutoStartup() {
+    return true;
+  }
+
+  /** @return the last phase, so the poller starts after and stops before other lifecycle beans */
+  @Override
+  public int getPhase() {
+    return Integer.MAX_VALUE;
+  }
+
+  private void pollAndReschedule() {
+    try {
+      poll();
+    } catch (IOException | RuntimeException e) {
+      failureCount.incrementAndGet();
+      logger.warn("Unable to poll COS bucket " + bucket + " for changes", e);
+    } finally {
+      synchronized (lifecycleLock) {
+        if (running && !scheduler.isShutdown()) {
+          double variation = jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+          next =
+              scheduler.schedule(
+                  this::pollAndReschedule,
+                  Math.round(pollInterval * (1 + variation)),
+                  TimeUnit.MILLISECONDS);
+        }
+      }
+    }
+  }
+
+  /**
+   * Poll once on the calling thread, waiting for a poll in progress on another thread.
+   *
+   * @return the number of objects passed to the listeners
+   * @throws IOException if the cursor cannot be loaded or saved
+   */
+  public synchronized int poll() throws IOException {
+    if (cursor == null) {
+      ChangeCursor saved = cursorStore != null ? cursorStore.load() : null;
+      cursor = saved != null ? saved : new ChangeCursor();
+    }
+    boolean baseline = cursor.getHighWaterMark() < 0 && !emitExisting;
+    int changes = mode == ChangeDetectionMode.KEY ? pollKeys(baseline) : pollModified(baseline);
+    pollCount.incrementAndGet();
+    changeCount.addAndGet(changes);
+    return changes;
+  }
+
+  private int pollKeys(boolean baseline) throws IOException {
+    ListObjectsV2Request request = createRequest().withStartAfter(cursor.getLastKey());
+    long highWaterMark = Math.max(cursor.getHighWaterMark(), 0);
+    int changes = 0;
+    ListObjectsV2Result result;
+    do {
+      result = client.listObjectsV2(request);
+      List<S3ObjectSummary> page = new ArrayList<S3ObjectSummary>(result.getObjectSummaries());
+      if (!page.isEmpty()) {
+        String lastKey = page.get(page.size() - 1).getKey();
+        for (S3ObjectSummary object : page) {
+          highWaterMark = Math.max(highWaterMark, object.getLastModified().getTime());
+        }
+        if (cursorKey != null) {
+          page.removeIf(object -> object.getKey().equals(cursorKey));
+        }
+        if (!baseline) {
+          changes += emit(page);
+        }
+        cursor.setLastKey(lastKey);
+        cursor.setHighWaterMark(highWaterMark);
+        save();
+      }
+      request.setContinuationToken(result.getNextContinuationToken());
+    } while (result.isTruncated());
+
+    if (cursor.getHighWaterMark() < 0) {
+      // an empty prefix, later objects are new
+      cursor.setHighWaterMark(highWaterMark);
+      save();
+    }
+    return changes;
+  }
+
+  private int pollModified(boolean baseline) throws IOException {
+    ListObjectsV2Request request = createRequest();
+    long since =
+        cursor.getHighWaterMark() < 0 ? Long.MIN_VALUE : cursor.getHighWaterMark() - lookback;
+    long highWaterMark = Math.max(cursor.getHighWaterMark(), 0);
+    int changes = 0;
+    ListObjectsV2Result result;
+    do {
+      result = client.listObjectsV2(request);
+      List<S3ObjectSummary> changed = new ArrayList<S3ObjectSummary>();
+      long pageHighWaterMark = highWaterMark;
+      for (S3ObjectSummary object : result.getObjectSummaries()) {
+        long modified = object.getLastModified().getTime();
+        pageHighWaterMark = Math.max(pageHighWaterMark, modified);
+        if (modified >= since
+            && !object.getKey().equals(cursorKey)
+            && !cursor.isSeen(object.getKey(), object.getETag())) {
+          changed.add(object);
+        }
+      }
+      if (!changed.isEmpty()) {
+        if (!baseline) {
+          changes += emit(changed);
+        }
+        for (S3ObjectSummary object : changed) {
+          cursor.addSeen(object.getKey(), object.getETag(), object.getLastModified().getTime());
+        }
+      }
+      if (pageHighWaterMark > highWaterMark) {
+        // keeps the seen-set to the lookback window while a first poll walks the whole prefix
+        highWaterMark = pageHighWaterMark;
+        cursor.pruneSeen(highWaterMark - lookback);
+      }
+      if (!changed.isEmpty()) {
+        save();
+      }
+      request.setContinuationToken(result.getNextContinuationToken());
+    } while (result.isTruncated());
+
+    cursor.setHighWaterMark(highWaterMark);
+    cursor.pruneSeen(highWaterMark - lookback);
+    save();
+    return changes;
+  }
+
+  private ListObjectsV2Request createRequest() {
+    return new ListObjectsV2Request()
+        .withBucketName(bucket)
+        .withPrefix(prefix)
+        .withMaxKeys(pageSize);
+  }
+
+  private int emit(List<S3ObjectSummary> objects) {
+    if (objects.isEmpty()) {
+      return 0;
+    }
+    List<S3ObjectSummary> unmodifiable = Collections.unmodifiableList(objects);
+    for (BucketChangeListener listener : listeners) {
+      listener.objectsChanged(unmodifiable);
+    }
+    return objects.size();
+  }
+
+  private void save() throws IOException {
+    if (cursorStore != null) {
+      cursorStore.save(cursor);
+    }
+  }
+
+  /** @return the bucket polled */
+  public String getBucket() {
+    return bucket;
+  }
+
+  /** @return the key prefix polled */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /** @return how changes are found */
+  public ChangeDetectionMode getMode() {
+    return mode;
+  }
+
+  /** @return the store of the cursor, or null if it is kept in memory only */
+  public CursorStore getCursorStore() {
+    return cursorStore;
+  }
+
+  /** @return the current cursor, or null before the first poll */
+  public synchronized ChangeCursor getCursor() {
+    return cursor;
+  }
+
+  /** @return number of completed polls */
+  public long getPollCount() {
+    return pollCount.get();
+  }
+
+  /** @return number of objects passed to the listeners */
+  public long getChangeCount() {
+    return changeCount.get();
+  }
+
+  /** @return number of background polls that failed */
+  public long getFailureCount() {
+    return failureCount.get();
+  }
+
+  @Override
+  public void destroy() {
+    stop();
+    scheduler.shutdownNow();
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.changes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Position of a {@link BucketChangePoller}: the last key emitted, the latest modification time seen
+ * and a compact seen-set of the objects modified within the lookback window. The seen-set holds a
+ * 64-bit hash of key and ETag per object, so a rewritten object with new content is emitted again.
+ */
+public final class ChangeCursor {
+
+  private static final int VERSION = 1;
+
+  private String lastKey;
+
+  /** latest modification time seen in epoch milliseconds, -1 before the first poll */
+  private long highWaterMark = -1;
+
+  /** hash of key and ETag to modification time */
+  private final Map<Long, Long> seen = new HashMap<Long, Long>();
+
+  /** @return the last key emitted or listed, or null before the first poll */
+  public String getLastKey() {
+    return lastKey;
+  }
+
+  void setLastKey(String lastKey) {
+    this.lastKey = lastKey;
+  }
+
+  /** @return the latest modification time seen in epoch milliseconds, -1 before the first poll */
+  public long getHighWaterMark() {
+    return highWaterMark;
+  }
+
+  void setHighWaterMark(long highWaterMark) {
+    this.highWaterMark = highWaterMark;
+  }
+
+  /** @return the number of objects in the seen-set */
+  public int getSeenCount() {
+    return seen.size();
+  }
+
+  boolean isSeen(String key, String etag) {
+    return seen.containsKey(hash(key, etag));
+  }
+
+  void addSeen(String key, String etag, long lastModified) {
+    seen.put(hash(key, etag), lastModified);
+  }
+
+  /** Drop the seen objects modified before {@code since}, which no poll considers again. */
+  void pruneSeen(long since) {
+    for (Iterator<Long> modified = seen.values().iterator(); modified.hasNext(); ) {
+      if (modified.next() < since) {
+        modified.remove();
+      }
+    }
+  }
+
+  /** @return this cursor in a compact binary form, 16 bytes per seen object */
+  public byte[] toBytes() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + 16 * seen.size());
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(VERSION);
+      out.writeBoolean(lastKey != null);
+      if (lastKey != null) {
+        out.writeUTF(lastKey);
+      }
+      out.writeLong(highWaterMark);
+      out.writeInt(seen.size());
+      for (Map.Entry<Long, Long> entry : seen.entrySet()) {
+        out.writeLong(entry.getKey());
+        out.writeLong(entry.getValue());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @param bytes a cursor written by {@link #toBytes()}
+   * @return the cursor
+   * @throws IOException if the bytes are not a valid cursor
+   */
+  public static ChangeCursor fromBytes(byte[] bytes) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      int version = in.readUnsignedByte();
+      if (version != VERSION) {
+        throw new IOException("unsupported change cursor version " + version);
+      }
+      ChangeCursor cursor = new ChangeCursor();
+      if (in.readBoolean()) {
+        cursor.lastKey = in.readUTF();
+      }
+      cursor.highWaterMark = in.readLong();
+      for (int i = in.readInt(); i > 0; i--) {
+        cursor.seen.put(in.readLong(), in.readLong());
+      }
+      return cursor;
+    }
+  }
+
+  /** 64-bit FNV-1a of the key, a separator and the ETag */
+  private static long hash(String key, String etag) {
+    long hash = 0xcbf29ce484222325L;
+    hash = hash(hash, key);
+    hash = (hash ^ 0xffff) * 0x100000001b3L;
+    return hash(hash, etag != null ? etag : "");
+  }
+
+  private static long hash(long hash, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      hash = (hash ^ (c & 0xff)) * 0x100000001b3L;
+      hash = (hash ^ (c >>> 8)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.changes;
+
+import java.util.Locale;
+
+/** How a {@link BucketChangePoller} finds new and changed objects. */
+public enum ChangeDetectionMode {
+
+  /**
+   * List only keys after the last key seen. Each poll costs one request per page of new keys, but
+   * only keys sorting after all existing keys are found, e.g. keys starting with a timestamp or
+   * sequence number. Overwritten objects are not detected.
+   */
+  KEY,
+
+  /**
+   * List the whole prefix and emit objects modified since the high-water mark, within a lookback
+   * window that catches uploads finishing out of order. Detects new and overwritten objects with
+   * any key, but each poll lists the whole prefix.
+   */
+  MODIFIED;
+
+  /**
+   * Resolve a mode from its property value.
+   *
+   * @param name mode name, case insensitive
+   * @return the matching mode
+   * @throws IllegalArgumentException if no mode matches the name
+   */
+  public static ChangeDetectionMode forName(String name) {
+    String normalized = name.trim().toUpperCase(Locale.ENGLISH);
+    for (ChangeDetectionMode mode : values()) {
+      if (mode.name().equals(normalized)) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException(
+        String.format("unknown change detection mode '%s', expected key or modified", name));
+  }
+}
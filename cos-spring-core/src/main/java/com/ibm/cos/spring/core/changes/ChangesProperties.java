@@ -0,0 +1,208 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.changes;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import java.nio.file.Paths;
+import java.util.List;
+import org.springframework.util.StringUtils;
+
+/**
+ * Bucket change polling settings, bound from {@code cos.changes.*}. Durations are in milliseconds.
+ * Polling is disabled unless {@code cos.changes.enabled} is set.
+ */
+public class ChangesProperties {
+
+  static final String COS_SCHEME = "cos://";
+
+  /** poll a bucket for new and changed objects */
+  private boolean enabled;
+
+  /** bucket to poll */
+  private String bucket;
+
+  /** key prefix to poll, empty for the whole bucket */
+  private String prefix = "";
+
+  /** how changes are found: modified or key */
+  private String mode = "modified";
+
+  /** keys per listing request, at most 1000 */
+  private int pageSize = 1000;
+
+  /** time between the end of a poll and the start of the next */
+  private long pollInterval = 60000;
+
+  /** random variation of the poll interval as a fraction between 0 and 1 */
+  private double jitter = 0.1;
+
+  /** time before the latest modification still checked for late uploads in modified mode */
+  private long lookback = 300000;
+
+  /** report the objects found by the first poll instead of only recording them */
+  private boolean emitExisting;
+
+  /** (optional) file path or cos://bucket/key location of the persisted cursor */
+  private String cursor;
+
+  /**
+   * Validate these settings and create a poller. The poller is not started.
+   *
+   * @param client client listing the bucket and, for a {@code cos://} cursor, storing the cursor
+   * @param listeners receivers of the changes
+   * @return a poller using these settings
+   * @throws IllegalArgumentException if a setting is invalid
+   */
+  public BucketChangePoller createPoller(AmazonS3 client, List<BucketChangeListener> listeners) {
+    validate();
+    return new BucketChangePoller(
+        client,
+        bucket,
+        prefix,
+        ChangeDetectionMode.forName(mode),
+        pageSize,
+        pollInterval,
+        jitter,
+        lookback,
+        emitExisting,
+        createCursorStore(client),
+        listeners);
+  }
+
+  private CursorStore createCursorStore(AmazonS3 client) {
+    if (!StringUtils.hasText(cursor)) {
+      return null;
+    }
+    if (cursor.startsWith(COS_SCHEME)) {
+      String location = cursor.substring(COS_SCHEME.length());
+      int slash = location.indexOf('/');
+      return new ObjectCursorStore(
+          client, location.substring(0, slash), location.substring(slash + 1));
+    }
+    return new FileCursorStore(Paths.get(cursor));
+  }
+
+  /**
+   * Check that all configured values are valid.
+   *
+   * @throws IllegalArgumentException if a setting is invalid
+   */
+  public void validate() {
+    if (!StringUtils.hasText(bucket)) {
+      throw new IllegalArgumentException("cos.changes.bucket must be set");
+    }
+    ChangeDetectionMode.forName(mode);
+    if (pageSize < 1 || pageSize > 1000) {
+      throw new IllegalArgumentException("cos.changes.page-size must be between 1 and 1000");
+    }
+    if (pollInterval < 1) {
+      throw new IllegalArgumentException("cos.changes.poll-interval must be greater than 0");
+    }
+    if (!(jitter >= 0 && jitter <= 1)) {
+      throw new IllegalArgumentException("cos.changes.jitter must be between 0 and 1");
+    }
+    if (lookback < 0) {
+      throw new IllegalArgumentException("cos.changes.lookback must not be negative");
+    }
+    if (cursor != null && cursor.startsWith(COS_SCHEME)) {
+      String location = cursor.substring(COS_SCHEME.length());
+      int slash = location.indexOf('/');
+      if (slash < 1 || slash == location.length() - 1) {
+        throw new IllegalArgumentException(
+            "cos.changes.cursor must be a file path or cos://bucket/key");
+      }
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public String getBucket() {
+    return bucket;
+  }
+
+  public void setBucket(String bucket) {
+    this.bucket = bucket;
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  public void setPrefix(String prefix) {
+    this.prefix = prefix;
+  }
+
+  public String getMode() {
+    return mode;
+  }
+
+  public void setMode(String mode) {
+    this.mode = mode;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public void setPageSize(int pageSize) {
+    this.pageSize = pageSize;
+  }
+
+  public long getPollInterval() {
+    return pollInterval;
+  }
+
+  public void setPollInterval(long pollInterval) {
+    this.pollInterval = pollInterval;
+  }
+
+  public double getJitter() {
+    return jitter;
+  }
+
+  public void setJitter(double jitter) {
+    this.jitter = jitter;
+  }
+
+  public long getLookback() {
+    return lookback;
+  }
+
+  public void setLookback(long lookback) {
+    this.lookback = lookback;
+  }
+
+  public boolean isEmitExisting() {
+    return emitExisting;
+  }
+
+  public void setEmitExisting(boolean emitExisting) {
+    this.emitExisting = emitExisting;
+  }
+
+  public String getCursor() {
+    return cursor;
+  }
+
+  public void setCursor(String cursor) {
+    this.cursor = cursor;
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.changes;
+
+import java.io.IOException;
+
+/** Persists the {@link ChangeCursor} of a poller between polls and restarts. */
+public interface CursorStore {
+
+  /**
+   * @return the saved cursor, or null if none was saved yet
+   * @throws IOException if the cursor cannot be read
+   */
+  ChangeCursor load() throws IOException;
+
+  /**
+   * @param cursor cursor to save, replacing the previous one
+   * @throws IOException if the cursor cannot be written
+   */
+  void save(ChangeCursor cursor) throws IOException;
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.changes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/** Keeps the cursor in a local file, replaced atomically on every save. */
+public class FileCursorStore implements CursorStore {
+
+  private final Path file;
+
+  /** @param file file holding the cursor, its directory is created on the first save */
+  public FileCursorStore(Path file) {
+    this.file = file;
+  }
+
+  @Override
+  public ChangeCursor load() throws IOException {
+    return Files.exists(file) ? ChangeCursor.fromBytes(Files.readAllBytes(file)) : null;
+  }
+
+  @Override
+  public void save(ChangeCursor cursor) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      Files.write(temp, cursor.toBytes());
+      Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /** @return the file holding the cursor */
+  public Path getFile() {
+    return file;
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.changes;
+
+import com.ibm.cloud.objectstorage.AmazonServiceException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Keeps the cursor in a COS object, so it survives the loss of the instance and can be taken over
+ * by another one. Exclude the object from the polled prefix.
+ */
+public class ObjectCursorStore implements CursorStore {
+
+  private final AmazonS3 client;
+
+  private final String bucket;
+
+  private final String key;
+
+  /**
+   * @param client client reading and writing the cursor object
+   * @param bucket bucket of the cursor object
+   * @param key key of the cursor object
+   */
+  public ObjectCursorStore(AmazonS3 client, String bucket, String key) {
+    this.client = client;
+    this.bucket = bucket;
+    this.key = key;
+  }
+
+  @Override
+  public ChangeCursor load() throws IOException {
+    try (S3Object object = client.getObject(bucket, key)) {
+      return ChangeCursor.fromBytes(StreamUtils.copyToByteArray(object.getObjectContent()));
+    } catch (AmazonServiceException e) {
+      if (e.getStatusCode() == 404) {
+        return null;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public void save(ChangeCursor cursor) {
+    byte[] bytes = cursor.toBytes();
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(bytes.length);
+    metadata.setContentType("application/octet-stream");
+    client.putObject(bucket, key, new ByteArrayInputStream(bytes), metadata);
+  }
+
+  /** @return the bucket of the cursor object */
+  public String getBucket() {
+    return bucket;
+  }
+
+  /** @return the key of the cursor object */
+  public String getKey() {
+    return key;
+  }
+}
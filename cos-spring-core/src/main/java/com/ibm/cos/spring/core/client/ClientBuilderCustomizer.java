@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.client;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3ClientBuilder;
+
+/**
+ * Callback for beans that customize the {@link AmazonS3ClientBuilder}s of the COS configuration,
+ * e.g. to add request handlers or a metrics collector. Customizers are applied to the default
+ * client and to each named client after the connection settings, in bean order.
+ */
+public interface ClientBuilderCustomizer {
+
+  /** name passed for the client configured by the top-level {@code cos.*} properties */
+  String DEFAULT_CLIENT = "default";
+
+  /**
+   * Customize a builder before its client is built.
+   *
+   * @param clientName {@link #DEFAULT_CLIENT} or the name of a client from {@code cos.clients.*}
+   * @param builder builder of the AmazonS3 bean
+   */
+  void customize(String clientName, AmazonS3ClientBuilder builder);
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.client;
+
+import com.ibm.cloud.objectstorage.ClientConfiguration;
+import java.util.Locale;
+
+/**
+ * Named presets for the HTTP transport of the COS client. A profile is applied on top of the SDK
+ * defaults and any explicitly configured {@link ClientProperties} value overrides it.
+ */
+public enum ClientProfile {
+
+  /** Large connection pool and socket buffers for bulk uploads and downloads */
+  HIGH_THROUGHPUT {
+    @Override
+    void applyTo(ClientConfiguration clientConfig) {
+      clientConfig
+          .withMaxConnections(200)
+          .withSocketTimeout(120_000)
+          .withTcpKeepAlive(true)
+          .withConnectionMaxIdleMillis(60_000)
+          .withSocketBufferSizeHints(1024 * 1024, 1024 * 1024);
+    }
+  },
+
+  /** Short timeouts and no expect-continue round trip for small, latency sensitive requests */
+  LOW_LATENCY {
+    @Override
+    void applyTo(ClientConfiguration clientConfig) {
+      clientConfig
+          .withMaxConnections(100)
+          .withConnectionTimeout(2_000)
+          .withSocketTimeout(10_000)
+          .withTcpKeepAlive(true)
+          .withConnectionMaxIdleMillis(120_000)
+          .withUseExpectContinue(false);
+    }
+  },
+
+  /** Few, quickly reaped connections for constrained containers and occasional use */
+  SMALL_FOOTPRINT {
+    @Override
+    void applyTo(ClientConfiguration clientConfig) {
+      clientConfig
+          .withMaxConnections(10)
+          .withTcpKeepAlive(false)
+          .withConnectionMaxIdleMillis(10_000)
+          .withReaper(true)
+          .withSocketBufferSizeHints(32 * 1024, 32 * 1024);
+    }
+  };
+
+  abstract void applyTo(ClientConfiguration clientConfig);
+
+  /**
+   * Resolve a profile from its property value, e.g. {@code high-throughput}.
+   *
+   * @param name profile name, case insensitive, using dashes or underscores
+   * @return the matching profile
+   * @throws IllegalArgumentException if no profile matches the name
+   */
+  public static ClientProfile forName(String name) {
+    String normalized = name.trim().replace('-', '_').toUpperCase(Locale.ENGLISH);
+    for (ClientProfile profile : values()) {
+      if (profile.name().equals(normalized)) {
+        return profile;
+      }
+    }
+    throw new IllegalArgumentException(
+        String.format(
+            "unknown client profile '%s', expected one of high-throughput, low-latency or"
+                + " small-footprint",
+            name));
+  }
+}
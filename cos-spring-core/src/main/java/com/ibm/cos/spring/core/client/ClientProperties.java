@@ -0,0 +1,267 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.client;
+
+import com.ibm.cloud.objectstorage.ClientConfiguration;
+
+/**
+ * HTTP transport settings of the COS client, bound from {@code cos.client.*}. Unset values keep the
+ * value of the selected {@link ClientProfile}, or the SDK default when no profile is set. All
+ * durations are in milliseconds.
+ */
+public class ClientProperties {
+
+  /** (optional) preset: high-throughput, low-latency or small-footprint */
+  private String profile;
+
+  /** maximum number of open HTTP connections */
+  private Integer maxConnections;
+
+  /** timeout for establishing a connection, 0 for none */
+  private Integer connectionTimeout;
+
+  /** timeout for reading from an established connection, 0 for none */
+  private Integer socketTimeout;
+
+  /** timeout for a single HTTP request attempt, 0 for none */
+  private Integer requestTimeout;
+
+  /** timeout for a whole client call including retries, 0 for none */
+  private Integer clientExecutionTimeout;
+
+  /** enable TCP keep-alive on pooled connections */
+  private Boolean tcpKeepAlive;
+
+  /** maximum lifetime of a pooled connection, -1 for unlimited */
+  private Long connectionTtl;
+
+  /** maximum idle time before a pooled connection is closed */
+  private Long connectionMaxIdle;
+
+  /** idle time after which a pooled connection is validated before reuse */
+  private Integer validateAfterInactivity;
+
+  /** socket send buffer size hint in bytes, 0 for the OS default */
+  private Integer socketSendBufferSizeHint;
+
+  /** socket receive buffer size hint in bytes, 0 for the OS default */
+  private Integer socketReceiveBufferSizeHint;
+
+  /** send {@code Expect: 100-continue} before request bodies */
+  private Boolean useExpectContinue;
+
+  /** close idle and expired connections from a background thread */
+  private Boolean useReaper;
+
+  /**
+   * Validate these settings and apply them to the given client configuration.
+   *
+   * @param clientConfig configuration to update, typically the SDK defaults
+   * @return the updated configuration
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public ClientConfiguration applyTo(ClientConfiguration clientConfig) {
+    validate();
+
+    if (profile != null) {
+      ClientProfile.forName(profile).applyTo(clientConfig);
+    }
+    if (maxConnections != null) {
+      clientConfig.setMaxConnections(maxConnections);
+    }
+    if (connectionTimeout != null) {
+      clientConfig.setConnectionTimeout(connectionTimeout);
+    }
+    if (socketTimeout != null) {
+      clientConfig.setSocketTimeout(socketTimeout);
+    }
+    if (requestTimeout != null) {
+      clientConfig.setRequestTimeout(requestTimeout);
+    }
+    if (clientExecutionTimeout != null) {
+      clientConfig.setClientExecutionTimeout(clientExecutionTimeout);
+    }
+    if (tcpKeepAlive != null) {
+      clientConfig.setUseTcpKeepAlive(tcpKeepAlive);
+    }
+    if (connectionTtl != null) {
+      clientConfig.setConnectionTTL(connectionTtl);
+    }
+    if (connectionMaxIdle != null) {
+      clientConfig.setConnectionMaxIdleMillis(connectionMaxIdle);
+    }
+    if (validateAfterInactivity != null) {
+      clientConfig.setValidateAfterInactivityMillis(validateAfterInactivity);
+    }
+    if (socketSendBufferSizeHint != null || socketReceiveBufferSizeHint != null) {
+      int[] hints = clientConfig.getSocketBufferSizeHints();
+      clientConfig.setSocketBufferSizeHints(
+          socketSendBufferSizeHint != null ? socketSendBufferSizeHint : hints[0],
+          socketReceiveBufferSizeHint != null ? socketReceiveBufferSizeHint : hints[1]);
+    }
+    if (useExpectContinue != null) {
+      clientConfig.setUseExpectContinue(useExpectContinue);
+    }
+    if (useReaper != null) {
+      clientConfig.setUseReaper(useReaper);
+    }
+    return clientConfig;
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (profile != null) {
+      ClientProfile.forName(profile);
+    }
+    if (maxConnections != null && maxConnections < 1) {
+      throw new IllegalArgumentException("cos.client.max-connections must be greater than 0");
+    }
+    requireNotNegative("cos.client.connection-timeout", connectionTimeout);
+    requireNotNegative("cos.client.socket-timeout", socketTimeout);
+    requireNotNegative("cos.client.request-timeout", requestTimeout);
+    requireNotNegative("cos.client.client-execution-timeout", clientExecutionTimeout);
+    if (connectionTtl != null && connectionTtl < -1) {
+      throw new IllegalArgumentException("cos.client.connection-ttl must be -1 or greater");
+    }
+    if (connectionMaxIdle != null && connectionMaxIdle < 0) {
+      throw new IllegalArgumentException("cos.client.connection-max-idle must not be negative");
+    }
+    requireNotNegative("cos.client.validate-after-inactivity", validateAfterInactivity);
+    requireNotNegative("cos.client.socket-send-buffer-size-hint", socketSendBufferSizeHint);
+    requireNotNegative("cos.client.socket-receive-buffer-size-hint", socketReceiveBufferSizeHint);
+  }
+
+  private static void requireNotNegative(String name, Integer value) {
+    if (value != null && value < 0) {
+      throw new IllegalArgumentException(name + " must not be negative");
+    }
+  }
+
+  public String getProfile() {
+    return profile;
+  }
+
+  public void setProfile(String profile) {
+    this.profile = profile;
+  }
+
+  public Integer getMaxConnections() {
+    return maxConnections;
+  }
+
+  public void setMaxConnections(Integer maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  public Integer getConnectionTimeout() {
+    return connectionTimeout;
+  }
+
+  public void setConnectionTimeout(Integer connectionTimeout) {
+    this.connectionTimeout = connectionTimeout;
+  }
+
+  public Integer getSocketTimeout() {
+    return socketTimeout;
+  }
+
+  public void setSocketTimeout(Integer socketTimeout) {
+    this.socketTimeout = socketTimeout;
+  }
+
+  public Integer getRequestTimeout() {
+    return requestTimeout;
+  }
+
+  public void setRequestTimeout(Integer requestTimeout) {
+    this.requestTimeout = requestTimeout;
+  }
+
+  public Integer getClientExecutionTimeout() {
+    return clientExecutionTimeout;
+  }
+
+  public void setClientExecutionTimeout(Integer clientExecutionTimeout) {
+    this.clientExecutionTimeout = clientExecutionTimeout;
+  }
+
+  public Boolean getTcpKeepAlive() {
+    return tcpKeepAlive;
+  }
+
+  public void setTcpKeepAlive(Boolean tcpKeepAlive) {
+    this.tcpKeepAlive = tcpKeepAlive;
+  }
+
+  public Long getConnectionTtl() {
+    return connectionTtl;
+  }
+
+  public void setConnectionTtl(Long connectionTtl) {
+    this.connectionTtl = connectionTtl;
+  }
+
+  public Long getConnectionMaxIdle() {
+    return connectionMaxIdle;
+  }
+
+  public void setConnectionMaxIdle(Long connectionMaxIdle) {
+    this.connectionMaxIdle = connectionMaxIdle;
+  }
+
+  public Integer getValidateAfterInactivity() {
+    return validateAfterInactivity;
+  }
+
+  public void setValidateAfterInactivity(Integer validateAfterInactivity) {
+    this.validateAfterInactivity = validateAfterInactivity;
+  }
+
+  public Integer getSocketSendBufferSizeHint() {
+    return socketSendBufferSizeHint;
+  }
+
+  public void setSocketSendBufferSizeHint(Integer socketSendBufferSizeHint) {
+    this.socketSendBufferSizeHint = socketSendBufferSizeHint;
+  }
+
+  public Integer getSocketReceiveBufferSizeHint() {
+    return socketReceiveBufferSizeHint;
+  }
+
+  public void setSocketReceiveBufferSizeHint(Integer socketReceiveBufferSizeHint) {
+    this.socketReceiveBufferSizeHint = socketReceiveBufferSizeHint;
+  }
+
+  public Boolean getUseExpectContinue() {
+    return useExpectContinue;
+  }
+
+  public void setUseExpectContinue(Boolean useExpectContinue) {
+    this.useExpectContinue = useExpectContinue;
+  }
+
+  public Boolean getUseReaper() {
+    return useReaper;
+  }
+
+  public void setUseReaper(Boolean useReaper) {
+    this.useReaper = useReaper;
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.client;
+
+import com.ibm.cloud.objectstorage.ClientConfiguration;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3ClientBuilder;
+import com.ibm.cloud.objectstorage.services.s3.transfer.TransferManager;
+import com.ibm.cloud.objectstorage.services.s3.transfer.TransferManagerBuilder;
+import com.ibm.cos.spring.core.auth.IamProperties;
+import com.ibm.cos.spring.core.auth.RefreshingTokenManager;
+import com.ibm.cos.spring.core.cache.ObjectCache;
+import com.ibm.cos.spring.core.compression.ObjectCompressor;
+import com.ibm.cos.spring.core.concurrent.VirtualThreadProperties;
+import com.ibm.cos.spring.core.hedge.HedgeProperties;
+import com.ibm.cos.spring.core.hedge.RequestHedger;
+import com.ibm.cos.spring.core.retry.RetryController;
+import com.ibm.cos.spring.core.retry.RetryProperties;
+import com.ibm.cos.spring.core.tracing.RequestTracer;
+import com.ibm.cos.spring.core.transfer.TransferExecutorFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Creates the beans of the named clients registered by {@link NamedClientsRegistrar}. Clients start
+ * from the transport, retry and hedging settings, customizers, cache, compressor and tracer of the
+ * default client. The key index and the startup mode only apply to the default client. Transfer
+ * pools that are not shared and the token managers of clients using an API key are owned by this
+ * factory and shut down with it.
+ */
+public class NamedClientFactory implements DisposableBean {
+
+  public static final String BEAN_NAME = "namedClientFactory";
+
+  private final ClientConfiguration clientConfig;
+
+  private final IamProperties iam;
+
+  private final RetryProperties retry;
+
+  private final HedgeProperties hedge;
+
+  private final List<ClientBuilderCustomizer> customizers;
+
+  private final TransferExecutorFactory sharedTransferExecutorFactory;
+
+  private final ObjectCache objectCache;
+
+  private final VirtualThreadProperties virtualThreads;
+
+  private ObjectCompressor objectCompressor;
+
+  private RequestTracer requestTracer;
+
+  private final List<TransferExecutorFactory> ownedTransferExecutorFactories =
+      new CopyOnWriteArrayList<TransferExecutorFactory>();
+
+  private final Map<String, RefreshingTokenManager> tokenManagers =
+      new ConcurrentHashMap<String, RefreshingTokenManager>();
+
+  private final Map<String, RetryController> retryControllers =
+      new ConcurrentHashMap<String, RetryController>();
+
+  private final Map<String, RequestHedger> hedgers = new ConcurrentHashMap<String, RequestHedger>();
+
+  /**
+   * @param clientConfig transport settings of the default client, copied for each named client
+   * @param iam token refresh settings of clients using an API key
+   * @param retry retry settings, applied with a separate budget and breaker for each client
+   * @param hedge hedged GET settings, applied with separate response times for each client
+   * @param customizers customizers applied to each named client builder
+   * @param sharedTransferExecutorFactory transfer pool of clients with a shared transfer pool
+   * @param objectCache (optional) cache wrapping each named client
+   */
+  public NamedClientFactory(
+      ClientConfiguration clientConfig,
+      IamProperties iam,
+      RetryProperties retry,
+      HedgeProperties hedge,
+      List<ClientBuilderCustomizer> customizers,
+      TransferExecutorFactory sharedTransferExecutorFactory,
+      ObjectCache objectCache) {
+    this(
+        clientConfig,
+        iam,
+        retry,
+        hedge,
+        customizers,
+        sharedTransferExecutorFactory,
+        objectCache,
+        new VirtualThreadProperties());
+  }
+
+  /**
+   * @param clientConfig transport settings of the default client, copied for each named client
+   * @param iam token refresh settings of clients using an API key
+   * @param retry retry settings, applied with a separate budget and breaker for each client
+   * @param hedge hedged GET settings, applied with separate response times for each client
+   * @param customizers customizers applied to each named client builder
+   * @param sharedTransferExecutorFactory transfer pool of clients with a shared transfer pool
+   * @param objectCache (optional) cache wrapping each named client
+   * @param virtualThreads virtual thread settings of the transfer pools and hedgers owned by this
+   *     factory
+   */
+  public NamedClientFactory(
+      ClientConfiguration clientConfig,
+      IamProperties iam,
+      RetryProperties retry,
+      HedgeProperties hedge,
+      List<ClientBuilderCustomizer> customizers,
+      TransferExecutorFactory sharedTransferExecutorFactory,
+      ObjectCache objectCache,
+      VirtualThreadProperties virtualThreads) {
+    this.clientConfig = clientConfig;
+    this.iam = iam;
+    this.retry = retry;
+    this.hedge = hedge;
+    this.customizers = customizers;
+    this.sharedTransferExecutorFactory = sharedTransferExecutorFactory;
+    this.objectCache = objectCache;
+    this.virtualThreads = virtualThreads;
+  }
+
+  /** @param objectCompressor (optional) compressor wrapping each named client */
+  public void setObjectCompressor(ObjectCompressor objectCompressor) {
+    this.objectCompressor = objectCompressor;
+  }
+
+  /** @param requestTracer (optional) tracer applied to each named client builder */
+  public void setRequestTracer(RequestTracer requestTracer) {
+    this.requestTracer = requestTracer;
+  }
+
+  public AmazonS3 createClient(String name, NamedClientProperties properties) {
+    RefreshingTokenManager tokenManager = null;
+    if (properties.getApiKey() != null) {
+      tokenManager = iam.createTokenManager(properties.getApiKey());
+      tokenManagers.put(name, tokenManager);
+    }
+    AmazonS3ClientBuilder builder =
+        properties.createClientBuilder(name, new ClientConfiguration(clientConfig), tokenManager);
+    RetryController retryController = retry.createRetryController();
+    retryController.applyTo(builder);
+    retryControllers.put(name, retryController);
+    for (ClientBuilderCustomizer customizer : customizers) {
+      customizer.customize(name, builder);
+    }
+    if (requestTracer != null) {
+      requestTracer.applyTo(builder);
+    }
+    AmazonS3 client = builder.build();
+    if (hedge.isEnabled()) {
+      RequestHedger hedger =
+          virtualThreads.isActive()
+              ? hedge.createHedger(
+                  virtualThreads.createUnlimitedExecutor("cos-hedge-" + name + "-"),
+                  virtualThreads.getMaxConcurrency())
+              : hedge.createHedger();
+      hedgers.put(name, hedger);
+      client = hedger.wrap(client);
+    }
+    if (objectCache != null) {
+      client = objectCache.wrap(client);
+    }
+    return objectCompressor != null ? objectCompressor.wrap(client) : client;
+  }
+
+  public TransferManager createTransferManager(
+      String name, NamedClientProperties properties, AmazonS3 client) {
+    TransferExecutorFactory executorFactory = sharedTransferExecutorFactory;
+    if (!properties.isSharedTransferPool()) {
+      executorFactory =
+          virtualThreads.createTransferExecutorFactory(
+              "cos-transfer-" + name + "-", properties.getTransfer().getThreads());
+      ownedTransferExecutorFactories.add(executorFactory);
+    }
+    return properties
+        .getTransfer()
+        .applyTo(TransferManagerBuilder.standard())
+        .withS3Client(client)
+        .withExecutorFactory(executorFactory)
+        .withShutDownThreadPools(false)
+        .build();
+  }
+
+  /** @return token managers of the named clients using an API key, by client name */
+  public Map<String, RefreshingTokenManager> getTokenManagers() {
+    return Collections.unmodifiableMap(tokenManagers);
+  }
+
+  /** @return retry controllers of the named clients, by client name */
+  public Map<String, RetryController> getRetryControllers() {
+    return Collections.unmodifiableMap(retryControllers);
+  }
+
+  /** @return hedgers of the named clients if hedging is enabled, by client name */
+  public Map<String, RequestHedger> getHedgers() {
+    return Collections.unmodifiableMap(hedgers);
+  }
+
+  @Override
+  public void destroy() {
+    for (TransferExecutorFactory executorFactory : ownedTransferExecutorFactories) {
+      executorFactory.destroy();
+    }
+    for (RefreshingTokenManager tokenManager : tokenManagers.values()) {
+      tokenManager.destroy();
+    }
+    for (RequestHedger hedger : hedgers.values()) {
+      hedger.destroy();
+    }
+  }
+}
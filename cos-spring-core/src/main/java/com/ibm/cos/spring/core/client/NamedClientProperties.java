@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.client;
+
+import com.ibm.cloud.objectstorage.ClientConfiguration;
+import com.ibm.cloud.objectstorage.auth.AWSCredentials;
+import com.ibm.cloud.objectstorage.auth.AWSStaticCredentialsProvider;
+import com.ibm.cloud.objectstorage.auth.BasicAWSCredentials;
+import com.ibm.cloud.objectstorage.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.ibm.cloud.objectstorage.oauth.BasicIBMOAuthCredentials;
+import com.ibm.cloud.objectstorage.oauth.TokenManager;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3ClientBuilder;
+import com.ibm.cos.spring.core.auth.ApiKeyCredentials;
+import com.ibm.cos.spring.core.transfer.TransferProperties;
+import java.net.URL;
+
+/**
+ * Connection of a named client, bound from {@code cos.clients.<name>.*}. For authentication, either
+ * apiKey (IAM) or accessKey and secretKey (HMAC) are required. Transport settings are applied on
+ * top of {@code cos.client.*}.
+ */
+public class NamedClientProperties {
+
+  /** COS service endpoint */
+  private URL endpoint;
+
+  /** location of COS Bucket */
+  private String location;
+
+  /** IAM API Key */
+  private String apiKey;
+
+  /** (optional) COS service instance id for Bucket listing and Bucket creation */
+  private String serviceInstanceId;
+
+  /** HMAC Access Key */
+  private String accessKey;
+
+  /** HMAC Secret Key */
+  private String secretKey;
+
+  /** HTTP transport settings overriding cos.client.* */
+  private ClientProperties client = new ClientProperties();
+
+  /** TransferManager settings of this client */
+  private TransferProperties transfer = new TransferProperties();
+
+  /** run transfers on the shared pool instead of a pool of transfer.threads for this client */
+  private boolean sharedTransferPool = true;
+
+  /**
+   * Validate these settings and create a builder for the client they describe.
+   *
+   * @param name client name, used in error messages
+   * @param clientConfig transport settings to start from, updated with this client's settings
+   * @param tokenManager (optional) token manager for the API key of this client
+   * @return a builder connected to this client's endpoint with its credentials
+   * @throws IllegalArgumentException if a setting is missing or out of range
+   */
+  public AmazonS3ClientBuilder createClientBuilder(
+      String name, ClientConfiguration clientConfig, TokenManager tokenManager) {
+    validate(name);
+
+    return AmazonS3ClientBuilder.standard()
+        .withEndpointConfiguration(new EndpointConfiguration(endpoint.toString(), location))
+        .withCredentials(new AWSStaticCredentialsProvider(createAWSCredentials(tokenManager)))
+        .withClientConfiguration(client.applyTo(clientConfig))
+        .withPathStyleAccessEnabled(true);
+  }
+
+  private AWSCredentials createAWSCredentials(TokenManager tokenManager) {
+    if (apiKey != null) {
+      if (tokenManager != null) {
+        return new ApiKeyCredentials(apiKey, tokenManager, serviceInstanceId);
+      }
+      return new BasicIBMOAuthCredentials(apiKey, serviceInstanceId);
+    }
+    return new BasicAWSCredentials(accessKey, secretKey);
+  }
+
+  /**
+   * Check that all required values are set and in range.
+   *
+   * @param name client name, used in error messages
+   * @throws IllegalArgumentException if a setting is missing or out of range
+   */
+  public void validate(String name) {
+    String prefix = "cos.clients." + name + ".";
+    if (endpoint == null) {
+      throw new IllegalArgumentException(prefix + "endpoint must not be null");
+    }
+    if (apiKey == null && (accessKey == null || secretKey == null)) {
+      throw new IllegalArgumentException(
+          prefix + "api-key or " + prefix + "access-key and " + prefix + "secret-key are required");
+    }
+    client.validate();
+    transfer.validate();
+  }
+
+  public URL getEndpoint() {
+    return endpoint;
+  }
+
+  public void setEndpoint(URL endpoint) {
+    this.endpoint = endpoint;
+  }
+
+  public String getLocation() {
+    return location;
+  }
+
+  public void setLocation(String location) {
+    this.location = location;
+  }
+
+  public String getApiKey() {
+    return apiKey;
+  }
+
+  public void setApiKey(String apiKey) {
+    this.apiKey = apiKey;
+  }
+
+  public String getServiceInstanceId() {
+    return serviceInstanceId;
+  }
+
+  public void setServiceInstanceId(String serviceInstanceId) {
+    this.serviceInstanceId = serviceInstanceId;
+  }
+
+  public String getAccessKey() {
+    return accessKey;
+  }
+
+  public void setAccessKey(String accessKey) {
+    this.accessKey = accessKey;
+  }
+
+  public String getSecretKey() {
+    return secretKey;
+  }
+
+  public void setSecretKey(String secretKey) {
+    this.secretKey = secretKey;
+  }
+
+  public ClientProperties getClient() {
+    return client;
+  }
+
+  public void setClient(ClientProperties client) {
+    this.client = client;
+  }
+
+  public TransferProperties getTransfer() {
+    return transfer;
+  }
+
+  public void setTransfer(TransferProperties transfer) {
+    this.transfer = transfer;
+  }
+
+  public boolean isSharedTransferPool() {
+    return sharedTransferPool;
+  }
+
+  public void setSharedTransferPool(boolean sharedTransferPool) {
+    this.sharedTransferPool = sharedTransferPool;
+  }
+}
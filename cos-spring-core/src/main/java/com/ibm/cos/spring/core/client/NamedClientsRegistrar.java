@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.client;
+
+import com.ibm.cos.spring.core.env.PropertyTreeBinder;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.AutowireCandidateQualifier;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+/**
+ * Registers an AmazonS3 and a TransferManager bean for every client defined below {@code
+ * cos.clients}. For {@code cos.clients.archive.*} the beans are named {@code archiveClient} and
+ * {@code archiveTransferManager} and both are qualified as {@code archive}:
+ *
+ * <pre>
+ * &#064;Autowired
+ * &#064;Qualifier("archive")
+ * private AmazonS3 archive;
+ * </pre>
+ *
+ * <p>The beans are created by the {@link NamedClientFactory} bean.
+ */
+public class NamedClientsRegistrar
+    implements BeanDefinitionRegistryPostProcessor, EnvironmentAware {
+
+  public static final String PREFIX = "cos.clients";
+
+  private Environment environment;
+
+  @Override
+  public void setEnvironment(Environment environment) {
+    this.environment = environment;
+  }
+
+  @Override
+  public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry)
+      throws BeansException {
+    for (String name : PropertyTreeBinder.childNames(environment, PREFIX)) {
+      NamedClientProperties properties =
+          PropertyTreeBinder.bind(environment, PREFIX + "." + name, new NamedClientProperties());
+      properties.validate(name);
+
+      GenericBeanDefinition client = newDefinition(name, "createClient");
+      client.getConstructorArgumentValues().addIndexedArgumentValue(1, properties);
+      client.setDestroyMethodName("shutdown");
+      registry.registerBeanDefinition(name + "Client", client);
+
+      GenericBeanDefinition transferManager = newDefinition(name, "createTransferManager");
+      transferManager.getConstructorArgumentValues().addIndexedArgumentValue(1, properties);
+      transferManager
+          .getConstructorArgumentValues()
+          .addIndexedArgumentValue(2, new RuntimeBeanReference(name + "Client"));
+      registry.registerBeanDefinition(name + "TransferManager", transferManager);
+    }
+  }
+
+  private static GenericBeanDefinition newDefinition(String name, String factoryMethodName) {
+    GenericBeanDefinition definition = new GenericBeanDefinition();
+    definition.setFactoryBeanName(NamedClientFactory.BEAN_NAME);
+    definition.setFactoryMethodName(factoryMethodName);
+    definition.getConstructorArgumentValues().addIndexedArgumentValue(0, name);
+    definition.addQualifier(new AutowireCandidateQualifier(Qualifier.class, name));
+    return definition;
+  }
+
+  @Override
+  public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory)
+      throws BeansException {}
+}
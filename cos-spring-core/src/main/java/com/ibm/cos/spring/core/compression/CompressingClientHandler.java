@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.compression;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.AbortMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.CompleteMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.InitiateMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.InitiateMultipartUploadResult;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cloud.objectstorage.services.s3.model.UploadPartRequest;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Routes uploads, reads and HEAD requests of an {@link AmazonS3} proxy through an {@link
+ * ObjectCompressor} and passes every other call to the wrapped client. Compressed multipart uploads
+ * are tracked by an upload ID of their own until they are completed or aborted.
+ */
+final class CompressingClientHandler implements InvocationHandler {
+
+  private final AmazonS3 client;
+
+  private final ObjectCompressor compressor;
+
+  private final Map<String, CompressingUpload> uploads =
+      new ConcurrentHashMap<String, CompressingUpload>();
+
+  CompressingClientHandler(AmazonS3 client, ObjectCompressor compressor) {
+    this.client = client;
+    this.compressor = compressor;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String name = method.getName();
+    Class<?>[] types = method.getParameterTypes();
+    if (name.equals("equals") && types.length == 1) {
+      return proxy == args[0];
+    }
+    if (name.equals("hashCode") && types.length == 0) {
+      return System.identityHashCode(proxy);
+    }
+
+    if (name.equals("putObject")) {
+      PutObjectRequest request = toPutRequest(types, args);
+      if (request != null) {
+        return compressor.putObject(client, request);
+      }
+    }
+    if (name.equals("getObject") && types.length == 2 && types[0] == String.class) {
+      return compressor.decompress(client.getObject((String) args[0], (String) args[1]));
+    }
+    if (name.equals("getObjectAsString") && types.length == 2) {
+      return readString(
+          compressor.decompress(client.getObject((String) args[0], (String) args[1])));
+    }
+    if (name.equals("getObject") && types[0] == GetObjectRequest.class) {
+      GetObjectRequest request = (GetObjectRequest) args[0];
+      S3Object object =
+          request.getRange() == null
+              ? compressor.decompress(client.getObject(request))
+              : compressor.getObjectRange(client, request);
+      return types.length == 1 ? object : copy(object, (File) args[1]);
+    }
+    if (name.equals("getObjectMetadata")) {
+      return compressor.toUncompressedMetadata((ObjectMetadata) invoke(method, args));
+    }
+    if (name.equals("initiateMultipartUpload")) {
+      InitiateMultipartUploadRequest request = (InitiateMultipartUploadRequest) args[0];
+      CompressingUpload upload = compressor.initiate(client, request);
+      if (upload != null) {
+        String uploadId = "compressed-" + UUID.randomUUID();
+        uploads.put(uploadId, upload);
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setUploadId(uploadId);
+        return result;
+      }
+    }
+    if (name.equals("uploadPart")) {
+      UploadPartRequest request = (UploadPartRequest) args[0];
+      CompressingUpload upload = uploads.get(request.getUploadId());
+      if (upload != null) {
+        return upload.uploadPart(request);
+      }
+    }
+    if (name.equals("completeMultipartUpload")) {
+      CompleteMultipartUploadRequest request = (CompleteMultipartUploadRequest) args[0];
+      CompressingUpload upload = uploads.remove(request.getUploadId());
+      if (upload != null) {
+        return upload.complete(request);
+      }
+    }
+    if (name.equals("abortMultipartUpload")) {
+      CompressingUpload upload =
+          uploads.remove(((AbortMultipartUploadRequest) args[0]).getUploadId());
+      if (upload != null) {
+        upload.abort();
+        return null;
+      }
+    }
+    return invoke(method, args);
+  }
+
+  private Object invoke(Method method, Object[] args) throws Throwable {
+
+    try {
+      return method.invoke(client, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static PutObjectRequest toPutRequest(Class<?>[] types, Object[] args) {
+    if (types.length == 1 && types[0] == PutObjectRequest.class) {
+      return (PutObjectRequest) args[0];
+    }
+    if (types.length == 3 && types[2] == File.class) {
+      return new PutObjectRequest((String) args[0], (String) args[1], (File) args[2]);
+    }
+    if (types.length == 4 && types[2] == InputStream.class) {
+      return new PutObjectRequest(
+          (String) args[0], (String) args[1], (InputStream) args[2], (ObjectMetadata) args[3]);
+    }
+    if (types.length == 3 && types[2] == String.class) {
+      byte[] content = ((String) args[2]).getBytes(StandardCharsets.UTF_8);
+      ObjectMetadata metadata = new ObjectMetadata();
+      metadata.setContentType("text/plain");
+      metadata.setContentLength(content.length);
+      return new PutObjectRequest(
+          (String) args[0], (String) args[1], new ByteArrayInputStream(content), metadata);
+    }
+    return null;
+  }
+
+  private static String readString(S3Object object) throws IOException {
+    try (InputStream content = object.getObjectContent()) {
+      return StreamUtils.copyToString(content, StandardCharsets.UTF_8);
+    }
+  }
+
+  private static ObjectMetadata copy(S3Object object, File destination) {
+    if (object == null) {
+      return null;
+    }
+    try (InputStream content = object.getObjectContent()) {
+      Files.copy(content, destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new AmazonClientException("Unable to store object contents to disk", e);
+    }
+    return object.getObjectMetadata();
+  }
+}
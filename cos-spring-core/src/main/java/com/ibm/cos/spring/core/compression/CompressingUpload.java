@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.compression;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.CompleteMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.CompleteMultipartUploadResult;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.UploadPartRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.UploadPartResult;
+import com.ibm.cos.spring.core.compression.ObjectCompressor.CountingOutputStream;
+import com.ibm.cos.spring.core.io.COSOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.springframework.util.StreamUtils;
+
+/**
+ * A multipart upload compressed into a single {@link COSOutputStream}. Parts are compressed in the
+ * order of their numbers: a part that arrives early is held until the parts before it have been
+ * written, by reference if it is read from a file and copied otherwise.
+ */
+final class CompressingUpload {
+
+  private final AmazonS3 client;
+
+  private final ObjectCompressor compressor;
+
+  private final String bucket;
+
+  private final String key;
+
+  private final ObjectMetadata metadata;
+
+  private final COSOutputStream upload;
+
+  private final CountingOutputStream stored;
+
+  private final OutputStream output;
+
+  private final SortedMap<Integer, UploadPartRequest> pending =
+      new TreeMap<Integer, UploadPartRequest>();
+
+  private int nextPart = 1;
+
+  private long length;
+
+  private boolean failed;
+
+  CompressingUpload(
+      AmazonS3 client,
+      ObjectCompressor compressor,
+      String bucket,
+      String key,
+      ObjectMetadata metadata,
+      CompressionCodec codec)
+      throws IOException {
+    this.client = client;
+    this.compressor = compressor;
+    this.bucket = bucket;
+    this.key = key;
+    this.metadata = metadata;
+    this.upload =
+        new COSOutputStream(client, bucket, key, metadata, COSOutputStream.DEFAULT_PART_SIZE);
+    this.stored = new CountingOutputStream(upload);
+    this.output = codec.compress(stored);
+  }
+
+  synchronized UploadPartResult uploadPart(UploadPartRequest request) {
+    int number = request.getPartNumber();
+    if (failed || number < nextPart || pending.containsKey(number)) {
+      throw new AmazonClientException(
+          String.format(
+              "Unable to compress part %d of cos://%s/%s, %s",
+              number, bucket, key, failed ? "the upload failed" : "it was already uploaded"));
+    }
+    try {
+      if (number > nextPart) {
+        pending.put(number, request.getFile() != null ? request : copy(request));
+      } else {
+        write(request);
+        while (!pending.isEmpty() && pending.firstKey() == nextPart) {
+          write(pending.remove(nextPart));
+        }
+      }
+    } catch (IOException e) {
+      abort();
+      throw toClientException(e);
+    }
+
+    UploadPartResult result = new UploadPartResult();
+    result.setPartNumber(number);
+    result.setETag("compressed-" + number);
+    return result;
+  }
+
+  synchronized CompleteMultipartUploadResult complete(CompleteMultipartUploadRequest request) {
+    if (failed || !pending.isEmpty() || request.getPartETags().size() != nextPart - 1) {
+      abort();
+      throw new AmazonClientException(
+          String.format("Unable to compress cos://%s/%s, parts are missing", bucket, key));
+    }
+    boolean lengthKnown = metadata.getUserMetaDataOf(ObjectCompressor.LENGTH_METADATA) != null;
+    try {
+      if (!lengthKnown) {
+        // still used by an upload of a single part
+        metadata.addUserMetadata(ObjectCompressor.LENGTH_METADATA, Long.toString(length));
+      }
+      // finishes the codec and completes the upload
+      output.close();
+    } catch (IOException e) {
+      abort();
+      throw toClientException(e);
+    }
+
+    compressor.recordCompressed(length, stored.count);
+    String etag = upload.getETag();
+    if (!lengthKnown && upload.isMultipart()) {
+      etag = compressor.recordLength(client, bucket, key, metadata, etag);
+    }
+    CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+    result.setBucketName(bucket);
+    result.setKey(key);
+    result.setETag(etag);
+    return result;
+  }
+
+  synchronized void abort() {
+    failed = true;
+    pending.clear();
+    upload.abort();
+  }
+
+  private void write(UploadPartRequest request) throws IOException {
+    try (InputStream input = open(request)) {
+      byte[] buffer = new byte[64 * 1024];
+      long remaining = request.getPartSize();
+      int read;
+      while (remaining > 0
+          && (read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+        output.write(buffer, 0, read);
+        remaining -= read;
+        length += read;
+      }
+    }
+    nextPart++;
+  }
+
+  private static InputStream open(UploadPartRequest request) throws IOException {
+    if (request.getFile() == null) {
+      return request.getInputStream();
+    }
+    FileInputStream input = new FileInputStream(request.getFile());
+    input.getChannel().position(request.getFileOffset());
+    return input;
+  }
+
+  private static UploadPartRequest copy(UploadPartRequest request) throws IOException {
+    byte[] content;
+    try (InputStream input = request.getInputStream()) {
+      content = StreamUtils.copyToByteArray(input);
+    }
+    int length = (int) Math.min(content.length, request.getPartSize());
+    return new UploadPartRequest()
+        .withPartNumber(request.getPartNumber())
+        .withInputStream(new ByteArrayInputStream(content, 0, length))
+        .withPartSize(length);
+  }
+
+  private AmazonClientException toClientException(IOException e) {
+    if (e.getCause() instanceof AmazonClientException) {
+      return (AmazonClientException) e.getCause();
+    }
+    return new AmazonClientException(
+        String.format("Unable to compress cos://%s/%s", bucket, key), e);
+  }
+}
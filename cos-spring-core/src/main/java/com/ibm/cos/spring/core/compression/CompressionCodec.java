@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Locale;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Streaming compression format of object bodies. {@code gzip} is always available; {@code zstd} and
+ * {@code lz4} are available when zstd-jni or lz4-java are on the classpath.
+ */
+public final class CompressionCodec {
+
+  private static final String[][] CODECS = {
+    {"gzip", "java.util.zip.GZIPOutputStream", "java.util.zip.GZIPInputStream"},
+    {"zstd", "com.github.luben.zstd.ZstdOutputStream", "com.github.luben.zstd.ZstdInputStream"},
+    {"lz4", "net.jpountz.lz4.LZ4FrameOutputStream", "net.jpountz.lz4.LZ4FrameInputStream"}
+  };
+
+  private final String name;
+
+  private final Constructor<? extends OutputStream> output;
+
+  private final Constructor<? extends InputStream> input;
+
+  private CompressionCodec(
+      String name,
+      Constructor<? extends OutputStream> output,
+      Constructor<? extends InputStream> input) {
+    this.name = name;
+    this.output = output;
+    this.input = input;
+  }
+
+  /**
+   * Resolve a codec by name.
+   *
+   * @param name codec name, case insensitive: gzip, zstd or lz4
+   * @return the codec
+   * @throws IllegalArgumentException if the name is unknown or the codec is not on the classpath
+   */
+  public static CompressionCodec forName(String name) {
+    String normalized = name.trim().toLowerCase(Locale.ENGLISH);
+    for (String[] codec : CODECS) {
+      if (codec[0].equals(normalized)) {
+        ClassLoader classLoader = CompressionCodec.class.getClassLoader();
+        if (!ClassUtils.isPresent(codec[1], classLoader)) {
+          throw new IllegalArgumentException(
+              String.format("compression codec '%s' requires %s on the classpath", name, codec[1]));
+        }
+        try {
+          return new CompressionCodec(
+              codec[0],
+              ClassUtils.forName(codec[1], classLoader)
+                  .asSubclass(OutputStream.class)
+                  .getConstructor(OutputStream.class),
+              ClassUtils.forName(codec[2], classLoader)
+                  .asSubclass(InputStream.class)
+                  .getConstructor(InputStream.class));
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+          throw new IllegalArgumentException(
+              String.format("compression codec '%s' is not supported by its library", name), e);
+        }
+      }
+    }
+    throw new IllegalArgumentException(
+        String.format("unknown compression codec '%s', expected one of gzip, zstd or lz4", name));
+  }
+
+  /**
+   * @param name codec name
+   * @return true if the codec is known and on the classpath
+   */
+  public static boolean isAvailable(String name) {
+    try {
+      forName(name);
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /** @return the codec name recorded in the object metadata */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @param target stream receiving the compressed bytes, closed with the returned stream
+   * @return a stream compressing everything written to it
+   * @throws IOException if the stream header cannot be written
+   */
+  public OutputStream compress(OutputStream target) throws IOException {
+    return create(output, target);
+  }
+
+  /**
+   * @param source stream of compressed bytes, closed with the returned stream
+   * @return a stream of the decompressed bytes
+   * @throws IOException if the stream header cannot be read
+   */
+  public InputStream decompress(InputStream source) throws IOException {
+    return create(input, source);
+  }
+
+  private static <T> T create(Constructor<T> constructor, Object stream) throws IOException {
+    try {
+      return constructor.newInstance(stream);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Unable to create " + constructor.getDeclaringClass(), e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw new IOException("Unable to create " + constructor.getDeclaringClass(), e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.compression;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Transparent compression settings, bound from {@code cos.compression.*}. Compression is disabled
+ * unless {@code cos.compression.enabled} is set.
+ */
+public class CompressionProperties {
+
+  /** compress uploads below the configured prefixes and decompress compressed objects on read */
+  private boolean enabled;
+
+  /** default codec: gzip, zstd or lz4 */
+  private String codec = "gzip";
+
+  /** {@code bucket/prefix} or bucket names to compress, optionally followed by {@code =codec} */
+  private String[] prefixes = new String[0];
+
+  /**
+   * Validate these settings and create a compressor.
+   *
+   * @return a compressor applying the configured rules
+   * @throws IllegalArgumentException if a codec is unknown or not on the classpath
+   */
+  public ObjectCompressor createCompressor() {
+    return new ObjectCompressor(getRules());
+  }
+
+  /**
+   * Check that all configured values are valid.
+   *
+   * @throws IllegalArgumentException if a codec is unknown or not on the classpath
+   */
+  public void validate() {
+    getRules();
+  }
+
+  private Map<String, CompressionCodec> getRules() {
+    CompressionCodec defaultCodec = resolve("cos.compression.codec", codec);
+    Map<String, CompressionCodec> rules = new LinkedHashMap<String, CompressionCodec>();
+    for (String prefix : prefixes) {
+      int separator = prefix.lastIndexOf('=');
+      if (separator < 0) {
+        rules.put(prefix.trim(), defaultCodec);
+      } else {
+        rules.put(
+            prefix.substring(0, separator).trim(),
+            resolve("cos.compression.prefixes", prefix.substring(separator + 1)));
+      }
+    }
+    return rules;
+  }
+
+  private static CompressionCodec resolve(String property, String name) {
+    try {
+      return CompressionCodec.forName(name);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(property + ": " + e.getMessage(), e);
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public String getCodec() {
+    return codec;
+  }
+
+  public void setCodec(String codec) {
+    this.codec = codec;
+  }
+
+  public String[] getPrefixes() {
+    return prefixes;
+  }
+
+  public void setPrefixes(String[] prefixes) {
+    this.prefixes = prefixes;
+  }
+}
@@ -0,0 +1,568 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.compression;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.Headers;
+import com.ibm.cloud.objectstorage.services.s3.model.AmazonS3Exception;
+import com.ibm.cloud.objectstorage.services.s3.model.CopyObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.CopyObjectResult;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectMetadataRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.InitiateMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectResult;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectInputStream;
+import com.ibm.cos.spring.core.io.COSOutputStream;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Compresses object bodies while they are uploaded and decompresses them while they are read, for
+ * keys below configured {@code bucket/prefix} rules. The codec is recorded in the user metadata of
+ * each object, so objects are decoded by their metadata alone, whatever the rules are when they are
+ * read. Objects without that metadata are returned unchanged.
+ *
+ * <p>Compressed uploads stream through a {@link COSOutputStream}, holding at most one part in
+ * memory. Multipart uploads through the wrapped client are compressed into one such stream as their
+ * parts arrive. Ranges of compressed objects address the uncompressed content; they are read by
+ * decompressing the object from its start, so compressed objects are best read as a whole.
+ *
+ * <p>The uncompressed length is recorded in the metadata, so that a range can be answered without
+ * counting the content first. When compressed content of unknown length fills more than one part,
+ * the length is recorded after the upload by copying the object onto itself.
+ */
+public class ObjectCompressor {
+
+  private static final Log logger = LogFactory.getLog(ObjectCompressor.class);
+
+  /** user metadata holding the codec name */
+  public static final String CODEC_METADATA = "cos-codec";
+
+  /** user metadata holding the uncompressed length, when known at upload */
+  public static final String LENGTH_METADATA = "cos-uncompressed-length";
+
+  private final List<String> prefixes = new ArrayList<String>();
+
+  private final List<CompressionCodec> codecs = new ArrayList<CompressionCodec>();
+
+  private final AtomicLong compressedCount = new AtomicLong();
+
+  private final AtomicLong decompressedCount = new AtomicLong();
+
+  private final AtomicLong uncompressedBytes = new AtomicLong();
+
+  private final AtomicLong compressedBytes = new AtomicLong();
+
+  /**
+   * @param rules codecs by {@code bucket/prefix}, a bucket name alone matches the whole bucket; the
+   *     longest matching rule applies
+   */
+  public ObjectCompressor(Map<String, CompressionCodec> rules) {
+    for (Map.Entry<String, CompressionCodec> rule : rules.entrySet()) {
+      String prefix = rule.getKey().indexOf('/') < 0 ? rule.getKey() + "/" : rule.getKey();
+      int index = 0;
+      while (index < prefixes.size() && prefixes.get(index).length() >= prefix.length()) {
+        index++;
+      }
+      prefixes.add(index, prefix);
+      codecs.add(index, rule.getValue());
+    }
+  }
+
+  /**
+   * Wrap a client so that uploads matching a rule are compressed and all reads of compressed
+   * objects are decompressed. All other requests are passed through unchanged.
+   *
+   * @param client client to wrap
+   * @return a compressing client
+   */
+  public AmazonS3 wrap(AmazonS3 client) {
+    return (AmazonS3)
+        Proxy.newProxyInstance(
+            AmazonS3.class.getClassLoader(),
+            new Class<?>[] {AmazonS3.class},
+            new CompressingClientHandler(client, this));
+  }
+
+  /**
+   * @param bucket bucket name
+   * @param key object key
+   * @return the codec of the longest matching rule, or null if no rule matches
+   */
+  public CompressionCodec getCodec(String bucket, String key) {
+    String path = bucket + "/" + key;
+    for (int i = 0; i < prefixes.size(); i++) {
+      if (path.startsWith(prefixes.get(i))) {
+        return codecs.get(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Upload an object, compressing it while it is streamed if a rule matches its key. Requests with
+   * a redirect, access control list or customer-provided encryption key, and content that already
+   * has a content encoding, are uploaded unchanged.
+   *
+   * @param client client uploading the object
+   * @param request upload request
+   * @return the result, with the ETag of the stored object
+   */
+  public PutObjectResult putObject(AmazonS3 client, PutObjectRequest request) {
+    CompressionCodec codec = getCodec(request.getBucketName(), request.getKey());
+    if (codec == null || !isCompressible(request)) {
+      return client.putObject(request);
+    }
+
+    ObjectMetadata original = request.getMetadata();
+    Long length = null;
+    if (request.getFile() != null) {
+      length = request.getFile().length();
+    } else if (original != null && original.getRawMetadata().containsKey(Headers.CONTENT_LENGTH)) {
+      length = original.getContentLength();
+    }
+    ObjectMetadata metadata = toCompressedMetadata(original, length, codec);
+    COSOutputStream upload =
+        new COSOutputStream(
+            client,
+            request.getBucketName(),
+            request.getKey(),
+            metadata,
+            COSOutputStream.DEFAULT_PART_SIZE);
+    CountingOutputStream stored = new CountingOutputStream(upload);
+    long written = 0;
+    boolean lengthKnown = length != null;
+    try (InputStream input =
+        request.getFile() != null
+            ? new FileInputStream(request.getFile())
+            : request.getInputStream()) {
+      OutputStream output = codec.compress(stored);
+      byte[] buffer = new byte[64 * 1024];
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        output.write(buffer, 0, read);
+        written += read;
+      }
+      if (!lengthKnown) {
+        // still used by an upload of a single part
+        metadata.addUserMetadata(LENGTH_METADATA, Long.toString(written));
+      }
+      // finishes the codec and completes the upload
+      output.close();
+    } catch (IOException e) {
+      upload.abort();
+      if (e.getCause() instanceof AmazonClientException) {
+        throw (AmazonClientException) e.getCause();
+      }
+      throw new AmazonClientException(
+          String.format(
+              "Unable to compress cos://%s/%s", request.getBucketName(), request.getKey()),
+          e);
+    }
+
+    recordCompressed(written, stored.count);
+    String etag = upload.getETag();
+    if (!lengthKnown && upload.isMultipart()) {
+      etag = recordLength(client, request.getBucketName(), request.getKey(), metadata, etag);
+    }
+    PutObjectResult result = new PutObjectResult();
+    result.setETag(etag);
+    result.setMetadata(metadata);
+    return result;
+  }
+
+  /**
+   * Replace the content of an object recorded as compressed by a decompressing stream.
+   *
+   * @param object object as returned by the client, may be null
+   * @return the same object
+   * @throws AmazonClientException if the codec of the object is not available
+   */
+  public S3Object decompress(S3Object object) {
+    if (object == null) {
+      return null;
+    }
+    ObjectMetadata metadata = object.getObjectMetadata();
+    String name = metadata.getUserMetaDataOf(CODEC_METADATA);
+    if (name == null) {
+      return object;
+    }
+
+    S3ObjectInputStream content = object.getObjectContent();
+    try {
+      CompressionCodec codec = CompressionCodec.forName(name);
+      object.setObjectContent(
+          new S3ObjectInputStream(codec.decompress(content), content.getHttpRequest()));
+    } catch (IllegalArgumentException | IOException e) {
+      content.abort();
+      throw new AmazonClientException(
+          String.format(
+              "Unable to decompress cos://%s/%s", object.getBucketName(), object.getKey()),
+          e);
+    }
+    String length = metadata.getUserMetaDataOf(LENGTH_METADATA);
+    if (length != null) {
+      metadata.setContentLength(Long.parseLong(length));
+    }
+    decompressedCount.incrementAndGet();
+    return object;
+  }
+
+  /**
+   * Read a range of an object. The range of an object recorded as compressed addresses its
+   * uncompressed content: the object is read whole, with the ETag of the ranged response, and
+   * decompressed up to the end of the range. The returned metadata describes the range, with the
+   * uncompressed length of the object in its {@code Content-Range}.
+   *
+   * @param client client reading the object
+   * @param request ranged request
+   * @return the object, or null if a constraint of the request was not met
+   * @throws AmazonS3Exception with status 416 if the range starts at or after the end of the
+   *     uncompressed content
+   */
+  public S3Object getObjectRange(AmazonS3 client, GetObjectRequest request) {
+    S3Object object;
+    try {
+      object = client.getObject(request);
+    } catch (AmazonS3Exception e) {
+      // the range may start beyond the compressed bytes but within the content
+      if (e.getStatusCode() != 416) {
+        throw e;
+      }
+      ObjectMetadata metadata =
+          client.getObjectMetadata(
+              new GetObjectMetadataRequest(
+                      request.getBucketName(), request.getKey(), request.getVersionId())
+                  .withSSECustomerKey(request.getSSECustomerKey()));
+      if (metadata.getUserMetaDataOf(CODEC_METADATA) == null) {
+        throw e;
+      }
+      return readRange(client, request, metadata.getETag());
+    }
+    if (object == null || object.getObjectMetadata().getUserMetaDataOf(CODEC_METADATA) == null) {
+      return object;
+    }
+    object.getObjectContent().abort();
+    return readRange(client, request, object.getObjectMetadata().getETag());
+  }
+
+  /**
+   * Report the uncompressed length of an object recorded as compressed, when it is known, as its
+   * content length.
+   *
+   * @param metadata metadata as returned by the client, may be null
+   * @return the same metadata
+   */
+  public ObjectMetadata toUncompressedMetadata(ObjectMetadata metadata) {
+    if (metadata != null && metadata.getUserMetaDataOf(CODEC_METADATA) != null) {
+      String length = metadata.getUserMetaDataOf(LENGTH_METADATA);
+      if (length != null) {
+        metadata.setContentLength(Long.parseLong(length));
+      }
+    }
+    return metadata;
+  }
+
+  /** @return number of objects uploaded compressed */
+  public long getCompressedCount() {
+    return compressedCount.get();
+  }
+
+  /** @return number of objects read through a decompressing stream */
+  public long getDecompressedCount() {
+    return decompressedCount.get();
+  }
+
+  /** @return bytes written to compressing uploads */
+  public long getUncompressedBytes() {
+    return uncompressedBytes.get();
+  }
+
+  /** @return bytes stored by compressing uploads */
+  public long getCompressedBytes() {
+    return compressedBytes.get();
+  }
+
+  /**
+   * Add the uncompressed length to the metadata of an object uploaded in parts before the length
+   * was known, by a server-side copy of the object onto itself.
+   *
+   * @param metadata metadata of the upload, with the uncompressed length
+   * @param etag ETag of the uploaded object
+   * @return the ETag of the copy, or {@code etag} if the length could not be recorded
+   */
+  String recordLength(
+      AmazonS3 client, String bucket, String key, ObjectMetadata metadata, String etag) {
+    try {
+      CopyObjectResult result =
+          client.copyObject(
+              new CopyObjectRequest(bucket, key, bucket, key)
+                  .withMatchingETagConstraint(etag)
+                  .withNewObjectMetadata(metadata.clone()));
+      if (result != null) {
+        return result.getETag();
+      }
+      // replaced since the upload, the new content carries its own metadata
+    } catch (AmazonClientException e) {
+      // still readable, each range counts the length first
+      logger.warn(
+          String.format("Unable to record the uncompressed length of cos://%s/%s", bucket, key), e);
+    }
+    return etag;
+  }
+
+  void recordCompressed(long uncompressed, long compressed) {
+    compressedCount.incrementAndGet();
+    uncompressedBytes.addAndGet(uncompressed);
+    compressedBytes.addAndGet(compressed);
+  }
+
+  private S3Object readRange(AmazonS3 client, GetObjectRequest request, String etag) {
+    S3Object object = decompress(client.getObject(toWholeRequest(request, etag)));
+    if (object == null) {
+      return null;
+    }
+    String recorded = object.getObjectMetadata().getUserMetaDataOf(LENGTH_METADATA);
+    long length;
+    if (recorded != null) {
+      length = Long.parseLong(recorded);
+    } else {
+      // uploaded in parts with an unknown length, count it first
+      length = skip(object, Long.MAX_VALUE);
+      object = decompress(client.getObject(toWholeRequest(request, etag)));
+      if (object == null) {
+        return null;
+      }
+    }
+
+    long start = request.getRange()[0];
+    long end = Math.min(request.getRange()[1], length - 1);
+    S3ObjectInputStream content = object.getObjectContent();
+    if (start > end) {
+      content.abort();
+      AmazonS3Exception e = new AmazonS3Exception("The requested range is not satisfiable");
+      e.setStatusCode(416);
+      e.setErrorCode("InvalidRange");
+      throw e;
+    }
+    skip(object, start);
+    object.setObjectContent(
+        new S3ObjectInputStream(
+            new RangeInputStream(content, end - start + 1, end == length - 1),
+            content.getHttpRequest()));
+    ObjectMetadata metadata = object.getObjectMetadata();
+    metadata.setContentLength(end - start + 1);
+    metadata.setHeader(Headers.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+    return object;
+  }
+
+  private static GetObjectRequest toWholeRequest(GetObjectRequest request, String etag) {
+    return new GetObjectRequest(request.getBucketName(), request.getKey(), request.getVersionId())
+        .withMatchingETagConstraint(etag)
+        .withSSECustomerKey(request.getSSECustomerKey());
+  }
+
+  /** @return the number of bytes skipped, less than {@code count} at the end of the content */
+  private static long skip(S3Object object, long count) {
+    S3ObjectInputStream content = object.getObjectContent();
+    byte[] buffer = new byte[64 * 1024];
+    long skipped = 0;
+    try {
+      int read;
+      while (skipped < count
+          && (read = content.read(buffer, 0, (int) Math.min(buffer.length, count - skipped)))
+              != -1) {
+        skipped += read;
+      }
+      if (skipped < count) {
+        content.close();
+      }
+    } catch (IOException e) {
+      content.abort();
+      throw new AmazonClientException(
+          String.format(
+              "Unable to decompress cos://%s/%s", object.getBucketName(), object.getKey()),
+          e);
+    }
+    return skipped;
+  }
+
+  private static boolean isCompressible(PutObjectRequest request) {
+    ObjectMetadata metadata = request.getMetadata();
+    return request.getRedirectLocation() == null
+        && request.getCannedAcl() == null
+        && request.getAccessControlList() == null
+        && request.getSSECustomerKey() == null
+        && (metadata == null || metadata.getContentEncoding() == null)
+        && (request.getFile() != null || request.getInputStream() != null);
+  }
+
+  /**
+   * Start a multipart upload that is compressed as its parts arrive, if a rule matches its key and
+   * the request can be compressed as by {@link #putObject(AmazonS3, PutObjectRequest)}.
+   *
+   * @param client client uploading the object
+   * @param request request initiating the upload
+   * @return the upload, or null if it is not compressed
+   */
+  CompressingUpload initiate(AmazonS3 client, InitiateMultipartUploadRequest request) {
+    CompressionCodec codec = getCodec(request.getBucketName(), request.getKey());
+    ObjectMetadata original = request.getObjectMetadata();
+    Long length = null;
+    if (original != null && original.getRawMetadata().containsKey(Headers.CONTENT_LENGTH)) {
+      // the total length set by e.g. the TransferManager
+      length = original.getContentLength();
+    }
+    if (codec == null
+        || request.getRedirectLocation() != null
+        || request.getCannedACL() != null
+        || request.getAccessControlList() != null
+        || request.getSSECustomerKey() != null
+        || (original != null && original.getContentEncoding() != null)) {
+      return null;
+    }
+    try {
+      return new CompressingUpload(
+          client,
+          this,
+          request.getBucketName(),
+          request.getKey(),
+          toCompressedMetadata(original, length, codec),
+          codec);
+    } catch (IOException e) {
+      throw new AmazonClientException(
+          String.format(
+              "Unable to compress cos://%s/%s", request.getBucketName(), request.getKey()),
+          e);
+    }
+  }
+
+  private static ObjectMetadata toCompressedMetadata(
+      ObjectMetadata original, Long length, CompressionCodec codec) {
+    ObjectMetadata metadata = new ObjectMetadata();
+    if (original != null) {
+      for (Map.Entry<String, Object> header : original.getRawMetadata().entrySet()) {
+        // the length and checksum describe the uncompressed content
+        if (!header.getKey().equals(Headers.CONTENT_LENGTH)
+            && !header.getKey().equals(Headers.CONTENT_MD5)
+            && !header.getKey().equals(Headers.ETAG)) {
+          metadata.setHeader(header.getKey(), header.getValue());
+        }
+      }
+      metadata.setUserMetadata(new HashMap<String, String>(original.getUserMetadata()));
+    }
+    metadata.addUserMetadata(CODEC_METADATA, codec.getName());
+    if (length != null) {
+      metadata.addUserMetadata(LENGTH_METADATA, length.toString());
+    }
+    return metadata;
+  }
+
+  /**
+   * Bounds a decompressed object to a range. Closing it before the end of the object aborts the
+   * connection, instead of decompressing the remaining content to drain it.
+   */
+  private static final class RangeInputStream extends InputStream {
+
+    private final S3ObjectInputStream content;
+
+    private final boolean toEnd;
+
+    private long remaining;
+
+    RangeInputStream(S3ObjectInputStream content, long length, boolean toEnd) {
+      this.content = content;
+      this.remaining = length;
+      this.toEnd = toEnd;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int b = content.read();
+      if (b >= 0) {
+        remaining--;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (remaining <= 0) {
+        return -1;
+      }
+      int read = content.read(b, off, (int) Math.min(len, remaining));
+      if (read > 0) {
+        remaining -= read;
+      }
+      return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(content.available(), remaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (toEnd && remaining <= 0) {
+        content.close();
+      } else {
+        content.abort();
+      }
+    }
+  }
+
+  static final class CountingOutputStream extends FilterOutputStream {
+
+    long count;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+}
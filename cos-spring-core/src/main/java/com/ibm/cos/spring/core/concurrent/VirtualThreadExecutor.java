@@ -0,0 +1,210 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs every task on a new virtual thread and limits how many run at once instead of pooling a
+ * fixed number of threads. Tasks beyond the limit wait in a queue and are started in submission
+ * order as running tasks finish, so a task never starts before a task submitted earlier. Tasks that
+ * wait on tasks submitted before them, such as the completion of a multipart upload on its parts,
+ * therefore cannot take all the slots from the tasks they wait on.
+ *
+ * <p>{@link #shutdownNow()} interrupts running tasks and returns the tasks still waiting.
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+  private final ThreadFactory threadFactory;
+
+  private final int maxConcurrency;
+
+  /** started threads that have not finished, guarded by lock */
+  private final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+  /** tasks waiting for a running task to finish, guarded by lock */
+  private final Deque<Runnable> waiting = new ArrayDeque<Runnable>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition terminated = lock.newCondition();
+
+  private volatile boolean shutdown;
+
+  /** set by shutdownNow, so tasks that start after it are discarded */
+  private volatile boolean stopped;
+
+  /**
+   * @param namePrefix prefix of the thread names, e.g. {@code cos-transfer-}
+   * @param maxConcurrency maximum number of tasks running at once
+   * @throws UnsupportedOperationException if the JVM does not support virtual threads
+   */
+  public VirtualThreadExecutor(String namePrefix, int maxConcurrency) {
+    this(VirtualThreads.newThreadFactory(namePrefix), maxConcurrency);
+  }
+
+  /**
+   * @param threadFactory factory creating one thread per task, usually of virtual threads
+   * @param maxConcurrency maximum number of tasks running at once
+   */
+  public VirtualThreadExecutor(ThreadFactory threadFactory, int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be greater than 0");
+    }
+    this.threadFactory = threadFactory;
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (command == null) {
+      throw new NullPointerException("command must not be null");
+    }
+    lock.lock();
+    try {
+      if (shutdown) {
+        throw new RejectedExecutionException("executor has been shut down");
+      }
+      if (threads.size() < maxConcurrency) {
+        start(command);
+      } else {
+        waiting.add(command);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Must be called holding lock. */
+  private void start(Runnable command) {
+    Thread thread = threadFactory.newThread(() -> run(command));
+    threads.add(thread);
+    thread.start();
+  }
+
+  private void run(Runnable command) {
+    try {
+      if (!stopped) {
+        command.run();
+      }
+    } finally {
+      finish();
+    }
+  }
+
+  private void finish() {
+    lock.lock();
+    try {
+      threads.remove(Thread.currentThread());
+      Runnable next = waiting.poll();
+      if (next != null) {
+        start(next);
+      } else if (shutdown && threads.isEmpty()) {
+        terminated.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    lock.lock();
+    try {
+      shutdown = true;
+      if (threads.isEmpty()) {
+        terminated.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> discarded;
+    lock.lock();
+    try {
+      stopped = true;
+      shutdown();
+      discarded = new ArrayList<Runnable>(waiting);
+      waiting.clear();
+      for (Thread thread : threads) {
+        thread.interrupt();
+      }
+    } finally {
+      lock.unlock();
+    }
+    return discarded;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return shutdown && threads.isEmpty();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long remaining = unit.toNanos(timeout);
+    lock.lock();
+    try {
+      while (!isTerminated()) {
+        if (remaining <= 0) {
+          return false;
+        }
+        remaining = terminated.awaitNanos(remaining);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  /** @return number of tasks currently running */
+  public int getActiveCount() {
+    return threads.size();
+  }
+
+  /** @return number of tasks running or waiting to run */
+  public int getTaskCount() {
+    lock.lock();
+    try {
+      return threads.size() + waiting.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
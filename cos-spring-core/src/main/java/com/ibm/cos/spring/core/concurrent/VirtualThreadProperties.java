@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.concurrent;
+
+import com.ibm.cos.spring.core.transfer.TransferExecutorFactory;
+import java.util.concurrent.ExecutorService;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Virtual thread settings, bound from {@code cos.virtual-threads.*}. When enabled on Java 21 or
+ * later, transfers, parallel downloads, bulk deletes, partitioned listings and hedged GETs run on
+ * virtual threads limited by {@code max-concurrency} instead of on platform thread pools. On older
+ * JVMs the setting is ignored with a warning.
+ */
+public class VirtualThreadProperties {
+
+  private static final Log logger = LogFactory.getLog(VirtualThreadProperties.class);
+
+  /** run blocking calls on virtual threads when the JVM supports them */
+  private boolean enabled;
+
+  /** maximum number of calls running at once per executor, replacing cos.transfer.threads */
+  private int maxConcurrency = 100;
+
+  private boolean warned;
+
+  /**
+   * @return whether virtual threads are enabled and supported by the JVM
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public boolean isActive() {
+    validate();
+    if (enabled && !VirtualThreads.isAvailable() && !warned) {
+      warned = true;
+      logger.warn(
+          "cos.virtual-threads.enabled requires Java 21 or later, using platform threads on Java "
+              + System.getProperty("java.specification.version"));
+    }
+    return enabled && VirtualThreads.isAvailable();
+  }
+
+  /**
+   * Create the transfer pool, on virtual threads if {@link #isActive() active} and otherwise on
+   * {@code threads} platform threads.
+   *
+   * @param threadNamePrefix prefix of the thread names
+   * @param threads number of platform threads
+   * @return a transfer executor factory
+   */
+  public TransferExecutorFactory createTransferExecutorFactory(
+      String threadNamePrefix, int threads) {
+    if (isActive()) {
+      return new TransferExecutorFactory(
+          new VirtualThreadExecutor(threadNamePrefix, maxConcurrency), maxConcurrency);
+    }
+    return new TransferExecutorFactory(threadNamePrefix, threads);
+  }
+
+  /**
+   * Create an executor running each task on a virtual thread, limited by {@code max-concurrency}.
+   *
+   * @param threadNamePrefix prefix of the thread names
+   * @return an executor owned by the caller
+   * @throws UnsupportedOperationException if the JVM does not support virtual threads
+   */
+  public ExecutorService createExecutor(String threadNamePrefix) {
+    validate();
+    return new VirtualThreadExecutor(threadNamePrefix, maxConcurrency);
+  }
+
+  /**
+   * Create an executor starting each task on a virtual thread right away, for callers that limit
+   * their tasks to {@code max-concurrency} themselves and must not wait for a slot, such as the
+   * request hedger.
+   *
+   * @param threadNamePrefix prefix of the thread names
+   * @return an executor owned by the caller
+   * @throws UnsupportedOperationException if the JVM does not support virtual threads
+   */
+  public ExecutorService createUnlimitedExecutor(String threadNamePrefix) {
+    validate();
+    return new VirtualThreadExecutor(threadNamePrefix, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException(
+          "cos.virtual-threads.max-concurrency must be greater than 0");
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  public void setMaxConcurrency(int maxConcurrency) {
+    this.maxConcurrency = maxConcurrency;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to the virtual threads of Java 21 and later. The library is compiled for Java 8, so the
+ * {@code Thread.ofVirtual()} builder is looked up reflectively.
+ */
+public final class VirtualThreads {
+
+  private static final Method OF_VIRTUAL;
+
+  private static final Method NAME;
+
+  private static final Method FACTORY;
+
+  static {
+    Method ofVirtual = null;
+    Method name = null;
+    Method factory = null;
+    if (javaVersion() >= 21) {
+      try {
+        ofVirtual = Thread.class.getMethod("ofVirtual");
+        Class<?> builder = Class.forName("java.lang.Thread$Builder");
+        name = builder.getMethod("name", String.class, long.class);
+        factory = builder.getMethod("factory");
+      } catch (ReflectiveOperationException e) {
+        ofVirtual = null;
+      }
+    }
+    OF_VIRTUAL = ofVirtual;
+    NAME = name;
+    FACTORY = factory;
+  }
+
+  private VirtualThreads() {}
+
+  /** @return whether the running JVM supports virtual threads without preview features */
+  public static boolean isAvailable() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Create a factory of virtual threads named {@code namePrefix} followed by a counter.
+   *
+   * @param namePrefix prefix of the thread names, e.g. {@code cos-transfer-}
+   * @return a thread-safe factory of unstarted virtual threads
+   * @throws UnsupportedOperationException if the JVM does not support virtual threads
+   */
+  public static ThreadFactory newThreadFactory(String namePrefix) {
+    if (!isAvailable()) {
+      throw new UnsupportedOperationException(
+          "virtual threads require Java 21 or later, running on "
+              + System.getProperty("java.specification.version"));
+    }
+    try {
+      Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 1L);
+      return (ThreadFactory) FACTORY.invoke(builder);
+    } catch (InvocationTargetException e) {
+      throw new IllegalStateException("cannot create virtual thread factory", e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("cannot create virtual thread factory", e);
+    }
+  }
+
+  /** Parse {@code 1.8} as 8 and {@code 21} as 21. */
+  private static int javaVersion() {
+    String version = System.getProperty("java.specification.version", "1.8");
+    if (version.startsWith("1.")) {
+      version = version.substring(2);
+    }
+    try {
+      return Integer.parseInt(version);
+    } catch (NumberFormatException e) {
+      return 8;
+    }
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.delete;
+
+import com.ibm.cloud.objectstorage.services.s3.model.MultiObjectDeleteException.DeleteError;
+import java.util.List;
+
+/** Receives the progress of a bulk deletion after every batch. */
+@FunctionalInterface
+public interface BulkDeleteListener {
+
+  /**
+   * Called on the thread that ran the batch, possibly concurrently for several batches.
+   *
+   * @param deleted number of keys deleted by this batch
+   * @param errors keys of this batch that could not be deleted
+   * @param result totals of the deletion so far
+   */
+  void batchCompleted(int deleted, List<DeleteError> errors, BulkDeleteResult result);
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.delete;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import java.util.concurrent.Executor;
+
+/** Bulk deletion settings, bound from {@code cos.bulk-delete.*}. */
+public class BulkDeleteProperties {
+
+  /** keys per DeleteObjects request, at most 1000 */
+  private int batchSize = BulkDeleter.MAX_BATCH_SIZE;
+
+  /** maximum number of DeleteObjects requests in flight */
+  private int concurrency = 4;
+
+  /**
+   * Validate these settings and create a bulk deleter.
+   *
+   * @param client client sending the requests
+   * @param executor executor running the batches, typically the transfer pool
+   * @return a deleter using these settings
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public BulkDeleter createDeleter(AmazonS3 client, Executor executor) {
+    validate();
+    return new BulkDeleter(client, executor, batchSize, concurrency);
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (batchSize < 1 || batchSize > BulkDeleter.MAX_BATCH_SIZE) {
+      throw new IllegalArgumentException(
+          "cos.bulk-delete.batch-size must be between 1 and " + BulkDeleter.MAX_BATCH_SIZE);
+    }
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("cos.bulk-delete.concurrency must be greater than 0");
+    }
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  public void setConcurrency(int concurrency) {
+    this.concurrency = concurrency;
+  }
+}
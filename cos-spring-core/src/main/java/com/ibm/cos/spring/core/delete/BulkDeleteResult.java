@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.delete;
+
+import com.ibm.cloud.objectstorage.services.s3.model.MultiObjectDeleteException.DeleteError;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Progress and outcome of a bulk deletion. Counts are updated while the deletion runs. */
+public class BulkDeleteResult {
+
+  private final AtomicLong deletedCount = new AtomicLong();
+
+  private final AtomicLong batchCount = new AtomicLong();
+
+  private final List<DeleteError> errors =
+      Collections.synchronizedList(new ArrayList<DeleteError>());
+
+  void add(int deleted, List<DeleteError> batchErrors) {
+    deletedCount.addAndGet(deleted);
+    errors.addAll(batchErrors);
+    batchCount.incrementAndGet();
+  }
+
+  /** @return number of keys deleted */
+  public long getDeletedCount() {
+    return deletedCount.get();
+  }
+
+  /** @return number of DeleteObjects batches completed */
+  public long getBatchCount() {
+    return batchCount.get();
+  }
+
+  /** @return keys that could not be deleted with their error codes */
+  public List<DeleteError> getErrors() {
+    synchronized (errors) {
+      return new ArrayList<DeleteError>(errors);
+    }
+  }
+
+  /** @return keys that could not be deleted */
+  public List<String> getFailedKeys() {
+    List<String> keys = new ArrayList<String>();
+    synchronized (errors) {
+      for (DeleteError error : errors) {
+        keys.add(error.getKey());
+      }
+    }
+    return keys;
+  }
+
+  /** @return whether every key was deleted */
+  public boolean isSuccessful() {
+    return errors.isEmpty();
+  }
+}
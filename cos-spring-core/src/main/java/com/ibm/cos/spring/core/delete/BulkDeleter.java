@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.delete;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.AmazonServiceException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.DeleteObjectsRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.ibm.cloud.objectstorage.services.s3.model.MultiObjectDeleteException;
+import com.ibm.cloud.objectstorage.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectSummary;
+import com.ibm.cos.spring.core.listing.BucketLister;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Deletes large numbers of keys with {@code DeleteObjects} requests of up to 1000 keys, running
+ * several batches concurrently. Keys are consumed as batches are sent, so the keys of a listing are
+ * deleted while the listing continues and never held in memory at once. Prefixes are listed with a
+ * {@link BucketLister}, which fetches the next page while the current one is deleted.
+ *
+ * <p>Keys that cannot be deleted are reported in the {@link BulkDeleteResult} instead of failing
+ * the whole deletion. Batches run on the given executor, typically the transfer pool, so deletions
+ * must not be started from threads of that executor.
+ */
+public class BulkDeleter {
+
+  /** maximum number of keys of one DeleteObjects request */
+  public static final int MAX_BATCH_SIZE = 1000;
+
+  private static final Log logger = LogFactory.getLog(BulkDeleter.class);
+
+  private final AmazonS3 client;
+
+  private final Executor executor;
+
+  private final BucketLister lister;
+
+  private final int batchSize;
+
+  private final int concurrency;
+
+  /**
+   * @param client client sending the requests
+   * @param executor executor running the batches
+   * @param batchSize keys per DeleteObjects request, at most {@value #MAX_BATCH_SIZE}
+   * @param concurrency maximum number of batches in flight
+   */
+  public BulkDeleter(AmazonS3 client, Executor executor, int batchSize, int concurrency) {
+    this.client = client;
+    this.executor = executor;
+    this.batchSize = batchSize;
+    this.concurrency = concurrency;
+    this.lister = new BucketLister(client, executor, BucketLister.MAX_PAGE_SIZE, 1);
+  }
+
+  /**
+   * Delete all objects whose key starts with a prefix.
+   *
+   * @param bucket bucket of the objects
+   * @param prefix key prefix, empty for all objects of the bucket
+   * @return the outcome once all batches completed
+   */
+  public BulkDeleteResult deletePrefix(String bucket, String prefix) {
+    return deletePrefix(bucket, prefix, null);
+  }
+
+  /**
+   * Delete all objects whose key starts with a prefix.
+   *
+   * @param bucket bucket of the objects
+   * @param prefix key prefix, empty for all objects of the bucket
+   * @param listener (optional) listener notified after every batch
+   * @return the outcome once all batches completed
+   */
+  public BulkDeleteResult deletePrefix(String bucket, String prefix, BulkDeleteListener listener) {
+    return delete(
+        bucket, lister.stream(bucket, prefix).map(S3ObjectSummary::getKey).iterator(), listener);
+  }
+
+  /**
+   * Delete the given keys.
+   *
+   * @param bucket bucket of the objects
+   * @param keys keys to delete, consumed as batches are sent
+   * @return the outcome once all batches completed
+   */
+  public BulkDeleteResult delete(String bucket, Iterator<String> keys) {
+    return delete(bucket, keys, null);
+  }
+
+  /**
+   * Delete the given keys.
+   *
+   * @param bucket bucket of the objects
+   * @param keys keys to delete, consumed as batches are sent
+   * @param listener (optional) listener notified after every batch
+   * @return the outcome once all batches completed
+   * @throws AmazonClientException if the keys cannot be listed or the thread is interrupted
+   */
+  public BulkDeleteResult delete(
+      String bucket, Iterator<String> keys, BulkDeleteListener listener) {
+    BulkDeleteResult result = new BulkDeleteResult();
+    Semaphore inFlight = new Semaphore(concurrency);
+    try {
+      while (keys.hasNext()) {
+        List<KeyVersion> batch = new ArrayList<KeyVersion>(batchSize);
+        while (batch.size() < batchSize && keys.hasNext()) {
+          batch.add(new KeyVersion(keys.next()));
+        }
+        // bounds the keys held in memory as well as the requests in flight
+        inFlight.acquire();
+        executor.execute(
+            () -> {
+              try {
+                deleteBatch(bucket, batch, result, listener);
+              } finally {
+                inFlight.release();
+              }
+            });
+      }
+      inFlight.acquire(concurrency);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AmazonClientException("Interrupted while deleting from " + bucket, e);
+    }
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          String.format(
+              "Deleted %d objects from %s in %d batches, %d failed",
+              result.getDeletedCount(), bucket, result.getBatchCount(), result.getErrors().size()));
+    }
+    return result;
+  }
+
+  private void deleteBatch(
+      String bucket, List<KeyVersion> batch, BulkDeleteResult result, BulkDeleteListener listener) {
+    int deleted;
+    List<DeleteError> errors;
+    try {
+      // quiet mode only returns the keys that failed
+      client.deleteObjects(new DeleteObjectsRequest(bucket).withKeys(batch).withQuiet(true));
+      deleted = batch.size();
+      errors = Collections.emptyList();
+    } catch (MultiObjectDeleteException e) {
+      errors = e.getErrors();
+      deleted = batch.size() - errors.size();
+    } catch (RuntimeException e) {
+      // the whole request failed after the client's retries
+      errors = new ArrayList<DeleteError>(batch.size());
+      for (KeyVersion key : batch) {
+        errors.add(toError(key.getKey(), e));
+      }
+      deleted = 0;
+      logger.warn("Unable to delete a batch of " + batch.size() + " keys from " + bucket, e);
+    }
+
+    result.add(deleted, errors);
+    if (listener != null) {
+      listener.batchCompleted(deleted, errors, result);
+    }
+  }
+
+  private static DeleteError toError(String key, RuntimeException e) {
+    DeleteError error = new DeleteError();
+    error.setKey(key);
+    if (e instanceof AmazonServiceException) {
+      error.setCode(((AmazonServiceException) e).getErrorCode());
+      error.setMessage(((AmazonServiceException) e).getErrorMessage());
+    } else {
+      error.setCode(e.getClass().getSimpleName());
+      error.setMessage(e.getMessage());
+    }
+    return error;
+  }
+}
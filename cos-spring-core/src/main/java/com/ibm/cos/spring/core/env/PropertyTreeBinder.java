@@ -0,0 +1,336 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.env;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.SystemEnvironmentPropertySource;
+import org.springframework.validation.DataBinder;
+import org.springframework.validation.FieldError;
+
+/**
+ * Binds a tree of dashed properties such as {@code cos.client.max-connections} onto a JavaBean
+ * without depending on Spring Boot. Only enumerable property sources are considered.
+ *
+ * <p>Names are matched the way Spring Boot relaxes them: ignoring case and dashes, so {@code
+ * cos.client.maxConnections} also binds. The words of an environment variable such as {@code
+ * COS_WRITE_BEHIND_MAX_QUEUED_BYTES} are matched against the prefix and the bean property names, so
+ * it binds {@code cos.write-behind.max-queued-bytes}. A name defined in several property sources
+ * takes its value from the first source.
+ */
+public final class PropertyTreeBinder {
+
+  private PropertyTreeBinder() {}
+
+  /**
+   * Bind all properties below {@code prefix} onto {@code target}. Unknown properties are ignored.
+   *
+   * @param environment environment providing the properties
+   * @param prefix property prefix without trailing dot, e.g. {@code cos.client}
+   * @param target bean to bind onto
+   * @return the bound target
+   * @throws IllegalArgumentException if a value cannot be converted to the property type
+   */
+  public static <T> T bind(Environment environment, String prefix, T target) {
+    Map<String, Object> values = new LinkedHashMap<String, Object>();
+    for (PropertyName name : propertyNames(environment, prefix)) {
+      String path =
+          name.words != null
+              ? toVariablePath(target.getClass(), name.words)
+              : toPropertyPath(target.getClass(), name.relative);
+      if (path != null && !values.containsKey(path)) {
+        values.put(path, environment.getProperty(name.name));
+      }
+    }
+
+    DataBinder binder = new DataBinder(target);
+    // comma separated lists such as cos.hedge.prefixes, as Spring Boot binds them
+    binder.registerCustomEditor(String[].class, new StringArrayPropertyEditor());
+    binder.bind(new MutablePropertyValues(values));
+
+    FieldError error = binder.getBindingResult().getFieldError();
+    if (error != null) {
+      throw new IllegalArgumentException(
+          String.format(
+              "invalid value '%s' for %s.%s", error.getRejectedValue(), prefix, error.getField()));
+    }
+    return target;
+  }
+
+  /**
+   * List the distinct names directly below {@code prefix}, e.g. {@code archive} for {@code
+   * cos.clients.archive.endpoint} and the prefix {@code cos.clients}. Names that differ only in
+   * case or dashes are listed once, as written in a property source other than the environment
+   * variables if there is one.
+   *
+   * @param environment environment providing the properties
+   * @param prefix property prefix without trailing dot
+   * @return the child names in alphabetical order
+   */
+  public static Set<String> childNames(Environment environment, String prefix) {
+    Map<String, String> names = new TreeMap<String, String>();
+    List<PropertyName> variables = new ArrayList<PropertyName>();
+    for (PropertyName name : propertyNames(environment, prefix)) {
+      if (name.words != null) {
+        variables.add(name);
+        continue;
+      }
+      int dot = name.relative.indexOf('.');
+      String child = dot < 0 ? name.relative : name.relative.substring(0, dot);
+      if (!names.containsKey(uniform(child))) {
+        names.put(uniform(child), child);
+      }
+    }
+    for (PropertyName variable : variables) {
+      // COS_CLIENTS_MY_ARCHIVE_ENDPOINT belongs to cos.clients.my-archive if that is defined
+      boolean known = false;
+      for (String child : names.keySet()) {
+        known |= consume(variable.words, 0, child) > 0;
+      }
+      if (!known) {
+        names.put(variable.words.get(0), variable.words.get(0));
+      }
+    }
+    return new TreeSet<String>(names.values());
+  }
+
+  /** @return the properties below the prefix in property source order */
+  private static List<PropertyName> propertyNames(Environment environment, String prefix) {
+    List<PropertyName> names = new ArrayList<PropertyName>();
+    if (!(environment instanceof ConfigurableEnvironment)) {
+      return names;
+    }
+    String uniformPrefix = uniform(prefix) + ".";
+    String[] prefixSegments = uniform(prefix).split("\\.");
+    for (PropertySource<?> source : ((ConfigurableEnvironment) environment).getPropertySources()) {
+      if (source instanceof EnumerablePropertySource) {
+        boolean variables = source instanceof SystemEnvironmentPropertySource;
+        for (String name : ((EnumerablePropertySource<?>) source).getPropertyNames()) {
+          if (variables) {
+            List<String> words = relativeWords(name, prefixSegments);
+            if (words != null) {
+              names.add(new PropertyName(name, null, words));
+            }
+          } else if (uniform(name).startsWith(uniformPrefix)) {
+            int start = 0;
+            for (int i = 0; i < prefixSegments.length; i++) {
+              start = name.indexOf('.', start) + 1;
+            }
+            names.add(new PropertyName(name, name.substring(start), null));
+          }
+        }
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Split an environment variable name such as {@code COS_WRITE_BEHIND_ENABLED} into lower case
+   * words and remove the words matching the prefix segments, e.g. {@code cos} and {@code
+   * writebehind}.
+   *
+   * @return the remaining words, or null if the name is not below the prefix
+   */
+  private static List<String> relativeWords(String name, String[] prefixSegments) {
+    List<String> words = new ArrayList<String>();
+    for (String word : name.toLowerCase(Locale.ROOT).split("[._-]+")) {
+      if (!word.isEmpty()) {
+        words.add(word);
+      }
+    }
+    int next = 0;
+    for (String segment : prefixSegments) {
+      next = consume(words, next, segment);
+      if (next < 0) {
+        return null;
+      }
+    }
+    return next < words.size() ? words.subList(next, words.size()) : null;
+  }
+
+  /**
+   * Match the words starting at {@code from} against a name in lower case without dashes, e.g.
+   * {@code max} and {@code connections} against {@code maxconnections}.
+   *
+   * @return the index after the matched words, or -1 if they do not spell the name
+   */
+  private static int consume(List<String> words, int from, String uniform) {
+    StringBuilder joined = new StringBuilder(uniform.length());
+    for (int i = from; i < words.size(); i++) {
+      joined.append(words.get(i));
+      if (!uniform.startsWith(joined.toString())) {
+        return -1;
+      }
+      if (joined.length() == uniform.length()) {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Convert the words of an environment variable such as {@code client}, {@code max} and {@code
+   * connections} to the bean path {@code client.maxConnections} of {@code type}. Each property
+   * takes as many words as its name needs; numeric words of array and collection properties become
+   * indexes.
+   *
+   * @return the path, or null if the words do not name a property
+   */
+  private static String toVariablePath(Class<?> type, List<String> words) {
+    StringBuilder path = new StringBuilder();
+    Class<?> current = type;
+    int next = 0;
+    while (next < words.size()) {
+      if (current == null) {
+        return null;
+      }
+      String word = words.get(next);
+      if (word.matches("[0-9]+")
+          && (current.isArray() || Collection.class.isAssignableFrom(current))) {
+        path.append('[').append(word).append(']');
+        current = current.isArray() ? current.getComponentType() : null;
+        next++;
+        continue;
+      }
+      PropertyDescriptor match = null;
+      int matchEnd = -1;
+      for (PropertyDescriptor property : properties(current)) {
+        int end = consume(words, next, uniform(property.getName()));
+        if (end > matchEnd) {
+          match = property;
+          matchEnd = end;
+        }
+      }
+      if (match == null) {
+        return null;
+      }
+      if (path.length() > 0) {
+        path.append('.');
+      }
+      path.append(match.getName());
+      current = match.getPropertyType();
+      next = matchEnd;
+    }
+    return path.toString();
+  }
+
+  /**
+   * Convert a relative name such as {@code client.max-connections} to the bean path {@code
+   * client.maxConnections} of {@code type}, matching each segment to a bean property ignoring case
+   * and dashes. Numeric segments of array and collection properties become indexes.
+   */
+  private static String toPropertyPath(Class<?> type, String name) {
+    StringBuilder path = new StringBuilder(name.length());
+    Class<?> current = type;
+    for (String segment : name.split("\\.")) {
+      String index = "";
+      int bracket = segment.indexOf('[');
+      if (bracket > 0) {
+        index = segment.substring(bracket);
+        segment = segment.substring(0, bracket);
+      }
+      if (current != null
+          && segment.matches("[0-9]+")
+          && (current.isArray() || Collection.class.isAssignableFrom(current))) {
+        path.append('[').append(segment).append(']');
+        current = current.isArray() ? current.getComponentType() : null;
+        continue;
+      }
+      PropertyDescriptor property = current != null ? findProperty(current, segment) : null;
+      if (path.length() > 0) {
+        path.append('.');
+      }
+      path.append(property != null ? property.getName() : toCamelCase(segment)).append(index);
+      current = property != null && index.isEmpty() ? property.getPropertyType() : null;
+    }
+    return path.toString();
+  }
+
+  private static PropertyDescriptor findProperty(Class<?> type, String segment) {
+    String uniform = uniform(segment);
+    for (PropertyDescriptor property : properties(type)) {
+      if (uniform(property.getName()).equals(uniform)) {
+        return property;
+      }
+    }
+    return null;
+  }
+
+  /** @return the readable or writable properties of a bean type, none for a simple type */
+  private static List<PropertyDescriptor> properties(Class<?> type) {
+    List<PropertyDescriptor> properties = new ArrayList<PropertyDescriptor>();
+    if (!BeanUtils.isSimpleProperty(type)) {
+      for (PropertyDescriptor property : BeanUtils.getPropertyDescriptors(type)) {
+        if (property.getWriteMethod() != null || property.getReadMethod() != null) {
+          properties.add(property);
+        }
+      }
+    }
+    return properties;
+  }
+
+  /** Convert {@code max-connections} to {@code maxConnections}. */
+  private static String toCamelCase(String name) {
+    StringBuilder path = new StringBuilder(name.length());
+    boolean upper = false;
+    for (char c : name.toCharArray()) {
+      if (c == '-' || c == '_') {
+        upper = true;
+      } else {
+        path.append(upper ? Character.toUpperCase(c) : c);
+        upper = false;
+      }
+    }
+    return path.toString();
+  }
+
+  /** @return the name in lower case without dashes */
+  private static String uniform(String name) {
+    return name.replace("-", "").toLowerCase(Locale.ROOT);
+  }
+
+  private static final class PropertyName {
+
+    /** name in its property source */
+    final String name;
+
+    /** dotted name relative to the prefix, null for an environment variable */
+    final String relative;
+
+    /** lower case words of an environment variable after the prefix, null for other names */
+    final List<String> words;
+
+    PropertyName(String name, String relative, List<String> words) {
+      this.name = name;
+      this.relative = relative;
+      this.words = words;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.hedge;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Hedged GET settings, bound from {@code cos.hedge.*}. Hedging is disabled unless {@code
+ * cos.hedge.enabled} is set. Durations are in milliseconds.
+ */
+public class HedgeProperties {
+
+  /** send a second GET request if the first one is slow */
+  private boolean enabled;
+
+  /** {@code bucket} or {@code bucket/key-prefix} entries of hedged objects, all if empty */
+  private String[] prefixes = new String[0];
+
+  /** percentile of recent response times after which a GET request is hedged */
+  private double percentile = 0.95;
+
+  /** delay after which a GET request is hedged until enough response times are known */
+  private long initialDelay = 100;
+
+  /** lower bound of the delay after which a GET request is hedged */
+  private long minDelay = 5;
+
+  /** hedges earned per GET request, i.e. the long-term maximum share of hedged requests */
+  private double budgetRatio = 0.05;
+
+  /** maximum number of hedges that can be saved up for a burst of slow requests */
+  private double budgetBurst = 10;
+
+  /** maximum number of threads running GET requests and their hedges */
+  private int maxThreads = RequestHedger.DEFAULT_MAX_THREADS;
+
+  /**
+   * Validate these settings and create a hedger for one client.
+   *
+   * @return a hedger with its own response times and budget
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public RequestHedger createHedger() {
+    validate();
+    return new RequestHedger(
+        prefixes, percentile, initialDelay, minDelay, budgetRatio, budgetBurst, maxThreads);
+  }
+
+  /**
+   * Validate these settings and create a hedger running requests on the given executor.
+   *
+   * @param executor executor starting every accepted task right away, owned by the hedger
+   * @param maxThreads maximum number of requests running on the executor, replacing {@code
+   *     max-threads}
+   * @return a hedger using these settings
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public RequestHedger createHedger(ExecutorService executor, int maxThreads) {
+    validate();
+    return new RequestHedger(
+        prefixes,
+        percentile,
+        initialDelay,
+        minDelay,
+        budgetRatio,
+        budgetBurst,
+        maxThreads,
+        executor);
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (percentile <= 0 || percentile >= 1) {
+      throw new IllegalArgumentException("cos.hedge.percentile must be between 0 and 1");
+    }
+    if (initialDelay < 0) {
+      throw new IllegalArgumentException("cos.hedge.initial-delay must not be negative");
+    }
+    if (minDelay < 0) {
+      throw new IllegalArgumentException("cos.hedge.min-delay must not be negative");
+    }
+    if (budgetRatio < 0 || budgetRatio > 1) {
+      throw new IllegalArgumentException("cos.hedge.budget-ratio must be between 0 and 1");
+    }
+    if (budgetBurst < 1) {
+      throw new IllegalArgumentException("cos.hedge.budget-burst must be at least 1");
+    }
+    if (maxThreads < 1) {
+      throw new IllegalArgumentException("cos.hedge.max-threads must be greater than 0");
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public String[] getPrefixes() {
+    return prefixes;
+  }
+
+  public void setPrefixes(String[] prefixes) {
+    this.prefixes = prefixes;
+  }
+
+  public double getPercentile() {
+    return percentile;
+  }
+
+  public void setPercentile(double percentile) {
+    this.percentile = percentile;
+  }
+
+  public long getInitialDelay() {
+    return initialDelay;
+  }
+
+  public void setInitialDelay(long initialDelay) {
+    this.initialDelay = initialDelay;
+  }
+
+  public long getMinDelay() {
+    return minDelay;
+  }
+
+  public void setMinDelay(long minDelay) {
+    this.minDelay = minDelay;
+  }
+
+  public double getBudgetRatio() {
+    return budgetRatio;
+  }
+
+  public void setBudgetRatio(double budgetRatio) {
+    this.budgetRatio = budgetRatio;
+  }
+
+  public double getBudgetBurst() {
+    return budgetBurst;
+  }
+
+  public void setBudgetBurst(double budgetBurst) {
+    this.budgetBurst = budgetBurst;
+  }
+
+  public int getMaxThreads() {
+    return maxThreads;
+  }
+
+  public void setMaxThreads(int maxThreads) {
+    this.maxThreads = maxThreads;
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.hedge;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Routes GET requests of an {@link AmazonS3} proxy that match the configured prefixes through a
+ * {@link RequestHedger} and passes every other call to the wrapped client.
+ */
+final class HedgingClientHandler implements InvocationHandler {
+
+  private final AmazonS3 client;
+
+  private final RequestHedger hedger;
+
+  HedgingClientHandler(AmazonS3 client, RequestHedger hedger) {
+    this.client = client;
+    this.hedger = hedger;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String name = method.getName();
+    Class<?>[] types = method.getParameterTypes();
+    if (name.equals("equals") && types.length == 1) {
+      return proxy == args[0];
+    }
+    if (name.equals("hashCode") && types.length == 0) {
+      return System.identityHashCode(proxy);
+    }
+
+    if (name.equals("getObject") && types.length == 2 && types[0] == String.class) {
+      String bucket = (String) args[0];
+      String key = (String) args[1];
+      if (hedger.matches(bucket, key)) {
+        return hedger.getObject(() -> client.getObject(bucket, key));
+      }
+    }
+    if (name.equals("getObjectAsString") && types.length == 2) {
+      String bucket = (String) args[0];
+      String key = (String) args[1];
+      if (hedger.matches(bucket, key)) {
+        return readString(hedger.getObject(() -> client.getObject(bucket, key)));
+      }
+    }
+    if (name.equals("getObject") && types.length == 1 && types[0] == GetObjectRequest.class) {
+      GetObjectRequest request = (GetObjectRequest) args[0];
+      if (hedger.matches(request.getBucketName(), request.getKey())) {
+        // each attempt sends its own copy, as the SDK records state on the request
+        return hedger.getObject(() -> client.getObject((GetObjectRequest) request.clone()));
+      }
+    }
+
+    try {
+      return method.invoke(client, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static String readString(S3Object object) {
+    try (InputStream in = object.getObjectContent()) {
+      return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new AmazonClientException("Unable to read " + object.getKey(), e);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.hedge;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latest latencies in a ring buffer and recomputes a percentile of them after every
+ * {@code recomputeInterval} samples, so that reading the percentile is cheap.
+ */
+final class LatencyTracker {
+
+  private final long[] samples;
+
+  private final double percentile;
+
+  private final int recomputeInterval;
+
+  /** guarded by this */
+  private long recorded;
+
+  /** guarded by this */
+  private int count;
+
+  /** guarded by this */
+  private int next;
+
+  private volatile long value = -1;
+
+  LatencyTracker(int size, double percentile, int recomputeInterval) {
+    this.samples = new long[size];
+    this.percentile = percentile;
+    this.recomputeInterval = recomputeInterval;
+  }
+
+  synchronized void record(long nanos) {
+    samples[next] = nanos;
+    next = (next + 1) % samples.length;
+    if (count < samples.length) {
+      count++;
+    }
+    if (++recorded % recomputeInterval == 0) {
+      long[] sorted = Arrays.copyOf(samples, count);
+      Arrays.sort(sorted);
+      value = sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+    }
+  }
+
+  /** @return the percentile in nanoseconds, -1 until {@code recomputeInterval} samples exist */
+  long getPercentile() {
+    return value;
+  }
+}
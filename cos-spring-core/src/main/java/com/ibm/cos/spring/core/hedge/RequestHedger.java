@@ -0,0 +1,400 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.hedge;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Sends a second GET request for an object if the first one has not returned its response headers
+ * within a delay, and uses whichever response arrives first. The delay is a percentile of recent
+ * response times, so only the slowest requests are hedged, typically those waiting on a stalled
+ * connection. As the first request still holds its connection, the hedge is sent on another one.
+ * The response that loses the race is aborted without reading its body.
+ *
+ * <p>A budget caps the extra load: each GET earns {@code budgetRatio} of a hedge, up to a burst of
+ * {@code budgetBurst} hedges, and each hedge spends one. While no hedge can be sent, requests run
+ * on the caller's thread. Requests also run there, unhedged, while {@code maxThreads} requests are
+ * running, as waiting for a thread would only add to their latency; the hedger never relies on its
+ * executor to reject them.
+ */
+public class RequestHedger implements DisposableBean {
+
+  /** threads of the default executor */
+  public static final int DEFAULT_MAX_THREADS = 64;
+
+  private static final int SAMPLES = 1000;
+
+  private static final int RECOMPUTE_INTERVAL = 100;
+
+  private final String[] prefixes;
+
+  private final long initialDelay;
+
+  private final long minDelay;
+
+  private final double budgetRatio;
+
+  private final double budgetBurst;
+
+  private final LatencyTracker latencies;
+
+  private final ExecutorService executor;
+
+  /** free threads of the executor, taken before a request is submitted */
+  private final Semaphore threads;
+
+  /** hedges that may currently be sent, guarded by this */
+  private double budget;
+
+  private final AtomicLong requestCount = new AtomicLong();
+
+  private final AtomicLong hedgeCount = new AtomicLong();
+
+  private final AtomicLong hedgeWinCount = new AtomicLong();
+
+  private final AtomicLong saturatedCount = new AtomicLong();
+
+  /**
+   * @param prefixes {@code bucket} or {@code bucket/key-prefix} entries of hedged objects, all
+   *     objects if empty
+   * @param percentile percentile of recent response times after which a request is hedged
+   * @param initialDelay delay in milliseconds until enough response times are known
+   * @param minDelay lower bound of the delay in milliseconds
+   * @param budgetRatio hedges earned per GET request
+   * @param budgetBurst maximum number of hedges that can be saved up
+   */
+  public RequestHedger(
+      String[] prefixes,
+      double percentile,
+      long initialDelay,
+      long minDelay,
+      double budgetRatio,
+      double budgetBurst) {
+    this(
+        prefixes,
+        percentile,
+        initialDelay,
+        minDelay,
+        budgetRatio,
+        budgetBurst,
+        DEFAULT_MAX_THREADS);
+  }
+
+  /**
+   * @param prefixes {@code bucket} or {@code bucket/key-prefix} entries of hedged objects, all
+   *     objects if empty
+   * @param percentile percentile of recent response times after which a request is hedged
+   * @param initialDelay delay in milliseconds until enough response times are known
+   * @param minDelay lower bound of the delay in milliseconds
+   * @param budgetRatio hedges earned per GET request
+   * @param budgetBurst maximum number of hedges that can be saved up
+   * @param maxThreads maximum number of threads running primary and hedged requests
+   */
+  public RequestHedger(
+      String[] prefixes,
+      double percentile,
+      long initialDelay,
+      long minDelay,
+      double budgetRatio,
+      double budgetBurst,
+      int maxThreads) {
+    this(
+        prefixes,
+        percentile,
+        initialDelay,
+        minDelay,
+        budgetRatio,
+        budgetBurst,
+        maxThreads,
+        newThreadPool(maxThreads));
+  }
+
+  /**
+   * @param prefixes {@code bucket} or {@code bucket/key-prefix} entries of hedged objects, all
+   *     objects if empty
+   * @param percentile percentile of recent response times after which a request is hedged
+   * @param initialDelay delay in milliseconds until enough response times are known
+   * @param minDelay lower bound of the delay in milliseconds
+   * @param budgetRatio hedges earned per GET request
+   * @param budgetBurst maximum number of hedges that can be saved up
+   * @param maxThreads maximum number of primary and hedged requests running on the executor
+   * @param executor executor running primary and hedged requests, shut down with this hedger; it
+   *     must start every task it accepts right away, e.g. a {@code VirtualThreadExecutor} without a
+   *     lower limit
+   */
+  public RequestHedger(
+      String[] prefixes,
+      double percentile,
+      long initialDelay,
+      long minDelay,
+      double budgetRatio,
+      double budgetBurst,
+      int maxThreads,
+      ExecutorService executor) {
+    this.prefixes = prefixes.clone();
+    this.initialDelay = initialDelay;
+    this.minDelay = minDelay;
+    this.budgetRatio = budgetRatio;
+    this.budgetBurst = budgetBurst;
+    this.budget = budgetBurst;
+    this.latencies = new LatencyTracker(SAMPLES, percentile, RECOMPUTE_INTERVAL);
+    this.executor = executor;
+    this.threads = new Semaphore(maxThreads);
+  }
+
+  private static ExecutorService newThreadPool(int maxThreads) {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cos-hedge-");
+    threadFactory.setDaemon(true);
+    // no queue: a request waiting for a thread would only add to its latency
+    return new ThreadPoolExecutor(
+        0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), threadFactory);
+  }
+
+  /**
+   * Wrap a client so that GET requests of matching objects are hedged. All other requests are
+   * passed through unchanged.
+   *
+   * @param client client to wrap
+   * @return a hedging client
+   */
+  public AmazonS3 wrap(AmazonS3 client) {
+    return (AmazonS3)
+        Proxy.newProxyInstance(
+            AmazonS3.class.getClassLoader(),
+            new Class<?>[] {AmazonS3.class},
+            new HedgingClientHandler(client, this));
+  }
+
+  /**
+   * @param bucket bucket of the object
+   * @param key key of the object
+   * @return whether GET requests of the object are hedged
+   */
+  public boolean matches(String bucket, String key) {
+    if (prefixes.length == 0) {
+      return true;
+    }
+    for (String prefix : prefixes) {
+      int slash = prefix.indexOf('/');
+      if (slash < 0) {
+        if (prefix.equals(bucket)) {
+          return true;
+        }
+      } else if (prefix.substring(0, slash).equals(bucket)
+          && key.startsWith(prefix.substring(slash + 1))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Run a GET request, hedged with a second run of it if it is slow.
+   *
+   * @param request the request, called once or twice
+   * @return the first response, or null if the request returns null
+   */
+  public S3Object getObject(Supplier<S3Object> request) {
+    requestCount.incrementAndGet();
+    if (!earnBudget()) {
+      return getObjectUnhedged(request);
+    }
+
+    long start = System.nanoTime();
+    CompletableFuture<S3Object> primary = submit(request);
+    if (primary == null) {
+      return getObjectUnhedged(request);
+    }
+    primary.whenComplete((object, e) -> latencies.record(System.nanoTime() - start));
+    try {
+      return primary.get(getDelay(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      // hedge below
+    } catch (InterruptedException e) {
+      primary.thenAccept(RequestHedger::abort);
+      Thread.currentThread().interrupt();
+      throw new AmazonClientException("Interrupted while waiting for COS", e);
+    } catch (ExecutionException e) {
+      throw rethrow(e);
+    }
+
+    if (!spendBudget()) {
+      return await(primary);
+    }
+    CompletableFuture<S3Object> hedge = submit(request);
+    if (hedge == null) {
+      refundBudget();
+      return await(primary);
+    }
+    hedgeCount.incrementAndGet();
+
+    CompletableFuture<S3Object> first = new CompletableFuture<S3Object>();
+    AtomicInteger failures = new AtomicInteger();
+    primary.whenComplete((object, e) -> race(first, object, e, failures, false));
+    hedge.whenComplete((object, e) -> race(first, object, e, failures, true));
+    return await(first);
+  }
+
+  /** @return the submitted request, or null if {@code maxThreads} requests are running */
+  private CompletableFuture<S3Object> submit(Supplier<S3Object> request) {
+    if (!threads.tryAcquire()) {
+      saturatedCount.incrementAndGet();
+      return null;
+    }
+    try {
+      return CompletableFuture.supplyAsync(
+          () -> {
+            try {
+              return request.get();
+            } finally {
+              threads.release();
+            }
+          },
+          executor);
+    } catch (RejectedExecutionException e) {
+      threads.release();
+      saturatedCount.incrementAndGet();
+      return null;
+    }
+  }
+
+  private S3Object getObjectUnhedged(Supplier<S3Object> request) {
+    long start = System.nanoTime();
+    try {
+      return request.get();
+    } finally {
+      latencies.record(System.nanoTime() - start);
+    }
+  }
+
+  private void race(
+      CompletableFuture<S3Object> first,
+      S3Object object,
+      Throwable e,
+      AtomicInteger failures,
+      boolean isHedge) {
+    if (e == null) {
+      if (first.complete(object)) {
+        if (isHedge) {
+          hedgeWinCount.incrementAndGet();
+        }
+      } else {
+        abort(object);
+      }
+    } else if (failures.incrementAndGet() == 2) {
+      // only fail once neither attempt can succeed any more
+      first.completeExceptionally(e);
+    }
+  }
+
+  private static void abort(S3Object object) {
+    if (object != null) {
+      // close the connection instead of reading the remaining body
+      object.getObjectContent().abort();
+    }
+  }
+
+  private static S3Object await(CompletableFuture<S3Object> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.thenAccept(RequestHedger::abort);
+      Thread.currentThread().interrupt();
+      throw new AmazonClientException("Interrupted while waiting for COS", e);
+    } catch (ExecutionException e) {
+      throw rethrow(e);
+    }
+  }
+
+  private static RuntimeException rethrow(ExecutionException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new AmazonClientException(cause);
+  }
+
+  /** @return whether a hedge could be sent */
+  private synchronized boolean earnBudget() {
+    budget = Math.min(budgetBurst, budget + budgetRatio);
+    return budget >= 1;
+  }
+
+  private synchronized boolean spendBudget() {
+    if (budget < 1) {
+      return false;
+    }
+    budget--;
+    return true;
+  }
+
+  private synchronized void refundBudget() {
+    budget = Math.min(budgetBurst, budget + 1);
+  }
+
+  /** @return current delay in milliseconds after which a GET request is hedged */
+  public long getDelay() {
+    long percentile = latencies.getPercentile();
+    if (percentile < 0) {
+      return initialDelay;
+    }
+    return Math.max(minDelay, TimeUnit.NANOSECONDS.toMillis(percentile));
+  }
+
+  /** @return number of GET requests eligible for hedging */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /** @return number of hedges sent */
+  public long getHedgeCount() {
+    return hedgeCount.get();
+  }
+
+  /** @return number of hedges that answered before the request they hedged */
+  public long getHedgeWinCount() {
+    return hedgeWinCount.get();
+  }
+
+  /** @return number of GET requests or hedges not sent on the executor because it was busy */
+  public long getSaturatedCount() {
+    return saturatedCount.get();
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.index;
+
+/** Key, size and ETag of an object in a {@link KeyIndex}. */
+public final class IndexEntry {
+
+  private final String key;
+
+  private final long size;
+
+  private final String etag;
+
+  /**
+   * @param key object key
+   * @param size object size in bytes, -1 if unknown
+   * @param etag object ETag without quotes, or null if unknown
+   */
+  public IndexEntry(String key, long size, String etag) {
+    this.key = key;
+    this.size = size;
+    this.etag = etag;
+  }
+
+  /** @return the object key */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * @return the object size in bytes, -1 if unknown until the next refresh, e.g. after a multipart
+   *     upload
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /** @return the object ETag without quotes, or null if unknown until the next refresh */
+  public String getETag() {
+    return etag;
+  }
+
+  @Override
+  public String toString() {
+    return key + " (" + size + " bytes, ETag " + etag + ")";
+  }
+}
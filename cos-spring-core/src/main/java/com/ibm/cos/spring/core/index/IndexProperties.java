@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.index;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.springframework.util.StringUtils;
+
+/**
+ * Key index settings, bound from {@code cos.index.*}. Durations are in milliseconds. The index is
+ * disabled unless {@code cos.index.enabled} is set.
+ */
+public class IndexProperties {
+
+  /** keep a local index of the keys of a bucket */
+  private boolean enabled;
+
+  /** bucket to index */
+  private String bucket;
+
+  /** key prefix to index, empty for the whole bucket */
+  private String prefix = "";
+
+  /** (optional) index file, by default below java.io.tmpdir */
+  private String file;
+
+  /** time between the end of a full listing and the start of the next */
+  private long refreshInterval = 900000;
+
+  /** keys per listing request, at most 1000 */
+  private int pageSize = 1000;
+
+  /**
+   * Validate these settings and create an index, loading the index file of an earlier run if there
+   * is one.
+   *
+   * @return an index using these settings
+   * @throws IllegalArgumentException if a setting is invalid
+   */
+  public KeyIndex createIndex() {
+    validate();
+    KeyIndex index = new KeyIndex(bucket, prefix, resolveFile());
+    index.load();
+    return index;
+  }
+
+  /**
+   * Create a refresher of an index. The refresher is not started.
+   *
+   * @param client client listing the bucket
+   * @param index index created by {@link #createIndex()}
+   * @return a refresher using these settings
+   */
+  public KeyIndexRefresher createRefresher(AmazonS3 client, KeyIndex index) {
+    return new KeyIndexRefresher(client, index, pageSize, refreshInterval);
+  }
+
+  private Path resolveFile() {
+    if (StringUtils.hasText(file)) {
+      return Paths.get(file);
+    }
+    String name = prefix.isEmpty() ? bucket : bucket + "-" + Integer.toHexString(prefix.hashCode());
+    return Paths.get(System.getProperty("java.io.tmpdir"), "cos-key-index", name + ".idx");
+  }
+
+  /**
+   * Check that all configured values are valid.
+   *
+   * @throws IllegalArgumentException if a setting is invalid
+   */
+  public void validate() {
+    if (!StringUtils.hasText(bucket)) {
+      throw new IllegalArgumentException("cos.index.bucket must be set");
+    }
+    if (refreshInterval < 1) {
+      throw new IllegalArgumentException("cos.index.refresh-interval must be greater than 0");
+    }
+    if (pageSize < 1 || pageSize > 1000) {
+      throw new IllegalArgumentException("cos.index.page-size must be between 1 and 1000");
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public String getBucket() {
+    return bucket;
+  }
+
+  public void setBucket(String bucket) {
+    this.bucket = bucket;
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  public void setPrefix(String prefix) {
+    this.prefix = prefix;
+  }
+
+  public String getFile() {
+    return file;
+  }
+
+  public void setFile(String file) {
+    this.file = file;
+  }
+
+  public long getRefreshInterval() {
+    return refreshInterval;
+  }
+
+  public void setRefreshInterval(long refreshInterval) {
+    this.refreshInterval = refreshInterval;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public void setPageSize(int pageSize) {
+    this.pageSize = pageSize;
+  }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.index;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped file of index entries sorted by the UTF-8 bytes of their keys, which is
+ * the order of COS listings. The file starts with a 32-byte header, followed by the entries and a
+ * table of their offsets for binary search:
+ *
+ * <pre>
+ * header:  int magic, int version, long refresh time, int count, long table offset, int 0
+ * entry:   ushort key length, key bytes, long size, ubyte ETag length, ETag bytes
+ * table:   int offset of each entry
+ * </pre>
+ *
+ * Files are limited to 2 GiB, enough for about 20 million keys of typical length.
+ */
+final class IndexSegment {
+
+  static final int MAGIC = 0x434b4958;
+
+  static final int VERSION = 1;
+
+  static final int HEADER_SIZE = 32;
+
+  private final MappedByteBuffer buffer;
+
+  private final long refreshTime;
+
+  private final int count;
+
+  private final int table;
+
+  private IndexSegment(MappedByteBuffer buffer, long refreshTime, int count, int table) {
+    this.buffer = buffer;
+    this.refreshTime = refreshTime;
+    this.count = count;
+    this.table = table;
+  }
+
+  /**
+   * Map an index file.
+   *
+   * @param file file written by a {@link Writer}
+   * @return the mapped segment
+   * @throws IOException if the file cannot be read or is not a valid index file
+   */
+  static IndexSegment open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+        throw new IOException("invalid key index file " + file);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+        throw new IOException("invalid key index file " + file);
+      }
+      int count = buffer.getInt(16);
+      long table = buffer.getLong(20);
+      if (count < 0 || table < HEADER_SIZE || table + 4L * count != size) {
+        throw new IOException("truncated key index file " + file);
+      }
+      return new IndexSegment(buffer, buffer.getLong(8), count, (int) table);
+    }
+  }
+
+  /** @return the time the listing of this segment started, in epoch milliseconds */
+  long getRefreshTime() {
+    return refreshTime;
+  }
+
+  /** @return the number of entries */
+  int getCount() {
+    return count;
+  }
+
+  /**
+   * @param key UTF-8 bytes of a key or prefix
+   * @return the position of the first entry not below the key, {@link #getCount()} if none
+   */
+  int lowerBound(byte[] key) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compare(mid, key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @param key the key
+   * @return the entry of the key, or null if it is not in this segment
+   */
+  IndexEntry getEntry(String key) {
+    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+    int position = lowerBound(bytes);
+    return position < count && compare(position, bytes) == 0 ? entryAt(position) : null;
+  }
+
+  /** @return true if the key of the entry at {@code position} starts with the given bytes */
+  boolean startsWith(int position, byte[] prefix) {
+    int offset = buffer.getInt(table + 4 * position);
+    if ((buffer.getShort(offset) & 0xffff) < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer.get(offset + 2 + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return the entry at {@code position} */
+  IndexEntry entryAt(int position) {
+    int offset = buffer.getInt(table + 4 * position);
+    byte[] key = read(offset + 2, buffer.getShort(offset) & 0xffff);
+    offset += 2 + key.length;
+    long size = buffer.getLong(offset);
+    int etagLength = buffer.get(offset + 8) & 0xff;
+    String etag =
+        etagLength > 0 ? new String(read(offset + 9, etagLength), StandardCharsets.US_ASCII) : null;
+    return new IndexEntry(new String(key, StandardCharsets.UTF_8), size, etag);
+  }
+
+  private int compare(int position, byte[] key) {
+    int offset = buffer.getInt(table + 4 * position);
+    int length = buffer.getShort(offset) & 0xffff;
+    for (int i = 0; i < length && i < key.length; i++) {
+      int difference = (buffer.get(offset + 2 + i) & 0xff) - (key[i] & 0xff);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return length - key.length;
+  }
+
+  private byte[] read(int offset, int length) {
+    // absolute gets only, the buffer is shared by all reading threads
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(offset + i);
+    }
+    return bytes;
+  }
+
+  /**
+   * Writes the entries of a listing to a temporary file next to the target and moves it over the
+   * target on {@link #commit()}. Memory use does not depend on the number of entries.
+   */
+  static final class Writer implements Closeable {
+
+    private final Path target;
+
+    private final Path entriesFile;
+
+    private final Path tableFile;
+
+    private final long refreshTime;
+
+    private final DataOutputStream entries;
+
+    private final DataOutputStream offsets;
+
+    private long position = HEADER_SIZE;
+
+    private int count;
+
+    private byte[] lastKey;
+
+    /**
+     * @param target index file to replace on commit
+     * @param refreshTime time the listing started, in epoch milliseconds
+     * @throws IOException if the temporary files cannot be created
+     */
+    Writer(Path target, long refreshTime) throws IOException {
+      this.target = target;
+      this.refreshTime = refreshTime;
+      Path directory = target.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      this.entriesFile = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+      this.tableFile = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+      this.entries =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(entriesFile)));
+      this.offsets =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tableFile)));
+      entries.write(new byte[HEADER_SIZE]);
+    }
+
+    /**
+     * @param entry next entry, its key after the key of the previous entry
+     * @throws IOException if the entry cannot be written or is out of order
+     */
+    void add(IndexEntry entry) throws IOException {
+      byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+      byte[] etag =
+          entry.getETag() != null
+              ? entry.getETag().getBytes(StandardCharsets.US_ASCII)
+              : new byte[0];
+      if (key.length > 0xffff || etag.length > 0xff) {
+        throw new IOException("key or ETag of " + entry.getKey() + " too long for the key index");
+      }
+      if (lastKey != null && compare(lastKey, key) >= 0) {
+        throw new IOException("listing not in key order at " + entry.getKey());
+      }
+      long length = 2 + key.length + 8 + 1 + etag.length;
+      if (position + length + 4L * (count + 1) > Integer.MAX_VALUE) {
+        throw new IOException("key index exceeds 2 GiB at " + entry.getKey());
+      }
+      offsets.writeInt((int) position);
+      entries.writeShort(key.length);
+      entries.write(key);
+      entries.writeLong(entry.getSize());
+      entries.writeByte(etag.length);
+      entries.write(etag);
+      position += length;
+      count++;
+      lastKey = key;
+    }
+
+    /**
+     * Complete the file and atomically replace the target with it.
+     *
+     * @throws IOException if the file cannot be written or moved
+     */
+    void commit() throws IOException {
+      entries.close();
+      offsets.close();
+      try (FileChannel channel = FileChannel.open(entriesFile, StandardOpenOption.WRITE);
+          FileChannel table = FileChannel.open(tableFile, StandardOpenOption.READ)) {
+        long size = table.size();
+        for (long copied = 0; copied < size; ) {
+          copied += channel.transferFrom(table, position + copied, size - copied);
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(refreshTime).putInt(count).putLong(position);
+        header.rewind();
+        channel.write(header, 0);
+        channel.force(true);
+      }
+      Files.move(
+          entriesFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void close() throws IOException {
+      entries.close();
+      offsets.close();
+      Files.deleteIfExists(entriesFile);
+      Files.deleteIfExists(tableFile);
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+      for (int i = 0; i < a.length && i < b.length; i++) {
+        int difference = (a[i] & 0xff) - (b[i] & 0xff);
+        if (difference != 0) {
+          return difference;
+        }
+      }
+      return a.length - b.length;
+    }
+  }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.index;
+
+import com.ibm.cloud.objectstorage.handlers.RequestHandler2;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3ClientBuilder;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectSummary;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Local index of the keys, sizes and ETags of a bucket prefix, answering existence checks, size
+ * lookups and prefix scans without a request to COS.
+ *
+ * <p>The index is a memory-mapped file written from a full listing by a {@link KeyIndexRefresher},
+ * plus an in-memory overlay of the changes since: writes and deletes made through a client the
+ * index is {@link #applyTo applied to} are recorded as soon as COS confirms them, and changes of
+ * other writers arrive through {@link #update(List)} or the next refresh. Changes made elsewhere
+ * are therefore visible only after a refresh or a change poll.
+ */
+public class KeyIndex {
+
+  private static final Log logger = LogFactory.getLog(KeyIndex.class);
+
+  /** order of COS listings, by code point rather than by UTF-16 char */
+  static final Comparator<String> KEY_ORDER = KeyIndex::compareKeys;
+
+  private final String bucket;
+
+  private final String prefix;
+
+  private final Path file;
+
+  private volatile IndexSegment segment;
+
+  /** changes since the listing of the segment started, null entries for deleted keys */
+  private final ConcurrentSkipListMap<String, Update> updates =
+      new ConcurrentSkipListMap<String, Update>(KEY_ORDER);
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  /**
+   * @param bucket bucket indexed
+   * @param prefix key prefix indexed, empty for the whole bucket
+   * @param file file holding the index across restarts
+   */
+  public KeyIndex(String bucket, String prefix, Path file) {
+    this.bucket = bucket;
+    this.prefix = prefix;
+    this.file = file;
+  }
+
+  /**
+   * Use the index file of an earlier run, if there is one, until the next refresh.
+   *
+   * @return true if a saved index was loaded
+   */
+  public boolean load() {
+    if (!Files.isRegularFile(file)) {
+      return false;
+    }
+    try {
+      segment = IndexSegment.open(file);
+      return true;
+    } catch (IOException e) {
+      logger.warn("Ignoring unreadable COS key index " + file, e);
+      return false;
+    }
+  }
+
+  /**
+   * Add a request handler to the builder that records the puts, copies, completed multipart uploads
+   * and deletes of the built client in this index.
+   *
+   * @param builder builder of the client writing to the indexed bucket
+   * @return the builder
+   */
+  public AmazonS3ClientBuilder applyTo(AmazonS3ClientBuilder builder) {
+    List<RequestHandler2> handlers = new ArrayList<RequestHandler2>();
+    if (builder.getRequestHandlers() != null) {
+      handlers.addAll(builder.getRequestHandlers());
+    }
+    handlers.add(new KeyIndexUpdater(this));
+    builder.setRequestHandlers(handlers.toArray(new RequestHandler2[handlers.size()]));
+    return builder;
+  }
+
+  /** @return true once the index was loaded or built, before that queries fail */
+  public boolean isReady() {
+    return segment != null;
+  }
+
+  /** @return the time the listing in use started in epoch milliseconds, -1 if not ready */
+  public long getRefreshTime() {
+    IndexSegment current = segment;
+    return current != null ? current.getRefreshTime() : -1;
+  }
+
+  /**
+   * @param key object key below the indexed prefix
+   * @return the entry of the key, or null if the object does not exist
+   * @throws IllegalStateException if the index is not ready
+   * @throws IllegalArgumentException if the key is not below the indexed prefix
+   */
+  public IndexEntry getEntry(String key) {
+    IndexSegment current = getSegment(key);
+    Update update = updates.get(key);
+    return update != null ? update.entry : current.getEntry(key);
+  }
+
+  /**
+   * @param key object key below the indexed prefix
+   * @return true if the object exists
+   * @throws IllegalStateException if the index is not ready
+   * @throws IllegalArgumentException if the key is not below the indexed prefix
+   */
+  public boolean contains(String key) {
+    return getEntry(key) != null;
+  }
+
+  /**
+   * @param keyPrefix key prefix starting with the indexed prefix
+   * @return true if any object has a key with this prefix
+   * @throws IllegalStateException if the index is not ready
+   * @throws IllegalArgumentException if the prefix does not start with the indexed prefix
+   */
+  public boolean containsPrefix(String keyPrefix) {
+    return new EntryIterator(getSegment(keyPrefix), keyPrefix).hasNext();
+  }
+
+  /**
+   * Scan the entries of a prefix in key order, reading the index file lazily.
+   *
+   * @param keyPrefix key prefix starting with the indexed prefix
+   * @return the entries of the objects with keys starting with the prefix
+   * @throws IllegalStateException if the index is not ready
+   * @throws IllegalArgumentException if the prefix does not start with the indexed prefix
+   */
+  public Stream<IndexEntry> stream(String keyPrefix) {
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(
+            new EntryIterator(getSegment(keyPrefix), keyPrefix),
+            Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+        false);
+  }
+
+  /**
+   * Record an object written elsewhere, ignored if its key is not below the indexed prefix.
+   *
+   * @param entry the entry of the object
+   */
+  public void put(IndexEntry entry) {
+    if (entry.getKey().startsWith(prefix)) {
+      updates.put(entry.getKey(), new Update(entry, sequence.incrementAndGet()));
+    }
+  }
+
+  /**
+   * Record an object deleted elsewhere, ignored if its key is not below the indexed prefix.
+   *
+   * @param key the key of the object
+   */
+  public void remove(String key) {
+    if (key.startsWith(prefix)) {
+      updates.put(key, new Update(null, sequence.incrementAndGet()));
+    }
+  }
+
+  /**
+   * Record listed objects, e.g. as a {@link com.ibm.cos.spring.core.changes.BucketChangeListener}.
+   * Objects of other buckets and prefixes are ignored.
+   *
+   * @param objects objects that were added or changed
+   */
+  public void update(List<S3ObjectSummary> objects) {
+    for (S3ObjectSummary object : objects) {
+      if (bucket.equals(object.getBucketName())) {
+        put(new IndexEntry(object.getKey(), object.getSize(), object.getETag()));
+      }
+    }
+  }
+
+  /** @return the entry of a key if it is known, null if the index cannot tell */
+  IndexEntry find(String key) {
+    return segment != null && key.startsWith(prefix) ? getEntry(key) : null;
+  }
+
+  /** @return the mark to pass to {@link #replace} for a listing starting now */
+  long beginRefresh() {
+    return sequence.get();
+  }
+
+  /**
+   * Switch to a new listing and drop the updates made before it started.
+   *
+   * @param refreshed the new listing
+   * @param mark the value of {@link #beginRefresh()} before the listing started
+   */
+  void replace(IndexSegment refreshed, long mark) {
+    segment = refreshed;
+    for (Map.Entry<String, Update> update : updates.entrySet()) {
+      if (update.getValue().sequence <= mark) {
+        updates.remove(update.getKey(), update.getValue());
+      }
+    }
+  }
+
+  private IndexSegment getSegment(String keyOrPrefix) {
+    if (!keyOrPrefix.startsWith(prefix)) {
+      throw new IllegalArgumentException(
+          "'" + keyOrPrefix + "' is not below the indexed prefix '" + prefix + "'");
+    }
+    IndexSegment current = segment;
+    if (current == null) {
+      throw new IllegalStateException("key index of bucket " + bucket + " is not built yet");
+    }
+    return current;
+  }
+
+  /** @return the bucket indexed */
+  public String getBucket() {
+    return bucket;
+  }
+
+  /** @return the key prefix indexed */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /** @return the file holding the index */
+  public Path getFile() {
+    return file;
+  }
+
+  /** @return the number of changes recorded since the listing in use started */
+  public int getUpdateCount() {
+    return updates.size();
+  }
+
+  static int compareKeys(String a, String b) {
+    int length = Math.min(a.length(), b.length());
+    for (int i = 0; i < length; i++) {
+      char x = a.charAt(i);
+      char y = b.charAt(i);
+      if (x != y) {
+        if (x >= 0xd800 && y >= 0xd800) {
+          // surrogates sort before U+E000..U+FFFF as chars but after them as code points
+          return fixUp(x) - fixUp(y);
+        }
+        return x - y;
+      }
+    }
+    return a.length() - b.length();
+  }
+
+  private static int fixUp(char c) {
+    return c >= 0xe000 ? c - 0x800 : c + 0x2000;
+  }
+
+  private static final class Update {
+
+    final IndexEntry entry;
+
+    final long sequence;
+
+    Update(IndexEntry entry, long sequence) {
+      this.entry = entry;
+      this.sequence = sequence;
+    }
+  }
+
+  /** Merges the entries of the segment and the updates of a prefix in key order. */
+  private final class EntryIterator implements Iterator<IndexEntry> {
+
+    private final IndexSegment segment;
+
+    private final String keyPrefix;
+
+    private final byte[] prefixBytes;
+
+    private int position;
+
+    private final Iterator<Map.Entry<String, Update>> pending;
+
+    private IndexEntry listed;
+
+    private Map.Entry<String, Update> updated;
+
+    private boolean pendingDone;
+
+    private IndexEntry next;
+
+    EntryIterator(IndexSegment segment, String keyPrefix) {
+      this.segment = segment;
+      this.keyPrefix = keyPrefix;
+      this.prefixBytes = keyPrefix.getBytes(StandardCharsets.UTF_8);
+      this.position = segment.lowerBound(prefixBytes);
+      this.pending = updates.tailMap(keyPrefix).entrySet().iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        next = computeNext();
+      }
+      return next != null;
+    }
+
+    @Override
+    public IndexEntry next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      IndexEntry entry = next;
+      next = null;
+      return entry;
+    }
+
+    private IndexEntry computeNext() {
+      while (true) {
+        if (listed == null && position < segment.getCount()) {
+          if (segment.startsWith(position, prefixBytes)) {
+            listed = segment.entryAt(position++);
+          } else {
+            position = segment.getCount();
+          }
+        }
+        if (updated == null && !pendingDone && pending.hasNext()) {
+          updated = pending.next();
+          if (!updated.getKey().startsWith(keyPrefix)) {
+            // keys with the prefix are contiguous, so no later update has it
+            updated = null;
+            pendingDone = true;
+          }
+        }
+        if (listed == null && updated == null) {
+          return null;
+        }
+        int order =
+            listed == null
+                ? 1
+                : updated == null ? -1 : compareKeys(listed.getKey(), updated.getKey());
+        if (order < 0) {
+          IndexEntry entry = listed;
+          listed = null;
+          return entry;
+        }
+        IndexEntry entry = updated.getValue().entry;
+        if (order == 0) {
+          listed = null;
+        }
+        updated = null;
+        if (entry != null) {
+          return entry;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.index;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Request;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Result;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectSummary;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Rebuilds a {@link KeyIndex} from a listing of its prefix, at start and then periodically. The
+ * listing is streamed into a new index file, so memory use does not grow with the bucket, and the
+ * changes recorded while it ran are kept on top of it. A full listing is needed to notice objects
+ * deleted by other writers.
+ *
+ * <p>As a bean, the refresher starts once the application context has been refreshed and stops with
+ * it; {@link #start()} and {@link #stop()} control it otherwise.
+ */
+public class KeyIndexRefresher implements SmartLifecycle, DisposableBean {
+
+  private static final Log logger = LogFactory.getLog(KeyIndexRefresher.class);
+
+  private final AmazonS3 client;
+
+  private final KeyIndex index;
+
+  private final int pageSize;
+
+  private final long refreshInterval;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final Object lifecycleLock = new Object();
+
+  /** the periodic background refresh while running, guarded by lifecycleLock */
+  private ScheduledFuture<?> refreshes;
+
+  private final AtomicLong refreshCount = new AtomicLong();
+
+  private final AtomicLong failureCount = new AtomicLong();
+
+  /**
+   * @param client client listing the bucket
+   * @param index index to refresh
+   * @param pageSize keys per listing request, at most 1000
+   * @param refreshInterval milliseconds between the end of a refresh and the start of the next
+   */
+  public KeyIndexRefresher(AmazonS3 client, KeyIndex index, int pageSize, long refreshInterval) {
+    this.client = client;
+    this.index = index;
+    this.pageSize = pageSize;
+    this.refreshInterval = refreshInterval;
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cos-key-index-");
+    threadFactory.setDaemon(true);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+  }
+
+  /**
+   * Start refreshing in the background, the first time right away. Does nothing if the refresher is
+   * running.
+   */
+  @Override
+  public void start() {
+    synchronized (lifecycleLock) {
+      if (refreshes == null) {
+        refreshes =
+            scheduler.scheduleWithFixedDelay(
+                this::refreshQuietly, 0, refreshInterval, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /** Stop refreshing in the background; a refresh in progress completes. */
+  @Override
+  public void stop() {
+    synchronized (lifecycleLock) {
+      if (refreshes != null) {
+        refreshes.cancel(false);
+        refreshes = null;
+      }
+    }
+  }
+
+  @Override
+  public void stop(Runnable callback) {
+    stop();
+    callback.run();
+  }
+
+  @Override
+  public boolean isRunning() {
+    synchronized (lifecycleLock) {
+      return refreshes != null;
+    }
+  }
+
+  @Override
+  public boolean isAutoStartup() {
+    return true;
+  }
+
+  /**
+   * @return the last phase, so the refresher starts after and stops before other lifecycle beans
+   */
+  @Override
+  public int getPhase() {
+    return Integer.MAX_VALUE;
+  }
+
+  private void refreshQuietly() {
+    try {
+      refresh();
+    } catch (IOException | RuntimeException e) {
+      failureCount.incrementAndGet();
+      logger.warn("Unable to refresh the key index of COS bucket " + index.getBucket(), e);
+    }
+  }
+
+  /**
+   * List the indexed prefix on the calling thread and switch the index to the result, waiting for a
+   * refresh in progress on another thread.
+   *
+   * @throws IOException if the index file cannot be written
+   */
+  public synchronized void refresh() throws IOException {
+    long mark = index.beginRefresh();
+    long refreshTime = System.currentTimeMillis();
+    try (IndexSegment.Writer writer = new IndexSegment.Writer(index.getFile(), refreshTime)) {
+      ListObjectsV2Request request =
+          new ListObjectsV2Request()
+              .withBucketName(index.getBucket())
+              .withPrefix(index.getPrefix())
+              .withMaxKeys(pageSize);
+      ListObjectsV2Result result;
+      do {
+        result = client.listObjectsV2(request);
+        for (S3ObjectSummary object : result.getObjectSummaries()) {
+          writer.add(new IndexEntry(object.getKey(), object.getSize(), object.getETag()));
+        }
+        request.setContinuationToken(result.getNextContinuationToken());
+      } while (result.isTruncated());
+      writer.commit();
+    }
+    index.replace(IndexSegment.open(index.getFile()), mark);
+    refreshCount.incrementAndGet();
+  }
+
+  /** @return the index refreshed */
+  public KeyIndex getIndex() {
+    return index;
+  }
+
+  /** @return number of completed refreshes */
+  public long getRefreshCount() {
+    return refreshCount.get();
+  }
+
+  /** @return number of background refreshes that failed */
+  public long getFailureCount() {
+    return failureCount.get();
+  }
+
+  @Override
+  public void destroy() {
+    stop();
+    scheduler.shutdownNow();
+  }
+}
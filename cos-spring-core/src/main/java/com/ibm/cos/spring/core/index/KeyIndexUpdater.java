@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.index;
+
+import com.ibm.cloud.objectstorage.AmazonWebServiceRequest;
+import com.ibm.cloud.objectstorage.Request;
+import com.ibm.cloud.objectstorage.Response;
+import com.ibm.cloud.objectstorage.handlers.RequestHandler2;
+import com.ibm.cloud.objectstorage.services.s3.internal.DeleteObjectsResponse;
+import com.ibm.cloud.objectstorage.services.s3.model.CompleteMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.CompleteMultipartUploadResult;
+import com.ibm.cloud.objectstorage.services.s3.model.CopyObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.DeleteObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.DeleteObjectsRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.ibm.cloud.objectstorage.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.transform.XmlResponsesSaxParser.CompleteMultipartUploadHandler;
+import com.ibm.cloud.objectstorage.services.s3.model.transform.XmlResponsesSaxParser.CopyObjectResultHandler;
+import java.util.HashSet;
+import java.util.Set;
+
+/** Records the successful writes and deletes of a client in a {@link KeyIndex}. */
+class KeyIndexUpdater extends RequestHandler2 {
+
+  private final KeyIndex index;
+
+  KeyIndexUpdater(KeyIndex index) {
+    this.index = index;
+  }
+
+  @Override
+  public void afterResponse(Request<?> request, Response<?> response) {
+    AmazonWebServiceRequest original = request.getOriginalRequest();
+    Object result = response.getAwsResponse();
+    if (original instanceof PutObjectRequest) {
+      PutObjectRequest put = (PutObjectRequest) original;
+      if (isIndexed(put.getBucketName())) {
+        index.put(
+            new IndexEntry(
+                put.getKey(),
+                getContentLength(request),
+                unquote(response.getHttpResponse().getHeaders().get("ETag"))));
+      }
+    } else if (original instanceof CopyObjectRequest) {
+      CopyObjectRequest copy = (CopyObjectRequest) original;
+      if (isIndexed(copy.getDestinationBucketName())) {
+        IndexEntry source =
+            isIndexed(copy.getSourceBucketName()) ? index.find(copy.getSourceKey()) : null;
+        index.put(
+            new IndexEntry(
+                copy.getDestinationKey(),
+                source != null ? source.getSize() : -1,
+                result instanceof CopyObjectResultHandler
+                    ? unquote(((CopyObjectResultHandler) result).getETag())
+                    : null));
+      }
+    } else if (original instanceof CompleteMultipartUploadRequest) {
+      CompleteMultipartUploadRequest complete = (CompleteMultipartUploadRequest) original;
+      CompleteMultipartUploadResult completed =
+          result instanceof CompleteMultipartUploadHandler
+              ? ((CompleteMultipartUploadHandler) result).getCompleteMultipartUploadResult()
+              : null;
+      // a failed completion is also answered with 200 and has no result
+      if (completed != null && isIndexed(complete.getBucketName())) {
+        // the size of a multipart object is only known from the next listing
+        index.put(new IndexEntry(complete.getKey(), -1, unquote(completed.getETag())));
+      }
+    } else if (original instanceof DeleteObjectRequest) {
+      DeleteObjectRequest delete = (DeleteObjectRequest) original;
+      if (isIndexed(delete.getBucketName())) {
+        index.remove(delete.getKey());
+      }
+    } else if (original instanceof DeleteObjectsRequest) {
+      DeleteObjectsRequest delete = (DeleteObjectsRequest) original;
+      if (isIndexed(delete.getBucketName())) {
+        // quiet requests only report the keys that could not be deleted
+        Set<String> failed = new HashSet<String>();
+        if (result instanceof DeleteObjectsResponse) {
+          for (DeleteError error : ((DeleteObjectsResponse) result).getErrors()) {
+            failed.add(error.getKey());
+          }
+        }
+        for (KeyVersion key : delete.getKeys()) {
+          if (key.getVersion() == null && !failed.contains(key.getKey())) {
+            index.remove(key.getKey());
+          }
+        }
+      }
+    }
+  }
+
+  private boolean isIndexed(String bucket) {
+    return index.getBucket().equals(bucket);
+  }
+
+  private static long getContentLength(Request<?> request) {
+    // chunked signing over HTTP adds the chunk signatures to Content-Length
+    String contentLength = request.getHeaders().get("x-amz-decoded-content-length");
+    if (contentLength == null) {
+      contentLength = request.getHeaders().get("Content-Length");
+    }
+    try {
+      return contentLength != null ? Long.parseLong(contentLength) : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static String unquote(String etag) {
+    if (etag != null && etag.length() >= 2 && etag.startsWith("\"") && etag.endsWith("\"")) {
+      return etag.substring(1, etag.length() - 1);
+    }
+    return etag;
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.io;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.AmazonS3Exception;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectInputStream;
+import com.ibm.cos.spring.core.compression.ObjectCompressor;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Seekable InputStream over a COS object that reads it as a series of ranged GETs. Nothing is
+ * requested until the first read. The first range is small and each following sequential range is
+ * twice as large up to a maximum, so reading only a header costs a single small request while
+ * sequential reads of large objects quickly reach full throughput. A seek resets the range size.
+ *
+ * <p>All ranges after the first are pinned to the ETag of the first response; if the object is
+ * replaced while it is being read, the next read fails instead of mixing two versions.
+ *
+ * <p>Objects stored by an {@link ObjectCompressor} are decompressed from their start for every
+ * range, so after the first response the rest of such an object is requested as a single range.
+ */
+public class COSInputStream extends InputStream {
+
+  /** default size of the first ranged GET */
+  public static final int DEFAULT_INITIAL_RANGE_SIZE = 64 * 1024;
+
+  /** default upper bound of the ranged GET size */
+  public static final int DEFAULT_MAX_RANGE_SIZE = 8 * 1024 * 1024;
+
+  /** forward seeks up to this distance read through the open range instead of a new GET */
+  private static final int SKIP_THRESHOLD = 64 * 1024;
+
+  private final AmazonS3 client;
+
+  private final String bucket;
+
+  private final String key;
+
+  private final int initialRangeSize;
+
+  private final int maxRangeSize;
+
+  private int rangeSize;
+
+  private long position;
+
+  /** object length, -1 until the first response */
+  private long length = -1;
+
+  private String eTag;
+
+  /** whether the object is stored compressed, known after the first response */
+  private boolean compressed;
+
+  private S3ObjectInputStream range;
+
+  /** exclusive end position of the open range */
+  private long rangeEnd;
+
+  private boolean closed;
+
+  public COSInputStream(AmazonS3 client, String bucket, String key) {
+    this(client, bucket, key, DEFAULT_INITIAL_RANGE_SIZE, DEFAULT_MAX_RANGE_SIZE);
+  }
+
+  public COSInputStream(
+      AmazonS3 client, String bucket, String key, int initialRangeSize, int maxRangeSize) {
+    if (initialRangeSize < 1 || maxRangeSize < initialRangeSize) {
+      throw new IllegalArgumentException(
+          "range sizes must be positive and maxRangeSize must not be less than initialRangeSize");
+    }
+    this.client = client;
+    this.bucket = bucket;
+    this.key = key;
+    this.initialRangeSize = initialRangeSize;
+    this.maxRangeSize = maxRangeSize;
+    this.rangeSize = initialRangeSize;
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("stream is closed");
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (range == null || position >= rangeEnd) {
+      if (!openRange()) {
+        return -1;
+      }
+    }
+    int count = range.read(b, off, (int) Math.min(len, rangeEnd - position));
+    if (count < 0) {
+      throw new IOException(
+          String.format("unexpected end of cos://%s/%s at position %d", bucket, key, position));
+    }
+    position += count;
+    return count;
+  }
+
+  /**
+   * Move the read position. The next read continues from the new position with a new ranged GET,
+   * unless the position is a short distance ahead within the current range.
+   *
+   * @param newPosition position from the start of the object
+   */
+  public void seek(long newPosition) throws IOException {
+    if (newPosition < 0) {
+      throw new IOException("position must not be negative");
+    }
+    if (range != null
+        && newPosition >= position
+        && newPosition < rangeEnd
+        && newPosition - position <= SKIP_THRESHOLD) {
+      while (position < newPosition) {
+        long skipped = range.skip(newPosition - position);
+        if (skipped <= 0) {
+          break;
+        }
+        position += skipped;
+      }
+      if (position == newPosition) {
+        return;
+      }
+    }
+    closeRange();
+    position = newPosition;
+    rangeSize = initialRangeSize;
+  }
+
+  /** @return the current read position */
+  public long getPosition() {
+    return position;
+  }
+
+  /** @return the object length, or -1 if nothing has been read yet */
+  public long getLength() {
+    return length;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    if (n <= 0) {
+      return 0;
+    }
+    long target = length >= 0 ? Math.min(position + n, length) : position + n;
+    long skipped = target - position;
+    seek(target);
+    return skipped;
+  }
+
+  @Override
+  public int available() {
+    return range != null ? (int) Math.min(rangeEnd - position, Integer.MAX_VALUE) : 0;
+  }
+
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      closeRange();
+    }
+  }
+
+  private boolean openRange() throws IOException {
+    closeRange();
+    if (length >= 0 && position >= length) {
+      return false;
+    }
+
+    long end = compressed && length >= 0 ? length - 1 : position + rangeSize - 1;
+    GetObjectRequest request = new GetObjectRequest(bucket, key).withRange(position, end);
+    if (eTag != null) {
+      request.withMatchingETagConstraint(eTag);
+    }
+
+    S3Object object;
+    try {
+      object = client.getObject(request);
+    } catch (AmazonS3Exception e) {
+      if (e.getStatusCode() == 416) {
+        // range starts at or after the end of the object
+        length = position;
+        return false;
+      }
+      if (e.getStatusCode() == 404) {
+        throw new FileNotFoundException(String.format("cos://%s/%s does not exist", bucket, key));
+      }
+      throw new IOException(String.format("failed to read cos://%s/%s", bucket, key), e);
+    } catch (AmazonClientException e) {
+      throw new IOException(String.format("failed to read cos://%s/%s", bucket, key), e);
+    }
+    if (object == null) {
+      throw new IOException(
+          String.format("cos://%s/%s was modified while it was being read", bucket, key));
+    }
+
+    ObjectMetadata metadata = object.getObjectMetadata();
+    length = metadata.getInstanceLength();
+    eTag = metadata.getETag();
+    compressed = metadata.getUserMetaDataOf(ObjectCompressor.CODEC_METADATA) != null;
+    range = object.getObjectContent();
+    rangeEnd = position + metadata.getContentLength();
+    rangeSize = (int) Math.min((long) rangeSize * 2, maxRangeSize);
+    return rangeEnd > position;
+  }
+
+  private void closeRange() {
+    if (range == null) {
+      return;
+    }
+    if (position >= rangeEnd) {
+      // fully read, the connection can go back to the pool
+      try {
+        range.close();
+      } catch (IOException e) {
+        range.abort();
+      }
+    } else {
+      range.abort();
+    }
+    range = null;
+  }
+}
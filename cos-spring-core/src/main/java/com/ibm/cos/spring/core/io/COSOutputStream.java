@@ -0,0 +1,210 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.io;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.AbortMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.CompleteMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.CompleteMultipartUploadResult;
+import com.ibm.cloud.objectstorage.services.s3.model.InitiateMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.PartETag;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectResult;
+import com.ibm.cloud.objectstorage.services.s3.model.UploadPartRequest;
+import com.ibm.cos.spring.core.transfer.TransferProperties;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * OutputStream that writes a COS object through a multipart upload, holding at most one part in
+ * memory. Content that fits into a single part is written with a single PUT on close. The buffer
+ * starts small and grows up to the part size, so small objects do not allocate a whole part. The
+ * object only becomes visible once the stream is closed; a failed write aborts the upload.
+ */
+public class COSOutputStream extends OutputStream {
+
+  /** default part size */
+  public static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+
+  private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+  private final AmazonS3 client;
+
+  private final String bucket;
+
+  private final String key;
+
+  private final ObjectMetadata metadata;
+
+  private final int partSize;
+
+  private byte[] buffer;
+
+  private int count;
+
+  private String uploadId;
+
+  private final List<PartETag> partETags = new ArrayList<PartETag>();
+
+  private boolean closed;
+
+  private String eTag;
+
+  public COSOutputStream(AmazonS3 client, String bucket, String key) {
+    this(client, bucket, key, new ObjectMetadata(), DEFAULT_PART_SIZE);
+  }
+
+  /**
+   * @param metadata metadata of the new object; its content length is ignored
+   * @param partSize size of the multipart upload parts, at least 5 MiB
+   */
+  public COSOutputStream(
+      AmazonS3 client, String bucket, String key, ObjectMetadata metadata, int partSize) {
+    if (partSize < TransferProperties.MIN_PART_SIZE) {
+      throw new IllegalArgumentException(
+          "partSize must be at least " + TransferProperties.MIN_PART_SIZE + " bytes");
+    }
+    this.client = client;
+    this.bucket = bucket;
+    this.key = key;
+    this.metadata = metadata;
+    this.partSize = partSize;
+    this.buffer = new byte[INITIAL_BUFFER_SIZE];
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureOpen();
+    if (count == buffer.length) {
+      ensureCapacity(count + 1);
+    }
+    buffer[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    ensureOpen();
+    while (len > 0) {
+      if (count + len > buffer.length) {
+        ensureCapacity(count + len);
+      }
+      int chunk = Math.min(len, buffer.length - count);
+      System.arraycopy(b, off, buffer, count, chunk);
+      count += chunk;
+      off += chunk;
+      len -= chunk;
+    }
+  }
+
+  /** Complete the upload. The object is visible once this method returns. */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (uploadId == null) {
+        metadata.setContentLength(count);
+        PutObjectResult result =
+            client.putObject(
+                new PutObjectRequest(
+                    bucket, key, new ByteArrayInputStream(buffer, 0, count), metadata));
+        eTag = result != null ? result.getETag() : null;
+      } else {
+        uploadPart();
+        CompleteMultipartUploadResult result =
+            client.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags));
+        eTag = result != null ? result.getETag() : null;
+      }
+    } catch (AmazonClientException e) {
+      abort();
+      throw new IOException(String.format("failed to write cos://%s/%s", bucket, key), e);
+    }
+  }
+
+  /** @return ETag of the written object, or null until the stream is closed */
+  public String getETag() {
+    return eTag;
+  }
+
+  /**
+   * @return true if the content is written as a multipart upload, whose metadata is fixed when its
+   *     first part is uploaded
+   */
+  public boolean isMultipart() {
+    return !partETags.isEmpty();
+  }
+
+  /** Discard everything written so far without creating the object. */
+  public void abort() {
+    closed = true;
+    if (uploadId != null) {
+      try {
+        client.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+      } catch (AmazonClientException e) {
+        // left for a bucket lifecycle rule that expires incomplete multipart uploads
+      }
+      uploadId = null;
+    }
+  }
+
+  /** Grow the buffer towards {@code capacity}, or upload it as a part once it is full. */
+  private void ensureCapacity(int capacity) throws IOException {
+    if (buffer.length < partSize) {
+      int length = (int) Math.min(partSize, Math.max((long) buffer.length * 2, capacity));
+      buffer = Arrays.copyOf(buffer, length);
+    } else if (count == buffer.length) {
+      uploadPart();
+    }
+  }
+
+  private void uploadPart() throws IOException {
+    try {
+      if (uploadId == null) {
+        uploadId =
+            client
+                .initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key, metadata))
+                .getUploadId();
+      }
+      UploadPartRequest request =
+          new UploadPartRequest()
+              .withBucketName(bucket)
+              .withKey(key)
+              .withUploadId(uploadId)
+              .withPartNumber(partETags.size() + 1)
+              .withInputStream(new ByteArrayInputStream(buffer, 0, count))
+              .withPartSize(count);
+      partETags.add(client.uploadPart(request).getPartETag());
+      count = 0;
+    } catch (AmazonClientException e) {
+      abort();
+      throw new IOException(String.format("failed to write cos://%s/%s", bucket, key), e);
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("stream is closed");
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.io;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ResourceLoaderAware;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ProtocolResolver;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * Resolves {@code cos://bucket/key} locations to {@link COSResource}s. Declared as a bean, it
+ * registers itself with the application context, so {@code getResource("cos://...")} and {@code
+ * Resource} injection from {@code @Value} work. It is a BeanFactoryPostProcessor only to be
+ * registered before regular beans are created; the AmazonS3 bean is looked up on first use.
+ */
+public class COSProtocolResolver
+    implements ProtocolResolver, BeanFactoryPostProcessor, ResourceLoaderAware {
+
+  public static final String PROTOCOL = "cos://";
+
+  private ConfigurableListableBeanFactory beanFactory;
+
+  private volatile AmazonS3 client;
+
+  public COSProtocolResolver() {}
+
+  public COSProtocolResolver(AmazonS3 client) {
+    this.client = client;
+  }
+
+  @Override
+  public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory)
+      throws BeansException {
+    this.beanFactory = beanFactory;
+  }
+
+  @Override
+  public void setResourceLoader(ResourceLoader resourceLoader) {
+    if (resourceLoader instanceof DefaultResourceLoader) {
+      ((DefaultResourceLoader) resourceLoader).addProtocolResolver(this);
+    }
+  }
+
+  @Override
+  public Resource resolve(String location, ResourceLoader resourceLoader) {
+    if (!location.startsWith(PROTOCOL)) {
+      return null;
+    }
+    String path = location.substring(PROTOCOL.length());
+    int slash = path.indexOf('/');
+    if (slash <= 0 || slash == path.length() - 1) {
+      throw new IllegalArgumentException(
+          "COS location must have the form cos://bucket/key: " + location);
+    }
+    return new COSResource(getClient(), path.substring(0, slash), path.substring(slash + 1));
+  }
+
+  private AmazonS3 getClient() {
+    if (client == null) {
+      if (beanFactory == null) {
+        throw new IllegalStateException("no AmazonS3 client available to resolve COS resources");
+      }
+      client = beanFactory.getBean(AmazonS3.class);
+    }
+    return client;
+  }
+}
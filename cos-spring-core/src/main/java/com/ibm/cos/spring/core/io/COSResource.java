@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.io;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.AmazonS3Exception;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.WritableResource;
+import org.springframework.util.StringUtils;
+
+/**
+ * A COS object as a Spring {@link WritableResource}. Input streams read lazily with ranged GETs
+ * (see {@link COSInputStream}) and output streams write through a multipart upload (see {@link
+ * COSOutputStream}), so neither side holds the whole object in memory.
+ */
+public class COSResource extends AbstractResource implements WritableResource {
+
+  private final AmazonS3 client;
+
+  private final String bucket;
+
+  private final String key;
+
+  private final int partSize;
+
+  public COSResource(AmazonS3 client, String bucket, String key) {
+    this(client, bucket, key, COSOutputStream.DEFAULT_PART_SIZE);
+  }
+
+  public COSResource(AmazonS3 client, String bucket, String key, int partSize) {
+    this.client = client;
+    this.bucket = bucket;
+    this.key = key;
+    this.partSize = partSize;
+  }
+
+  public String getBucket() {
+    return bucket;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  @Override
+  public boolean exists() {
+    try {
+      client.getObjectMetadata(bucket, key);
+      return true;
+    } catch (AmazonS3Exception e) {
+      if (e.getStatusCode() == 404) {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean isReadable() {
+    return exists();
+  }
+
+  @Override
+  public long contentLength() throws IOException {
+    return metadata().getContentLength();
+  }
+
+  @Override
+  public long lastModified() throws IOException {
+    return metadata().getLastModified().getTime();
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    return new COSInputStream(client, bucket, key);
+  }
+
+  @Override
+  public boolean isWritable() {
+    return true;
+  }
+
+  @Override
+  public OutputStream getOutputStream() throws IOException {
+    return new COSOutputStream(client, bucket, key, new ObjectMetadata(), partSize);
+  }
+
+  @Override
+  public URL getURL() throws IOException {
+    return client.getUrl(bucket, key);
+  }
+
+  @Override
+  public URI getURI() throws IOException {
+    try {
+      return new URI(COSProtocolResolver.PROTOCOL + bucket + "/" + key);
+    } catch (URISyntaxException e) {
+      throw new IOException("invalid COS location", e);
+    }
+  }
+
+  @Override
+  public String getFilename() {
+    return StringUtils.getFilename(key);
+  }
+
+  @Override
+  public Resource createRelative(String relativePath) {
+    return new COSResource(
+        client, bucket, StringUtils.applyRelativePath(key, relativePath), partSize);
+  }
+
+  @Override
+  public String getDescription() {
+    return "COS resource [" + COSProtocolResolver.PROTOCOL + bucket + "/" + key + "]";
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof COSResource)) {
+      return false;
+    }
+    COSResource resource = (COSResource) other;
+    return bucket.equals(resource.bucket) && key.equals(resource.key);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * bucket.hashCode() + key.hashCode();
+  }
+
+  private ObjectMetadata metadata() throws IOException {
+    try {
+      return client.getObjectMetadata(bucket, key);
+    } catch (AmazonS3Exception e) {
+      if (e.getStatusCode() == 404) {
+        throw new FileNotFoundException(getDescription() + " does not exist");
+      }
+      throw new IOException("failed to read metadata of " + getDescription(), e);
+    } catch (AmazonClientException e) {
+      throw new IOException("failed to read metadata of " + getDescription(), e);
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.listing;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectSummary;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lists buckets as lazy streams of object summaries. The request for the next page is sent as soon
+ * as a page arrives, so the listing proceeds while the caller processes the current page.
+ * Partitioned listings additionally list several disjoint parts of the keyspace concurrently.
+ *
+ * <p>Memory use is bounded by one page per partition being listed, independent of the size of the
+ * bucket. Pages are requested on the given executor, typically the transfer pool; the returned
+ * iterators and streams are not thread-safe.
+ */
+public class BucketLister {
+
+  /** maximum number of keys of one ListObjectsV2 page */
+  public static final int MAX_PAGE_SIZE = 1000;
+
+  private final AmazonS3 client;
+
+  private final Executor executor;
+
+  private final int pageSize;
+
+  private final int concurrency;
+
+  /**
+   * @param client client sending the requests
+   * @param executor executor sending the page requests
+   * @param pageSize keys per page, at most {@value #MAX_PAGE_SIZE}
+   * @param concurrency maximum number of partitions listed at once
+   */
+  public BucketLister(AmazonS3 client, Executor executor, int pageSize, int concurrency) {
+    this.client = client;
+    this.executor = executor;
+    this.pageSize = pageSize;
+    this.concurrency = concurrency;
+  }
+
+  /**
+   * List all objects below a prefix in key order, prefetching the next page.
+   *
+   * @param bucket bucket to list
+   * @param prefix key prefix, empty for the whole bucket
+   * @return a lazy iterator of the objects
+   */
+  public Iterator<S3ObjectSummary> iterator(String bucket, String prefix) {
+    List<ListingPartition> partitions = new ArrayList<ListingPartition>(1);
+    partitions.add(new ListingPartition(prefix, null, null));
+    return new ListingIterator(client, executor, bucket, pageSize, 1, partitions.iterator(), null);
+  }
+
+  /**
+   * List all objects below a prefix in key order, prefetching the next page.
+   *
+   * @param bucket bucket to list
+   * @param prefix key prefix, empty for the whole bucket
+   * @return a lazy, sequential stream of the objects
+   */
+  public Stream<S3ObjectSummary> stream(String bucket, String prefix) {
+    return toStream(iterator(bucket, prefix), Spliterator.ORDERED);
+  }
+
+  /**
+   * List all objects below the given prefixes, listing several prefixes concurrently. Objects of
+   * different prefixes are interleaved in the order their pages arrive.
+   *
+   * @param bucket bucket to list
+   * @param prefixes key prefixes, should not overlap
+   * @return a lazy, sequential stream of the objects
+   */
+  public Stream<S3ObjectSummary> streamPrefixes(String bucket, String... prefixes) {
+    List<ListingPartition> partitions = new ArrayList<ListingPartition>(prefixes.length);
+    for (String prefix : prefixes) {
+      partitions.add(new ListingPartition(prefix, null, null));
+    }
+    return toStream(
+        new ListingIterator(
+            client, executor, bucket, pageSize, concurrency, partitions.iterator(), null),
+        0);
+  }
+
+  /**
+   * List all objects below a prefix, splitting it at the next occurrence of a delimiter and listing
+   * the resulting common prefixes concurrently. With the delimiter {@code /} and the prefix {@code
+   * logs/}, the partitions are {@code logs/2017/}, {@code logs/2018/} and so on. Objects of
+   * different partitions are interleaved in the order their pages arrive.
+   *
+   * @param bucket bucket to list
+   * @param prefix key prefix, empty for the whole bucket
+   * @param delimiter delimiter splitting the keyspace, e.g. {@code /}
+   * @return a lazy, sequential stream of the objects
+   */
+  public Stream<S3ObjectSummary> streamPartitioned(String bucket, String prefix, String delimiter) {
+    List<ListingPartition> partitions = new ArrayList<ListingPartition>(1);
+    partitions.add(new ListingPartition(prefix, null, null));
+    return toStream(
+        new ListingIterator(
+            client, executor, bucket, pageSize, concurrency, partitions.iterator(), delimiter),
+        0);
+  }
+
+  /**
+   * List all objects of a bucket split into key ranges at the given boundaries, listing the ranges
+   * concurrently. The boundaries {@code 4} and {@code 8} give the ranges up to and including {@code
+   * 4}, after {@code 4} up to and including {@code 8}, and after {@code 8}. This suits buckets
+   * whose keys are spread evenly, e.g. by a hash prefix. Objects of different ranges are
+   * interleaved in the order their pages arrive.
+   *
+   * @param bucket bucket to list
+   * @param boundaries last key of each range but the last, in ascending order
+   * @return a lazy, sequential stream of the objects
+   */
+  public Stream<S3ObjectSummary> streamRanges(String bucket, String... boundaries) {
+    String[] sorted = boundaries.clone();
+    Arrays.sort(sorted);
+    List<ListingPartition> partitions = new ArrayList<ListingPartition>(sorted.length + 1);
+    String startAfter = null;
+    for (String boundary : sorted) {
+      partitions.add(new ListingPartition(null, startAfter, boundary));
+      startAfter = boundary;
+    }
+    partitions.add(new ListingPartition(null, startAfter, null));
+    return toStream(
+        new ListingIterator(
+            client, executor, bucket, pageSize, concurrency, partitions.iterator(), null),
+        0);
+  }
+
+  private static Stream<S3ObjectSummary> toStream(
+      Iterator<S3ObjectSummary> iterator, int characteristics) {
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(iterator, characteristics | Spliterator.NONNULL),
+        false);
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.listing;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Request;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Result;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectSummary;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+
+/**
+ * Iterates the objects of several partitions, keeping one page request in flight for each of up to
+ * {@code concurrency} partitions. A partition's next page is requested as soon as its current page
+ * is taken, before the caller iterates it.
+ *
+ * <p>With a delimiter, the first partition is listed with that delimiter and every common prefix it
+ * returns becomes a further partition. Its next page is only requested while fewer than {@code
+ * concurrency * pageSize} of these prefixes wait to be listed, so memory does not grow with the
+ * number of prefixes.
+ */
+final class ListingIterator implements Iterator<S3ObjectSummary> {
+
+  private final AmazonS3 client;
+
+  private final String bucket;
+
+  private final int pageSize;
+
+  private final int concurrency;
+
+  private final Iterator<ListingPartition> partitions;
+
+  private final Deque<ListingPartition> discovered = new ArrayDeque<ListingPartition>();
+
+  /** number of discovered prefixes above which the delimited partition is not listed further */
+  private final int maxDiscovered;
+
+  /** the next page of the delimited partition, held back while too many prefixes wait */
+  private Page parked;
+
+  private final CompletionService<Page> pages;
+
+  private String delimiter;
+
+  private int active;
+
+  private Page page;
+
+  private Iterator<S3ObjectSummary> objects = Collections.<S3ObjectSummary>emptyList().iterator();
+
+  private S3ObjectSummary next;
+
+  ListingIterator(
+      AmazonS3 client,
+      Executor executor,
+      String bucket,
+      int pageSize,
+      int concurrency,
+      Iterator<ListingPartition> partitions,
+      String delimiter) {
+    this.client = client;
+    this.bucket = bucket;
+    this.pageSize = pageSize;
+    this.concurrency = concurrency;
+    this.partitions = partitions;
+    this.delimiter = delimiter;
+    this.maxDiscovered = concurrency * pageSize;
+    this.pages = new ExecutorCompletionService<Page>(executor);
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (next == null) {
+      if (objects.hasNext()) {
+        S3ObjectSummary candidate = objects.next();
+        if (page.partition.contains(candidate.getKey())) {
+          next = candidate;
+        } else {
+          // past the end of a key range, the remaining keys belong to the next range
+          objects = Collections.<S3ObjectSummary>emptyList().iterator();
+        }
+      } else if (!nextPage()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public S3ObjectSummary next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    S3ObjectSummary current = next;
+    next = null;
+    return current;
+  }
+
+  private boolean nextPage() {
+    startPartitions();
+    if (active == 0) {
+      return false;
+    }
+
+    Page taken = take();
+    active--;
+    ListObjectsV2Result result = taken.result;
+    for (String commonPrefix : result.getCommonPrefixes()) {
+      discovered.add(new ListingPartition(commonPrefix, null, null));
+    }
+    List<S3ObjectSummary> summaries = result.getObjectSummaries();
+    boolean beyondRange =
+        !summaries.isEmpty()
+            && !taken.partition.contains(summaries.get(summaries.size() - 1).getKey());
+    if (result.isTruncated() && !beyondRange) {
+      // prefetch while the caller processes this page
+      // the previous request of this partition has completed, so its request can be reused
+      taken.request.setContinuationToken(result.getNextContinuationToken());
+      if (taken.request.getDelimiter() != null && discovered.size() >= maxDiscovered) {
+        parked = taken;
+      } else {
+        submit(taken.partition, taken.request);
+      }
+    }
+    page = taken;
+    objects = summaries.iterator();
+    return true;
+  }
+
+  private void startPartitions() {
+    while (active < concurrency) {
+      if (parked != null && discovered.size() < maxDiscovered) {
+        submit(parked.partition, parked.request);
+        parked = null;
+        continue;
+      }
+      ListingPartition partition;
+      if (!discovered.isEmpty()) {
+        partition = discovered.poll();
+      } else if (partitions.hasNext()) {
+        partition = partitions.next();
+      } else {
+        return;
+      }
+      ListObjectsV2Request request =
+          new ListObjectsV2Request()
+              .withBucketName(bucket)
+              .withPrefix(partition.prefix)
+              .withStartAfter(partition.startAfter)
+              .withMaxKeys(pageSize)
+              .withDelimiter(delimiter);
+      // only the first partition is split
+      delimiter = null;
+      submit(partition, request);
+    }
+  }
+
+  private void submit(ListingPartition partition, ListObjectsV2Request request) {
+    active++;
+    pages.submit(() -> new Page(partition, request, client.listObjectsV2(request)));
+  }
+
+  private Page take() {
+    try {
+      return pages.take().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AmazonClientException("Interrupted while listing " + bucket, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new AmazonClientException("Unable to list " + bucket, e.getCause());
+    }
+  }
+
+  private static final class Page {
+
+    final ListingPartition partition;
+
+    final ListObjectsV2Request request;
+
+    final ListObjectsV2Result result;
+
+    Page(ListingPartition partition, ListObjectsV2Request request, ListObjectsV2Result result) {
+      this.partition = partition;
+      this.request = request;
+      this.result = result;
+    }
+  }
+}
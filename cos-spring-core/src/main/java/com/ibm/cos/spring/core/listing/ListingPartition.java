@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.listing;
+
+/** A disjoint part of the keyspace of a bucket, listed by one chain of page requests. */
+final class ListingPartition {
+
+  final String prefix;
+
+  final String startAfter;
+
+  /** last key of the partition, inclusive, or {@code null} for no upper bound */
+  final String lastKey;
+
+  ListingPartition(String prefix, String startAfter, String lastKey) {
+    this.prefix = prefix;
+    this.startAfter = startAfter;
+    this.lastKey = lastKey;
+  }
+
+  boolean contains(String key) {
+    return lastKey == null || key.compareTo(lastKey) <= 0;
+  }
+}
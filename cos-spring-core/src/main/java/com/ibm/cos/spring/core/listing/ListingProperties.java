@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.listing;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import java.util.concurrent.Executor;
+
+/** Bucket listing settings, bound from {@code cos.listing.*}. */
+public class ListingProperties {
+
+  /** keys per ListObjectsV2 page, at most 1000 */
+  private int pageSize = BucketLister.MAX_PAGE_SIZE;
+
+  /** maximum number of partitions listed at once by partitioned listings */
+  private int concurrency = 4;
+
+  /**
+   * Validate these settings and create a bucket lister.
+   *
+   * @param client client sending the requests
+   * @param executor executor sending the page requests, typically the transfer pool
+   * @return a lister using these settings
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public BucketLister createLister(AmazonS3 client, Executor executor) {
+    validate();
+    return new BucketLister(client, executor, pageSize, concurrency);
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (pageSize < 1 || pageSize > BucketLister.MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException(
+          "cos.listing.page-size must be between 1 and " + BucketLister.MAX_PAGE_SIZE);
+    }
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("cos.listing.concurrency must be greater than 0");
+    }
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public void setPageSize(int pageSize) {
+    this.pageSize = pageSize;
+  }
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  public void setConcurrency(int concurrency) {
+    this.concurrency = concurrency;
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.metrics;
+
+import com.ibm.cos.spring.core.hedge.RequestHedger;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Registers the meters of a {@link RequestHedger}:
+ *
+ * <ul>
+ *   <li>{@code cos.hedge.requests}: GET requests eligible for hedging
+ *   <li>{@code cos.hedge.sent}: hedges sent, the hedge rate relative to {@code cos.hedge.requests}
+ *   <li>{@code cos.hedge.wins}: hedges that answered first
+ *   <li>{@code cos.hedge.saturated}: requests and hedges not sent on the busy hedge threads
+ *   <li>{@code cos.hedge.delay}: current delay in seconds after which a request is hedged
+ * </ul>
+ */
+public final class HedgeMetrics {
+
+  private HedgeMetrics() {}
+
+  /**
+   * @param registry registry to add the meters to
+   * @param clientName name of the client, used as {@code client} tag
+   * @param hedger hedger of the client
+   */
+  public static void bind(MeterRegistry registry, String clientName, RequestHedger hedger) {
+    FunctionCounter.builder("cos.hedge.requests", hedger, RequestHedger::getRequestCount)
+        .tags("client", clientName)
+        .register(registry);
+    FunctionCounter.builder("cos.hedge.sent", hedger, RequestHedger::getHedgeCount)
+        .tags("client", clientName)
+        .register(registry);
+    FunctionCounter.builder("cos.hedge.wins", hedger, RequestHedger::getHedgeWinCount)
+        .tags("client", clientName)
+        .register(registry);
+    FunctionCounter.builder("cos.hedge.saturated", hedger, RequestHedger::getSaturatedCount)
+        .tags("client", clientName)
+        .register(registry);
+    Gauge.builder("cos.hedge.delay", hedger, h -> h.getDelay() / 1000.0)
+        .tags("client", clientName)
+        .baseUnit("seconds")
+        .register(registry);
+  }
+}
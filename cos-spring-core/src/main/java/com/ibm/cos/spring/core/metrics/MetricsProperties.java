@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.metrics;
+
+/** Client metrics settings, bound from {@code cos.metrics.*}. */
+public class MetricsProperties {
+
+  /** record client metrics when Micrometer is available */
+  private boolean enabled = true;
+
+  /** number of distinct buckets tagged individually, further buckets are tagged as other */
+  private int maxBucketTags = 100;
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (maxBucketTags < 0) {
+      throw new IllegalArgumentException("cos.metrics.max-bucket-tags must not be negative");
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getMaxBucketTags() {
+    return maxBucketTags;
+  }
+
+  public void setMaxBucketTags(int maxBucketTags) {
+    this.maxBucketTags = maxBucketTags;
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.metrics;
+
+import com.ibm.cloud.objectstorage.AmazonServiceException;
+import com.ibm.cloud.objectstorage.Request;
+import com.ibm.cloud.objectstorage.Response;
+import com.ibm.cloud.objectstorage.metrics.RequestMetricCollector;
+import com.ibm.cloud.objectstorage.util.AWSRequestMetrics;
+import com.ibm.cloud.objectstorage.util.AWSRequestMetrics.Field;
+import com.ibm.cloud.objectstorage.util.TimingInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Records the SDK request metrics of a COS client in a Micrometer registry:
+ *
+ * <ul>
+ *   <li>{@code cos.client.requests}: latency histogram of each call including retries, tagged with
+ *       operation, bucket and HTTP status
+ *   <li>{@code cos.client.retries} and {@code cos.client.throttled}: retried and throttled
+ *       attempts, e.g. 503 SlowDown, by operation
+ *   <li>{@code cos.client.bytes.sent} and {@code cos.client.bytes.received}: request and response
+ *       body sizes by operation and bucket
+ *   <li>{@code cos.client.pool.leased}, {@code .available} and {@code .pending}: HTTP connection
+ *       pool usage as of the latest request
+ * </ul>
+ *
+ * <p>All metrics are tagged with the client name. Operations are named after the request class,
+ * e.g. {@code GetObject}. Only the first {@code maxBucketTags} buckets are tagged by name, so the
+ * number of time series stays bounded.
+ */
+public class MicrometerMetricCollector extends RequestMetricCollector {
+
+  static final String OTHER = "other";
+
+  static final String NONE = "none";
+
+  private final MeterRegistry registry;
+
+  private final Tags clientTags;
+
+  private final int maxBucketTags;
+
+  private final Set<String> buckets = ConcurrentHashMap.newKeySet();
+
+  private final Map<Class<?>, Optional<Method>> bucketAccessors =
+      new ConcurrentHashMap<Class<?>, Optional<Method>>();
+
+  private final AtomicLong leased = new AtomicLong();
+
+  private final AtomicLong available = new AtomicLong();
+
+  private final AtomicLong pending = new AtomicLong();
+
+  public MicrometerMetricCollector(MeterRegistry registry, String clientName, int maxBucketTags) {
+    this.registry = registry;
+    this.clientTags = Tags.of("client", clientName);
+    this.maxBucketTags = maxBucketTags;
+    registry.gauge("cos.client.pool.leased", clientTags, leased);
+    registry.gauge("cos.client.pool.available", clientTags, available);
+    registry.gauge("cos.client.pool.pending", clientTags, pending);
+  }
+
+  @Override
+  public void collectMetrics(Request<?> request, Response<?> response) {
+    AWSRequestMetrics metrics = request.getAWSRequestMetrics();
+    TimingInfo timing = metrics.getTimingInfo();
+    String operation = operation(request);
+    Tags operationTags = clientTags.and("operation", operation);
+    Tags bucketTags = operationTags.and("bucket", bucket(request));
+
+    Double millis = timing.getTimeTakenMillisIfKnown();
+    if (millis != null) {
+      Timer.builder("cos.client.requests")
+          .tags(bucketTags.and("status", status(metrics, response)))
+          .publishPercentileHistogram()
+          .register(registry)
+          .record((long) (millis * 1000), TimeUnit.MICROSECONDS);
+    }
+
+    long attempts = count(timing, Field.RequestCount);
+    if (attempts > 1) {
+      registry.counter("cos.client.retries", operationTags).increment(attempts - 1);
+    }
+    long throttled = count(timing, Field.ThrottleException);
+    if (throttled > 0) {
+      registry.counter("cos.client.throttled", operationTags).increment(throttled);
+    }
+
+    long sent = contentLength(request.getHeaders());
+    if (sent > 0) {
+      registry.counter("cos.client.bytes.sent", bucketTags).increment(sent);
+    }
+    long received = response != null ? contentLength(response.getHttpResponse().getHeaders()) : 0;
+    if (received > 0) {
+      registry.counter("cos.client.bytes.received", bucketTags).increment(received);
+    }
+
+    if (timing.getCounter(Field.HttpClientPoolLeasedCount.name()) != null) {
+      leased.set(count(timing, Field.HttpClientPoolLeasedCount));
+      available.set(count(timing, Field.HttpClientPoolAvailableCount));
+      pending.set(count(timing, Field.HttpClientPoolPendingCount));
+    }
+  }
+
+  private static String operation(Request<?> request) {
+    String name = request.getOriginalRequest().getClass().getSimpleName();
+    return name.endsWith("Request") ? name.substring(0, name.length() - "Request".length()) : name;
+  }
+
+  private String bucket(Request<?> request) {
+    Object original = request.getOriginalRequest();
+    Method accessor =
+        bucketAccessors
+            .computeIfAbsent(
+                original.getClass(),
+                type -> Optional.ofNullable(ReflectionUtils.findMethod(type, "getBucketName")))
+            .orElse(null);
+    Object bucket = accessor != null ? ReflectionUtils.invokeMethod(accessor, original) : null;
+    if (!(bucket instanceof String)) {
+      return NONE;
+    }
+    if (buckets.contains(bucket) || buckets.size() < maxBucketTags) {
+      buckets.add((String) bucket);
+      return (String) bucket;
+    }
+    return OTHER;
+  }
+
+  private static String status(AWSRequestMetrics metrics, Response<?> response) {
+    if (response != null) {
+      return Integer.toString(response.getHttpResponse().getStatusCode());
+    }
+    List<Object> exceptions = metrics.getProperty(Field.Exception);
+    if (exceptions != null && !exceptions.isEmpty()) {
+      Object last = exceptions.get(exceptions.size() - 1);
+      if (last instanceof AmazonServiceException) {
+        return Integer.toString(((AmazonServiceException) last).getStatusCode());
+      }
+    }
+    return NONE;
+  }
+
+  private static long count(TimingInfo timing, Field field) {
+    Number count = timing.getCounter(field.name());
+    return count != null ? count.longValue() : 0;
+  }
+
+  private static long contentLength(Map<String, String> headers) {
+    String value = headers != null ? headers.get("Content-Length") : null;
+    if (value == null) {
+      return 0;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.metrics;
+
+import com.ibm.cos.spring.core.retry.RetryController;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Registers the meters of a {@link RetryController}. Budget and breaker meters are only registered
+ * if the controller uses a budget or breaker.
+ *
+ * <ul>
+ *   <li>{@code cos.retry.budget.available}: tokens left in the retry budget
+ *   <li>{@code cos.retry.budget.exhausted}: retries denied by the budget
+ *   <li>{@code cos.retry.breaker.open}: 1 while the circuit breaker is open, 0 otherwise
+ *   <li>{@code cos.retry.breaker.opened}: times the circuit breaker opened
+ *   <li>{@code cos.retry.breaker.rejected}: requests failed by the open circuit breaker
+ * </ul>
+ */
+public final class RetryMetrics {
+
+  private RetryMetrics() {}
+
+  /**
+   * @param registry registry to add the meters to
+   * @param clientName name of the client, used as {@code client} tag
+   * @param retryController retry controller of the client
+   */
+  public static void bind(
+      MeterRegistry registry, String clientName, RetryController retryController) {
+    if (retryController.isBudgetEnabled()) {
+      Gauge.builder(
+              "cos.retry.budget.available", retryController, RetryController::getBudgetAvailable)
+          .tags("client", clientName)
+          .register(registry);
+      FunctionCounter.builder(
+              "cos.retry.budget.exhausted",
+              retryController,
+              RetryController::getBudgetExhaustedCount)
+          .tags("client", clientName)
+          .register(registry);
+    }
+    if (retryController.isBreakerEnabled()) {
+      Gauge.builder(
+              "cos.retry.breaker.open",
+              retryController,
+              controller -> controller.isBreakerOpen() ? 1 : 0)
+          .tags("client", clientName)
+          .register(registry);
+      FunctionCounter.builder(
+              "cos.retry.breaker.opened", retryController, RetryController::getBreakerOpenedCount)
+          .tags("client", clientName)
+          .register(registry);
+      FunctionCounter.builder(
+              "cos.retry.breaker.rejected", retryController, RetryController::getRejectedCount)
+          .tags("client", clientName)
+          .register(registry);
+    }
+  }
+}
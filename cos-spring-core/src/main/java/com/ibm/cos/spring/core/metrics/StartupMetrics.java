@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.metrics;
+
+import com.ibm.cos.spring.core.startup.ClientStartup;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+
+/**
+ * Registers the meters of a {@link ClientStartup}:
+ *
+ * <ul>
+ *   <li>{@code cos.startup.phase}: duration in seconds of each startup phase, tagged with {@code
+ *       phase}, NaN until the phase has completed
+ *   <li>{@code cos.startup.initialized}: 1 once the default client is built, otherwise 0
+ * </ul>
+ */
+public final class StartupMetrics {
+
+  private StartupMetrics() {}
+
+  /**
+   * @param registry registry to add the meters to
+   * @param clientStartup startup controller of the default client
+   */
+  public static void bind(MeterRegistry registry, ClientStartup clientStartup) {
+    for (String phase : ClientStartup.PHASES) {
+      Gauge.builder("cos.startup.phase", clientStartup, s -> seconds(s.getPhase(phase)))
+          .tags("phase", phase)
+          .baseUnit("seconds")
+          .register(registry);
+    }
+    Gauge.builder("cos.startup.initialized", clientStartup, s -> s.isInitialized() ? 1 : 0)
+        .register(registry);
+  }
+
+  private static double seconds(Duration duration) {
+    return duration != null ? duration.toNanos() / 1e9 : Double.NaN;
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.metrics;
+
+import com.ibm.cos.spring.core.auth.RefreshingTokenManager;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers the meters of a {@link RefreshingTokenManager}:
+ *
+ * <ul>
+ *   <li>{@code cos.iam.refresh}: count and latency of token fetches
+ *   <li>{@code cos.iam.refresh.failures}: failed token fetches
+ *   <li>{@code cos.iam.token.remaining}: seconds until the current token expires
+ * </ul>
+ */
+public final class TokenManagerMetrics {
+
+  private TokenManagerMetrics() {}
+
+  /**
+   * @param registry registry to add the meters to
+   * @param clientName name of the client using the token manager, used as {@code client} tag
+   * @param tokenManager token manager to observe
+   */
+  public static void bind(
+      MeterRegistry registry, String clientName, RefreshingTokenManager tokenManager) {
+    FunctionTimer.builder(
+            "cos.iam.refresh",
+            tokenManager,
+            manager -> manager.getRefreshCount() + manager.getFailureCount(),
+            manager -> manager.getTotalRefreshTime(TimeUnit.MILLISECONDS),
+            TimeUnit.MILLISECONDS)
+        .tags("client", clientName)
+        .register(registry);
+    FunctionCounter.builder(
+            "cos.iam.refresh.failures", tokenManager, RefreshingTokenManager::getFailureCount)
+        .tags("client", clientName)
+        .register(registry);
+    Gauge.builder(
+            "cos.iam.token.remaining",
+            tokenManager,
+            manager -> Math.max(0, manager.getExpiresAt() - System.currentTimeMillis()) / 1000.0)
+        .tags("client", clientName)
+        .baseUnit("seconds")
+        .register(registry);
+  }
+}
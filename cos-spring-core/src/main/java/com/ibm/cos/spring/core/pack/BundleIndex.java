@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.pack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary sidecar index of a bundle: a magic number and record count, followed by the key and varint
+ * length of each record in bundle order. Offsets are the running sum of the lengths.
+ */
+final class BundleIndex {
+
+  /** "CBI1" */
+  private static final int MAGIC = 0x43424931;
+
+  static final String BUNDLE_SUFFIX = ".bundle";
+
+  static final String INDEX_SUFFIX = ".idx";
+
+  /** longest key in bytes, as written by {@link DataOutputStream#writeUTF(String)} */
+  static final int MAX_KEY_LENGTH = 65535;
+
+  private BundleIndex() {}
+
+  /** @return key of the index object of a bundle */
+  static String indexKey(String bundleKey) {
+    String base =
+        bundleKey.endsWith(BUNDLE_SUFFIX)
+            ? bundleKey.substring(0, bundleKey.length() - BUNDLE_SUFFIX.length())
+            : bundleKey;
+    return base + INDEX_SUFFIX;
+  }
+
+  static byte[] write(List<String> keys, List<Integer> lengths) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(keys.size() * 24 + 8);
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeInt(MAGIC);
+      output.writeInt(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        output.writeUTF(keys.get(i));
+        int length = lengths.get(i);
+        while ((length & ~0x7f) != 0) {
+          output.writeByte((length & 0x7f) | 0x80);
+          length >>>= 7;
+        }
+        output.writeByte(length);
+      }
+    } catch (IOException e) {
+      // keys are checked against MAX_KEY_LENGTH on append, in-memory streams throw nothing else
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /** @return length of a key in the modified UTF-8 written by the index */
+  static int encodedLength(String key) {
+    int length = 0;
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      length += c >= 0x01 && c <= 0x7f ? 1 : c <= 0x7ff ? 2 : 3;
+    }
+    return length;
+  }
+
+  /** @return locations by record key; of records with the same key, the last is kept */
+  static Map<String, RecordLocation> read(String bundleKey, InputStream content)
+      throws IOException {
+    DataInputStream input = new DataInputStream(content);
+    if (input.readInt() != MAGIC) {
+      throw new IOException("not a bundle index");
+    }
+    int count = input.readInt();
+    Map<String, RecordLocation> locations = new LinkedHashMap<String, RecordLocation>(count * 2);
+    long offset = 0;
+    for (int i = 0; i < count; i++) {
+      String key = input.readUTF();
+      int length = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = input.readUnsignedByte();
+        length |= (b & 0x7f) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      locations.put(key, new RecordLocation(bundleKey, offset, length));
+      offset += length;
+    }
+    return locations;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.pack;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Reads records written by a {@link BundleWriter} with one ranged GET each. Indexes are cached, so
+ * reading several records of a bundle by key fetches its index once.
+ */
+public class BundleReader {
+
+  private final AmazonS3 client;
+
+  private final String bucket;
+
+  /** indexes by bundle key in access order, guarded by itself */
+  private final LinkedHashMap<String, Map<String, RecordLocation>> indexes;
+
+  /**
+   * @param client client reading the bundles
+   * @param bucket bucket of the bundles
+   * @param indexCacheSize number of bundle indexes kept in memory
+   */
+  public BundleReader(AmazonS3 client, String bucket, int indexCacheSize) {
+    this.client = client;
+    this.bucket = bucket;
+    this.indexes =
+        new LinkedHashMap<String, Map<String, RecordLocation>>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(
+              Map.Entry<String, Map<String, RecordLocation>> eldest) {
+            return size() > indexCacheSize;
+          }
+        };
+  }
+
+  /**
+   * Read a record by its location.
+   *
+   * @param location location returned when the record was appended
+   * @return the record content
+   */
+  public byte[] read(RecordLocation location) {
+    if (location.getLength() == 0) {
+      return new byte[0];
+    }
+    GetObjectRequest request =
+        new GetObjectRequest(bucket, location.getBundleKey())
+            .withRange(location.getOffset(), location.getOffset() + location.getLength() - 1);
+    byte[] record;
+    S3Object object = client.getObject(request);
+    try (InputStream content = object.getObjectContent()) {
+      record = StreamUtils.copyToByteArray(content);
+    } catch (IOException e) {
+      throw new AmazonClientException("Unable to read record at " + location, e);
+    }
+    if (record.length != location.getLength()) {
+      throw new AmazonClientException(
+          String.format("Read %d bytes of the record at %s", record.length, location));
+    }
+    return record;
+  }
+
+  /**
+   * Read a record by its key, looking it up in the index of its bundle.
+   *
+   * @param bundleKey key of the bundle object
+   * @param recordKey key of the record
+   * @return the record content, or null if the bundle has no such record
+   */
+  public byte[] read(String bundleKey, String recordKey) {
+    RecordLocation location = getIndex(bundleKey).get(recordKey);
+    return location != null ? read(location) : null;
+  }
+
+  /**
+   * @param bundleKey key of the bundle object
+   * @return locations of the records of the bundle by key, in bundle order
+   */
+  public Map<String, RecordLocation> getIndex(String bundleKey) {
+    synchronized (indexes) {
+      Map<String, RecordLocation> index = indexes.get(bundleKey);
+      if (index != null) {
+        return index;
+      }
+    }
+    Map<String, RecordLocation> index;
+    S3Object object = client.getObject(bucket, BundleIndex.indexKey(bundleKey));
+    try (InputStream content = object.getObjectContent()) {
+      index = Collections.unmodifiableMap(BundleIndex.read(bundleKey, content));
+    } catch (IOException e) {
+      throw new AmazonClientException("Unable to read index of bundle " + bundleKey, e);
+    }
+    synchronized (indexes) {
+      indexes.put(bundleKey, index);
+    }
+    return index;
+  }
+}
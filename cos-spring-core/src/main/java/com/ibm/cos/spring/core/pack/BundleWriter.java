@@ -0,0 +1,304 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.pack;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Packs small records into bundle objects, turning many small PUT requests into a few large ones.
+ * Records are appended to an in-memory bundle, which is uploaded together with a sidecar index once
+ * it reaches the maximum bundle size or the flush interval has passed since its first record.
+ *
+ * <p>The location of a record is known as soon as it is appended, but the record can only be read
+ * once its bundle is uploaded. The index is uploaded after the bundle, so a bundle whose index
+ * exists is complete. A failed upload is retried by the next flush, while the bundles sealed after
+ * it are still uploaded; until then its records stay in memory and appends that fill a bundle fail
+ * with the upload error. Once the maximum number of bundles waits for upload, every append retries
+ * them first and fails with the upload error instead of taking more records into memory.
+ */
+public class BundleWriter implements DisposableBean {
+
+  private static final Log logger = LogFactory.getLog(BundleWriter.class);
+
+  private static final String CONTENT_TYPE = "application/octet-stream";
+
+  private final AmazonS3 client;
+
+  private final String bucket;
+
+  private final String prefix;
+
+  private final int maxBundleSize;
+
+  private final long flushInterval;
+
+  private final int maxPendingBundles;
+
+  private final ScheduledExecutorService scheduler;
+
+  /** bundle receiving records, guarded by this */
+  private Bundle current;
+
+  /** bundles waiting for upload, guarded by this */
+  private final Deque<Bundle> sealed = new ArrayDeque<Bundle>();
+
+  /** serializes uploads, so a bundle is not uploaded twice */
+  private final Object uploadLock = new Object();
+
+  private boolean closed;
+
+  private final AtomicLong recordCount = new AtomicLong();
+
+  private final AtomicLong bundleCount = new AtomicLong();
+
+  /**
+   * @param client client uploading the bundles
+   * @param bucket bucket of the bundles
+   * @param prefix key prefix of the bundles
+   * @param maxBundleSize size in bytes at which a bundle is uploaded
+   * @param flushInterval milliseconds after its first record a bundle is uploaded, 0 to only upload
+   *     full bundles and on {@link #flush()}
+   * @param maxPendingBundles number of sealed bundles waiting for upload at which appends fail
+   */
+  public BundleWriter(
+      AmazonS3 client,
+      String bucket,
+      String prefix,
+      int maxBundleSize,
+      long flushInterval,
+      int maxPendingBundles) {
+    this.client = client;
+    this.bucket = bucket;
+    this.prefix = prefix;
+    this.maxBundleSize = maxBundleSize;
+    this.flushInterval = flushInterval;
+    this.maxPendingBundles = maxPendingBundles;
+    if (flushInterval > 0) {
+      CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cos-pack-flush-");
+      threadFactory.setDaemon(true);
+      this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+      long period = Math.max(flushInterval / 4, 10);
+      scheduler.scheduleWithFixedDelay(this::flushDue, period, period, TimeUnit.MILLISECONDS);
+    } else {
+      this.scheduler = null;
+    }
+  }
+
+  /**
+   * Append a record to the current bundle. Of records appended with the same key to one bundle, the
+   * index keeps the last.
+   *
+   * @param recordKey key of the record within its bundle, at most {@value
+   *     BundleIndex#MAX_KEY_LENGTH} bytes in UTF-8
+   * @param record record content
+   * @return location of the record, readable once its bundle is uploaded
+   * @throws IllegalArgumentException if the key is too long for the index
+   * @throws IllegalStateException if the writer is closed
+   * @throws com.ibm.cloud.objectstorage.AmazonClientException if the record filled its bundle and
+   *     the upload failed; the record is kept and uploaded by a later flush. Also if the maximum
+   *     number of bundles waits for upload and retrying them failed; the record is not appended
+   */
+  public RecordLocation append(String recordKey, byte[] record) {
+    if (BundleIndex.encodedLength(recordKey) > BundleIndex.MAX_KEY_LENGTH) {
+      throw new IllegalArgumentException(
+          String.format(
+              "record key is longer than %d bytes in UTF-8: %s...",
+              BundleIndex.MAX_KEY_LENGTH, recordKey.substring(0, 64)));
+    }
+    RecordLocation location;
+    boolean full;
+    while (true) {
+      synchronized (this) {
+        if (closed) {
+          throw new IllegalStateException("bundle writer is closed");
+        }
+        if (sealed.size() < maxPendingBundles) {
+          if (current == null) {
+            current = new Bundle(newBundleKey(), Math.min(maxBundleSize, 1024 * 1024));
+          }
+          location = current.add(recordKey, record);
+          full = current.data.size() >= maxBundleSize;
+          if (full) {
+            seal();
+          }
+          break;
+        }
+      }
+      // throws the upload error if the waiting bundles still fail
+      uploadSealed();
+    }
+    recordCount.incrementAndGet();
+    if (full) {
+      uploadSealed();
+    }
+    return location;
+  }
+
+  /**
+   * Upload the current bundle and any bundle whose upload failed before.
+   *
+   * @throws com.ibm.cloud.objectstorage.AmazonClientException if an upload fails
+   */
+  public void flush() {
+    synchronized (this) {
+      seal();
+    }
+    uploadSealed();
+  }
+
+  /** @return number of records appended */
+  public long getRecordCount() {
+    return recordCount.get();
+  }
+
+  /** @return number of bundles uploaded */
+  public long getBundleCount() {
+    return bundleCount.get();
+  }
+
+  /** @return number of sealed bundles waiting for upload */
+  public synchronized int getPendingBundleCount() {
+    return sealed.size();
+  }
+
+  /** Stop the flush timer and upload all buffered records. */
+  @Override
+  public void destroy() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    synchronized (this) {
+      closed = true;
+    }
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      logger.error(
+          String.format(
+              "Unable to upload %d buffered bundles to %s", getPendingBundleCount(), bucket),
+          e);
+    }
+  }
+
+  private void flushDue() {
+    synchronized (this) {
+      if (current != null && current.created + flushInterval <= System.currentTimeMillis()) {
+        seal();
+      }
+    }
+    try {
+      uploadSealed();
+    } catch (RuntimeException e) {
+      logger.warn("Unable to upload bundle to " + bucket + ", retrying with the next flush", e);
+    }
+  }
+
+  /** Must be called holding this. */
+  private void seal() {
+    if (current != null) {
+      sealed.add(current);
+      current = null;
+    }
+  }
+
+  private void uploadSealed() {
+    synchronized (uploadLock) {
+      List<Bundle> bundles;
+      synchronized (this) {
+        bundles = new ArrayList<Bundle>(sealed);
+      }
+      RuntimeException failure = null;
+      for (Bundle bundle : bundles) {
+        try {
+          upload(bundle.key, bundle.data.toByteArray());
+          upload(BundleIndex.indexKey(bundle.key), BundleIndex.write(bundle.keys, bundle.lengths));
+        } catch (RuntimeException e) {
+          // stays sealed for the next flush, the bundles after it are still uploaded
+          if (failure == null) {
+            failure = e;
+          } else {
+            failure.addSuppressed(e);
+          }
+          continue;
+        }
+        synchronized (this) {
+          sealed.remove(bundle);
+        }
+        bundleCount.incrementAndGet();
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+
+  private void upload(String key, byte[] content) {
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(content.length);
+    metadata.setContentType(CONTENT_TYPE);
+    client.putObject(
+        new PutObjectRequest(bucket, key, new ByteArrayInputStream(content), metadata));
+  }
+
+  /** Keys start with the creation time, so bundles list in the order they were started. */
+  private String newBundleKey() {
+    return String.format(
+        "%s%013d-%s%s",
+        prefix, System.currentTimeMillis(), UUID.randomUUID(), BundleIndex.BUNDLE_SUFFIX);
+  }
+
+  private static final class Bundle {
+
+    final String key;
+
+    final long created = System.currentTimeMillis();
+
+    final ByteArrayOutputStream data;
+
+    final List<String> keys = new ArrayList<String>();
+
+    final List<Integer> lengths = new ArrayList<Integer>();
+
+    Bundle(String key, int initialSize) {
+      this.key = key;
+      this.data = new ByteArrayOutputStream(initialSize);
+    }
+
+    RecordLocation add(String recordKey, byte[] record) {
+      RecordLocation location = new RecordLocation(key, data.size(), record.length);
+      data.write(record, 0, record.length);
+      keys.add(recordKey);
+      lengths.add(record.length);
+      return location;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.pack;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import org.springframework.util.StringUtils;
+
+/**
+ * Record packing settings, bound from {@code cos.pack.*}. Durations are in milliseconds. Packing is
+ * disabled unless {@code cos.pack.enabled} is set.
+ */
+public class PackProperties {
+
+  /** provide a BundleWriter and BundleReader */
+  private boolean enabled;
+
+  /** bucket of the bundles */
+  private String bucket;
+
+  /** key prefix of the bundles */
+  private String prefix = "bundles/";
+
+  /** size in bytes at which a bundle is uploaded */
+  private int maxBundleSize = 8 * 1024 * 1024;
+
+  /** time after its first record a bundle is uploaded, 0 to only upload full bundles */
+  private long flushInterval = 5000;
+
+  /** number of bundles waiting for upload, e.g. after failed uploads, at which appends fail */
+  private int maxPendingBundles = 4;
+
+  /** number of bundle indexes the reader keeps in memory */
+  private int indexCacheSize = 64;
+
+  /**
+   * Validate these settings and create a writer.
+   *
+   * @param client client uploading the bundles
+   * @return a writer using these settings
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public BundleWriter createWriter(AmazonS3 client) {
+    validate();
+    return new BundleWriter(
+        client,
+        bucket,
+        prefix != null ? prefix : "",
+        maxBundleSize,
+        flushInterval,
+        maxPendingBundles);
+  }
+
+  /**
+   * Validate these settings and create a reader.
+   *
+   * @param client client reading the bundles
+   * @return a reader using these settings
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public BundleReader createReader(AmazonS3 client) {
+    validate();
+    return new BundleReader(client, bucket, indexCacheSize);
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (!StringUtils.hasText(bucket)) {
+      throw new IllegalArgumentException("cos.pack.bucket must be set");
+    }
+    if (maxBundleSize < 1) {
+      throw new IllegalArgumentException("cos.pack.max-bundle-size must be greater than 0");
+    }
+    if (flushInterval < 0) {
+      throw new IllegalArgumentException("cos.pack.flush-interval must not be negative");
+    }
+    if (maxPendingBundles < 1) {
+      throw new IllegalArgumentException("cos.pack.max-pending-bundles must be greater than 0");
+    }
+    if (indexCacheSize < 0) {
+      throw new IllegalArgumentException("cos.pack.index-cache-size must not be negative");
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public String getBucket() {
+    return bucket;
+  }
+
+  public void setBucket(String bucket) {
+    this.bucket = bucket;
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  public void setPrefix(String prefix) {
+    this.prefix = prefix;
+  }
+
+  public int getMaxBundleSize() {
+    return maxBundleSize;
+  }
+
+  public void setMaxBundleSize(int maxBundleSize) {
+    this.maxBundleSize = maxBundleSize;
+  }
+
+  public long getFlushInterval() {
+    return flushInterval;
+  }
+
+  public void setFlushInterval(long flushInterval) {
+    this.flushInterval = flushInterval;
+  }
+
+  public int getMaxPendingBundles() {
+    return maxPendingBundles;
+  }
+
+  public void setMaxPendingBundles(int maxPendingBundles) {
+    this.maxPendingBundles = maxPendingBundles;
+  }
+
+  public int getIndexCacheSize() {
+    return indexCacheSize;
+  }
+
+  public void setIndexCacheSize(int indexCacheSize) {
+    this.indexCacheSize = indexCacheSize;
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.pack;
+
+/**
+ * Position of a record within a bundle object. Its string form {@code bundleKey#offset+length} can
+ * be stored elsewhere, e.g. in a database, and read back with {@link #parse(String)}.
+ */
+public final class RecordLocation {
+
+  private final String bundleKey;
+
+  private final long offset;
+
+  private final int length;
+
+  public RecordLocation(String bundleKey, long offset, int length) {
+    this.bundleKey = bundleKey;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * Parse the string form of a location.
+   *
+   * @param location location as returned by {@link #toString()}
+   * @return the location
+   * @throws IllegalArgumentException if the string is not a location
+   */
+  public static RecordLocation parse(String location) {
+    int hash = location.lastIndexOf('#');
+    int plus = location.lastIndexOf('+');
+    if (hash < 1 || plus < hash) {
+      throw new IllegalArgumentException("invalid record location '" + location + "'");
+    }
+    try {
+      return new RecordLocation(
+          location.substring(0, hash),
+          Long.parseLong(location.substring(hash + 1, plus)),
+          Integer.parseInt(location.substring(plus + 1)));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("invalid record location '" + location + "'", e);
+    }
+  }
+
+  /** @return key of the bundle object */
+  public String getBundleKey() {
+    return bundleKey;
+  }
+
+  /** @return offset of the record in the bundle */
+  public long getOffset() {
+    return offset;
+  }
+
+  /** @return length of the record in bytes */
+  public int getLength() {
+    return length;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof RecordLocation)) {
+      return false;
+    }
+    RecordLocation location = (RecordLocation) other;
+    return bundleKey.equals(location.bundleKey)
+        && offset == location.offset
+        && length == location.length;
+  }
+
+  @Override
+  public int hashCode() {
+    return (bundleKey.hashCode() * 31 + Long.hashCode(offset)) * 31 + length;
+  }
+
+  @Override
+  public String toString() {
+    return bundleKey + "#" + offset + "+" + length;
+  }
+}
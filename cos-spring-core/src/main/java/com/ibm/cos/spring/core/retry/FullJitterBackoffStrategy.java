@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.retry;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.AmazonWebServiceRequest;
+import com.ibm.cloud.objectstorage.retry.RetryPolicy.BackoffStrategy;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter: the delay before retry {@code n} is uniformly distributed
+ * between 0 and {@code min(maxBackoff, baseDelay * 2^n)}. Spreading retries over the whole window
+ * keeps clients that failed together from retrying together.
+ */
+public class FullJitterBackoffStrategy implements BackoffStrategy {
+
+  private final long baseDelay;
+
+  private final long maxBackoff;
+
+  /**
+   * @param baseDelay upper bound of the first delay in milliseconds
+   * @param maxBackoff upper bound of all delays in milliseconds
+   */
+  public FullJitterBackoffStrategy(long baseDelay, long maxBackoff) {
+    this.baseDelay = baseDelay;
+    this.maxBackoff = maxBackoff;
+  }
+
+  @Override
+  public long delayBeforeNextRetry(
+      AmazonWebServiceRequest originalRequest,
+      AmazonClientException exception,
+      int retriesAttempted) {
+    long ceiling = maxBackoff;
+    int shift = Math.max(0, retriesAttempted);
+    if (shift < 62 && baseDelay <= maxBackoff >> shift) {
+      ceiling = baseDelay << shift;
+    }
+    return ThreadLocalRandom.current().nextLong(ceiling + 1);
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.retry;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.AmazonServiceException;
+import com.ibm.cloud.objectstorage.AmazonWebServiceRequest;
+import com.ibm.cloud.objectstorage.Request;
+import com.ibm.cloud.objectstorage.Response;
+import com.ibm.cloud.objectstorage.handlers.RequestHandler2;
+import com.ibm.cloud.objectstorage.retry.PredefinedRetryPolicies;
+import com.ibm.cloud.objectstorage.retry.RetryPolicy;
+import com.ibm.cloud.objectstorage.retry.RetryPolicy.BackoffStrategy;
+import com.ibm.cloud.objectstorage.retry.RetryUtils;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3ClientBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retry policy and circuit breaker shared by all threads using one client.
+ *
+ * <p>The retry budget is a token bucket: every retry takes {@code retryCost} tokens and every
+ * successful request returns one, so retries stop once more than about one in {@code retryCost}
+ * requests fails. The circuit breaker opens after {@code breakerThreshold} consecutive requests
+ * failed with a server error, throttling or an I/O error, and then fails requests without sending
+ * them for {@code breakerOpenTime} milliseconds. After that a single request is let through as a
+ * probe while the others keep failing; if it fails the breaker opens again, if it succeeds the
+ * breaker closes. A probe that has not completed after {@code breakerOpenTime} milliseconds is
+ * replaced by the next request.
+ */
+public class RetryController extends RequestHandler2 {
+
+  private final BackoffStrategy backoffStrategy;
+
+  private final Integer maxErrorRetry;
+
+  private final int budgetCapacity;
+
+  private final int retryCost;
+
+  private final int breakerThreshold;
+
+  private final long breakerOpenTime;
+
+  private final AtomicInteger budget;
+
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+  /** end of the open period in epoch milliseconds, 0 while closed */
+  private volatile long openUntil;
+
+  /** start of the outstanding probe in epoch milliseconds, 0 if there is none */
+  private final AtomicLong probeStart = new AtomicLong();
+
+  private final AtomicLong retryCount = new AtomicLong();
+
+  private final AtomicLong budgetExhaustedCount = new AtomicLong();
+
+  private final AtomicLong breakerOpenedCount = new AtomicLong();
+
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  /**
+   * @param backoffStrategy delay between attempts
+   * @param maxErrorRetry (optional) maximum retries per request, the SDK default if null
+   * @param budgetCapacity tokens of the retry budget, 0 for no budget
+   * @param retryCost tokens taken by each retry
+   * @param breakerThreshold consecutive failed requests that open the breaker, 0 for no breaker
+   * @param breakerOpenTime milliseconds the breaker stays open
+   */
+  public RetryController(
+      BackoffStrategy backoffStrategy,
+      Integer maxErrorRetry,
+      int budgetCapacity,
+      int retryCost,
+      int breakerThreshold,
+      long breakerOpenTime) {
+    this.backoffStrategy = backoffStrategy;
+    this.maxErrorRetry = maxErrorRetry;
+    this.budgetCapacity = budgetCapacity;
+    this.retryCost = retryCost;
+    this.breakerThreshold = breakerThreshold;
+    this.breakerOpenTime = breakerOpenTime;
+    this.budget = new AtomicInteger(budgetCapacity);
+  }
+
+  /**
+   * Set the retry policy of the builder's client configuration and add this controller to its
+   * request handlers. The builder must have its own client configuration.
+   *
+   * @param builder builder of the client to control
+   * @return the builder
+   */
+  public AmazonS3ClientBuilder applyTo(AmazonS3ClientBuilder builder) {
+    builder.getClientConfiguration().setRetryPolicy(createRetryPolicy());
+    List<RequestHandler2> handlers = new ArrayList<RequestHandler2>();
+    if (builder.getRequestHandlers() != null) {
+      handlers.addAll(builder.getRequestHandlers());
+    }
+    handlers.add(this);
+    builder.setRequestHandlers(handlers.toArray(new RequestHandler2[handlers.size()]));
+    return builder;
+  }
+
+  /** @return a retry policy using this controller's budget, breaker and backoff */
+  public RetryPolicy createRetryPolicy() {
+    if (maxErrorRetry == null) {
+      // keep honoring ClientConfiguration.setMaxErrorRetry as the SDK default policy does
+      return new RetryPolicy(
+          this::shouldRetry,
+          backoffStrategy,
+          PredefinedRetryPolicies.DEFAULT_MAX_ERROR_RETRY,
+          true);
+    }
+    return new RetryPolicy(this::shouldRetry, backoffStrategy, maxErrorRetry, false);
+  }
+
+  private boolean shouldRetry(
+      AmazonWebServiceRequest originalRequest,
+      AmazonClientException exception,
+      int retriesAttempted) {
+    if (isBreakerOpen()
+        || !PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION.shouldRetry(
+            originalRequest, exception, retriesAttempted)) {
+      return false;
+    }
+    if (budgetCapacity > 0 && !acquireBudget()) {
+      budgetExhaustedCount.incrementAndGet();
+      return false;
+    }
+    retryCount.incrementAndGet();
+    return true;
+  }
+
+  private boolean acquireBudget() {
+    while (true) {
+      int available = budget.get();
+      if (available < retryCost) {
+        return false;
+      }
+      if (budget.compareAndSet(available, available - retryCost)) {
+        return true;
+      }
+    }
+  }
+
+  @Override
+  public AmazonWebServiceRequest beforeExecution(AmazonWebServiceRequest request) {
+    if (openUntil != 0 && !tryProbe()) {
+      rejectedCount.incrementAndGet();
+      throw new CircuitBreakerOpenException(
+          "COS circuit breaker is open after "
+              + consecutiveFailures.get()
+              + " consecutive failed requests");
+    }
+    return request;
+  }
+
+  /** @return whether the open period is over and no other probe is outstanding */
+  private boolean tryProbe() {
+    long now = System.currentTimeMillis();
+    if (now < openUntil) {
+      return false;
+    }
+    long start = probeStart.get();
+    return (start == 0 || now - start >= breakerOpenTime) && probeStart.compareAndSet(start, now);
+  }
+
+  @Override
+  public void afterResponse(Request<?> request, Response<?> response) {
+    if (budgetCapacity > 0) {
+      budget.getAndUpdate(available -> Math.min(budgetCapacity, available + 1));
+    }
+    recordSuccess();
+  }
+
+  @Override
+  public void afterError(Request<?> request, Response<?> response, Exception e) {
+    if (isFailure(e)) {
+      recordFailure();
+    } else {
+      // a client error such as 404 still shows a healthy endpoint
+      recordSuccess();
+    }
+  }
+
+  private static boolean isFailure(Exception e) {
+    if (e instanceof AmazonServiceException) {
+      AmazonServiceException serviceException = (AmazonServiceException) e;
+      return serviceException.getStatusCode() >= 500
+          || RetryUtils.isThrottlingException(serviceException);
+    }
+    return e instanceof AmazonClientException && ((AmazonClientException) e).isRetryable();
+  }
+
+  private void recordSuccess() {
+    consecutiveFailures.set(0);
+    openUntil = 0;
+    probeStart.set(0);
+  }
+
+  private void recordFailure() {
+    if (breakerThreshold > 0 && consecutiveFailures.incrementAndGet() >= breakerThreshold) {
+      if (!isBreakerOpen()) {
+        breakerOpenedCount.incrementAndGet();
+      }
+      openUntil = System.currentTimeMillis() + breakerOpenTime;
+      probeStart.set(0);
+    }
+  }
+
+  /** @return whether requests are currently failed without being sent */
+  public boolean isBreakerOpen() {
+    long until = openUntil;
+    return until != 0 && System.currentTimeMillis() < until;
+  }
+
+  /** @return whether a retry budget limits retries */
+  public boolean isBudgetEnabled() {
+    return budgetCapacity > 0;
+  }
+
+  /** @return whether a circuit breaker fails requests after sustained errors */
+  public boolean isBreakerEnabled() {
+    return breakerThreshold > 0;
+  }
+
+  /** @return tokens left in the retry budget */
+  public int getBudgetAvailable() {
+    return budget.get();
+  }
+
+  /** @return number of retries granted */
+  public long getRetryCount() {
+    return retryCount.get();
+  }
+
+  /** @return number of retries denied because the budget was exhausted */
+  public long getBudgetExhaustedCount() {
+    return budgetExhaustedCount.get();
+  }
+
+  /** @return number of times the breaker opened */
+  public long getBreakerOpenedCount() {
+    return breakerOpenedCount.get();
+  }
+
+  /** @return number of requests failed by the open breaker without being sent */
+  public long getRejectedCount() {
+    return rejectedCount.get();
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.retry;
+
+import com.ibm.cloud.objectstorage.retry.PredefinedRetryPolicies;
+import com.ibm.cloud.objectstorage.retry.RetryPolicy.BackoffStrategy;
+
+/**
+ * Retry settings of the COS client, bound from {@code cos.retry.*}. Unset values keep the SDK
+ * default retry behavior. All durations are in milliseconds.
+ */
+public class RetryProperties {
+
+  /** (optional) maximum retries per request, defaults to the SDK default of 3 */
+  private Integer maxErrorRetry;
+
+  /** delay between attempts: sdk-default or full-jitter */
+  private String backoff = "sdk-default";
+
+  /** upper bound of the first full-jitter delay, doubled with every retry */
+  private long baseDelay = 100;
+
+  /** upper bound of all full-jitter delays */
+  private long maxBackoff = 20 * 1000;
+
+  /** tokens of the retry budget shared by all threads using the client, 0 for no budget */
+  private int budgetCapacity;
+
+  /** budget tokens taken by each retry, each successful request returns one */
+  private int budgetRetryCost = 5;
+
+  /** consecutive failed requests after which requests fail fast, 0 for no circuit breaker */
+  private int breakerThreshold;
+
+  /** time the circuit breaker fails requests before letting one through again */
+  private long breakerOpenTime = 30 * 1000;
+
+  /**
+   * Validate these settings and create a retry controller for one client.
+   *
+   * @return a controller with its own budget and breaker
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public RetryController createRetryController() {
+    validate();
+    return new RetryController(
+        createBackoffStrategy(),
+        maxErrorRetry,
+        budgetCapacity,
+        budgetRetryCost,
+        breakerThreshold,
+        breakerOpenTime);
+  }
+
+  private BackoffStrategy createBackoffStrategy() {
+    if ("full-jitter".equals(backoff)) {
+      return new FullJitterBackoffStrategy(baseDelay, maxBackoff);
+    }
+    return PredefinedRetryPolicies.DEFAULT_BACKOFF_STRATEGY;
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (!"sdk-default".equals(backoff) && !"full-jitter".equals(backoff)) {
+      throw new IllegalArgumentException(
+          String.format(
+              "unknown cos.retry.backoff '%s', expected sdk-default or full-jitter", backoff));
+    }
+    if (maxErrorRetry != null && maxErrorRetry < 0) {
+      throw new IllegalArgumentException("cos.retry.max-error-retry must not be negative");
+    }
+    if (baseDelay < 1 || maxBackoff < baseDelay) {
+      throw new IllegalArgumentException(
+          "cos.retry.base-delay must be greater than 0 and not exceed cos.retry.max-backoff");
+    }
+    if (budgetCapacity < 0) {
+      throw new IllegalArgumentException("cos.retry.budget-capacity must not be negative");
+    }
+    if (budgetRetryCost < 1) {
+      throw new IllegalArgumentException("cos.retry.budget-retry-cost must be greater than 0");
+    }
+    if (breakerThreshold < 0) {
+      throw new IllegalArgumentException("cos.retry.breaker-threshold must not be negative");
+    }
+    if (breakerOpenTime < 1) {
+      throw new IllegalArgumentException("cos.retry.breaker-open-time must be greater than 0");
+    }
+  }
+
+  public Integer getMaxErrorRetry() {
+    return maxErrorRetry;
+  }
+
+  public void setMaxErrorRetry(Integer maxErrorRetry) {
+    this.maxErrorRetry = maxErrorRetry;
+  }
+
+  public String getBackoff() {
+    return backoff;
+  }
+
+  public void setBackoff(String backoff) {
+    this.backoff = backoff;
+  }
+
+  public long getBaseDelay() {
+    return baseDelay;
+  }
+
+  public void setBaseDelay(long baseDelay) {
+    this.baseDelay = baseDelay;
+  }
+
+  public long getMaxBackoff() {
+    return maxBackoff;
+  }
+
+  public void setMaxBackoff(long maxBackoff) {
+    this.maxBackoff = maxBackoff;
+  }
+
+  public int getBudgetCapacity() {
+    return budgetCapacity;
+  }
+
+  public void setBudgetCapacity(int budgetCapacity) {
+    this.budgetCapacity = budgetCapacity;
+  }
+
+  public int getBudgetRetryCost() {
+    return budgetRetryCost;
+  }
+
+  public void setBudgetRetryCost(int budgetRetryCost) {
+    this.budgetRetryCost = budgetRetryCost;
+  }
+
+  public int getBreakerThreshold() {
+    return breakerThreshold;
+  }
+
+  public void setBreakerThreshold(int breakerThreshold) {
+    this.breakerThreshold = breakerThreshold;
+  }
+
+  public long getBreakerOpenTime() {
+    return breakerOpenTime;
+  }
+
+  public void setBreakerOpenTime(long breakerOpenTime) {
+    this.breakerOpenTime = breakerOpenTime;
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.startup;
+
+import com.ibm.cloud.objectstorage.auth.AWSCredentials;
+import com.ibm.cloud.objectstorage.auth.AWSCredentialsProvider;
+import com.ibm.cloud.objectstorage.auth.AWSStaticCredentialsProvider;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Creates the default client according to a {@link StartupMode} and records how long each startup
+ * phase takes. In the lazy and background modes the {@code AmazonS3} bean is a proxy that builds
+ * the SDK client and resolves its credentials on the first call, so contexts that never use COS do
+ * not load most of the SDK. Configuration errors of the client then surface on that first call.
+ *
+ * <p>The recorded phases, in nanoseconds, are:
+ *
+ * <ul>
+ *   <li>{@value #CLIENT_BUILDER}: creating the client builder, including eager credentials
+ *   <li>{@value #CLIENT}: creating the client bean, i.e. building the client or its proxy
+ *   <li>{@value #CLIENT_INITIALIZATION}: building the client behind a proxy
+ *   <li>{@value #FIRST_USE_WAIT}: time the first call waited for the client behind a proxy, absent
+ *       if it was built in the background before
+ * </ul>
+ */
+public class ClientStartup {
+
+  public static final String CLIENT_BUILDER = "client-builder";
+
+  public static final String CLIENT = "client";
+
+  public static final String CLIENT_INITIALIZATION = "client-initialization";
+
+  public static final String FIRST_USE_WAIT = "first-use-wait";
+
+  /** all phases in the order they usually complete */
+  public static final List<String> PHASES =
+      Collections.unmodifiableList(
+          Arrays.asList(CLIENT_BUILDER, CLIENT, CLIENT_INITIALIZATION, FIRST_USE_WAIT));
+
+  private static final Log logger = LogFactory.getLog(ClientStartup.class);
+
+  private final StartupMode mode;
+
+  /** durations in nanoseconds by phase, guarded by itself */
+  private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+
+  private final List<LazyClientHandler> lazyClients = new CopyOnWriteArrayList<LazyClientHandler>();
+
+  public ClientStartup(StartupMode mode) {
+    this.mode = mode;
+  }
+
+  public StartupMode getMode() {
+    return mode;
+  }
+
+  /**
+   * @param credentials resolves the credentials of the client
+   * @return a provider holding the credentials now in eager mode, or resolving them on first use
+   */
+  public AWSCredentialsProvider createCredentialsProvider(Supplier<AWSCredentials> credentials) {
+    if (mode == StartupMode.EAGER) {
+      return new AWSStaticCredentialsProvider(credentials.get());
+    }
+    return new LazyCredentialsProvider(credentials);
+  }
+
+  /**
+   * Create a client, recording the {@value #CLIENT} phase.
+   *
+   * @param factory builds the SDK client, e.g. {@code builder::build}
+   * @return the built client in eager mode, otherwise a proxy building it on first use
+   */
+  public AmazonS3 createClient(Supplier<AmazonS3> factory) {
+    long start = System.nanoTime();
+    AmazonS3 client;
+    if (mode == StartupMode.EAGER) {
+      client = factory.get();
+    } else {
+      LazyClientHandler handler = new LazyClientHandler(factory, this);
+      lazyClients.add(handler);
+      client =
+          (AmazonS3)
+              Proxy.newProxyInstance(
+                  AmazonS3.class.getClassLoader(), new Class<?>[] {AmazonS3.class}, handler);
+    }
+    record(CLIENT, start);
+    return client;
+  }
+
+  /**
+   * Signal that the application is ready. In background mode the clients not used yet are built on
+   * a daemon thread.
+   */
+  public void ready() {
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          "COS startup phases in "
+              + mode.name().toLowerCase(Locale.ENGLISH)
+              + " mode: "
+              + getPhases());
+    }
+    if (mode != StartupMode.BACKGROUND || isInitialized()) {
+      return;
+    }
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cos-startup-");
+    threadFactory.setDaemon(true);
+    threadFactory
+        .newThread(
+            () -> {
+              for (LazyClientHandler lazyClient : lazyClients) {
+                lazyClient.initializeQuietly();
+              }
+            })
+        .start();
+  }
+
+  /** @return whether all clients created by this controller are built */
+  public boolean isInitialized() {
+    for (LazyClientHandler lazyClient : lazyClients) {
+      if (!lazyClient.isInitialized()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Record the duration of a phase from {@code startNanos} until now, replacing an earlier one.
+   *
+   * @param phase phase name
+   * @param startNanos {@link System#nanoTime()} at the start of the phase
+   */
+  public void record(String phase, long startNanos) {
+    long duration = System.nanoTime() - startNanos;
+    synchronized (phases) {
+      phases.put(phase, duration);
+    }
+  }
+
+  void recordIfAbsent(String phase, long startNanos) {
+    long duration = System.nanoTime() - startNanos;
+    synchronized (phases) {
+      phases.putIfAbsent(phase, duration);
+    }
+  }
+
+  /**
+   * @param phase phase name
+   * @return the duration of the phase, or null if it has not completed
+   */
+  public Duration getPhase(String phase) {
+    synchronized (phases) {
+      Long duration = phases.get(phase);
+      return duration != null ? Duration.ofNanos(duration) : null;
+    }
+  }
+
+  /** @return the durations of the completed phases in the order they completed */
+  public Map<String, Duration> getPhases() {
+    Map<String, Duration> durations = new LinkedHashMap<String, Duration>();
+    synchronized (phases) {
+      for (Map.Entry<String, Long> phase : phases.entrySet()) {
+        durations.put(phase.getKey(), Duration.ofNanos(phase.getValue()));
+      }
+    }
+    return durations;
+  }
+}
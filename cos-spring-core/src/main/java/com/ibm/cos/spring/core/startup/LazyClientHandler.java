@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.startup;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.Supplier;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Backs an {@link AmazonS3} proxy that builds the client on the first call. A failed build is
+ * thrown to the caller and retried on the next call. Shutting down a client that was never built
+ * does not build it.
+ */
+final class LazyClientHandler implements InvocationHandler {
+
+  private static final Log logger = LogFactory.getLog(LazyClientHandler.class);
+
+  private final Supplier<AmazonS3> factory;
+
+  private final ClientStartup startup;
+
+  private volatile AmazonS3 client;
+
+  /** guarded by this */
+  private boolean shutDown;
+
+  LazyClientHandler(Supplier<AmazonS3> factory, ClientStartup startup) {
+    this.factory = factory;
+    this.startup = startup;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String name = method.getName();
+    Class<?>[] types = method.getParameterTypes();
+    if (name.equals("equals") && types.length == 1) {
+      return proxy == args[0];
+    }
+    if (name.equals("hashCode") && types.length == 0) {
+      return System.identityHashCode(proxy);
+    }
+    if (name.equals("toString") && types.length == 0 && client == null) {
+      return "AmazonS3 (not initialized)";
+    }
+    if (name.equals("shutdown") && types.length == 0) {
+      synchronized (this) {
+        shutDown = true;
+        if (client == null) {
+          return null;
+        }
+      }
+    }
+
+    AmazonS3 target = client;
+    if (target == null) {
+      long start = System.nanoTime();
+      target = initialize();
+      startup.recordIfAbsent(ClientStartup.FIRST_USE_WAIT, start);
+    }
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  boolean isInitialized() {
+    return client != null;
+  }
+
+  synchronized AmazonS3 initialize() {
+    if (client != null) {
+      return client;
+    }
+    if (shutDown) {
+      throw new IllegalStateException("client has been shut down");
+    }
+    long start = System.nanoTime();
+    client = factory.get();
+    startup.record(ClientStartup.CLIENT_INITIALIZATION, start);
+    if (logger.isInfoEnabled()) {
+      logger.info(
+          "Built COS client in "
+              + startup.getPhase(ClientStartup.CLIENT_INITIALIZATION).toMillis()
+              + " ms");
+    }
+    return client;
+  }
+
+  void initializeQuietly() {
+    try {
+      initialize();
+    } catch (RuntimeException e) {
+      logger.warn("Unable to build COS client in the background, retrying on first use", e);
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.startup;
+
+import com.ibm.cloud.objectstorage.auth.AWSCredentials;
+import com.ibm.cloud.objectstorage.auth.AWSCredentialsProvider;
+import java.util.function.Supplier;
+
+/** Resolves credentials once, on the first request that signs with them. */
+final class LazyCredentialsProvider implements AWSCredentialsProvider {
+
+  private final Supplier<AWSCredentials> supplier;
+
+  private volatile AWSCredentials credentials;
+
+  LazyCredentialsProvider(Supplier<AWSCredentials> supplier) {
+    this.supplier = supplier;
+  }
+
+  @Override
+  public AWSCredentials getCredentials() {
+    AWSCredentials resolved = credentials;
+    if (resolved == null) {
+      synchronized (this) {
+        resolved = credentials;
+        if (resolved == null) {
+          resolved = supplier.get();
+          credentials = resolved;
+        }
+      }
+    }
+    return resolved;
+  }
+
+  @Override
+  public void refresh() {}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.startup;
+
+import java.util.Locale;
+
+/** When the SDK client behind the {@code AmazonS3} bean is built. */
+public enum StartupMode {
+
+  /** during the context refresh */
+  EAGER,
+
+  /** on its first use, behind a lightweight proxy */
+  LAZY,
+
+  /** in a background thread once the application is ready, or on first use if that is earlier */
+  BACKGROUND;
+
+  /**
+   * Resolve a mode from its property value.
+   *
+   * @param name mode name, case insensitive
+   * @return the matching mode
+   * @throws IllegalArgumentException if no mode matches the name
+   */
+  public static StartupMode forName(String name) {
+    String normalized = name.trim().toUpperCase(Locale.ENGLISH);
+    for (StartupMode mode : values()) {
+      if (mode.name().equals(normalized)) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException(
+        String.format(
+            "unknown startup mode '%s', expected one of eager, lazy or background", name));
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.startup;
+
+/**
+ * Startup settings, bound from {@code cos.startup.*}. The default client is built during the
+ * context refresh unless {@code cos.startup.mode} is {@code lazy} or {@code background}.
+ */
+public class StartupProperties {
+
+  /** when the client is built: eager, lazy or background */
+  private String mode = "eager";
+
+  /**
+   * Validate these settings and create the startup controller of the default client.
+   *
+   * @return a controller using these settings
+   * @throws IllegalArgumentException if a setting is invalid
+   */
+  public ClientStartup createClientStartup() {
+    validate();
+    return new ClientStartup(StartupMode.forName(mode));
+  }
+
+  /**
+   * Check that all configured values are valid.
+   *
+   * @throws IllegalArgumentException if a setting is invalid
+   */
+  public void validate() {
+    StartupMode.forName(mode);
+  }
+
+  public String getMode() {
+    return mode;
+  }
+
+  public void setMode(String mode) {
+    this.mode = mode;
+  }
+}
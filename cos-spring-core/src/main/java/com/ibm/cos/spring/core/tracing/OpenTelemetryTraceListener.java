@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.tracing;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Emits a client span per sampled request through the global OpenTelemetry instance. The span is
+ * started on the calling thread, so it is a child of the current span, and carries the time of each
+ * phase in milliseconds as {@code cos.phase.<name>} attributes.
+ */
+public class OpenTelemetryTraceListener implements RequestTraceListener {
+
+  static final String INSTRUMENTATION_NAME = "com.ibm.cos.spring";
+
+  private final Tracer tracer = GlobalOpenTelemetry.getTracer(INSTRUMENTATION_NAME);
+
+  @Override
+  public void requestStarted(RequestTrace trace) {
+    Span span =
+        tracer
+            .spanBuilder("S3." + trace.getOperation())
+            .setSpanKind(SpanKind.CLIENT)
+            .setAttribute("rpc.system", "aws-api")
+            .setAttribute("rpc.service", "S3")
+            .setAttribute("rpc.method", trace.getOperation())
+            .startSpan();
+    if (trace.getBucket() != null) {
+      span.setAttribute("aws.s3.bucket", trace.getBucket());
+    }
+    if (trace.getKey() != null) {
+      span.setAttribute("aws.s3.key", trace.getKey());
+    }
+    trace.setAttachment(span);
+  }
+
+  @Override
+  public void requestCompleted(RequestTrace trace) {
+    if (!(trace.getAttachment() instanceof Span)) {
+      return;
+    }
+    Span span = (Span) trace.getAttachment();
+    if (trace.getStatusCode() > 0) {
+      span.setAttribute("http.response.status_code", (long) trace.getStatusCode());
+    }
+    span.setAttribute("cos.attempts", (long) trace.getAttempts());
+    for (Map.Entry<RequestPhase, Duration> phase : trace.getPhases().entrySet()) {
+      span.setAttribute(
+          "cos.phase." + phase.getKey().getName(), phase.getValue().toNanos() / 1_000_000.0);
+    }
+    if (trace.getError() != null) {
+      span.recordException(trace.getError());
+      span.setStatus(StatusCode.ERROR);
+    }
+    span.end();
+  }
+}
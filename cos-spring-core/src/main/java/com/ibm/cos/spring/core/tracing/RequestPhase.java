@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.tracing;
+
+/** Phases of a traced COS request, in the order they usually occur. */
+public enum RequestPhase {
+
+  /** Waiting for a pooled connection, plus HTTP client overhead not covered by other phases */
+  POOL_WAIT("pool-wait"),
+
+  /** Resolving the endpoint host name for a new connection */
+  DNS("dns"),
+
+  /** Establishing the TCP connection of a new connection */
+  CONNECT("connect"),
+
+  /** TLS handshake of a new connection */
+  TLS("tls"),
+
+  /** Writing the request line, headers and body */
+  SEND("send"),
+
+  /** Waiting for the response headers, i.e. the time to first byte */
+  FIRST_BYTE("first-byte"),
+
+  /** Reading and unmarshalling the response */
+  RESPONSE("response"),
+
+  /** Streaming an object body to the caller, until it is read to the end or closed */
+  BODY("body"),
+
+  /** Backing off between attempts */
+  RETRY_PAUSE("retry-pause");
+
+  private final String name;
+
+  RequestPhase(String name) {
+    this.name = name;
+  }
+
+  /** @return the dashed name used in logs and span attributes, e.g. {@code first-byte} */
+  public String getName() {
+    return name;
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.tracing;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing breakdown of a single sampled client call. Phases are summed over all attempts of the
+ * call; connection phases are zero when a pooled connection was reused.
+ */
+public final class RequestTrace {
+
+  private final String operation;
+
+  private final String bucket;
+
+  private final String key;
+
+  private final long startTime = System.currentTimeMillis();
+
+  private final long startNanos = System.nanoTime();
+
+  private final long[] phaseNanos = new long[RequestPhase.values().length];
+
+  private volatile long durationNanos = -1;
+
+  private volatile int statusCode;
+
+  private volatile int attempts;
+
+  private volatile Throwable error;
+
+  /** span or other state attached by a listener when the request started */
+  private volatile Object attachment;
+
+  RequestTrace(String operation, String bucket, String key) {
+    this.operation = operation;
+    this.bucket = bucket;
+    this.key = key;
+  }
+
+  synchronized void add(RequestPhase phase, long nanos) {
+    phaseNanos[phase.ordinal()] += Math.max(nanos, 0);
+  }
+
+  synchronized long get(RequestPhase phase) {
+    return phaseNanos[phase.ordinal()];
+  }
+
+  void complete(int statusCode, int attempts, Throwable error) {
+    this.statusCode = statusCode;
+    this.attempts = attempts;
+    this.error = error;
+  }
+
+  void end() {
+    durationNanos = System.nanoTime() - startNanos;
+  }
+
+  Object getAttachment() {
+    return attachment;
+  }
+
+  void setAttachment(Object attachment) {
+    this.attachment = attachment;
+  }
+
+  /** @return the operation named after the request class, e.g. {@code GetObject} */
+  public String getOperation() {
+    return operation;
+  }
+
+  /** @return the bucket of the request, or null if it has none */
+  public String getBucket() {
+    return bucket;
+  }
+
+  /** @return the object key of the request, or null if it has none */
+  public String getKey() {
+    return key;
+  }
+
+  /** @return the HTTP status of the last attempt, or 0 if no response was received */
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  /** @return the number of HTTP attempts including retries */
+  public int getAttempts() {
+    return attempts;
+  }
+
+  /** @return the exception the call failed with, or null if it succeeded */
+  public Throwable getError() {
+    return error;
+  }
+
+  /** @return when the call started, in epoch milliseconds */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /** @return the duration from the start of the call until the trace completed */
+  public Duration getDuration() {
+    long nanos = durationNanos;
+    return Duration.ofNanos(nanos < 0 ? System.nanoTime() - startNanos : nanos);
+  }
+
+  /**
+   * @param phase phase to look up
+   * @return the time spent in the phase, zero if it did not occur
+   */
+  public Duration getPhase(RequestPhase phase) {
+    return Duration.ofNanos(get(phase));
+  }
+
+  /** @return the time spent in each phase, in phase order */
+  public synchronized Map<RequestPhase, Duration> getPhases() {
+    Map<RequestPhase, Duration> phases = new EnumMap<RequestPhase, Duration>(RequestPhase.class);
+    for (RequestPhase phase : RequestPhase.values()) {
+      phases.put(phase, Duration.ofNanos(phaseNanos[phase.ordinal()]));
+    }
+    return Collections.unmodifiableMap(phases);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder(operation);
+    if (bucket != null) {
+      text.append(' ').append(bucket);
+      if (key != null) {
+        text.append('/').append(key);
+      }
+    }
+    text.append(' ')
+        .append(statusCode > 0 ? Integer.toString(statusCode) : "failed")
+        .append(" in ")
+        .append(millis(getDuration().toNanos()))
+        .append(", ")
+        .append(attempts)
+        .append(attempts == 1 ? " attempt" : " attempts");
+    String separator = " (";
+    for (RequestPhase phase : RequestPhase.values()) {
+      text.append(separator).append(phase.getName()).append(' ').append(millis(get(phase)));
+      separator = ", ";
+    }
+    return text.append(')').toString();
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.1f ms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.tracing;
+
+/** Receives the sampled requests of a {@link RequestTracer}. */
+public interface RequestTraceListener {
+
+  /**
+   * Called on the calling thread before a sampled request is sent.
+   *
+   * @param trace trace of the request, without phases yet
+   */
+  default void requestStarted(RequestTrace trace) {}
+
+  /**
+   * Called once all phases of a sampled request are known. For {@code GetObject} this is when the
+   * object content has been read to the end or closed, possibly on another thread.
+   *
+   * @param trace completed trace of the request
+   */
+  void requestCompleted(RequestTrace trace);
+}
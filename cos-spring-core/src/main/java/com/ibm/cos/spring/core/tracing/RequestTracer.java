@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.tracing;
+
+import com.ibm.cloud.objectstorage.ClientConfiguration;
+import com.ibm.cloud.objectstorage.Request;
+import com.ibm.cloud.objectstorage.handlers.RequestHandler2;
+import com.ibm.cloud.objectstorage.http.SystemPropertyTlsKeyManagersProvider;
+import com.ibm.cloud.objectstorage.http.TlsKeyManagersProvider;
+import com.ibm.cloud.objectstorage.http.conn.ssl.SdkTLSSocketFactory;
+import com.ibm.cloud.objectstorage.http.settings.HttpClientSettings;
+import com.ibm.cloud.objectstorage.internal.SdkSSLContext;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3ClientBuilder;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Records a {@link RequestTrace} for a sample of the calls of one client and passes it to the
+ * listeners.
+ *
+ * <p>Send, first byte, response and retry pause times come from the SDK request metrics. DNS,
+ * connect and TLS times are measured by wrapping the client's DNS resolver and TLS socket factory,
+ * so they are only known for HTTPS endpoints; for plain HTTP the connect time is part of the pool
+ * wait. The pool wait itself is not exposed by the SDK and is the remainder of the HTTP exchange.
+ * The body of {@code GetObject} is timed until its content is read to the end or closed.
+ */
+public class RequestTracer extends RequestHandler2 {
+
+  private static final Log logger = LogFactory.getLog(RequestTracer.class);
+
+  private static final ThreadLocal<RequestTrace> current = new ThreadLocal<RequestTrace>();
+
+  private final double sampleRate;
+
+  private final List<RequestTraceListener> listeners;
+
+  private final Map<String, Optional<Method>> accessors =
+      new ConcurrentHashMap<String, Optional<Method>>();
+
+  /**
+   * @param sampleRate fraction of calls to trace, between 0 and 1
+   * @param listeners receivers of the sampled traces
+   */
+  public RequestTracer(double sampleRate, List<RequestTraceListener> listeners) {
+    this.sampleRate = sampleRate;
+    this.listeners = Collections.unmodifiableList(new ArrayList<RequestTraceListener>(listeners));
+  }
+
+  /**
+   * Add this tracer to the request handlers and metrics collector of the builder, and wrap the DNS
+   * resolver and TLS socket factory of its client configuration. Apply it after any other
+   * customization, as an existing metrics collector is kept and called first. The builder must have
+   * its own client configuration.
+   *
+   * @param builder builder of the client to trace
+   * @return the builder
+   */
+  public AmazonS3ClientBuilder applyTo(AmazonS3ClientBuilder builder) {
+    ClientConfiguration clientConfig = builder.getClientConfiguration();
+    clientConfig.setDnsResolver(new TracingDnsResolver(clientConfig.getDnsResolver()));
+    ConnectionSocketFactory sslSocketFactory =
+        clientConfig.getApacheHttpClientConfig().getSslSocketFactory();
+    if (sslSocketFactory == null) {
+      sslSocketFactory = defaultSslSocketFactory(clientConfig);
+    }
+    clientConfig
+        .getApacheHttpClientConfig()
+        .setSslSocketFactory(new TracingSocketFactory(sslSocketFactory));
+
+    builder.setMetricsCollector(new TracingMetricCollector(this, builder.getMetricsCollector()));
+    List<RequestHandler2> handlers = new ArrayList<RequestHandler2>();
+    if (builder.getRequestHandlers() != null) {
+      handlers.addAll(builder.getRequestHandlers());
+    }
+    handlers.add(this);
+    builder.setRequestHandlers(handlers.toArray(new RequestHandler2[handlers.size()]));
+    return builder;
+  }
+
+  /**
+   * Create the TLS socket factory the SDK creates for a client configuration without one, with the
+   * configured key managers, secure random and hostname verifier, so tracing keeps its behaviour.
+   */
+  @SuppressWarnings("deprecation")
+  private static ConnectionSocketFactory defaultSslSocketFactory(ClientConfiguration clientConfig) {
+    HttpClientSettings settings = HttpClientSettings.adapt(clientConfig);
+    TlsKeyManagersProvider keyManagers = settings.getTlsKeyMangersProvider();
+    if (keyManagers == null) {
+      keyManagers = new SystemPropertyTlsKeyManagersProvider();
+    }
+    return new SdkTLSSocketFactory(
+        SdkSSLContext.getPreferredSSLContext(
+            keyManagers.getKeyManagers(), settings.getSecureRandom()),
+        settings.useBrowserCompatibleHostNameVerifier()
+            ? SSLConnectionSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER
+            : SSLConnectionSocketFactory.STRICT_HOSTNAME_VERIFIER);
+  }
+
+  @Override
+  public void beforeRequest(Request<?> request) {
+    if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+      current.remove();
+      return;
+    }
+    Object original = request.getOriginalRequest();
+    RequestTrace trace =
+        new RequestTrace(
+            operation(original), property(original, "getBucketName"), property(original, "getKey"));
+    current.set(trace);
+    for (RequestTraceListener listener : listeners) {
+      try {
+        listener.requestStarted(trace);
+      } catch (RuntimeException e) {
+        logger.warn("COS request trace listener failed", e);
+      }
+    }
+  }
+
+  /** @return the fraction of calls traced */
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  /** @return the receivers of the sampled traces */
+  public List<RequestTraceListener> getListeners() {
+    return listeners;
+  }
+
+  /** Add the time since {@code startNanos} to a phase of the call traced on this thread, if any. */
+  static void record(RequestPhase phase, long startNanos) {
+    add(phase, System.nanoTime() - startNanos);
+  }
+
+  /** Add time to a phase of the call traced on the calling thread, if any. */
+  static void add(RequestPhase phase, long nanos) {
+    RequestTrace trace = current.get();
+    if (trace != null) {
+      trace.add(phase, nanos);
+    }
+  }
+
+  /** Remove and return the trace of the calling thread once the SDK is done with the request. */
+  static RequestTrace take() {
+    RequestTrace trace = current.get();
+    current.remove();
+    return trace;
+  }
+
+  void completed(RequestTrace trace) {
+    trace.end();
+    for (RequestTraceListener listener : listeners) {
+      try {
+        listener.requestCompleted(trace);
+      } catch (RuntimeException e) {
+        logger.warn("COS request trace listener failed", e);
+      }
+    }
+  }
+
+  private static String operation(Object original) {
+    String name = original.getClass().getSimpleName();
+    return name.endsWith("Request") ? name.substring(0, name.length() - "Request".length()) : name;
+  }
+
+  private String property(Object original, String getter) {
+    Method accessor =
+        accessors
+            .computeIfAbsent(
+                original.getClass().getName() + '.' + getter,
+                name ->
+                    Optional.ofNullable(ReflectionUtils.findMethod(original.getClass(), getter)))
+            .orElse(null);
+    Object value = accessor != null ? ReflectionUtils.invokeMethod(accessor, original) : null;
+    return value instanceof String ? (String) value : null;
+  }
+}
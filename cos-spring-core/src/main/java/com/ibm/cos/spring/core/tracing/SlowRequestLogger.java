@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.tracing;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/** Logs sampled requests that took at least the threshold, with their phase breakdown. */
+public class SlowRequestLogger implements RequestTraceListener {
+
+  private static final Log logger = LogFactory.getLog(SlowRequestLogger.class);
+
+  private final long thresholdNanos;
+
+  /** @param threshold milliseconds from which a request is logged, 0 to log all */
+  public SlowRequestLogger(long threshold) {
+    this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(threshold);
+  }
+
+  @Override
+  public void requestCompleted(RequestTrace trace) {
+    if (trace.getDuration().toNanos() >= thresholdNanos && logger.isWarnEnabled()) {
+      logger.warn("Slow COS request " + trace);
+    }
+  }
+}
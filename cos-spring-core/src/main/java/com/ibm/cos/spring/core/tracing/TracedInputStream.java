@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.tracing;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Object content that completes its request trace once read to the end or closed. */
+final class TracedInputStream extends FilterInputStream {
+
+  private final RequestTracer tracer;
+
+  private final long start = System.nanoTime();
+
+  private RequestTrace trace;
+
+  TracedInputStream(InputStream in, RequestTracer tracer, RequestTrace trace) {
+    super(in);
+    this.tracer = tracer;
+    this.trace = trace;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if (b < 0) {
+      complete();
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int n = super.read(b, off, len);
+    if (n < 0) {
+      complete();
+    }
+    return n;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      complete();
+    }
+  }
+
+  private void complete() {
+    RequestTrace completed = trace;
+    if (completed != null) {
+      trace = null;
+      completed.add(RequestPhase.BODY, System.nanoTime() - start);
+      tracer.completed(completed);
+    }
+  }
+}
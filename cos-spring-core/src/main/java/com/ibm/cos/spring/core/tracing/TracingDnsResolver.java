@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.tracing;
+
+import com.ibm.cloud.objectstorage.DnsResolver;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/** Records the time of each lookup in the trace of the calling thread. */
+final class TracingDnsResolver implements DnsResolver {
+
+  private final DnsResolver delegate;
+
+  TracingDnsResolver(DnsResolver delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public InetAddress[] resolve(String host) throws UnknownHostException {
+    long start = System.nanoTime();
+    try {
+      return delegate.resolve(host);
+    } finally {
+      RequestTracer.record(RequestPhase.DNS, start);
+    }
+  }
+}
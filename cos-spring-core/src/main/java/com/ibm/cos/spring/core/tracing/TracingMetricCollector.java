@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.tracing;
+
+import com.ibm.cloud.objectstorage.AmazonServiceException;
+import com.ibm.cloud.objectstorage.Request;
+import com.ibm.cloud.objectstorage.Response;
+import com.ibm.cloud.objectstorage.metrics.RequestMetricCollector;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectInputStream;
+import com.ibm.cloud.objectstorage.util.AWSRequestMetrics;
+import com.ibm.cloud.objectstorage.util.AWSRequestMetrics.Field;
+import com.ibm.cloud.objectstorage.util.TimingInfo;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Completes the trace of the calling thread from the SDK request metrics. Also enables those
+ * metrics, which the SDK only collects while a collector is set.
+ */
+final class TracingMetricCollector extends RequestMetricCollector {
+
+  private final RequestTracer tracer;
+
+  private final RequestMetricCollector delegate;
+
+  TracingMetricCollector(RequestTracer tracer, RequestMetricCollector delegate) {
+    this.tracer = tracer;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void collectMetrics(Request<?> request, Response<?> response) {
+    if (delegate != null) {
+      delegate.collectMetrics(request, response);
+    }
+    RequestTrace trace = RequestTracer.take();
+    if (trace == null) {
+      return;
+    }
+
+    AWSRequestMetrics metrics = request.getAWSRequestMetrics();
+    TimingInfo timing = metrics.getTimingInfo();
+    long send = nanos(timing, Field.HttpClientSendRequestTime);
+    long firstByte = nanos(timing, Field.HttpClientReceiveResponseTime);
+    trace.add(RequestPhase.SEND, send);
+    trace.add(RequestPhase.FIRST_BYTE, firstByte);
+    trace.add(RequestPhase.RESPONSE, nanos(timing, Field.ResponseProcessingTime));
+    trace.add(RequestPhase.RETRY_PAUSE, nanos(timing, Field.RetryPauseTime));
+    trace.add(
+        RequestPhase.POOL_WAIT,
+        nanos(timing, Field.HttpRequestTime)
+            - trace.get(RequestPhase.DNS)
+            - trace.get(RequestPhase.CONNECT)
+            - trace.get(RequestPhase.TLS)
+            - send
+            - firstByte);
+
+    Number attempts = timing.getCounter(Field.RequestCount.name());
+    trace.complete(
+        status(metrics, response),
+        attempts != null ? attempts.intValue() : 1,
+        response == null ? lastException(metrics) : null);
+
+    Object result = response != null ? response.getAwsResponse() : null;
+    if (result instanceof S3Object && ((S3Object) result).getObjectContent() != null) {
+      S3Object object = (S3Object) result;
+      S3ObjectInputStream content = object.getObjectContent();
+      object.setObjectContent(
+          new S3ObjectInputStream(
+              new TracedInputStream(content, tracer, trace), content.getHttpRequest()));
+    } else {
+      tracer.completed(trace);
+    }
+  }
+
+  private static long nanos(TimingInfo timing, Field field) {
+    List<TimingInfo> measurements = timing.getAllSubMeasurements(field.name());
+    if (measurements == null) {
+      return 0;
+    }
+    double millis = 0;
+    for (TimingInfo measurement : measurements) {
+      Double taken = measurement.getTimeTakenMillisIfKnown();
+      millis += taken != null ? taken : 0;
+    }
+    return (long) (millis * TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  private static int status(AWSRequestMetrics metrics, Response<?> response) {
+    if (response != null) {
+      return response.getHttpResponse().getStatusCode();
+    }
+    Throwable exception = lastException(metrics);
+    return exception instanceof AmazonServiceException
+        ? ((AmazonServiceException) exception).getStatusCode()
+        : 0;
+  }
+
+  private static Throwable lastException(AWSRequestMetrics metrics) {
+    List<Object> exceptions = metrics.getProperty(Field.Exception);
+    if (exceptions == null || exceptions.isEmpty()) {
+      return null;
+    }
+    Object last = exceptions.get(exceptions.size() - 1);
+    return last instanceof Throwable ? (Throwable) last : null;
+  }
+}
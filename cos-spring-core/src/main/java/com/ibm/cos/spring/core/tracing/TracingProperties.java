@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.tracing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Request tracing settings, bound from {@code cos.tracing.*}. When enabled, a sample of the calls
+ * of the default client is timed per phase and calls slower than {@code slow-threshold}
+ * milliseconds are logged with their breakdown.
+ */
+public class TracingProperties {
+
+  static final String OPENTELEMETRY_CLASS = "io.opentelemetry.api.GlobalOpenTelemetry";
+
+  /** trace the calls of the default client */
+  private boolean enabled;
+
+  /** fraction of calls to trace, between 0 and 1 */
+  private double sampleRate = 1.0;
+
+  /** milliseconds from which a traced call is logged, 0 to log all */
+  private long slowThreshold = 1000;
+
+  /** also emit a span per traced call, requires the OpenTelemetry API */
+  private boolean opentelemetry;
+
+  /**
+   * Validate these settings and create a tracer logging slow calls and, if enabled, emitting
+   * OpenTelemetry spans.
+   *
+   * @return a tracer using these settings
+   * @throws IllegalArgumentException if a setting is invalid
+   */
+  public RequestTracer createTracer() {
+    return createTracer(Collections.<RequestTraceListener>emptyList());
+  }
+
+  /**
+   * Validate these settings and create a tracer that also passes its traces to the given listeners.
+   *
+   * @param additionalListeners listeners called after the slow-request log and span listener
+   * @return a tracer using these settings
+   * @throws IllegalArgumentException if a setting is invalid
+   */
+  public RequestTracer createTracer(List<RequestTraceListener> additionalListeners) {
+    validate();
+    List<RequestTraceListener> listeners = new ArrayList<RequestTraceListener>();
+    listeners.add(new SlowRequestLogger(slowThreshold));
+    if (opentelemetry) {
+      listeners.add(new OpenTelemetryTraceListener());
+    }
+    listeners.addAll(additionalListeners);
+    return new RequestTracer(sampleRate, listeners);
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is invalid
+   */
+  public void validate() {
+    if (!(sampleRate >= 0 && sampleRate <= 1)) {
+      throw new IllegalArgumentException("cos.tracing.sample-rate must be between 0 and 1");
+    }
+    if (slowThreshold < 0) {
+      throw new IllegalArgumentException("cos.tracing.slow-threshold must not be negative");
+    }
+    if (opentelemetry
+        && !ClassUtils.isPresent(OPENTELEMETRY_CLASS, TracingProperties.class.getClassLoader())) {
+      throw new IllegalArgumentException(
+          "cos.tracing.opentelemetry requires io.opentelemetry:opentelemetry-api on the class path");
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  public void setSampleRate(double sampleRate) {
+    this.sampleRate = sampleRate;
+  }
+
+  public long getSlowThreshold() {
+    return slowThreshold;
+  }
+
+  public void setSlowThreshold(long slowThreshold) {
+    this.slowThreshold = slowThreshold;
+  }
+
+  public boolean isOpentelemetry() {
+    return opentelemetry;
+  }
+
+  public void setOpentelemetry(boolean opentelemetry) {
+    this.opentelemetry = opentelemetry;
+  }
+}
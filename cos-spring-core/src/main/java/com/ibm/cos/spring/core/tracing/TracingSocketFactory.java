@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.tracing;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Splits the connection setup of a TLS socket factory into TCP connect and handshake time. The
+ * delegate connects a socket created here, which measures its own connect, so the delegate's
+ * handshake, hostname verification and error handling are kept.
+ */
+final class TracingSocketFactory implements LayeredConnectionSocketFactory {
+
+  private final ConnectionSocketFactory delegate;
+
+  TracingSocketFactory(ConnectionSocketFactory delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Socket createSocket(HttpContext context) throws IOException {
+    return new TimedSocket();
+  }
+
+  @Override
+  public Socket connectSocket(
+      int connectTimeout,
+      Socket socket,
+      HttpHost host,
+      InetSocketAddress remoteAddress,
+      InetSocketAddress localAddress,
+      HttpContext context)
+      throws IOException {
+    long start = System.nanoTime();
+    try {
+      return delegate.connectSocket(
+          connectTimeout, socket, host, remoteAddress, localAddress, context);
+    } finally {
+      long total = System.nanoTime() - start;
+      long connect = socket instanceof TimedSocket ? ((TimedSocket) socket).connectNanos : total;
+      RequestTracer.add(RequestPhase.CONNECT, connect);
+      RequestTracer.add(RequestPhase.TLS, total - connect);
+    }
+  }
+
+  @Override
+  public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+      throws IOException {
+    if (!(delegate instanceof LayeredConnectionSocketFactory)) {
+      throw new IOException("TLS socket factory does not support layering");
+    }
+    long start = System.nanoTime();
+    try {
+      return ((LayeredConnectionSocketFactory) delegate)
+          .createLayeredSocket(socket, target, port, context);
+    } finally {
+      RequestTracer.record(RequestPhase.TLS, start);
+    }
+  }
+
+  /** Plain socket remembering how long its connect took. */
+  static final class TimedSocket extends Socket {
+
+    volatile long connectNanos;
+
+    @Override
+    public void connect(SocketAddress endpoint, int timeout) throws IOException {
+      long start = System.nanoTime();
+      try {
+        super.connect(endpoint, timeout);
+      } finally {
+        connectNanos = System.nanoTime() - start;
+      }
+    }
+  }
+}
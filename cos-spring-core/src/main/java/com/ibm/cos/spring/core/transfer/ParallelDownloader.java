@@ -0,0 +1,309 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.transfer;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectInputStream;
+import com.ibm.cos.spring.core.compression.ObjectCompressor;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads an object into a file with concurrent ranged GET requests. Every part is written at its
+ * offset straight into a pre-allocated {@link FileChannel}, or into a {@link MappedByteBuffer} of
+ * its region, without assembling the object on the heap.
+ *
+ * <p>A part whose connection fails is resumed from the last byte written, up to {@code partRetries}
+ * times. All parts are requested with the ETag of the object, so an object replaced during the
+ * download fails instead of mixing versions. If the ETag is the MD5 digest of the object, i.e. it
+ * was not uploaded in parts, the file is verified against it afterwards. Objects recorded as
+ * compressed by an {@link ObjectCompressor} are downloaded with a single GET, as their ranges can
+ * only be read by decompressing the object from its start.
+ *
+ * <p>Parts run on the given executor, typically the transfer pool. Downloads must therefore not be
+ * started from threads of that executor.
+ */
+public class ParallelDownloader {
+
+  private static final Pattern MD5_ETAG = Pattern.compile("[0-9a-fA-F]{32}");
+
+  /** bytes written per call, the progress kept when a response fails */
+  private static final long CHUNK_SIZE = 1024 * 1024;
+
+  private static final int VERIFY_BUFFER_SIZE = 1024 * 1024;
+
+  private final AmazonS3 client;
+
+  private final ExecutorService executor;
+
+  private final long partSize;
+
+  private final int partRetries;
+
+  private final boolean memoryMapped;
+
+  private final boolean verify;
+
+  /**
+   * @param client client sending the ranged GET requests
+   * @param executor executor running the parts
+   * @param partSize size of each ranged GET in bytes
+   * @param partRetries attempts to resume a failed part
+   * @param memoryMapped write parts into memory-mapped regions instead of through the channel
+   * @param verify verify single-part objects against their MD5 ETag after the download
+   */
+  public ParallelDownloader(
+      AmazonS3 client,
+      ExecutorService executor,
+      long partSize,
+      int partRetries,
+      boolean memoryMapped,
+      boolean verify) {
+    this.client = client;
+    this.executor = executor;
+    this.partSize = partSize;
+    this.partRetries = partRetries;
+    this.memoryMapped = memoryMapped;
+    this.verify = verify;
+  }
+
+  /**
+   * Download an object into a file, replacing it. The file is deleted if the download fails.
+   *
+   * @param bucket bucket of the object
+   * @param key key of the object
+   * @param destination file to write
+   * @return metadata of the downloaded object
+   * @throws AmazonClientException if the download or the verification fails
+   */
+  public ObjectMetadata download(String bucket, String key, File destination) {
+    ObjectMetadata metadata = client.getObjectMetadata(bucket, key);
+    long length = metadata.getContentLength();
+    String etag = metadata.getETag();
+    if (metadata.getUserMetaDataOf(ObjectCompressor.CODEC_METADATA) != null) {
+      return downloadWhole(bucket, key, etag, destination);
+    }
+
+    boolean complete = false;
+    try (FileChannel channel =
+        FileChannel.open(
+            destination.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      if (length > 0) {
+        // pre-allocate, positional writes beyond the end of the file would leave gaps
+        channel.write(ByteBuffer.allocate(1), length - 1);
+      }
+
+      List<Future<Void>> parts = new ArrayList<Future<Void>>();
+      for (long offset = 0; offset < length; offset += partSize) {
+        long start = offset;
+        long end = Math.min(length, offset + partSize) - 1;
+        parts.add(executor.submit(new Part(bucket, key, etag, channel, start, end)));
+      }
+      awaitAll(parts);
+
+      if (verify && etag != null && MD5_ETAG.matcher(etag).matches()) {
+        verifyDigest(channel, length, etag, key);
+      }
+      complete = true;
+      return metadata;
+    } catch (IOException e) {
+      throw new AmazonClientException("Unable to write " + destination, e);
+    } finally {
+      if (!complete) {
+        destination.delete();
+      }
+    }
+  }
+
+  private ObjectMetadata downloadWhole(String bucket, String key, String etag, File destination) {
+    boolean complete = false;
+    try {
+      ObjectMetadata metadata =
+          client.getObject(
+              new GetObjectRequest(bucket, key).withMatchingETagConstraint(etag), destination);
+      if (metadata == null) {
+        throw new AmazonClientException(key + " was replaced during the download");
+      }
+      complete = true;
+      return metadata;
+    } finally {
+      if (!complete) {
+        destination.delete();
+      }
+    }
+  }
+
+  /** A ranged GET that resumes from the last byte written when its response fails. */
+  private final class Part implements Callable<Void> {
+
+    private final String bucket;
+
+    private final String key;
+
+    private final String etag;
+
+    private final FileChannel channel;
+
+    private final long end;
+
+    /** next byte to write */
+    private long position;
+
+    Part(String bucket, String key, String etag, FileChannel channel, long start, long end) {
+      this.bucket = bucket;
+      this.key = key;
+      this.etag = etag;
+      this.channel = channel;
+      this.position = start;
+      this.end = end;
+    }
+
+    @Override
+    public Void call() throws IOException {
+      int failures = 0;
+      while (position <= end) {
+        GetObjectRequest request = new GetObjectRequest(bucket, key).withRange(position, end);
+        if (etag != null) {
+          request.withMatchingETagConstraint(etag);
+        }
+        // failed requests are retried by the client's retry policy
+        S3Object object = client.getObject(request);
+        if (object == null) {
+          throw new AmazonClientException(key + " was replaced during the download");
+        }
+
+        S3ObjectInputStream in = object.getObjectContent();
+        try {
+          write(Channels.newChannel(in));
+        } catch (IOException | AmazonClientException e) {
+          if (failures >= partRetries) {
+            throw e;
+          }
+        } finally {
+          if (position <= end) {
+            // do not drain the rest of a failed response
+            in.abort();
+            failures++;
+          } else {
+            in.close();
+          }
+        }
+        if (failures > partRetries) {
+          throw new AmazonClientException(
+              String.format("Unable to read bytes %d-%d of %s", position, end, key));
+        }
+      }
+      return null;
+    }
+
+    private void write(ReadableByteChannel source) throws IOException {
+      if (memoryMapped) {
+        MappedByteBuffer region = channel.map(MapMode.READ_WRITE, position, end - position + 1);
+        long regionEnd = end + 1;
+        while (region.hasRemaining() && source.read(region) >= 0) {
+          position = regionEnd - region.remaining();
+        }
+        return;
+      }
+      while (position <= end) {
+        long transferred =
+            channel.transferFrom(source, position, Math.min(CHUNK_SIZE, end - position + 1));
+        if (transferred <= 0) {
+          return;
+        }
+        position += transferred;
+      }
+    }
+  }
+
+  private static void awaitAll(List<Future<Void>> parts) throws IOException {
+    try {
+      for (Future<Void> part : parts) {
+        part.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AmazonClientException("Interrupted while downloading", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new AmazonClientException(cause);
+    } finally {
+      for (Future<Void> part : parts) {
+        part.cancel(true);
+      }
+    }
+  }
+
+  private static void verifyDigest(FileChannel channel, long length, String etag, String key)
+      throws IOException {
+    MessageDigest md5;
+    try {
+      md5 = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    ByteBuffer buffer = ByteBuffer.allocateDirect(VERIFY_BUFFER_SIZE);
+    long position = 0;
+    while (position < length) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        break;
+      }
+      position += read;
+      buffer.flip();
+      md5.update(buffer);
+      buffer.clear();
+    }
+
+    StringBuilder hex = new StringBuilder(32);
+    for (byte b : md5.digest()) {
+      hex.append(String.format("%02x", b));
+    }
+    if (position != length || !hex.toString().equalsIgnoreCase(etag)) {
+      throw new AmazonClientException(
+          String.format("Downloaded %s does not match its ETag %s", key, etag));
+    }
+  }
+}
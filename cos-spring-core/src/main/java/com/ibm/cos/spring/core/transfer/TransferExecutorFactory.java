@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.transfer;
+
+import com.ibm.cloud.objectstorage.client.builder.ExecutorFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Owns the bounded thread pool used for parallel transfers. Every call to {@link #newExecutor()}
+ * returns the same pool, so TransferManagers sharing this factory share its threads. The pool is
+ * shut down with the application context, not with the TransferManager.
+ *
+ * @see com.ibm.cos.spring.core.concurrent.VirtualThreadProperties
+ */
+public class TransferExecutorFactory implements ExecutorFactory, DisposableBean {
+
+  private final ExecutorService executor;
+
+  private final int threads;
+
+  public TransferExecutorFactory(int threads) {
+    this("cos-transfer-", threads);
+  }
+
+  public TransferExecutorFactory(String threadNamePrefix, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be greater than 0");
+    }
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+    threadFactory.setDaemon(true);
+    ThreadPoolExecutor pool =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            threadFactory);
+    pool.allowCoreThreadTimeOut(true);
+    this.executor = pool;
+    this.threads = threads;
+  }
+
+  /**
+   * Take ownership of an executor, e.g. a {@link
+   * com.ibm.cos.spring.core.concurrent.VirtualThreadExecutor}.
+   *
+   * @param executor executor running the transfers, shut down with this factory
+   * @param threads maximum number of transfers the executor runs at once
+   */
+  public TransferExecutorFactory(ExecutorService executor, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be greater than 0");
+    }
+    this.executor = executor;
+    this.threads = threads;
+  }
+
+  @Override
+  public ExecutorService newExecutor() {
+    return executor;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.transfer;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.transfer.TransferManagerBuilder;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * TransferManager settings, bound from {@code cos.transfer.*}. Sizes are in bytes; unset sizes keep
+ * the SDK defaults.
+ */
+public class TransferProperties {
+
+  /** smallest part size accepted by COS for multipart uploads */
+  public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+  /** number of threads uploading and downloading parts concurrently */
+  private int threads = 10;
+
+  /** minimum part size of multipart uploads */
+  private Long minimumUploadPartSize;
+
+  /** object size from which uploads are split into parallel parts */
+  private Long multipartUploadThreshold;
+
+  /** object size from which copies are split into parallel parts */
+  private Long multipartCopyThreshold;
+
+  /** part size of multipart copies */
+  private Long multipartCopyPartSize;
+
+  /** size of the ranged GET requests of parallel downloads */
+  private long downloadPartSize = 16L * 1024 * 1024;
+
+  /** attempts to resume a download part whose response failed */
+  private int downloadPartRetries = 3;
+
+  /** write downloaded parts into memory-mapped regions of the file */
+  private boolean downloadMemoryMapped;
+
+  /** verify downloads of objects uploaded in a single part against their MD5 ETag */
+  private boolean downloadVerify = true;
+
+  /**
+   * Validate these settings and apply them to the given builder.
+   *
+   * @param builder TransferManager builder to update
+   * @return the updated builder
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public TransferManagerBuilder applyTo(TransferManagerBuilder builder) {
+    validate();
+
+    if (minimumUploadPartSize != null) {
+      builder.setMinimumUploadPartSize(minimumUploadPartSize);
+    }
+    if (multipartUploadThreshold != null) {
+      builder.setMultipartUploadThreshold(multipartUploadThreshold);
+    }
+    if (multipartCopyThreshold != null) {
+      builder.setMultipartCopyThreshold(multipartCopyThreshold);
+    }
+    if (multipartCopyPartSize != null) {
+      builder.setMultipartCopyPartSize(multipartCopyPartSize);
+    }
+    return builder;
+  }
+
+  /**
+   * Validate these settings and create a parallel downloader.
+   *
+   * @param client client sending the ranged GET requests
+   * @param executor executor running the parts, typically the transfer pool
+   * @return a downloader using these settings
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public ParallelDownloader createDownloader(AmazonS3 client, ExecutorService executor) {
+    validate();
+    return new ParallelDownloader(
+        client,
+        executor,
+        downloadPartSize,
+        downloadPartRetries,
+        downloadMemoryMapped,
+        downloadVerify);
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (threads < 1) {
+      throw new IllegalArgumentException("cos.transfer.threads must be greater than 0");
+    }
+    requirePartSize("cos.transfer.minimum-upload-part-size", minimumUploadPartSize);
+    requirePartSize("cos.transfer.multipart-upload-threshold", multipartUploadThreshold);
+    requirePartSize("cos.transfer.multipart-copy-threshold", multipartCopyThreshold);
+    requirePartSize("cos.transfer.multipart-copy-part-size", multipartCopyPartSize);
+    if (downloadPartSize < 1 || downloadPartSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+          "cos.transfer.download-part-size must be between 1 and " + Integer.MAX_VALUE + " bytes");
+    }
+    if (downloadPartRetries < 0) {
+      throw new IllegalArgumentException("cos.transfer.download-part-retries must not be negative");
+    }
+    if (minimumUploadPartSize != null
+        && multipartUploadThreshold != null
+        && multipartUploadThreshold < minimumUploadPartSize) {
+      throw new IllegalArgumentException(
+          "cos.transfer.multipart-upload-threshold must not be less than"
+              + " cos.transfer.minimum-upload-part-size");
+    }
+  }
+
+  private static void requirePartSize(String name, Long value) {
+    if (value != null && value < MIN_PART_SIZE) {
+      throw new IllegalArgumentException(name + " must be at least " + MIN_PART_SIZE + " bytes");
+    }
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  public Long getMinimumUploadPartSize() {
+    return minimumUploadPartSize;
+  }
+
+  public void setMinimumUploadPartSize(Long minimumUploadPartSize) {
+    this.minimumUploadPartSize = minimumUploadPartSize;
+  }
+
+  public Long getMultipartUploadThreshold() {
+    return multipartUploadThreshold;
+  }
+
+  public void setMultipartUploadThreshold(Long multipartUploadThreshold) {
+    this.multipartUploadThreshold = multipartUploadThreshold;
+  }
+
+  public Long getMultipartCopyThreshold() {
+    return multipartCopyThreshold;
+  }
+
+  public void setMultipartCopyThreshold(Long multipartCopyThreshold) {
+    this.multipartCopyThreshold = multipartCopyThreshold;
+  }
+
+  public Long getMultipartCopyPartSize() {
+    return multipartCopyPartSize;
+  }
+
+  public void setMultipartCopyPartSize(Long multipartCopyPartSize) {
+    this.multipartCopyPartSize = multipartCopyPartSize;
+  }
+
+  public long getDownloadPartSize() {
+    return downloadPartSize;
+  }
+
+  public void setDownloadPartSize(long downloadPartSize) {
+    this.downloadPartSize = downloadPartSize;
+  }
+
+  public int getDownloadPartRetries() {
+    return downloadPartRetries;
+  }
+
+  public void setDownloadPartRetries(int downloadPartRetries) {
+    this.downloadPartRetries = downloadPartRetries;
+  }
+
+  public boolean isDownloadMemoryMapped() {
+    return downloadMemoryMapped;
+  }
+
+  public void setDownloadMemoryMapped(boolean downloadMemoryMapped) {
+    this.downloadMemoryMapped = downloadMemoryMapped;
+  }
+
+  public boolean isDownloadVerify() {
+    return downloadVerify;
+  }
+
+  public void setDownloadVerify(boolean downloadVerify) {
+    this.downloadVerify = downloadVerify;
+  }
+}
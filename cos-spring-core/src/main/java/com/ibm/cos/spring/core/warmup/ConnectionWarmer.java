@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.warmup;
+
+import com.ibm.cloud.objectstorage.AmazonServiceException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.HeadBucketRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Opens connections of a client's HTTP pool when the application context has been refreshed, so the
+ * first requests do not pay for DNS lookups, TCP and TLS handshakes or the first IAM token. Each
+ * connection is opened by a lightweight request issued concurrently with the others; the
+ * connections then stay in the pool until they exceed the client's maximum idle time.
+ *
+ * <p>The warm-up runs on the thread publishing the {@link ContextRefreshedEvent} and blocks it up
+ * to the configured timeout. An embedded web server therefore only starts accepting requests, and
+ * readiness checks only pass, once the warm-up completed or timed out. Failures never fail startup.
+ */
+public class ConnectionWarmer implements ApplicationListener<ContextRefreshedEvent> {
+
+  private static final Log logger = LogFactory.getLog(ConnectionWarmer.class);
+
+  private final AmazonS3 client;
+
+  private final String[] buckets;
+
+  private final int connections;
+
+  private final long timeout;
+
+  private final AtomicBoolean started = new AtomicBoolean();
+
+  private volatile int warmedConnections;
+
+  private volatile long warmupTime = -1;
+
+  /**
+   * @param client client whose connection pool is warmed up
+   * @param buckets buckets probed with HEAD requests, the bucket listing is requested if empty
+   * @param connections number of connections opened concurrently
+   * @param timeout maximum milliseconds to wait for the warm-up
+   */
+  public ConnectionWarmer(AmazonS3 client, String[] buckets, int connections, long timeout) {
+    this.client = client;
+    this.buckets = buckets.clone();
+    this.connections = connections;
+    this.timeout = timeout;
+  }
+
+  @Override
+  public void onApplicationEvent(ContextRefreshedEvent event) {
+    // child contexts publish their refresh to the parent's listeners as well
+    if (started.compareAndSet(false, true)) {
+      warmUp();
+    }
+  }
+
+  /**
+   * Issue one request per connection concurrently and wait for them up to the timeout.
+   *
+   * @return the number of requests that reached the endpoint
+   */
+  public int warmUp() {
+    long start = System.nanoTime();
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cos-warmup-");
+    threadFactory.setDaemon(true);
+    ExecutorService executor = Executors.newFixedThreadPool(connections, threadFactory);
+    int warmed = 0;
+    try {
+      // release all requests together so that none of them reuses another one's connection
+      CountDownLatch ready = new CountDownLatch(1);
+      List<Future<?>> requests = new ArrayList<Future<?>>(connections);
+      for (int i = 0; i < connections; i++) {
+        String bucket = buckets.length > 0 ? buckets[i % buckets.length] : null;
+        requests.add(executor.submit(() -> probe(ready, bucket)));
+      }
+      ready.countDown();
+
+      long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+      for (Future<?> request : requests) {
+        try {
+          request.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+          warmed++;
+        } catch (ExecutionException e) {
+          logger.debug("COS connection warm-up request failed", e.getCause());
+        } catch (TimeoutException e) {
+          logger.warn("COS connection warm-up timed out after " + timeout + " ms");
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdownNow();
+    }
+
+    warmedConnections = warmed;
+    warmupTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    logger.info(
+        String.format(
+            "Warmed up %d of %d COS connections in %d ms", warmed, connections, warmupTime));
+    return warmed;
+  }
+
+  private Void probe(CountDownLatch ready, String bucket) throws InterruptedException {
+    ready.await();
+    try {
+      if (bucket != null) {
+        client.headBucket(new HeadBucketRequest(bucket));
+      } else {
+        client.listBuckets();
+      }
+    } catch (AmazonServiceException e) {
+      // an error response still went over an open connection
+      logger.debug("COS connection warm-up request returned " + e.getStatusCode());
+    }
+    return null;
+  }
+
+  /** @return number of requests of the last warm-up that reached the endpoint */
+  public int getWarmedConnections() {
+    return warmedConnections;
+  }
+
+  /** @return duration of the last warm-up in milliseconds, -1 if it did not run yet */
+  public long getWarmupTime() {
+    return warmupTime;
+  }
+}
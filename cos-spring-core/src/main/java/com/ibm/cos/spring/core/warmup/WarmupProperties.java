@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.warmup;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+
+/**
+ * Connection warm-up settings, bound from {@code cos.warmup.*}. Warm-up is disabled unless {@code
+ * cos.warmup.enabled} is set.
+ */
+public class WarmupProperties {
+
+  /** open connections to the endpoint when the context starts */
+  private boolean enabled;
+
+  /** number of connections opened concurrently */
+  private int connections = 4;
+
+  /** (optional) buckets probed with HEAD requests, the bucket listing is requested if empty */
+  private String[] buckets = new String[0];
+
+  /** maximum time in milliseconds that startup waits for the warm-up */
+  private long timeout = 10 * 1000;
+
+  /**
+   * Validate these settings and create a warmer for the given client.
+   *
+   * @param client client whose connection pool is warmed up
+   * @return a warmer running on the next context refresh
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public ConnectionWarmer createWarmer(AmazonS3 client) {
+    validate();
+    return new ConnectionWarmer(client, buckets, connections, timeout);
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (connections < 1) {
+      throw new IllegalArgumentException("cos.warmup.connections must be greater than 0");
+    }
+    if (timeout < 1) {
+      throw new IllegalArgumentException("cos.warmup.timeout must be greater than 0");
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getConnections() {
+    return connections;
+  }
+
+  public void setConnections(int connections) {
+    this.connections = connections;
+  }
+
+  public String[] getBuckets() {
+    return buckets;
+  }
+
+  public void setBuckets(String[] buckets) {
+    this.buckets = buckets;
+  }
+
+  public long getTimeout() {
+    return timeout;
+  }
+
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+}
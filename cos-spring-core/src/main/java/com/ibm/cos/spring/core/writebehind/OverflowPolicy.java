@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.writebehind;
+
+import java.util.Locale;
+
+/** Behavior of a {@link WriteBehindUploader} whose queue is full. */
+public enum OverflowPolicy {
+
+  /** wait until queued uploads complete */
+  BLOCK,
+
+  /** discard the new payload and return false */
+  DROP,
+
+  /** throw a {@link java.util.concurrent.RejectedExecutionException} */
+  FAIL;
+
+  /**
+   * Resolve a policy from its property value.
+   *
+   * @param name policy name, case insensitive
+   * @return the matching policy
+   * @throws IllegalArgumentException if no policy matches the name
+   */
+  public static OverflowPolicy forName(String name) {
+    String normalized = name.trim().toUpperCase(Locale.ENGLISH);
+    for (OverflowPolicy policy : values()) {
+      if (policy.name().equals(normalized)) {
+        return policy;
+      }
+    }
+    throw new IllegalArgumentException(
+        String.format("unknown overflow policy '%s', expected one of block, drop or fail", name));
+  }
+}
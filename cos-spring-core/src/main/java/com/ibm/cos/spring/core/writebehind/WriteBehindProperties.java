@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package com.ibm.cos.spring.core.writebehind;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import java.io.File;
+import org.springframework.util.StringUtils;
+
+/**
+ * Write-behind upload settings, bound from {@code cos.write-behind.*}. Durations are in
+ * milliseconds. Write-behind is disabled unless {@code cos.write-behind.enabled} is set.
+ */
+public class WriteBehindProperties {
+
+  /** provide a WriteBehindUploader */
+  private boolean enabled;
+
+  /** number of upload threads */
+  private int threads = 4;
+
+  /** bytes of queued payloads held in memory */
+  private long maxQueuedBytes = 64 * 1024 * 1024;
+
+  /** (optional) directory holding queued payloads beyond the memory limit */
+  private String spillDirectory;
+
+  /** bytes of queued payloads held in the spill directory */
+  private long maxSpillBytes = 1024L * 1024 * 1024;
+
+  /** behavior when the queue is full: block, drop or fail */
+  private String overflow = "block";
+
+  /** retries of a failed upload after the retries of the client */
+  private int maxRetries = 3;
+
+  /** delay before the first retry, doubled for every further retry */
+  private long retryDelay = 1000;
+
+  /** time to wait for queued uploads when the context is closed */
+  private long shutdownTimeout = 30000;
+
+  /**
+   * Validate these settings and create an uploader.
+   *
+   * @param client client uploading the payloads
+   * @return an uploader using these settings
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public WriteBehindUploader createUploader(AmazonS3 client) {
+    validate();
+    return new WriteBehindUploader(
+        client,
+        threads,
+        maxQueuedBytes,
+        StringUtils.hasText(spillDirectory) ? new File(spillDirectory) : null,
+        maxSpillBytes,
+        OverflowPolicy.forName(overflow),
+        maxRetries,
+        retryDelay,
+        shutdownTimeout);
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    if (threads < 1) {
+      throw new IllegalArgumentException("cos.write-behind.threads must be greater than 0");
+    }
+    if (maxQueuedBytes < 0) {
+      throw new IllegalArgumentException("cos.write-behind.max-queued-bytes must not be negative");
+    }
+    if (maxSpillBytes < 0) {
+      throw new IllegalArgumentException("cos.write-behind.max-spill-bytes must not be negative");
+    }
+    OverflowPolicy.forName(overflow);
+    if (maxRetries < 0) {
+      throw new IllegalArgumentException("cos.write-behind.max-retries must not be negative");
+    }
+    if (retryDelay < 0) {
+      throw new IllegalArgumentException("cos.write-behind.retry-delay must not be negative");
+    }
+    if (shutdownTimeout < 0) {
+      throw new IllegalArgumentException("cos.write-behind.shutdown-timeout must not be negative");
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  public long getMaxQueuedBytes() {
+    return maxQueuedBytes;
+  }
+
+  public void setMaxQueuedBytes(long maxQueuedBytes) {
+    this.maxQueuedBytes = maxQueuedBytes;
+  }
+
+  public String getSpillDirectory() {
+    return spillDirectory;
+  }
+
+  public void setSpillDirectory(String spillDirectory) {
+    this.spillDirectory = spillDirectory;
+  }
+
+  public long getMaxSpillBytes() {
+    return maxSpillBytes;
+  }
+
+  public void setMaxSpillBytes(long maxSpillBytes) {
+    this.maxSpillBytes = maxSpillBytes;
+  }
+
+  public String getOverflow() {
+    return overflow;
+  }
+
+  public void setOverflow(String overflow) {
+    this.overflow = overflow;
+  }
+
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  public void setMaxRetries(int maxRetries) {
+    this.maxRetries = maxRetries;
+  }
+
+  public long getRetryDelay() {
+    return retryDelay;
+  }
+
+  public void setRetryDelay(long retryDelay) {
+    this.retryDelay = retryDelay;
+  }
+
+  public long getShutdownTimeout() {
+    return shutdownTimeout;
+  }
+
+  public void setShutdownTimeout(long shutdownTimeout) {
+    this.shutdownTimeout = shutdownTimeout;
+  }
+}
@@ -0,0 +1,481 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.core.writebehind;
+
+import com.ibm.cloud.objectstorage.AmazonClientException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Uploads objects in the background, so callers do not wait for COS. Payloads are queued in memory
+ * up to a byte limit and, if a spill directory is configured, on local disk beyond it. A full queue
+ * blocks, drops or rejects new payloads according to the {@link OverflowPolicy}.
+ *
+ * <p>A payload queued for a key that already has a queued payload replaces it, so only the latest
+ * content of a frequently written key is uploaded. Payloads of the same key are never uploaded
+ * concurrently. Failed uploads are retried with exponential backoff on top of the retries of the
+ * client; a payload that still fails is logged and discarded. Queued payloads are uploaded when the
+ * application context is closed, but are lost if the process ends first.
+ */
+public class WriteBehindUploader implements DisposableBean {
+
+  private static final Log logger = LogFactory.getLog(WriteBehindUploader.class);
+
+  private final AmazonS3 client;
+
+  private final long maxQueuedBytes;
+
+  private final File spillDirectory;
+
+  private final long maxSpillBytes;
+
+  private final OverflowPolicy overflowPolicy;
+
+  private final int maxRetries;
+
+  private final long retryDelay;
+
+  private final long shutdownTimeout;
+
+  private final ExecutorService workers;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition notEmpty = lock.newCondition();
+
+  private final Condition notFull = lock.newCondition();
+
+  private final Condition idle = lock.newCondition();
+
+  /** queued payloads by bucket and key in queue order, guarded by lock */
+  private final LinkedHashMap<String, Payload> queue = new LinkedHashMap<String, Payload>();
+
+  /** bucket and key of payloads being uploaded, guarded by lock */
+  private final Set<String> uploading = new HashSet<String>();
+
+  /** guarded by lock */
+  private long queuedBytes;
+
+  /** guarded by lock */
+  private long spilledBytes;
+
+  /** guarded by lock */
+  private boolean closed;
+
+  /** guarded by lock */
+  private boolean stopped;
+
+  private final AtomicLong uploadedCount = new AtomicLong();
+
+  private final AtomicLong failedCount = new AtomicLong();
+
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  private final AtomicLong coalescedCount = new AtomicLong();
+
+  /**
+   * @param client client uploading the payloads
+   * @param threads number of upload threads
+   * @param maxQueuedBytes bytes of payloads held in memory
+   * @param spillDirectory (optional) directory holding payloads beyond the memory limit
+   * @param maxSpillBytes bytes of payloads held in the spill directory
+   * @param overflowPolicy behavior when memory and spill directory are full
+   * @param maxRetries retries of a failed upload
+   * @param retryDelay milliseconds before the first retry, doubled for every further retry
+   * @param shutdownTimeout milliseconds to wait for queued uploads when the context is closed
+   */
+  public WriteBehindUploader(
+      AmazonS3 client,
+      int threads,
+      long maxQueuedBytes,
+      File spillDirectory,
+      long maxSpillBytes,
+      OverflowPolicy overflowPolicy,
+      int maxRetries,
+      long retryDelay,
+      long shutdownTimeout) {
+    this.client = client;
+    this.maxQueuedBytes = maxQueuedBytes;
+    this.spillDirectory = spillDirectory;
+    this.maxSpillBytes = spillDirectory != null ? maxSpillBytes : 0;
+    this.overflowPolicy = overflowPolicy;
+    this.maxRetries = maxRetries;
+    this.retryDelay = retryDelay;
+    this.shutdownTimeout = shutdownTimeout;
+    if (spillDirectory != null && !spillDirectory.isDirectory() && !spillDirectory.mkdirs()) {
+      throw new IllegalArgumentException("cannot create spill directory " + spillDirectory);
+    }
+
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cos-write-behind-");
+    threadFactory.setDaemon(true);
+    this.workers = Executors.newFixedThreadPool(threads, threadFactory);
+    for (int i = 0; i < threads; i++) {
+      workers.execute(this::work);
+    }
+  }
+
+  /**
+   * Queue an upload.
+   *
+   * @param bucket bucket of the object
+   * @param key key of the object
+   * @param content object content, not copied and must not be modified afterwards
+   * @param metadata (optional) metadata of the object, its content length is set on upload
+   * @return true if queued, false if dropped by {@link OverflowPolicy#DROP}
+   * @throws RejectedExecutionException if the queue is full and the policy is {@link
+   *     OverflowPolicy#FAIL}
+   * @throws IllegalArgumentException if the policy is {@link OverflowPolicy#BLOCK} and the content
+   *     is larger than both the memory and the spill limit, so it could never be queued
+   * @throws IllegalStateException if the uploader is closed, also while blocked
+   */
+  public boolean submit(String bucket, String key, byte[] content, ObjectMetadata metadata) {
+    String id = bucket + "/" + key;
+    long size = content.length;
+    if (overflowPolicy == OverflowPolicy.BLOCK && size > maxQueuedBytes && size > maxSpillBytes) {
+      throw new IllegalArgumentException(
+          String.format(
+              "%d bytes for cos://%s/%s exceed the write-behind queue of %d bytes",
+              size, bucket, key, Math.max(maxQueuedBytes, maxSpillBytes)));
+    }
+    lock.lock();
+    try {
+      while (true) {
+        if (closed) {
+          throw new IllegalStateException("write-behind uploader is closed");
+        }
+        Payload replaced = queue.get(id);
+        long freedMemory = replaced != null && replaced.file == null ? replaced.size : 0;
+        long freedSpill = replaced != null && replaced.file != null ? replaced.size : 0;
+        if (queuedBytes - freedMemory + size <= maxQueuedBytes) {
+          queuedBytes += size;
+          enqueue(id, new Payload(bucket, key, metadata, content, null, size));
+          return true;
+        }
+        if (spilledBytes - freedSpill + size <= maxSpillBytes) {
+          // reserve the room, so other submitters need not wait while the file is written
+          spilledBytes += size;
+          Payload payload = new Payload(bucket, key, metadata, null, spill(content, size), size);
+          if (closed) {
+            // destroy may have finished waiting for the queue while the file was written
+            release(payload);
+            notFull.signalAll();
+            throw new IllegalStateException("write-behind uploader is closed");
+          }
+          enqueue(id, payload);
+          return true;
+        }
+
+        switch (overflowPolicy) {
+          case DROP:
+            droppedCount.incrementAndGet();
+            return false;
+          case FAIL:
+            throw new RejectedExecutionException(
+                String.format("write-behind queue is full, cannot queue cos://%s/%s", bucket, key));
+          default:
+            notFull.awaitUninterruptibly();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Wait until all queued payloads are uploaded or have failed.
+   *
+   * @param timeout maximum milliseconds to wait
+   * @return true if the queue is empty
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean flush(long timeout) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    lock.lock();
+    try {
+      while (!queue.isEmpty() || !uploading.isEmpty()) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        idle.awaitNanos(remaining);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Stop accepting payloads and wait up to the shutdown timeout for queued uploads. */
+  @Override
+  public void destroy() throws InterruptedException {
+    lock.lock();
+    try {
+      closed = true;
+      // blocked submitters throw instead of waiting for room
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    try {
+      if (!flush(shutdownTimeout)) {
+        logger.warn(
+            String.format(
+                "Discarding %d queued uploads after waiting %d ms",
+                getQueuedCount(), shutdownTimeout));
+      }
+    } finally {
+      lock.lock();
+      try {
+        stopped = true;
+        // payloads left in the queue are never uploaded, delete their spill files
+        for (Payload payload : queue.values()) {
+          release(payload);
+        }
+        queue.clear();
+        notEmpty.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      workers.shutdownNow();
+    }
+  }
+
+  /** @return number of payloads waiting for upload */
+  public int getQueuedCount() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** @return bytes of queued payloads held in memory */
+  public long getQueuedBytes() {
+    lock.lock();
+    try {
+      return queuedBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** @return bytes of queued payloads held in the spill directory */
+  public long getSpilledBytes() {
+    lock.lock();
+    try {
+      return spilledBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** @return number of payloads uploaded */
+  public long getUploadedCount() {
+    return uploadedCount.get();
+  }
+
+  /** @return number of payloads discarded after all retries failed */
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  /** @return number of payloads dropped because the queue was full */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /** @return number of queued payloads replaced by a newer payload of the same key */
+  public long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  private void work() {
+    Payload payload;
+    while ((payload = take()) != null) {
+      try {
+        upload(payload);
+        uploadedCount.incrementAndGet();
+      } catch (RuntimeException | IOException e) {
+        failedCount.incrementAndGet();
+        logger.error(
+            String.format("Discarding upload of cos://%s/%s", payload.bucket, payload.key), e);
+      } catch (InterruptedException e) {
+        // shut down while retrying
+        failedCount.incrementAndGet();
+        return;
+      } finally {
+        lock.lock();
+        try {
+          uploading.remove(payload.bucket + "/" + payload.key);
+          release(payload);
+          notFull.signalAll();
+          // a payload of the same key may have become eligible
+          notEmpty.signalAll();
+          idle.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+
+  /** @return the oldest payload whose key is not being uploaded, or null once stopped */
+  private Payload take() {
+    lock.lock();
+    try {
+      while (!stopped) {
+        Iterator<Payload> payloads = queue.values().iterator();
+        while (payloads.hasNext()) {
+          Payload payload = payloads.next();
+          String id = payload.bucket + "/" + payload.key;
+          if (uploading.add(id)) {
+            payloads.remove();
+            return payload;
+          }
+        }
+        notEmpty.awaitUninterruptibly();
+      }
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void upload(Payload payload) throws IOException, InterruptedException {
+    long delay = retryDelay;
+    for (int attempt = 0; ; attempt++) {
+      ObjectMetadata metadata =
+          payload.metadata != null ? payload.metadata.clone() : new ObjectMetadata();
+      metadata.setContentLength(payload.size);
+      try (InputStream content =
+          payload.file != null
+              ? new FileInputStream(payload.file)
+              : new ByteArrayInputStream(payload.content)) {
+        client.putObject(new PutObjectRequest(payload.bucket, payload.key, content, metadata));
+        return;
+      } catch (AmazonClientException e) {
+        if (attempt >= maxRetries) {
+          throw e;
+        }
+        logger.debug(
+            String.format(
+                "Retrying upload of cos://%s/%s in %d ms", payload.bucket, payload.key, delay),
+            e);
+      }
+      Thread.sleep(delay);
+      delay *= 2;
+    }
+  }
+
+  /** Must be called holding lock, with the bytes of the payload already counted. */
+  private void enqueue(String id, Payload payload) {
+    Payload replaced = queue.put(id, payload);
+    if (replaced != null) {
+      // the previous payload was never uploaded; keeps its position in the queue
+      release(replaced);
+      coalescedCount.incrementAndGet();
+    }
+    notEmpty.signal();
+  }
+
+  /** Must be called holding lock. */
+  private void release(Payload payload) {
+    if (payload.file == null) {
+      queuedBytes -= payload.size;
+    } else {
+      spilledBytes -= payload.size;
+      if (!payload.file.delete()) {
+        logger.warn("Unable to delete spill file " + payload.file);
+      }
+    }
+  }
+
+  /**
+   * Must be called holding lock, which is released while the file is written. The size must be
+   * reserved in the spilled bytes and is released again if the file cannot be written.
+   */
+  private File spill(byte[] content, long size) {
+    File file = null;
+    boolean written = false;
+    lock.unlock();
+    try {
+      file = File.createTempFile("cos-write-behind-", ".spill", spillDirectory);
+      Files.write(file.toPath(), content);
+      written = true;
+      return file;
+    } catch (IOException e) {
+      throw new AmazonClientException("Unable to spill payload to " + spillDirectory, e);
+    } finally {
+      if (!written && file != null && !file.delete()) {
+        logger.warn("Unable to delete spill file " + file);
+      }
+      lock.lock();
+      if (!written) {
+        spilledBytes -= size;
+        notFull.signalAll();
+      }
+    }
+  }
+
+  private static final class Payload {
+
+    final String bucket;
+
+    final String key;
+
+    final ObjectMetadata metadata;
+
+    /** content held in memory, or null if spilled */
+    final byte[] content;
+
+    /** spill file, or null if held in memory */
+    final File file;
+
+    final long size;
+
+    Payload(
+        String bucket, String key, ObjectMetadata metadata, byte[] content, File file, long size) {
+      this.bucket = bucket;
+      this.key = key;
+      this.metadata = metadata;
+      this.content = content;
+      this.file = file;
+      this.size = size;
+    }
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.framework.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectSummary;
+import com.ibm.cos.spring.core.changes.BucketChangeListener;
+import com.ibm.cos.spring.core.changes.BucketChangePoller;
+import com.ibm.cos.spring.core.changes.ChangeCursor;
+import com.ibm.cos.spring.core.changes.ChangesProperties;
+import com.ibm.cos.spring.core.changes.FileCursorStore;
+import com.ibm.cos.spring.core.changes.ObjectCursorStore;
+import com.ibm.cos.spring.framework.EnableCOS;
+import com.ibm.cos.spring.test.EnableLocalCOS;
+import com.ibm.cos.spring.test.LocalCOSServer;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@SuppressWarnings("deprecation")
+public class ChangePollingTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private AnnotationConfigApplicationContext context;
+
+  private AmazonS3 client;
+
+  private LocalCOSServer server;
+
+  private ChangeCollector collector;
+
+  @Before
+  public void setUp() {
+    this.context = new AnnotationConfigApplicationContext();
+    this.context.register(ChangesConfig.class);
+    EnvironmentTestUtils.addEnvironment(this.context, "cos.test-server.buckets=myBucket");
+    this.context.refresh();
+    this.client = this.context.getBean(AmazonS3.class);
+    this.server = this.context.getBean(LocalCOSServer.class);
+    this.collector = new ChangeCollector();
+  }
+
+  @After
+  public void cleanup() {
+    if (this.context != null) {
+      this.context.close();
+    }
+  }
+
+  @Test
+  public void firstPollOnlyRecordsExistingObjects() throws Exception {
+    put("a.txt", "a");
+    put("b.txt", "b");
+    BucketChangePoller poller = createPoller(new ChangesProperties());
+
+    assertThat(poller.poll(), is(0));
+    put("c.txt", "c");
+    assertThat(poller.poll(), is(1));
+    assertThat(poller.poll(), is(0));
+
+    assertThat(collector.keys(), is(Collections.singletonList("c.txt")));
+    assertThat(poller.getPollCount(), is(3L));
+    assertThat(poller.getChangeCount(), is(1L));
+  }
+
+  @Test
+  public void emitExistingReportsAllObjectsOnce() throws Exception {
+    ChangesProperties properties = new ChangesProperties();
+    properties.setEmitExisting(true);
+    properties.setPageSize(2);
+    for (int i = 0; i < 5; i++) {
+      put("key" + i, "value" + i);
+    }
+    BucketChangePoller poller = createPoller(properties);
+
+    assertThat(poller.poll(), is(5));
+    assertThat(poller.poll(), is(0));
+    assertThat(collector.batches.size(), is(3));
+  }
+
+  @Test
+  public void overwrittenObjectIsReportedAgain() throws Exception {
+    put("a.txt", "one");
+    BucketChangePoller poller = createPoller(new ChangesProperties());
+    poller.poll();
+
+    put("a.txt", "two");
+    assertThat(poller.poll(), is(1));
+    put("a.txt", "two");
+    assertThat(poller.poll(), is(0));
+    assertThat(collector.keys(), is(Collections.singletonList("a.txt")));
+  }
+
+  @Test
+  public void keyModeReportsKeysAfterTheLastOne() throws Exception {
+    ChangesProperties properties = new ChangesProperties();
+    properties.setMode("key");
+    properties.setPrefix("logs/");
+    put("logs/001", "a");
+    put("other", "b");
+    BucketChangePoller poller = createPoller(properties);
+
+    assertThat(poller.poll(), is(0));
+    put("logs/002", "c");
+    put("logs/003", "d");
+    put("logs/001", "e");
+    assertThat(poller.poll(), is(2));
+
+    assertThat(collector.keys(), is(Arrays.asList("logs/002", "logs/003")));
+    assertThat(poller.getCursor().getLastKey(), is("logs/003"));
+  }
+
+  @Test
+  public void fileCursorIsResumedByANewPoller() throws Exception {
+    File cursor = new File(folder.getRoot(), "changes.cursor");
+    ChangesProperties properties = new ChangesProperties();
+    properties.setCursor(cursor.getAbsolutePath());
+    put("a.txt", "a");
+    BucketChangePoller first = createPoller(properties);
+    first.poll();
+    assertThat(first.getCursorStore() instanceof FileCursorStore, is(true));
+    assertThat(cursor.isFile(), is(true));
+
+    put("b.txt", "b");
+    BucketChangePoller second = createPoller(properties);
+    assertThat(second.poll(), is(1));
+    assertThat(second.poll(), is(0));
+    assertThat(collector.keys(), is(Collections.singletonList("b.txt")));
+  }
+
+  @Test
+  public void objectCursorIsStoredAndNotReported() throws Exception {
+    ChangesProperties properties = new ChangesProperties();
+    properties.setCursor("cos://myBucket/.changes/cursor");
+    properties.setEmitExisting(true);
+    put("a.txt", "a");
+    BucketChangePoller first = createPoller(properties);
+    assertThat(first.getCursorStore() instanceof ObjectCursorStore, is(true));
+    assertThat(first.poll(), is(1));
+    assertThat(server.getObject("myBucket", ".changes/cursor"), notNullValue());
+
+    put("b.txt", "b");
+    BucketChangePoller second = createPoller(properties);
+    assertThat(second.poll(), is(1));
+    assertThat(second.poll(), is(0));
+    assertThat(collector.keys(), is(Arrays.asList("a.txt", "b.txt")));
+  }
+
+  @Test
+  public void failedBatchIsDeliveredAgain() throws Exception {
+    put("a.txt", "a");
+    BucketChangePoller poller = createPoller(new ChangesProperties());
+    poller.poll();
+    put("b.txt", "b");
+
+    collector.failures = 1;
+    try {
+      poller.poll();
+      fail("expected the listener failure");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("listener failure"));
+    }
+    assertThat(poller.poll(), is(1));
+    assertThat(collector.keys(), is(Collections.singletonList("b.txt")));
+  }
+
+  @Test
+  public void cursorRoundTripsThroughBytes() throws Exception {
+    put("a.txt", "a");
+    BucketChangePoller poller = createPoller(new ChangesProperties());
+    poller.poll();
+    ChangeCursor cursor = poller.getCursor();
+
+    ChangeCursor copy = ChangeCursor.fromBytes(cursor.toBytes());
+
+    assertThat(copy.getLastKey(), nullValue());
+    assertThat(copy.getHighWaterMark(), is(cursor.getHighWaterMark()));
+    assertThat(copy.getSeenCount(), is(1));
+  }
+
+  @Test
+  public void pollerBeanListensToChanges() throws Exception {
+    this.context.close();
+    this.context = new AnnotationConfigApplicationContext();
+    this.context.register(ChangesConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.test-server.buckets=myBucket",
+        "cos.changes.enabled=true",
+        "cos.changes.bucket=myBucket",
+        "cos.changes.emit-existing=true",
+        "cos.changes.poll-interval=86400000",
+        "cos.changes.jitter=0");
+    this.context.refresh();
+    this.context.getBean(LocalCOSServer.class).putObject("myBucket", "a.txt", new byte[1]);
+    BucketChangePoller poller = this.context.getBean(BucketChangePoller.class);
+
+    // the first scheduled poll may already have run
+    poller.poll();
+
+    List<String> keys = this.context.getBean(ChangeCollector.class).keys();
+    assertThat(keys.contains("a.txt"), is(true));
+    assertThat(poller.getBucket(), is("myBucket"));
+    assertThat(poller.isRunning(), is(true));
+    this.context.stop();
+    assertThat(poller.isRunning(), is(false));
+  }
+
+  private BucketChangePoller createPoller(ChangesProperties properties) {
+    properties.setBucket("myBucket");
+    return properties.createPoller(
+        client, Collections.<BucketChangeListener>singletonList(collector));
+  }
+
+  private void put(String key, String value) {
+    server.putObject("myBucket", key, value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Configuration
+  @EnableCOS
+  @EnableLocalCOS
+  protected static class ChangesConfig {
+
+    @Bean
+    public ChangeCollector changeCollector() {
+      return new ChangeCollector();
+    }
+  }
+
+  static class ChangeCollector implements BucketChangeListener {
+
+    final List<List<S3ObjectSummary>> batches = new CopyOnWriteArrayList<List<S3ObjectSummary>>();
+
+    volatile int failures;
+
+    @Override
+    public void objectsChanged(List<S3ObjectSummary> objects) {
+      if (failures > 0) {
+        failures--;
+        throw new IllegalStateException("listener failure");
+      }
+      batches.add(new ArrayList<S3ObjectSummary>(objects));
+    }
+
+    List<String> keys() {
+      List<String> keys = new ArrayList<String>();
+      for (List<S3ObjectSummary> batch : batches) {
+        for (S3ObjectSummary object : batch) {
+          keys.add(object.getKey());
+        }
+      }
+      return keys;
+    }
+  }
+}
@@ -20,24 +20,59 @@ import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
+import com.ibm.cloud.objectstorage.ClientConfiguration;
 import com.ibm.cloud.objectstorage.auth.AWSCredentials;
 import com.ibm.cloud.objectstorage.auth.BasicAWSCredentials;
 import com.ibm.cloud.objectstorage.client.builder.AwsClientBuilder.EndpointConfiguration;
 import com.ibm.cloud.objectstorage.oauth.BasicIBMOAuthCredentials;
+import com.ibm.cloud.objectstorage.retry.RetryPolicy;
 import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
 import com.ibm.cloud.objectstorage.services.s3.AmazonS3ClientBuilder;
+import com.ibm.cloud.objectstorage.services.s3.transfer.TransferManager;
+import com.ibm.cos.spring.core.auth.RefreshingTokenManager;
+import com.ibm.cos.spring.core.cache.COSCacheManager;
+import com.ibm.cos.spring.core.cache.ObjectCache;
+import com.ibm.cos.spring.core.changes.BucketChangePoller;
+import com.ibm.cos.spring.core.compression.ObjectCompressor;
+import com.ibm.cos.spring.core.delete.BulkDeleter;
+import com.ibm.cos.spring.core.hedge.RequestHedger;
+import com.ibm.cos.spring.core.index.KeyIndex;
+import com.ibm.cos.spring.core.io.COSResource;
+import com.ibm.cos.spring.core.listing.BucketLister;
+import com.ibm.cos.spring.core.pack.BundleWriter;
+import com.ibm.cos.spring.core.retry.FullJitterBackoffStrategy;
+import com.ibm.cos.spring.core.retry.RetryController;
+import com.ibm.cos.spring.core.startup.ClientStartup;
+import com.ibm.cos.spring.core.tracing.RequestTracer;
+import com.ibm.cos.spring.core.transfer.ParallelDownloader;
+import com.ibm.cos.spring.core.transfer.TransferExecutorFactory;
+import com.ibm.cos.spring.core.warmup.ConnectionWarmer;
+import com.ibm.cos.spring.core.writebehind.WriteBehindProperties;
+import com.ibm.cos.spring.core.writebehind.WriteBehindUploader;
+import com.ibm.cos.spring.framework.COSConfigurationProperties;
 import com.ibm.cos.spring.framework.EnableCOS;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
 import org.springframework.boot.test.util.EnvironmentTestUtils;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.SystemEnvironmentPropertySource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.WritableResource;
 
 @SuppressWarnings("deprecation")
 public class EnableCOSTest {
 
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
   private AnnotationConfigApplicationContext context;
 
   @Before
@@ -212,6 +247,65 @@ public class EnableCOSTest {
     assertThat(oauth.getServiceInstanceId(), is(nullValue()));
   }
 
+  @Test
+  public void clientBuilderBeanCreationWithClientProfile() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.client.profile=high-throughput");
+    this.context.refresh();
+
+    AmazonS3ClientBuilder clientBuilder = this.context.getBean(AmazonS3ClientBuilder.class);
+    ClientConfiguration clientConfig = clientBuilder.getClientConfiguration();
+    assertThat(clientConfig.getMaxConnections(), is(200));
+    assertThat(clientConfig.useTcpKeepAlive(), is(true));
+  }
+
+  @Test
+  public void clientBuilderBeanCreationWithClientProfileOverride() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.client.profile=low-latency",
+        "cos.client.max-connections=500",
+        "cos.client.socket-timeout=3000");
+    this.context.refresh();
+
+    AmazonS3ClientBuilder clientBuilder = this.context.getBean(AmazonS3ClientBuilder.class);
+    ClientConfiguration clientConfig = clientBuilder.getClientConfiguration();
+    // explicit settings take precedence over the profile
+    assertThat(clientConfig.getMaxConnections(), is(500));
+    assertThat(clientConfig.getSocketTimeout(), is(3000));
+    assertThat(clientConfig.getConnectionTimeout(), is(2000));
+    assertThat(clientConfig.isUseExpectContinue(), is(false));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void clientBuilderInvalidClientProfile() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.client.profile=fastest");
+    this.context.refresh();
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void clientBuilderInvalidMaxConnections() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.client.max-connections=0");
+    this.context.refresh();
+  }
+
   @Test
   public void clientBeanCreation() {
     this.context.register(EnableCOSConfig.class);
@@ -223,6 +317,680 @@ public class EnableCOSTest {
     assertThat(client, is(not(nullValue())));
   }
 
+  @Test
+  public void transferManagerBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.transfer.threads=4",
+        "cos.transfer.minimum-upload-part-size=8388608",
+        "cos.transfer.multipart-upload-threshold=33554432");
+    this.context.refresh();
+
+    TransferManager transferManager = this.context.getBean(TransferManager.class);
+    assertThat(transferManager.getAmazonS3Client(), is(this.context.getBean(AmazonS3.class)));
+    assertThat(transferManager.getConfiguration().getMinimumUploadPartSize(), is(8388608L));
+    assertThat(transferManager.getConfiguration().getMultipartUploadThreshold(), is(33554432L));
+
+    TransferExecutorFactory executorFactory = this.context.getBean(TransferExecutorFactory.class);
+    assertThat(executorFactory.getThreads(), is(4));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void transferManagerInvalidPartSize() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.transfer.minimum-upload-part-size=1024");
+    this.context.refresh();
+  }
+
+  @Test
+  public void cosResourceResolution() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context, "cos.endpoint=http://ibm.com", "cos.api-key=myApiKey");
+    this.context.refresh();
+
+    Resource resource = this.context.getResource("cos://myBucket/path/to/file.txt");
+    assertThat(resource, instanceOf(COSResource.class));
+    assertThat(resource, instanceOf(WritableResource.class));
+    assertThat(((COSResource) resource).getBucket(), is("myBucket"));
+    assertThat(((COSResource) resource).getKey(), is("path/to/file.txt"));
+    assertThat(resource.getFilename(), is("file.txt"));
+  }
+
+  @Test
+  public void objectCacheDisabledByDefault() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context, "cos.endpoint=http://ibm.com", "cos.api-key=myApiKey");
+    this.context.refresh();
+
+    assertThat(this.context.getBeansOfType(ObjectCache.class).isEmpty(), is(true));
+  }
+
+  @Test
+  public void objectCacheBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.cache.enabled=true",
+        "cos.cache.directory=" + folder.getRoot().getPath(),
+        "cos.cache.max-size=1048576",
+        "cos.cache.max-object-size=65536");
+    this.context.refresh();
+
+    ObjectCache objectCache = this.context.getBean(ObjectCache.class);
+    assertThat(objectCache.getDirectory(), is(folder.getRoot()));
+    assertThat(Proxy.isProxyClass(this.context.getBean(AmazonS3.class).getClass()), is(true));
+  }
+
+  @Test
+  public void namedClientBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.clients.archive.endpoint=http://eu.ibm.com",
+        "cos.clients.archive.location=eu-geo",
+        "cos.clients.archive.access-key=myAccessKey",
+        "cos.clients.archive.secret-key=mySecretKey",
+        "cos.clients.archive.client.max-connections=20",
+        "cos.clients.archive.shared-transfer-pool=false",
+        "cos.clients.archive.transfer.threads=2");
+    this.context.refresh();
+
+    AmazonS3 client = this.context.getBean(AmazonS3.class);
+    AmazonS3 archive =
+        BeanFactoryAnnotationUtils.qualifiedBeanOfType(
+            this.context.getBeanFactory(), AmazonS3.class, "archive");
+    assertThat(archive, is(not(client)));
+    assertThat(this.context.getBean("archiveClient"), is(archive));
+
+    TransferManager archiveTransferManager =
+        BeanFactoryAnnotationUtils.qualifiedBeanOfType(
+            this.context.getBeanFactory(), TransferManager.class, "archive");
+    assertThat(archiveTransferManager.getAmazonS3Client(), is(archive));
+    assertThat(this.context.getBean(TransferManager.class).getAmazonS3Client(), is(client));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void namedClientMissingEndpoint() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.clients.archive.api-key=myApiKey");
+    this.context.refresh();
+  }
+
+  @Test
+  public void namedClientFromEnvironmentVariables() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.compression.enabled=true",
+        "cos.clients.Archive.client.maxConnections=20");
+    Map<String, Object> variables = new HashMap<String, Object>();
+    variables.put("COS_CLIENTS_ARCHIVE_ENDPOINT", "http://eu.ibm.com");
+    variables.put("COS_CLIENTS_ARCHIVE_ACCESSKEY", "myAccessKey");
+    variables.put("COS_CLIENTS_ARCHIVE_SECRETKEY", "mySecretKey");
+    variables.put("COS_CLIENTS_ARCHIVE_TRANSFER_THREADS", "2");
+    this.context
+        .getEnvironment()
+        .getPropertySources()
+        .addLast(new SystemEnvironmentPropertySource("variables", variables));
+    this.context.refresh();
+
+    AmazonS3 archive =
+        BeanFactoryAnnotationUtils.qualifiedBeanOfType(
+            this.context.getBeanFactory(), AmazonS3.class, "Archive");
+    assertThat(archive, is(not(this.context.getBean(AmazonS3.class))));
+    assertThat(Proxy.isProxyClass(archive.getClass()), is(true));
+  }
+
+  @Test
+  public void clientSettingsFromEnvironmentVariables() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context, "cos.endpoint=http://ibm.com", "cos.api-key=myApiKey");
+    Map<String, Object> variables = new HashMap<String, Object>();
+    variables.put("COS_CLIENT_MAX_CONNECTIONS", "200");
+    variables.put("COS_CLIENT_SOCKET_TIMEOUT", "3000");
+    this.context
+        .getEnvironment()
+        .getPropertySources()
+        .addLast(new SystemEnvironmentPropertySource("variables", variables));
+    this.context.refresh();
+
+    AmazonS3ClientBuilder clientBuilder = this.context.getBean(AmazonS3ClientBuilder.class);
+    ClientConfiguration clientConfig = clientBuilder.getClientConfiguration();
+    assertThat(clientConfig.getMaxConnections(), is(200));
+    assertThat(clientConfig.getSocketTimeout(), is(3000));
+  }
+
+  @Test
+  public void writeBehindSettingsFromEnvironmentVariables() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context, "cos.endpoint=http://ibm.com", "cos.api-key=myApiKey");
+    Map<String, Object> variables = new HashMap<String, Object>();
+    variables.put("COS_WRITE_BEHIND_ENABLED", "true");
+    variables.put("COS_WRITE_BEHIND_MAX_QUEUED_BYTES", "1048576");
+    variables.put("COS_WRITEBEHIND_THREADS", "2");
+    this.context
+        .getEnvironment()
+        .getPropertySources()
+        .addLast(new SystemEnvironmentPropertySource("variables", variables));
+    this.context.refresh();
+
+    WriteBehindProperties writeBehind =
+        this.context.getBean(COSConfigurationProperties.class).getWriteBehind();
+    assertThat(writeBehind.isEnabled(), is(true));
+    assertThat(writeBehind.getMaxQueuedBytes(), is(1048576L));
+    assertThat(writeBehind.getThreads(), is(2));
+    assertThat(this.context.getBean(WriteBehindUploader.class), is(not(nullValue())));
+  }
+
+  @Test
+  public void tokenManagerBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.iam.prefetch=false",
+        "cos.iam.refresh-before=300000");
+    this.context.refresh();
+
+    RefreshingTokenManager tokenManager = this.context.getBean(RefreshingTokenManager.class);
+    assertThat(tokenManager.getRefreshCount(), is(0L));
+
+    AmazonS3ClientBuilder clientBuilder = this.context.getBean(AmazonS3ClientBuilder.class);
+    BasicIBMOAuthCredentials oauth =
+        (BasicIBMOAuthCredentials) clientBuilder.getCredentials().getCredentials();
+    assertThat(oauth.getTokenManager(), is(tokenManager));
+    assertThat(oauth.getApiKey(), is("myApiKey"));
+  }
+
+  @Test
+  public void tokenManagerNotCreatedForHmacCredentials() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.access-key=myAccessKey",
+        "cos.secret-key=mySecretKey");
+    this.context.refresh();
+
+    assertThat(this.context.getBeansOfType(RefreshingTokenManager.class).isEmpty(), is(true));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void tokenManagerInvalidRetryInterval() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.iam.retry-interval=0");
+    this.context.refresh();
+  }
+
+  @Test
+  public void connectionWarmerDisabledByDefault() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context, "cos.endpoint=http://ibm.com", "cos.api-key=myApiKey");
+    this.context.refresh();
+
+    assertThat(this.context.getBeansOfType(ConnectionWarmer.class).isEmpty(), is(true));
+  }
+
+  @Test
+  public void connectionWarmerRunsOnRefresh() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://localhost:1",
+        "cos.access-key=myAccessKey",
+        "cos.secret-key=mySecretKey",
+        "cos.warmup.enabled=true",
+        "cos.warmup.connections=2",
+        "cos.warmup.buckets=myBucket",
+        "cos.warmup.timeout=2000");
+    this.context.refresh();
+
+    ConnectionWarmer warmer = this.context.getBean(ConnectionWarmer.class);
+    assertThat(warmer.getWarmupTime(), is(not(-1L)));
+    assertThat(warmer.getWarmedConnections(), is(0));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void connectionWarmerInvalidConnections() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.warmup.enabled=true",
+        "cos.warmup.connections=0");
+    this.context.refresh();
+  }
+
+  @Test
+  public void retryPolicyBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.retry.max-error-retry=5",
+        "cos.retry.backoff=full-jitter",
+        "cos.retry.budget-capacity=100",
+        "cos.retry.breaker-threshold=10");
+    this.context.refresh();
+
+    RetryController retryController = this.context.getBean(RetryController.class);
+    assertThat(retryController.isBudgetEnabled(), is(true));
+    assertThat(retryController.isBreakerEnabled(), is(true));
+
+    AmazonS3ClientBuilder clientBuilder = this.context.getBean(AmazonS3ClientBuilder.class);
+    RetryPolicy retryPolicy = clientBuilder.getClientConfiguration().getRetryPolicy();
+    assertThat(retryPolicy.getMaxErrorRetry(), is(5));
+    assertThat(retryPolicy.getBackoffStrategy(), instanceOf(FullJitterBackoffStrategy.class));
+    assertThat(clientBuilder.getRequestHandlers().contains(retryController), is(true));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void retryPolicyInvalidBackoff() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.retry.backoff=linear");
+    this.context.refresh();
+  }
+
+  @Test
+  public void requestHedgerDisabledByDefault() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context, "cos.endpoint=http://ibm.com", "cos.api-key=myApiKey");
+    this.context.refresh();
+
+    assertThat(this.context.getBeansOfType(RequestHedger.class).isEmpty(), is(true));
+  }
+
+  @Test
+  public void requestHedgerBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.hedge.enabled=true",
+        "cos.hedge.prefixes=myBucket/small/,otherBucket",
+        "cos.hedge.initial-delay=20");
+    this.context.refresh();
+
+    RequestHedger hedger = this.context.getBean(RequestHedger.class);
+    assertThat(hedger.matches("myBucket", "small/a"), is(true));
+    assertThat(hedger.matches("otherBucket", "a"), is(true));
+    assertThat(hedger.matches("myBucket", "large/a"), is(false));
+    assertThat(hedger.getDelay(), is(20L));
+    assertThat(Proxy.isProxyClass(this.context.getBean(AmazonS3.class).getClass()), is(true));
+  }
+
+  @Test
+  public void parallelDownloaderBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.transfer.download-part-size=8388608",
+        "cos.transfer.download-memory-mapped=true");
+    this.context.refresh();
+
+    assertThat(this.context.getBean(ParallelDownloader.class), is(not(nullValue())));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void parallelDownloaderInvalidPartSize() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.transfer.download-part-size=0");
+    this.context.refresh();
+  }
+
+  @Test
+  public void bulkDeleterBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.bulk-delete.batch-size=500",
+        "cos.bulk-delete.concurrency=2");
+    this.context.refresh();
+
+    assertThat(this.context.getBean(BulkDeleter.class), is(not(nullValue())));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void bulkDeleterInvalidBatchSize() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.bulk-delete.batch-size=1001");
+    this.context.refresh();
+  }
+
+  @Test
+  public void bucketListerBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.listing.page-size=500",
+        "cos.listing.concurrency=8");
+    this.context.refresh();
+
+    assertThat(this.context.getBean(BucketLister.class), is(not(nullValue())));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void bucketListerInvalidPageSize() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.listing.page-size=0");
+    this.context.refresh();
+  }
+
+  @Test
+  public void cacheManagerBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.cache-manager.enabled=true",
+        "cos.cache-manager.bucket=myBucket",
+        "cos.cache-manager.near-cache-size=10");
+    this.context.refresh();
+
+    COSCacheManager cacheManager = this.context.getBean(COSCacheManager.class);
+    assertThat(cacheManager.getNearCacheSize(), is(10));
+  }
+
+  @Test
+  public void cacheManagerNotCreatedByDefault() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context, "cos.endpoint=http://ibm.com", "cos.api-key=myApiKey");
+    this.context.refresh();
+
+    assertThat(this.context.getBeansOfType(COSCacheManager.class).isEmpty(), is(true));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void cacheManagerMissingBucket() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.cache-manager.enabled=true");
+    this.context.refresh();
+  }
+
+  @Test
+  public void objectCompressorBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.compression.enabled=true",
+        "cos.compression.prefixes=myBucket/logs/,myBucket/csv/=gzip");
+    this.context.refresh();
+
+    assertThat(this.context.getBean(ObjectCompressor.class), is(not(nullValue())));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void objectCompressorUnknownCodec() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.compression.enabled=true",
+        "cos.compression.codec=brotli");
+    this.context.refresh();
+  }
+
+  @Test
+  public void bundleWriterBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.pack.enabled=true",
+        "cos.pack.bucket=myBucket",
+        "cos.pack.flush-interval=1000");
+    this.context.refresh();
+
+    assertThat(this.context.getBean(BundleWriter.class), is(not(nullValue())));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void bundleWriterMissingBucket() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.pack.enabled=true");
+    this.context.refresh();
+  }
+
+  @Test
+  public void writeBehindUploaderBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.write-behind.enabled=true");
+    this.context.refresh();
+
+    assertThat(this.context.getBean(WriteBehindUploader.class), is(not(nullValue())));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void writeBehindUploaderInvalidOverflow() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.write-behind.enabled=true",
+        "cos.write-behind.overflow=queue");
+    this.context.refresh();
+  }
+
+  @Test
+  public void virtualThreadTransferExecutorFactoryBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.virtual-threads.enabled=true",
+        "cos.virtual-threads.max-concurrency=500");
+    this.context.refresh();
+
+    assertThat(this.context.getBean(TransferExecutorFactory.class), is(not(nullValue())));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void virtualThreadTransferExecutorFactoryInvalidMaxConcurrency() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.virtual-threads.enabled=true",
+        "cos.virtual-threads.max-concurrency=0");
+    this.context.refresh();
+  }
+
+  @Test
+  public void clientStartupBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.startup.mode=lazy");
+    this.context.refresh();
+
+    assertThat(this.context.getBean(ClientStartup.class), is(not(nullValue())));
+  }
+
+  @Test
+  public void lazyClientIsBuiltOnFirstUse() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.access-key=myAccessKey",
+        "cos.secret-key=mySecretKey",
+        "cos.startup.mode=lazy");
+    this.context.refresh();
+
+    AmazonS3 client = this.context.getBean(AmazonS3.class);
+    ClientStartup clientStartup = this.context.getBean(ClientStartup.class);
+    assertThat(Proxy.isProxyClass(client.getClass()), is(true));
+    assertThat(clientStartup.isInitialized(), is(false));
+    assertThat(clientStartup.getPhase(ClientStartup.CLIENT), is(not(nullValue())));
+
+    assertThat(client.getUrl("myBucket", "myKey"), is(not(nullValue())));
+    assertThat(clientStartup.isInitialized(), is(true));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void clientStartupInvalidMode() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.startup.mode=sometimes");
+    this.context.refresh();
+  }
+
+  @Test
+  public void requestTracerBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.tracing.enabled=true");
+    this.context.refresh();
+
+    assertThat(this.context.getBean(RequestTracer.class), is(not(nullValue())));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void requestTracerInvalidSampleRate() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.tracing.enabled=true",
+        "cos.tracing.sample-rate=2");
+    this.context.refresh();
+  }
+
+  @Test
+  public void bucketChangePollerBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.changes.enabled=true",
+        "cos.changes.bucket=myBucket");
+    this.context.refresh();
+
+    assertThat(this.context.getBean(BucketChangePoller.class), is(not(nullValue())));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void bucketChangePollerInvalidMode() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.changes.enabled=true",
+        "cos.changes.bucket=b",
+        "cos.changes.mode=bogus");
+    this.context.refresh();
+  }
+
+  @Test
+  public void keyIndexBeanCreation() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.index.enabled=true",
+        "cos.index.bucket=myBucket");
+    this.context.refresh();
+
+    assertThat(this.context.getBean(KeyIndex.class), is(not(nullValue())));
+  }
+
+  @Test(expected = BeanCreationException.class)
+  public void keyIndexMissingBucket() {
+    this.context.register(EnableCOSConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.endpoint=http://ibm.com",
+        "cos.api-key=myApiKey",
+        "cos.index.enabled=true");
+    this.context.refresh();
+  }
+
   @EnableCOS
   @Configuration
   protected static class EnableCOSConfig {}
@@ -0,0 +1,244 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.framework.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.CompleteMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.DeleteObjectsRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.InitiateMultipartUploadRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.PartETag;
+import com.ibm.cloud.objectstorage.services.s3.model.UploadPartRequest;
+import com.ibm.cos.spring.core.index.IndexEntry;
+import com.ibm.cos.spring.core.index.IndexProperties;
+import com.ibm.cos.spring.core.index.KeyIndex;
+import com.ibm.cos.spring.core.index.KeyIndexRefresher;
+import com.ibm.cos.spring.framework.EnableCOS;
+import com.ibm.cos.spring.test.EnableLocalCOS;
+import com.ibm.cos.spring.test.LocalCOSServer;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+
+@SuppressWarnings("deprecation")
+public class KeyIndexTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private AnnotationConfigApplicationContext context;
+
+  private File indexFile;
+
+  private AmazonS3 client;
+
+  private LocalCOSServer server;
+
+  private KeyIndex index;
+
+  private KeyIndexRefresher refresher;
+
+  @Before
+  public void setUp() throws Exception {
+    this.indexFile = new File(folder.getRoot(), "myBucket.idx");
+    this.context = new AnnotationConfigApplicationContext();
+    this.context.register(IndexConfig.class);
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.test-server.buckets=myBucket",
+        "cos.index.enabled=true",
+        "cos.index.bucket=myBucket",
+        "cos.index.file=" + indexFile.getAbsolutePath(),
+        "cos.index.page-size=2",
+        "cos.index.refresh-interval=86400000");
+    this.context.refresh();
+    this.client = this.context.getBean(AmazonS3.class);
+    this.server = this.context.getBean(LocalCOSServer.class);
+    this.index = this.context.getBean(KeyIndex.class);
+    this.refresher = this.context.getBean(KeyIndexRefresher.class);
+    // wait for the first refresh, started in the background once the context is refreshed
+    this.refresher.refresh();
+  }
+
+  @After
+  public void cleanup() {
+    if (this.context != null) {
+      this.context.close();
+    }
+  }
+
+  @Test
+  public void queriesAreAnsweredWithoutRequests() throws Exception {
+    put("logs/2018/a", "a");
+    put("logs/2018/b", "bb");
+    put("logs/2019/c", "ccc");
+    put("images/d", "dddd");
+    refresher.refresh();
+    long requests = server.getRequestCount();
+
+    assertThat(index.contains("logs/2018/b"), is(true));
+    assertThat(index.contains("logs/2018/z"), is(false));
+    assertThat(index.getEntry("logs/2019/c").getSize(), is(3L));
+    assertThat(
+        index.getEntry("images/d").getETag(),
+        is(client.getObjectMetadata("myBucket", "images/d").getETag()));
+    requests++;
+    assertThat(index.containsPrefix("logs/"), is(true));
+    assertThat(index.containsPrefix("videos/"), is(false));
+    assertThat(keys("logs/2018/"), is(Arrays.asList("logs/2018/a", "logs/2018/b")));
+    assertThat(keys("").size(), is(4));
+
+    assertThat(server.getRequestCount(), is(requests));
+  }
+
+  @Test
+  public void clientWritesUpdateTheIndexAtOnce() throws Exception {
+    client.putObject("myBucket", "a", "12345");
+    client.putObject("myBucket", "b", "b");
+    client.putObject("myBucket", "c", "c");
+    client.copyObject("myBucket", "a", "myBucket", "copy");
+
+    assertThat(index.getEntry("a").getSize(), is(5L));
+    assertThat(
+        index.getEntry("a").getETag(), is(client.getObjectMetadata("myBucket", "a").getETag()));
+    assertThat(index.getEntry("copy").getSize(), is(5L));
+    assertThat(index.getEntry("copy").getETag(), is(index.getEntry("a").getETag()));
+
+    client.deleteObject("myBucket", "a");
+    client.deleteObjects(new DeleteObjectsRequest("myBucket").withKeys("b").withQuiet(true));
+
+    assertThat(index.contains("a"), is(false));
+    assertThat(index.contains("b"), is(false));
+    assertThat(keys(""), is(Arrays.asList("c", "copy")));
+
+    refresher.refresh();
+    assertThat(keys(""), is(Arrays.asList("c", "copy")));
+    assertThat(index.getUpdateCount(), is(0));
+  }
+
+  @Test
+  public void multipartUploadIsIndexedWithoutSizeUntilRefresh() throws Exception {
+    String uploadId =
+        client
+            .initiateMultipartUpload(new InitiateMultipartUploadRequest("myBucket", "big"))
+            .getUploadId();
+    byte[] part = new byte[1024];
+    PartETag partETag =
+        client
+            .uploadPart(
+                new UploadPartRequest()
+                    .withBucketName("myBucket")
+                    .withKey("big")
+                    .withUploadId(uploadId)
+                    .withPartNumber(1)
+                    .withPartSize(part.length)
+                    .withInputStream(new ByteArrayInputStream(part)))
+            .getPartETag();
+    client.completeMultipartUpload(
+        new CompleteMultipartUploadRequest(
+            "myBucket", "big", uploadId, Collections.singletonList(partETag)));
+
+    assertThat(index.getEntry("big").getSize(), is(-1L));
+    refresher.refresh();
+    assertThat(index.getEntry("big").getSize(), is(1024L));
+  }
+
+  @Test
+  public void otherWritersAreSeenAfterRefresh() throws Exception {
+    put("a", "a");
+    assertThat(index.contains("a"), is(false));
+
+    refresher.refresh();
+
+    assertThat(index.contains("a"), is(true));
+  }
+
+  @Test
+  public void refresherFollowsTheContextLifecycle() {
+    assertThat(refresher.isRunning(), is(true));
+
+    this.context.stop();
+    assertThat(refresher.isRunning(), is(false));
+    this.context.start();
+    assertThat(refresher.isRunning(), is(true));
+  }
+
+  @Test
+  public void savedIndexIsUsedAfterRestart() throws Exception {
+    put("a", "a");
+    refresher.refresh();
+    IndexProperties properties = new IndexProperties();
+    properties.setBucket("myBucket");
+    properties.setFile(indexFile.getAbsolutePath());
+
+    KeyIndex restarted = properties.createIndex();
+
+    assertThat(restarted.isReady(), is(true));
+    assertThat(restarted.getRefreshTime(), is(index.getRefreshTime()));
+    assertThat(restarted.getEntry("a").getSize(), is(1L));
+    assertThat(restarted.getEntry("b"), nullValue());
+  }
+
+  @Test
+  public void queriesFailBeforeTheFirstRefresh() {
+    IndexProperties properties = new IndexProperties();
+    properties.setBucket("myBucket");
+    properties.setPrefix("logs/");
+    properties.setFile(new File(folder.getRoot(), "missing.idx").getAbsolutePath());
+    KeyIndex empty = properties.createIndex();
+
+    assertThat(empty.isReady(), is(false));
+    try {
+      empty.contains("logs/a");
+      fail("expected the index not to be ready");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("key index of bucket myBucket is not built yet"));
+    }
+    try {
+      empty.contains("images/a");
+      fail("expected a key outside the prefix to be rejected");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage(), is("'images/a' is not below the indexed prefix 'logs/'"));
+    }
+  }
+
+  private List<String> keys(String prefix) {
+    return index.stream(prefix).map(IndexEntry::getKey).collect(Collectors.toList());
+  }
+
+  private void put(String key, String value) {
+    server.putObject("myBucket", key, value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Configuration
+  @EnableCOS
+  @EnableLocalCOS
+  protected static class IndexConfig {}
+}
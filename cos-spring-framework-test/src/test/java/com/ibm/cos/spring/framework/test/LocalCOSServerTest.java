@@ -0,0 +1,220 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.framework.test;
+
+import static org.hamcrest.CoreMatchers.endsWith;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.GetObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cloud.objectstorage.services.s3.transfer.TransferManager;
+import com.ibm.cos.spring.framework.EnableCOS;
+import com.ibm.cos.spring.test.EnableLocalCOS;
+import com.ibm.cos.spring.test.LocalCOSServer;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StreamUtils;
+
+@SuppressWarnings("deprecation")
+public class LocalCOSServerTest {
+
+  private AnnotationConfigApplicationContext context;
+
+  @Before
+  public void setUp() {
+    this.context = new AnnotationConfigApplicationContext();
+    this.context.register(LocalCOSConfig.class);
+  }
+
+  @After
+  public void cleanup() {
+    if (this.context != null) {
+      this.context.close();
+    }
+  }
+
+  @Test
+  public void objectRoundTrip() throws Exception {
+    EnvironmentTestUtils.addEnvironment(this.context, "cos.test-server.buckets=myBucket");
+    this.context.refresh();
+    AmazonS3 client = this.context.getBean(AmazonS3.class);
+
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentType("text/plain");
+    metadata.addUserMetadata("color", "blue");
+    byte[] content = "0123456789".getBytes(StandardCharsets.US_ASCII);
+    client.putObject("myBucket", "a.txt", new ByteArrayInputStream(content), metadata);
+
+    ObjectMetadata head = client.getObjectMetadata("myBucket", "a.txt");
+    assertThat(head.getContentType(), is("text/plain"));
+    assertThat(head.getUserMetaDataOf("color"), is("blue"));
+    assertThat(head.getContentLength(), is(10L));
+
+    try (S3Object object =
+        client.getObject(new GetObjectRequest("myBucket", "a.txt").withRange(2, 5))) {
+      assertThat(
+          StreamUtils.copyToString(object.getObjectContent(), StandardCharsets.US_ASCII),
+          is("2345"));
+    }
+
+    client.deleteObject("myBucket", "a.txt");
+    assertThat(client.doesObjectExist("myBucket", "a.txt"), is(false));
+  }
+
+  @Test
+  public void conditionalGetsCompareETags() throws Exception {
+    EnvironmentTestUtils.addEnvironment(this.context, "cos.test-server.buckets=myBucket");
+    this.context.refresh();
+    AmazonS3 client = this.context.getBean(AmazonS3.class);
+    String etag = client.putObject("myBucket", "a.txt", "value").getETag();
+
+    // the client returns null for 304 Not Modified and 412 Precondition Failed
+    assertThat(
+        client.getObject(
+            new GetObjectRequest("myBucket", "a.txt").withNonmatchingETagConstraint(etag)),
+        is(nullValue()));
+    assertThat(
+        client.getObject(
+            new GetObjectRequest("myBucket", "a.txt").withMatchingETagConstraint("other")),
+        is(nullValue()));
+    try (S3Object object =
+        client.getObject(
+            new GetObjectRequest("myBucket", "a.txt")
+                .withMatchingETagConstraint(etag)
+                .withNonmatchingETagConstraint("other"))) {
+      assertThat(
+          StreamUtils.copyToString(object.getObjectContent(), StandardCharsets.US_ASCII),
+          is("value"));
+    }
+  }
+
+  @Test
+  public void onlyUnconfiguredClientsAreConnected() {
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.test-server.buckets=myBucket",
+        "cos.clients.scratch.client.max-connections=5",
+        "cos.clients.archive.endpoint=http://archive.example.com",
+        "cos.clients.archive.access-key=myAccessKey",
+        "cos.clients.archive.secret-key=mySecretKey");
+    this.context.refresh();
+    LocalCOSServer server = this.context.getBean(LocalCOSServer.class);
+
+    this.context.getBean("scratchClient", AmazonS3.class).putObject("myBucket", "a", "value");
+
+    assertThat(server.getObjectCount("myBucket"), is(1));
+    assertThat(
+        this.context.getBean("archiveClient", AmazonS3.class).getUrl("myBucket", "a").getHost(),
+        is("archive.example.com"));
+  }
+
+  @Test
+  public void listsWithDelimiter() {
+    EnvironmentTestUtils.addEnvironment(this.context, "cos.test-server.buckets=myBucket");
+    this.context.refresh();
+    LocalCOSServer server = this.context.getBean(LocalCOSServer.class);
+    for (String key : new String[] {"a/1", "a/2", "b/1", "c"}) {
+      server.putObject("myBucket", key, new byte[] {1});
+    }
+
+    AmazonS3 client = this.context.getBean(AmazonS3.class);
+    assertThat(client.listObjectsV2("myBucket").getKeyCount(), is(4));
+    assertThat(
+        client
+            .listObjects(new ListObjectsRequest().withBucketName("myBucket").withDelimiter("/"))
+            .getCommonPrefixes()
+            .size(),
+        is(2));
+  }
+
+  @Test
+  public void multipartUploadThroughTransferManager() throws Exception {
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.test-server.buckets=myBucket",
+        "cos.transfer.multipart-upload-threshold=5242880",
+        "cos.transfer.minimum-upload-part-size=5242880");
+    this.context.refresh();
+
+    byte[] content = new byte[12 * 1024 * 1024];
+    new Random(1).nextBytes(content);
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(content.length);
+    this.context
+        .getBean(TransferManager.class)
+        .upload("myBucket", "big.bin", new ByteArrayInputStream(content), metadata)
+        .waitForCompletion();
+
+    LocalCOSServer server = this.context.getBean(LocalCOSServer.class);
+    assertThat(server.getObject("myBucket", "big.bin"), is(content));
+    assertThat(
+        this.context.getBean(AmazonS3.class).getObjectMetadata("myBucket", "big.bin").getETag(),
+        endsWith("-3"));
+  }
+
+  @Test
+  public void slowDownResponsesAreRetried() {
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.test-server.buckets=myBucket",
+        "cos.test-server.slow-down-rate=0.3",
+        "cos.test-server.seed=42");
+    this.context.refresh();
+    AmazonS3 client = this.context.getBean(AmazonS3.class);
+
+    for (int i = 0; i < 20; i++) {
+      client.putObject("myBucket", "key" + i, "value" + i);
+    }
+
+    LocalCOSServer server = this.context.getBean(LocalCOSServer.class);
+    assertThat(server.getObjectCount("myBucket"), is(20));
+    assertThat(server.getSlowDownCount(), greaterThan(0L));
+  }
+
+  @Test
+  public void connectionResetsAreRetried() {
+    EnvironmentTestUtils.addEnvironment(
+        this.context, "cos.test-server.buckets=myBucket", "cos.test-server.seed=42");
+    this.context.refresh();
+    AmazonS3 client = this.context.getBean(AmazonS3.class);
+    LocalCOSServer server = this.context.getBean(LocalCOSServer.class);
+    server.getFaults().setResetRate(0.2);
+
+    for (int i = 0; i < 20; i++) {
+      client.putObject("myBucket", "key" + i, "value" + i);
+    }
+
+    assertThat(server.getObjectCount("myBucket"), is(20));
+    assertThat(server.getResetCount(), greaterThan(0L));
+  }
+
+  @Configuration
+  @EnableCOS
+  @EnableLocalCOS
+  protected static class LocalCOSConfig {}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.framework.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.ibm.cloud.objectstorage.AmazonServiceException;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cos.spring.core.tracing.RequestPhase;
+import com.ibm.cos.spring.core.tracing.RequestTrace;
+import com.ibm.cos.spring.core.tracing.RequestTraceListener;
+import com.ibm.cos.spring.framework.EnableCOS;
+import com.ibm.cos.spring.test.EnableLocalCOS;
+import com.ibm.cos.spring.test.LocalCOSServer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StreamUtils;
+
+@SuppressWarnings("deprecation")
+public class RequestTracingTest {
+
+  private AnnotationConfigApplicationContext context;
+
+  @Before
+  public void setUp() {
+    this.context = new AnnotationConfigApplicationContext();
+    this.context.register(TracingConfig.class);
+  }
+
+  @After
+  public void cleanup() {
+    if (this.context != null) {
+      this.context.close();
+    }
+  }
+
+  @Test
+  public void getObjectIsTracedUntilContentIsClosed() throws Exception {
+    EnvironmentTestUtils.addEnvironment(
+        this.context, "cos.test-server.buckets=myBucket", "cos.tracing.enabled=true");
+    this.context.refresh();
+    this.context.getBean(LocalCOSServer.class).putObject("myBucket", "a.txt", new byte[1024]);
+    List<RequestTrace> traces = this.context.getBean(TraceCollector.class).traces;
+    AmazonS3 client = this.context.getBean(AmazonS3.class);
+
+    try (S3Object object = client.getObject("myBucket", "a.txt")) {
+      assertThat(traces.size(), is(0));
+      assertThat(StreamUtils.copyToByteArray(object.getObjectContent()).length, is(1024));
+    }
+
+    assertThat(traces.size(), is(1));
+    RequestTrace trace = traces.get(0);
+    assertThat(trace.getOperation(), is("GetObject"));
+    assertThat(trace.getBucket(), is("myBucket"));
+    assertThat(trace.getKey(), is("a.txt"));
+    assertThat(trace.getStatusCode(), is(200));
+    assertThat(trace.getAttempts(), is(1));
+    assertThat(trace.getError(), nullValue());
+    assertThat(trace.getPhase(RequestPhase.FIRST_BYTE), greaterThan(Duration.ZERO));
+    assertThat(trace.getPhase(RequestPhase.BODY), greaterThan(Duration.ZERO));
+    assertThat(trace.getPhases().size(), is(RequestPhase.values().length));
+
+    Duration phases = Duration.ZERO;
+    for (Duration phase : trace.getPhases().values()) {
+      phases = phases.plus(phase);
+    }
+    assertThat(trace.getDuration().compareTo(phases) >= 0, is(true));
+  }
+
+  @Test
+  public void retriesAndErrorsAreTraced() {
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.test-server.buckets=myBucket",
+        "cos.test-server.seed=42",
+        "cos.tracing.enabled=true");
+    this.context.refresh();
+    List<RequestTrace> traces = this.context.getBean(TraceCollector.class).traces;
+    AmazonS3 client = this.context.getBean(AmazonS3.class);
+    LocalCOSServer server = this.context.getBean(LocalCOSServer.class);
+    server.getFaults().setSlowDownRate(0.3);
+
+    for (int i = 0; i < 10; i++) {
+      client.putObject("myBucket", "key" + i, "value" + i);
+    }
+    int attempts = 0;
+    for (RequestTrace trace : traces) {
+      assertThat(trace.getOperation(), is("PutObject"));
+      attempts += trace.getAttempts();
+    }
+    assertThat(traces.size(), is(10));
+    assertThat(server.getSlowDownCount(), greaterThan(0L));
+    assertThat((long) attempts, is(10 + server.getSlowDownCount()));
+
+    server.getFaults().setSlowDownRate(0);
+    traces.clear();
+    try {
+      client.getObjectMetadata("myBucket", "missing");
+      fail("expected a 404");
+    } catch (AmazonServiceException e) {
+      assertThat(e.getStatusCode(), is(404));
+    }
+    assertThat(traces.size(), is(1));
+    assertThat(traces.get(0).getStatusCode(), is(404));
+    assertThat(traces.get(0).getError(), notNullValue());
+  }
+
+  @Test
+  public void unsampledRequestsAreNotTraced() {
+    EnvironmentTestUtils.addEnvironment(
+        this.context,
+        "cos.test-server.buckets=myBucket",
+        "cos.tracing.enabled=true",
+        "cos.tracing.sample-rate=0");
+    this.context.refresh();
+    AmazonS3 client = this.context.getBean(AmazonS3.class);
+
+    client.putObject("myBucket", "a.txt", "value");
+    assertThat(client.getObjectAsString("myBucket", "a.txt"), is("value"));
+
+    assertThat(this.context.getBean(TraceCollector.class).traces.size(), is(0));
+  }
+
+  @Test
+  public void tracingIsDisabledByDefault() {
+    EnvironmentTestUtils.addEnvironment(this.context, "cos.test-server.buckets=myBucket");
+    this.context.refresh();
+    AmazonS3 client = this.context.getBean(AmazonS3.class);
+
+    client.putObject("myBucket", "a.txt", "value");
+    byte[] content = this.context.getBean(LocalCOSServer.class).getObject("myBucket", "a.txt");
+
+    assertThat(new String(content, StandardCharsets.UTF_8), is("value"));
+    assertThat(this.context.getBean(TraceCollector.class).traces.size(), is(0));
+  }
+
+  @Configuration
+  @EnableCOS
+  @EnableLocalCOS
+  protected static class TracingConfig {
+
+    @Bean
+    public TraceCollector traceCollector() {
+      return new TraceCollector();
+    }
+  }
+
+  static class TraceCollector implements RequestTraceListener {
+
+    final List<RequestTrace> traces = new CopyOnWriteArrayList<RequestTrace>();
+
+    @Override
+    public void requestCompleted(RequestTrace trace) {
+      traces.add(trace);
+    }
+  }
+}
@@ -17,15 +17,54 @@ package com.ibm.cos.spring.framework;
 import com.ibm.cloud.objectstorage.ClientConfiguration;
 import com.ibm.cloud.objectstorage.ClientConfigurationFactory;
 import com.ibm.cloud.objectstorage.auth.AWSCredentials;
-import com.ibm.cloud.objectstorage.auth.AWSStaticCredentialsProvider;
 import com.ibm.cloud.objectstorage.auth.BasicAWSCredentials;
 import com.ibm.cloud.objectstorage.client.builder.AwsClientBuilder.EndpointConfiguration;
 import com.ibm.cloud.objectstorage.oauth.BasicIBMOAuthCredentials;
+import com.ibm.cloud.objectstorage.oauth.TokenManager;
 import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
 import com.ibm.cloud.objectstorage.services.s3.AmazonS3ClientBuilder;
+import com.ibm.cloud.objectstorage.services.s3.transfer.TransferManager;
+import com.ibm.cloud.objectstorage.services.s3.transfer.TransferManagerBuilder;
+import com.ibm.cos.spring.core.auth.ApiKeyCredentials;
+import com.ibm.cos.spring.core.auth.RefreshingTokenManager;
+import com.ibm.cos.spring.core.cache.COSCacheManager;
+import com.ibm.cos.spring.core.cache.CacheSerializer;
+import com.ibm.cos.spring.core.cache.ObjectCache;
+import com.ibm.cos.spring.core.changes.BucketChangeListener;
+import com.ibm.cos.spring.core.changes.BucketChangePoller;
+import com.ibm.cos.spring.core.client.ClientBuilderCustomizer;
+import com.ibm.cos.spring.core.client.NamedClientFactory;
+import com.ibm.cos.spring.core.client.NamedClientsRegistrar;
+import com.ibm.cos.spring.core.compression.ObjectCompressor;
+import com.ibm.cos.spring.core.concurrent.VirtualThreadProperties;
+import com.ibm.cos.spring.core.delete.BulkDeleter;
+import com.ibm.cos.spring.core.hedge.RequestHedger;
+import com.ibm.cos.spring.core.index.KeyIndex;
+import com.ibm.cos.spring.core.index.KeyIndexRefresher;
+import com.ibm.cos.spring.core.io.COSProtocolResolver;
+import com.ibm.cos.spring.core.listing.BucketLister;
+import com.ibm.cos.spring.core.pack.BundleReader;
+import com.ibm.cos.spring.core.pack.BundleWriter;
+import com.ibm.cos.spring.core.retry.RetryController;
+import com.ibm.cos.spring.core.startup.ClientStartup;
+import com.ibm.cos.spring.core.startup.StartupMode;
+import com.ibm.cos.spring.core.tracing.RequestTraceListener;
+import com.ibm.cos.spring.core.tracing.RequestTracer;
+import com.ibm.cos.spring.core.transfer.ParallelDownloader;
+import com.ibm.cos.spring.core.transfer.TransferExecutorFactory;
+import com.ibm.cos.spring.core.warmup.ConnectionWarmer;
+import com.ibm.cos.spring.core.writebehind.WriteBehindUploader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.SpringVersion;
 
 @Configuration
@@ -33,34 +72,281 @@ public class COSConfiguration {
 
   @Autowired COSConfigurationProperties config;
 
+  @Autowired(required = false)
+  List<ClientBuilderCustomizer> customizers = Collections.emptyList();
+
+  @Autowired(required = false)
+  List<RequestTraceListener> traceListeners = Collections.emptyList();
+
+  @Autowired(required = false)
+  List<BucketChangeListener> changeListeners = Collections.emptyList();
+
   @Bean
-  public AmazonS3ClientBuilder clientBuilder() {
+  public AmazonS3ClientBuilder clientBuilder(
+      ObjectProvider<RefreshingTokenManager> tokenManager,
+      RetryController retryController,
+      ClientStartup clientStartup,
+      ObjectProvider<RequestTracer> requestTracer,
+      ObjectProvider<KeyIndex> keyIndex) {
     if (config.getEndpoint() == null) {
       throw new NullPointerException("endpoint must not be null");
     }
 
-    return AmazonS3ClientBuilder.standard()
-        .withEndpointConfiguration(
-            new EndpointConfiguration(config.getEndpoint().toString(), config.getLocation()))
-        .withCredentials(new AWSStaticCredentialsProvider(createAWSCredentials()))
-        .withClientConfiguration(createClientConfig())
-        .withPathStyleAccessEnabled(true);
+    long start = System.nanoTime();
+    AmazonS3ClientBuilder builder =
+        AmazonS3ClientBuilder.standard()
+            .withEndpointConfiguration(
+                new EndpointConfiguration(config.getEndpoint().toString(), config.getLocation()))
+            .withCredentials(
+                clientStartup.createCredentialsProvider(
+                    () -> createAWSCredentials(tokenManager.getIfAvailable())))
+            .withClientConfiguration(createClientConfig())
+            .withPathStyleAccessEnabled(true);
+    retryController.applyTo(builder);
+    for (ClientBuilderCustomizer customizer : customizers) {
+      customizer.customize(ClientBuilderCustomizer.DEFAULT_CLIENT, builder);
+    }
+    KeyIndex index = keyIndex.getIfAvailable();
+    if (index != null) {
+      index.applyTo(builder);
+    }
+    // last, so it wraps the metrics collector set by a customizer
+    RequestTracer tracer = requestTracer.getIfAvailable();
+    if (tracer != null) {
+      tracer.applyTo(builder);
+    }
+    clientStartup.record(ClientStartup.CLIENT_BUILDER, start);
+    return builder;
   }
 
-  private AWSCredentials createAWSCredentials() {
+  private AWSCredentials createAWSCredentials(TokenManager tokenManager) {
     if (config.getApiKey() != null) {
+      if (tokenManager != null) {
+        return new ApiKeyCredentials(
+            config.getApiKey(), tokenManager, config.getServiceInstanceId());
+      }
       return new BasicIBMOAuthCredentials(config.getApiKey(), config.getServiceInstanceId());
     }
     return new BasicAWSCredentials(config.getAccessKey(), config.getSecretKey());
   }
 
+  @Bean
+  @Conditional(ApiKeyCondition.class)
+  public RefreshingTokenManager tokenManager(ClientStartup clientStartup) {
+    // a lazy client fetches its first token on first use as well
+    return config
+        .getIam()
+        .createTokenManager(
+            config.getApiKey(),
+            config.getIam().isPrefetch() && clientStartup.getMode() != StartupMode.LAZY);
+  }
+
+  @Bean
+  public ClientStartup clientStartup() {
+    return config.getStartup().createClientStartup();
+  }
+
+  @Bean
+  public ApplicationListener<ContextRefreshedEvent> clientStartupListener(
+      ClientStartup clientStartup) {
+    return new ApplicationListener<ContextRefreshedEvent>() {
+      @Override
+      public void onApplicationEvent(ContextRefreshedEvent event) {
+        clientStartup.ready();
+      }
+    };
+  }
+
+  @Bean
+  public RetryController retryController() {
+    return config.getRetry().createRetryController();
+  }
+
   private ClientConfiguration createClientConfig() {
     String suffix = String.format("spring_framework/%s", SpringVersion.getVersion());
-    return new ClientConfigurationFactory().getConfig().withUserAgentSuffix(suffix);
+    ClientConfiguration clientConfig =
+        new ClientConfigurationFactory().getConfig().withUserAgentSuffix(suffix);
+    return config.getClient().applyTo(clientConfig);
+  }
+
+  @Bean
+  @Primary
+  public AmazonS3 client(
+      AmazonS3ClientBuilder builder,
+      ClientStartup clientStartup,
+      ObjectProvider<RequestHedger> requestHedger,
+      ObjectProvider<ObjectCache> objectCache,
+      ObjectProvider<ObjectCompressor> objectCompressor) {
+    AmazonS3 client = clientStartup.createClient(builder::build);
+    RequestHedger hedger = requestHedger.getIfAvailable();
+    if (hedger != null) {
+      client = hedger.wrap(client);
+    }
+    ObjectCache cache = objectCache.getIfAvailable();
+    if (cache != null) {
+      client = cache.wrap(client);
+    }
+    // outermost, so the cache holds the stored bytes and hedged reads are decompressed once
+    ObjectCompressor compressor = objectCompressor.getIfAvailable();
+    return compressor != null ? compressor.wrap(client) : client;
+  }
+
+  @Bean
+  @Conditional(TracingEnabledCondition.class)
+  public RequestTracer requestTracer() {
+    return config.getTracing().createTracer(traceListeners);
+  }
+
+  @Bean
+  @Conditional(HedgeEnabledCondition.class)
+  public RequestHedger requestHedger() {
+    VirtualThreadProperties virtualThreads = config.getVirtualThreads();
+    // the hedger limits its requests itself, so that none waits in the executor's queue
+    return virtualThreads.isActive()
+        ? config
+            .getHedge()
+            .createHedger(
+                virtualThreads.createUnlimitedExecutor("cos-hedge-"),
+                virtualThreads.getMaxConcurrency())
+        : config.getHedge().createHedger();
+  }
+
+  @Bean
+  @Conditional(CacheEnabledCondition.class)
+  public ObjectCache objectCache() {
+    return config.getCache().createCache();
+  }
+
+  @Bean
+  @Conditional(CompressionEnabledCondition.class)
+  public ObjectCompressor objectCompressor() {
+    return config.getCompression().createCompressor();
+  }
+
+  @Bean
+  @Conditional(CacheManagerEnabledCondition.class)
+  public COSCacheManager cacheManager(
+      AmazonS3 client, BulkDeleter bulkDeleter, ObjectProvider<CacheSerializer> cacheSerializer) {
+    return config
+        .getCacheManager()
+        .createCacheManager(client, bulkDeleter, cacheSerializer.getIfAvailable());
+  }
+
+  @Bean
+  @Conditional(WarmupEnabledCondition.class)
+  public ConnectionWarmer connectionWarmer(AmazonS3 client) {
+    return config.getWarmup().createWarmer(client);
+  }
+
+  @Bean
+  public TransferExecutorFactory transferExecutorFactory() {
+    return config
+        .getVirtualThreads()
+        .createTransferExecutorFactory("cos-transfer-", config.getTransfer().getThreads());
+  }
+
+  @Bean
+  @Primary
+  public TransferManager transferManager(
+      AmazonS3 client, TransferExecutorFactory transferExecutorFactory) {
+    // the executor is shared and owned by the context, so it must outlive the TransferManager
+    return config
+        .getTransfer()
+        .applyTo(TransferManagerBuilder.standard())
+        .withS3Client(client)
+        .withExecutorFactory(transferExecutorFactory)
+        .withShutDownThreadPools(false)
+        .build();
+  }
+
+  @Bean
+  public ParallelDownloader parallelDownloader(
+      AmazonS3 client, TransferExecutorFactory transferExecutorFactory) {
+    return config.getTransfer().createDownloader(client, transferExecutorFactory.newExecutor());
+  }
+
+  @Bean
+  public BulkDeleter bulkDeleter(AmazonS3 client, TransferExecutorFactory transferExecutorFactory) {
+    return config.getBulkDelete().createDeleter(client, transferExecutorFactory.newExecutor());
+  }
+
+  @Bean
+  public BucketLister bucketLister(
+      AmazonS3 client, TransferExecutorFactory transferExecutorFactory) {
+    return config.getListing().createLister(client, transferExecutorFactory.newExecutor());
+  }
+
+  @Bean
+  @Conditional(PackEnabledCondition.class)
+  public BundleWriter bundleWriter(AmazonS3 client) {
+    return config.getPack().createWriter(client);
+  }
+
+  @Bean
+  @Conditional(PackEnabledCondition.class)
+  public BundleReader bundleReader(AmazonS3 client) {
+    return config.getPack().createReader(client);
+  }
+
+  @Bean
+  @Conditional(WriteBehindEnabledCondition.class)
+  public WriteBehindUploader writeBehindUploader(AmazonS3 client) {
+    return config.getWriteBehind().createUploader(client);
+  }
+
+  @Bean
+  @Conditional(ChangesEnabledCondition.class)
+  public BucketChangePoller bucketChangePoller(AmazonS3 client, ObjectProvider<KeyIndex> keyIndex) {
+    List<BucketChangeListener> listeners = new ArrayList<BucketChangeListener>(changeListeners);
+    KeyIndex index = keyIndex.getIfAvailable();
+    if (index != null) {
+      listeners.add(index::update);
+    }
+    // started as a SmartLifecycle once the context is refreshed
+    return config.getChanges().createPoller(client, listeners);
+  }
+
+  @Bean
+  @Conditional(IndexEnabledCondition.class)
+  public KeyIndex keyIndex() {
+    return config.getIndex().createIndex();
+  }
+
+  @Bean
+  @Conditional(IndexEnabledCondition.class)
+  public KeyIndexRefresher keyIndexRefresher(AmazonS3 client, KeyIndex keyIndex) {
+    // started as a SmartLifecycle once the context is refreshed
+    return config.getIndex().createRefresher(client, keyIndex);
+  }
+
+  @Bean
+  public NamedClientFactory namedClientFactory(
+      TransferExecutorFactory transferExecutorFactory,
+      ObjectProvider<ObjectCache> objectCache,
+      ObjectProvider<ObjectCompressor> objectCompressor,
+      ObjectProvider<RequestTracer> requestTracer) {
+    NamedClientFactory factory =
+        new NamedClientFactory(
+            createClientConfig(),
+            config.getIam(),
+            config.getRetry(),
+            config.getHedge(),
+            customizers,
+            transferExecutorFactory,
+            objectCache.getIfAvailable(),
+            config.getVirtualThreads());
+    factory.setObjectCompressor(objectCompressor.getIfAvailable());
+    factory.setRequestTracer(requestTracer.getIfAvailable());
+    return factory;
+  }
+
+  @Bean
+  public static NamedClientsRegistrar namedClientsRegistrar() {
+    return new NamedClientsRegistrar();
   }
 
   @Bean
-  public AmazonS3 client(AmazonS3ClientBuilder builder) {
-    return builder.build();
+  public static COSProtocolResolver cosProtocolResolver() {
+    return new COSProtocolResolver();
   }
 }
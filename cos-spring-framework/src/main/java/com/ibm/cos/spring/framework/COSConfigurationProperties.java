@@ -14,10 +14,31 @@
 
 package com.ibm.cos.spring.framework;
 
+import com.ibm.cos.spring.core.auth.IamProperties;
+import com.ibm.cos.spring.core.cache.CacheManagerProperties;
+import com.ibm.cos.spring.core.cache.CacheProperties;
+import com.ibm.cos.spring.core.changes.ChangesProperties;
+import com.ibm.cos.spring.core.client.ClientProperties;
+import com.ibm.cos.spring.core.compression.CompressionProperties;
+import com.ibm.cos.spring.core.concurrent.VirtualThreadProperties;
+import com.ibm.cos.spring.core.delete.BulkDeleteProperties;
+import com.ibm.cos.spring.core.env.PropertyTreeBinder;
+import com.ibm.cos.spring.core.hedge.HedgeProperties;
+import com.ibm.cos.spring.core.index.IndexProperties;
+import com.ibm.cos.spring.core.listing.ListingProperties;
+import com.ibm.cos.spring.core.pack.PackProperties;
+import com.ibm.cos.spring.core.retry.RetryProperties;
+import com.ibm.cos.spring.core.startup.StartupProperties;
+import com.ibm.cos.spring.core.tracing.TracingProperties;
+import com.ibm.cos.spring.core.transfer.TransferProperties;
+import com.ibm.cos.spring.core.warmup.WarmupProperties;
+import com.ibm.cos.spring.core.writebehind.WriteBehindProperties;
 import java.net.URL;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
 
-public class COSConfigurationProperties {
+public class COSConfigurationProperties implements EnvironmentAware {
 
   @Value("${cos.endpoint:#{null}}")
   private URL endpoint;
@@ -37,6 +58,82 @@ public class COSConfigurationProperties {
   @Value("${cos.secret-key:#{null}}")
   private String secretKey;
 
+  /** bound from cos.iam.* */
+  private IamProperties iam = new IamProperties();
+
+  /** bound from cos.client.* */
+  private ClientProperties client = new ClientProperties();
+
+  /** bound from cos.transfer.* */
+  private TransferProperties transfer = new TransferProperties();
+
+  /** bound from cos.cache.* */
+  private CacheProperties cache = new CacheProperties();
+
+  /** bound from cos.warmup.* */
+  private WarmupProperties warmup = new WarmupProperties();
+
+  /** bound from cos.retry.* */
+  private RetryProperties retry = new RetryProperties();
+
+  /** bound from cos.hedge.* */
+  private HedgeProperties hedge = new HedgeProperties();
+
+  /** bound from cos.bulk-delete.* */
+  private BulkDeleteProperties bulkDelete = new BulkDeleteProperties();
+
+  /** bound from cos.listing.* */
+  private ListingProperties listing = new ListingProperties();
+
+  /** bound from cos.cache-manager.* */
+  private CacheManagerProperties cacheManager = new CacheManagerProperties();
+
+  /** bound from cos.compression.* */
+  private CompressionProperties compression = new CompressionProperties();
+
+  /** bound from cos.pack.* */
+  private PackProperties pack = new PackProperties();
+
+  /** bound from cos.write-behind.* */
+  private WriteBehindProperties writeBehind = new WriteBehindProperties();
+
+  /** bound from cos.virtual-threads.* */
+  private VirtualThreadProperties virtualThreads = new VirtualThreadProperties();
+
+  /** bound from cos.startup.* */
+  private StartupProperties startup = new StartupProperties();
+
+  /** bound from cos.tracing.* */
+  private TracingProperties tracing = new TracingProperties();
+
+  /** bound from cos.changes.* */
+  private ChangesProperties changes = new ChangesProperties();
+
+  /** bound from cos.index.* */
+  private IndexProperties index = new IndexProperties();
+
+  @Override
+  public void setEnvironment(Environment environment) {
+    PropertyTreeBinder.bind(environment, "cos.iam", iam);
+    PropertyTreeBinder.bind(environment, "cos.client", client);
+    PropertyTreeBinder.bind(environment, "cos.transfer", transfer);
+    PropertyTreeBinder.bind(environment, "cos.cache", cache);
+    PropertyTreeBinder.bind(environment, "cos.warmup", warmup);
+    PropertyTreeBinder.bind(environment, "cos.retry", retry);
+    PropertyTreeBinder.bind(environment, "cos.hedge", hedge);
+    PropertyTreeBinder.bind(environment, "cos.bulk-delete", bulkDelete);
+    PropertyTreeBinder.bind(environment, "cos.listing", listing);
+    PropertyTreeBinder.bind(environment, "cos.cache-manager", cacheManager);
+    PropertyTreeBinder.bind(environment, "cos.compression", compression);
+    PropertyTreeBinder.bind(environment, "cos.pack", pack);
+    PropertyTreeBinder.bind(environment, "cos.write-behind", writeBehind);
+    PropertyTreeBinder.bind(environment, "cos.virtual-threads", virtualThreads);
+    PropertyTreeBinder.bind(environment, "cos.startup", startup);
+    PropertyTreeBinder.bind(environment, "cos.tracing", tracing);
+    PropertyTreeBinder.bind(environment, "cos.changes", changes);
+    PropertyTreeBinder.bind(environment, "cos.index", index);
+  }
+
   public URL getEndpoint() {
     return endpoint;
   }
@@ -84,4 +181,148 @@ public class COSConfigurationProperties {
   public void setSecretKey(String secretKey) {
     this.secretKey = secretKey;
   }
+
+  public IamProperties getIam() {
+    return iam;
+  }
+
+  public void setIam(IamProperties iam) {
+    this.iam = iam;
+  }
+
+  public ClientProperties getClient() {
+    return client;
+  }
+
+  public void setClient(ClientProperties client) {
+    this.client = client;
+  }
+
+  public TransferProperties getTransfer() {
+    return transfer;
+  }
+
+  public void setTransfer(TransferProperties transfer) {
+    this.transfer = transfer;
+  }
+
+  public CacheProperties getCache() {
+    return cache;
+  }
+
+  public void setCache(CacheProperties cache) {
+    this.cache = cache;
+  }
+
+  public WarmupProperties getWarmup() {
+    return warmup;
+  }
+
+  public void setWarmup(WarmupProperties warmup) {
+    this.warmup = warmup;
+  }
+
+  public RetryProperties getRetry() {
+    return retry;
+  }
+
+  public void setRetry(RetryProperties retry) {
+    this.retry = retry;
+  }
+
+  public HedgeProperties getHedge() {
+    return hedge;
+  }
+
+  public void setHedge(HedgeProperties hedge) {
+    this.hedge = hedge;
+  }
+
+  public BulkDeleteProperties getBulkDelete() {
+    return bulkDelete;
+  }
+
+  public void setBulkDelete(BulkDeleteProperties bulkDelete) {
+    this.bulkDelete = bulkDelete;
+  }
+
+  public ListingProperties getListing() {
+    return listing;
+  }
+
+  public void setListing(ListingProperties listing) {
+    this.listing = listing;
+  }
+
+  public CacheManagerProperties getCacheManager() {
+    return cacheManager;
+  }
+
+  public void setCacheManager(CacheManagerProperties cacheManager) {
+    this.cacheManager = cacheManager;
+  }
+
+  public CompressionProperties getCompression() {
+    return compression;
+  }
+
+  public void setCompression(CompressionProperties compression) {
+    this.compression = compression;
+  }
+
+  public PackProperties getPack() {
+    return pack;
+  }
+
+  public void setPack(PackProperties pack) {
+    this.pack = pack;
+  }
+
+  public WriteBehindProperties getWriteBehind() {
+    return writeBehind;
+  }
+
+  public void setWriteBehind(WriteBehindProperties writeBehind) {
+    this.writeBehind = writeBehind;
+  }
+
+  public VirtualThreadProperties getVirtualThreads() {
+    return virtualThreads;
+  }
+
+  public void setVirtualThreads(VirtualThreadProperties virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+
+  public StartupProperties getStartup() {
+    return startup;
+  }
+
+  public void setStartup(StartupProperties startup) {
+    this.startup = startup;
+  }
+
+  public TracingProperties getTracing() {
+    return tracing;
+  }
+
+  public void setTracing(TracingProperties tracing) {
+    this.tracing = tracing;
+  }
+
+  public ChangesProperties getChanges() {
+    return changes;
+  }
+
+  public void setChanges(ChangesProperties changes) {
+    this.changes = changes;
+  }
+
+  public IndexProperties getIndex() {
+    return index;
+  }
+
+  public void setIndex(IndexProperties index) {
+    this.index = index;
+  }
 }
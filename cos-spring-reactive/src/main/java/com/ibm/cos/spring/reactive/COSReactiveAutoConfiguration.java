@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.reactive;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+@Configuration
+@ConditionalOnClass(Flux.class)
+@ConditionalOnBean(AmazonS3.class)
+@AutoConfigureAfter(name = "com.ibm.cos.spring.boot.COSAutoConfiguration")
+@EnableConfigurationProperties(COSReactiveProperties.class)
+public class COSReactiveAutoConfiguration {
+
+  @Autowired private COSReactiveProperties config;
+
+  @Bean
+  @ConditionalOnMissingBean
+  public ReactiveCOSClient reactiveClient(AmazonS3 client) {
+    return new ReactiveCOSClient(
+        client, config.getConcurrency(), new DefaultDataBufferFactory(), config.getBufferSize());
+  }
+}
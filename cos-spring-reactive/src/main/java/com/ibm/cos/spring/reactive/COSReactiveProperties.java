@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.reactive;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Reactive COS client properties */
+@ConfigurationProperties(prefix = "cos.reactive")
+public class COSReactiveProperties {
+
+  /** number of threads for blocking COS calls of the reactive client, and for its uploads */
+  private int concurrency = 16;
+
+  /** size in bytes of the buffers emitted for object bodies */
+  private int bufferSize = ReactiveCOSClient.DEFAULT_BUFFER_SIZE;
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  public void setConcurrency(int concurrency) {
+    this.concurrency = concurrency;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public void setBufferSize(int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.reactive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+/**
+ * Blocking InputStream over a DataBuffer publisher. Buffers are requested one at a time as the
+ * previous one is consumed, so at most one buffer is held regardless of the body size.
+ */
+class PublisherInputStream extends InputStream implements Subscriber<DataBuffer> {
+
+  private static final Object COMPLETE = new Object();
+
+  private final BlockingQueue<Object> signals = new LinkedBlockingQueue<Object>();
+
+  private volatile Subscription subscription;
+
+  private DataBuffer current;
+
+  private boolean done;
+
+  @Override
+  public void onSubscribe(Subscription subscription) {
+    this.subscription = subscription;
+    subscription.request(1);
+  }
+
+  @Override
+  public void onNext(DataBuffer buffer) {
+    signals.add(buffer);
+  }
+
+  @Override
+  public void onError(Throwable error) {
+    signals.add(error);
+  }
+
+  @Override
+  public void onComplete() {
+    signals.add(COMPLETE);
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    while (current == null || current.readableByteCount() == 0) {
+      if (done) {
+        return -1;
+      }
+      if (current != null) {
+        DataBufferUtils.release(current);
+        current = null;
+        subscription.request(1);
+      }
+      Object signal = take();
+      if (signal == COMPLETE) {
+        done = true;
+      } else if (signal instanceof Throwable) {
+        done = true;
+        throw new IOException("request body failed", (Throwable) signal);
+      } else {
+        current = (DataBuffer) signal;
+      }
+    }
+    int count = Math.min(len, current.readableByteCount());
+    current.read(b, off, count);
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return current != null ? current.readableByteCount() : 0;
+  }
+
+  @Override
+  public void close() {
+    if (subscription != null && !done) {
+      subscription.cancel();
+    }
+    done = true;
+    if (current != null) {
+      DataBufferUtils.release(current);
+      current = null;
+    }
+    Object signal;
+    while ((signal = signals.poll()) != null) {
+      if (signal instanceof DataBuffer) {
+        DataBufferUtils.release((DataBuffer) signal);
+      }
+    }
+  }
+
+  private Object take() throws IOException {
+    try {
+      return signals.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for the request body");
+    }
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.reactive;
+
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
+import com.ibm.cloud.objectstorage.services.s3.Headers;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Request;
+import com.ibm.cloud.objectstorage.services.s3.model.ListObjectsV2Result;
+import com.ibm.cloud.objectstorage.services.s3.model.ObjectMetadata;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectRequest;
+import com.ibm.cloud.objectstorage.services.s3.model.PutObjectResult;
+import com.ibm.cloud.objectstorage.services.s3.model.S3Object;
+import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectSummary;
+import java.io.IOException;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactor facade over a blocking {@link AmazonS3} client. Blocking calls run on a dedicated
+ * scheduler with {@code concurrency} threads, so they never block the threads of the rest of the
+ * application. Object bodies are streamed as DataBuffers and only read from COS as downstream
+ * requests them.
+ *
+ * <p>The scheduler bounds the threads blocked in SDK calls, not the requests in flight: a streamed
+ * body keeps its connection open after the GET has returned its thread, until the body is consumed
+ * or the subscription cancelled. Open bodies are only bounded by the connection pool of the client.
+ *
+ * <p>Uploads run on a second scheduler, as an upload blocks its thread until its body is complete.
+ * Sharing threads with the calls that produce the body, e.g. a {@link #getObject} piped into {@link
+ * #putObject}, could otherwise leave no thread to produce it. The threads of that scheduler bound
+ * the number of concurrent uploads.
+ *
+ * <h1>Usage Examples</h1>
+ *
+ * <code>
+ * reactiveClient.getObject("bucket", "key")
+ *     .map(buffer -&gt; ...)
+ * </code>
+ */
+public class ReactiveCOSClient implements DisposableBean {
+
+  /** default size of the DataBuffers emitted for object bodies */
+  public static final int DEFAULT_BUFFER_SIZE = 32 * 1024;
+
+  private final AmazonS3 client;
+
+  private final Scheduler scheduler;
+
+  private final Scheduler uploadScheduler;
+
+  private final DataBufferFactory bufferFactory;
+
+  private final int bufferSize;
+
+  public ReactiveCOSClient(AmazonS3 client, int concurrency) {
+    this(client, concurrency, new DefaultDataBufferFactory(), DEFAULT_BUFFER_SIZE);
+  }
+
+  public ReactiveCOSClient(
+      AmazonS3 client, int concurrency, DataBufferFactory bufferFactory, int bufferSize) {
+    this(
+        client,
+        Schedulers.newParallel("cos-reactive", requirePositive(concurrency, "concurrency"), true),
+        Schedulers.newParallel("cos-reactive-upload", concurrency, true),
+        bufferFactory,
+        bufferSize);
+  }
+
+  /**
+   * Create a facade running blocking calls on the given scheduler and uploads on a scheduler of its
+   * own with one thread per processor. The caller owns the scheduler unless it is disposed through
+   * {@link #destroy()}.
+   */
+  public ReactiveCOSClient(
+      AmazonS3 client, Scheduler scheduler, DataBufferFactory bufferFactory, int bufferSize) {
+    this(
+        client,
+        scheduler,
+        Schedulers.newParallel(
+            "cos-reactive-upload", Runtime.getRuntime().availableProcessors(), true),
+        bufferFactory,
+        bufferSize);
+  }
+
+  /**
+   * Create a facade running blocking calls and uploads on the given schedulers. An upload blocks a
+   * thread of {@code uploadScheduler} until its body completes, so that scheduler must not be
+   * needed to produce upload bodies. The caller owns the schedulers unless they are disposed
+   * through {@link #destroy()}.
+   */
+  public ReactiveCOSClient(
+      AmazonS3 client,
+      Scheduler scheduler,
+      Scheduler uploadScheduler,
+      DataBufferFactory bufferFactory,
+      int bufferSize) {
+    this.client = client;
+    this.scheduler = scheduler;
+    this.uploadScheduler = uploadScheduler;
+    this.bufferFactory = bufferFactory;
+    this.bufferSize = requirePositive(bufferSize, "bufferSize");
+  }
+
+  /**
+   * Stream the body of an object. The GET is issued on subscription and the body is read as buffers
+   * are requested; cancelling aborts the underlying HTTP request.
+   */
+  public Flux<DataBuffer> getObject(String bucket, String key) {
+    return Flux.using(
+            () -> client.getObject(bucket, key),
+            object ->
+                DataBufferUtils.readInputStream(
+                    object::getObjectContent, bufferFactory, bufferSize),
+            ReactiveCOSClient::release)
+        .subscribeOn(scheduler);
+  }
+
+  /**
+   * Upload an object from a stream of buffers. The metadata must carry the content length,
+   * otherwise the SDK would have to buffer the whole body in memory to compute it.
+   */
+  public Mono<PutObjectResult> putObject(
+      String bucket, String key, Publisher<DataBuffer> body, ObjectMetadata metadata) {
+    if (metadata.getRawMetadataValue(Headers.CONTENT_LENGTH) == null) {
+      return Mono.error(new IllegalArgumentException("metadata must specify the content length"));
+    }
+    return Mono.fromCallable(
+            () -> {
+              PublisherInputStream input = new PublisherInputStream();
+              body.subscribe(input);
+              try {
+                return client.putObject(new PutObjectRequest(bucket, key, input, metadata));
+              } finally {
+                input.close();
+              }
+            })
+        .subscribeOn(uploadScheduler);
+  }
+
+  /** Fetch the metadata of an object without its body. */
+  public Mono<ObjectMetadata> headObject(String bucket, String key) {
+    return Mono.fromCallable(() -> client.getObjectMetadata(bucket, key)).subscribeOn(scheduler);
+  }
+
+  /** Delete an object. */
+  public Mono<Void> deleteObject(String bucket, String key) {
+    return Mono.<Void>fromRunnable(() -> client.deleteObject(bucket, key)).subscribeOn(scheduler);
+  }
+
+  /**
+   * List the objects below a prefix. Pages are fetched one at a time as summaries are requested, so
+   * at most one page is buffered ahead of the subscriber.
+   */
+  public Flux<S3ObjectSummary> listObjects(String bucket, String prefix) {
+    return Flux.<ListObjectsV2Result, ListObjectsV2Request>generate(
+            () -> new ListObjectsV2Request().withBucketName(bucket).withPrefix(prefix),
+            (request, sink) -> {
+              ListObjectsV2Result page = client.listObjectsV2(request);
+              sink.next(page);
+              if (!page.isTruncated()) {
+                sink.complete();
+              }
+              return request.withContinuationToken(page.getNextContinuationToken());
+            })
+        .concatMapIterable(ListObjectsV2Result::getObjectSummaries, 1)
+        .subscribeOn(scheduler);
+  }
+
+  @Override
+  public void destroy() {
+    scheduler.dispose();
+    uploadScheduler.dispose();
+  }
+
+  private static void release(S3Object object) {
+    // once the body is fully read the connection is already back in the pool and this is a no-op,
+    // otherwise aborting is cheaper than draining the rest of the body
+    object.getObjectContent().abort();
+    try {
+      object.close();
+    } catch (IOException e) {
+      // the connection has already been released or aborted
+    }
+  }
+
+  private static int requirePositive(int value, String name) {
+    if (value < 1) {
+      throw new IllegalArgumentException(name + " must be greater than 0");
+    }
+    return value;
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.test;
+
+/**
+ * Latency, bandwidth and failures the {@link LocalCOSServer} injects. Settings may be changed while
+ * the server is running and apply to the next request.
+ */
+public class FaultProfile {
+
+  private volatile LatencyDistribution latency = LatencyDistribution.none();
+
+  private volatile long bandwidth;
+
+  private volatile double slowDownRate;
+
+  private volatile double resetRate;
+
+  /** @return delay added to each response */
+  public LatencyDistribution getLatency() {
+    return latency;
+  }
+
+  public void setLatency(LatencyDistribution latency) {
+    this.latency = latency != null ? latency : LatencyDistribution.none();
+  }
+
+  /** @return bytes per second each request and response body is transferred at, 0 for no limit */
+  public long getBandwidth() {
+    return bandwidth;
+  }
+
+  public void setBandwidth(long bandwidth) {
+    if (bandwidth < 0) {
+      throw new IllegalArgumentException("bandwidth must not be negative");
+    }
+    this.bandwidth = bandwidth;
+  }
+
+  /** @return share of requests answered with 503 SlowDown, between 0 and 1 */
+  public double getSlowDownRate() {
+    return slowDownRate;
+  }
+
+  public void setSlowDownRate(double slowDownRate) {
+    this.slowDownRate = requireRate(slowDownRate);
+  }
+
+  /**
+   * @return share of requests whose connection is closed without a response, or in the middle of an
+   *     object body, between 0 and 1
+   */
+  public double getResetRate() {
+    return resetRate;
+  }
+
+  public void setResetRate(double resetRate) {
+    this.resetRate = requireRate(resetRate);
+  }
+
+  private static double requireRate(double rate) {
+    if (rate < 0 || rate > 1) {
+      throw new IllegalArgumentException("rate must be between 0 and 1");
+    }
+    return rate;
+  }
+}
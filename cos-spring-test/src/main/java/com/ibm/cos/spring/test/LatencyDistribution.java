@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.test;
+
+import java.util.Random;
+import java.util.function.ToLongFunction;
+
+/** Distribution of the delay the {@link LocalCOSServer} adds to each response, in milliseconds. */
+public final class LatencyDistribution {
+
+  /** standard normal quantile of the 99th percentile */
+  private static final double Z_99 = 2.3263;
+
+  private static final LatencyDistribution NONE = new LatencyDistribution("none", random -> 0);
+
+  private final String description;
+
+  private final ToLongFunction<Random> sampler;
+
+  private LatencyDistribution(String description, ToLongFunction<Random> sampler) {
+    this.description = description;
+    this.sampler = sampler;
+  }
+
+  /** @return a distribution without delay */
+  public static LatencyDistribution none() {
+    return NONE;
+  }
+
+  /**
+   * @param delay milliseconds added to every response
+   * @return a constant distribution
+   */
+  public static LatencyDistribution fixed(long delay) {
+    requireNotNegative(delay);
+    return new LatencyDistribution("fixed:" + delay, random -> delay);
+  }
+
+  /**
+   * @param min minimum delay in milliseconds
+   * @param max maximum delay in milliseconds
+   * @return a uniform distribution between both bounds
+   */
+  public static LatencyDistribution uniform(long min, long max) {
+    requireNotNegative(min);
+    if (max < min) {
+      throw new IllegalArgumentException("maximum latency must not be less than the minimum");
+    }
+    return new LatencyDistribution(
+        "uniform:" + min + "-" + max, random -> min + (long) (random.nextDouble() * (max - min)));
+  }
+
+  /**
+   * @param mean mean delay in milliseconds
+   * @return an exponential distribution, modelling independent queueing delays
+   */
+  public static LatencyDistribution exponential(long mean) {
+    requireNotNegative(mean);
+    return new LatencyDistribution(
+        "exponential:" + mean, random -> Math.round(-mean * Math.log(1 - random.nextDouble())));
+  }
+
+  /**
+   * @param median median delay in milliseconds
+   * @param p99 99th percentile delay in milliseconds
+   * @return a log-normal distribution, modelling a fast common case with a long tail
+   */
+  public static LatencyDistribution logNormal(long median, long p99) {
+    if (median < 1 || p99 < median) {
+      throw new IllegalArgumentException(
+          "log-normal latency needs a positive median and a 99th percentile not below it");
+    }
+    double mu = Math.log(median);
+    double sigma = Math.log((double) p99 / median) / Z_99;
+    return new LatencyDistribution(
+        "lognormal:" + median + "-" + p99,
+        random -> Math.round(Math.exp(mu + sigma * random.nextGaussian())));
+  }
+
+  /**
+   * Parse a property value: {@code none}, {@code fixed:10}, {@code uniform:5-50}, {@code
+   * exponential:20} or {@code lognormal:10-200} (median and 99th percentile).
+   *
+   * @param value distribution and its milliseconds
+   * @return the matching distribution
+   * @throws IllegalArgumentException if the value cannot be parsed
+   */
+  public static LatencyDistribution parse(String value) {
+    String trimmed = value.trim();
+    if (trimmed.isEmpty() || trimmed.equals("none")) {
+      return none();
+    }
+    int colon = trimmed.indexOf(':');
+    try {
+      String type = colon < 0 ? "" : trimmed.substring(0, colon);
+      String[] bounds = trimmed.substring(colon + 1).split("-", 2);
+      long first = Long.parseLong(bounds[0].trim());
+      switch (type) {
+        case "fixed":
+          return fixed(first);
+        case "exponential":
+          return exponential(first);
+        case "uniform":
+          return uniform(first, Long.parseLong(bounds[1].trim()));
+        case "lognormal":
+          return logNormal(first, Long.parseLong(bounds[1].trim()));
+        default:
+          break;
+      }
+    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException(
+        String.format(
+            "invalid latency '%s', expected none, fixed:<ms>, uniform:<min>-<max>,"
+                + " exponential:<mean> or lognormal:<median>-<p99>",
+            value));
+  }
+
+  /**
+   * @param random source of randomness
+   * @return a delay in milliseconds
+   */
+  public long sample(Random random) {
+    return Math.max(0, sampler.applyAsLong(random));
+  }
+
+  @Override
+  public String toString() {
+    return description;
+  }
+
+  private static void requireNotNegative(long delay) {
+    if (delay < 0) {
+      throw new IllegalArgumentException("latency must not be negative");
+    }
+  }
+}
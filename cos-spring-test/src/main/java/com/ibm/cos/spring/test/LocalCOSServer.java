@@ -0,0 +1,979 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.test;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * In-process, in-memory server for the parts of the S3 API used by the COS client: buckets, object
+ * PUT, GET with ranges and ETag conditions, HEAD, DELETE and copy, multi-object delete, multipart
+ * uploads with their parts listing, and ListObjects V1 and V2. It serves path-style requests on a
+ * loopback port and accepts any credentials.
+ *
+ * <p>The {@link FaultProfile} adds latency, limits bandwidth, answers requests with 503 SlowDown or
+ * closes connections, so retries, connection pooling and hedging can be tested locally.
+ */
+public final class LocalCOSServer implements Closeable {
+
+  private static final String XML_NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+  /** stored and returned with an object besides x-amz-meta-* */
+  private static final String[] STORED_HEADERS = {
+    "Content-Type",
+    "Content-Encoding",
+    "Content-Disposition",
+    "Content-Language",
+    "Cache-Control",
+    "Expires"
+  };
+
+  private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+  private static final Pattern DELETE_KEY = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+
+  private final ConcurrentMap<String, NavigableMap<String, StoredObject>> buckets =
+      new ConcurrentHashMap<String, NavigableMap<String, StoredObject>>();
+
+  private final ConcurrentMap<String, Upload> uploads = new ConcurrentHashMap<String, Upload>();
+
+  private final FaultProfile faults;
+
+  private final Random random;
+
+  private final HttpServer server;
+
+  private final ExecutorService executor;
+
+  private final AtomicLong requestCount = new AtomicLong();
+
+  private final AtomicLong slowDownCount = new AtomicLong();
+
+  private final AtomicLong resetCount = new AtomicLong();
+
+  private LocalCOSServer(FaultProfile faults, Random random) throws IOException {
+    this.faults = faults;
+    this.random = random;
+    // headers and body are written separately, which Nagle's algorithm delays by up to 40 ms
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("local-cos-");
+    threadFactory.setDaemon(true);
+    this.executor = Executors.newCachedThreadPool(threadFactory);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * Start a server without faults on a free loopback port.
+   *
+   * @return the running server
+   * @throws IOException if the server cannot be started
+   */
+  public static LocalCOSServer start() throws IOException {
+    return start(new FaultProfile(), new Random());
+  }
+
+  /**
+   * Start a server on a free loopback port.
+   *
+   * @param faults faults to inject, may be changed while running
+   * @param random source of latencies and faults, seeded for reproducible runs
+   * @return the running server
+   * @throws IOException if the server cannot be started
+   */
+  public static LocalCOSServer start(FaultProfile faults, Random random) throws IOException {
+    return new LocalCOSServer(faults, random);
+  }
+
+  /** @return endpoint URL of the server */
+  public URL getEndpoint() {
+    try {
+      InetSocketAddress address = server.getAddress();
+      return new URL("http", address.getHostString(), address.getPort(), "");
+    } catch (MalformedURLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** @return faults injected into the following requests */
+  public FaultProfile getFaults() {
+    return faults;
+  }
+
+  /**
+   * Create a bucket unless it exists.
+   *
+   * @param bucket bucket name
+   */
+  public void createBucket(String bucket) {
+    buckets.putIfAbsent(bucket, new ConcurrentSkipListMap<String, StoredObject>());
+  }
+
+  /**
+   * Store an object without going through HTTP or fault injection, e.g. to prepare a test.
+   *
+   * @param bucket bucket, created if missing
+   * @param key object key
+   * @param content object content
+   */
+  public void putObject(String bucket, String key, byte[] content) {
+    createBucket(bucket);
+    buckets.get(bucket).put(key, new StoredObject(content, new HashMap<String, String>()));
+  }
+
+  /**
+   * @param bucket bucket name
+   * @param key object key
+   * @return content of the object, or null if it does not exist
+   */
+  public byte[] getObject(String bucket, String key) {
+    NavigableMap<String, StoredObject> objects = buckets.get(bucket);
+    StoredObject object = objects != null ? objects.get(key) : null;
+    return object != null ? object.content : null;
+  }
+
+  /**
+   * @param bucket bucket name
+   * @return number of objects in the bucket, 0 if it does not exist
+   */
+  public int getObjectCount(String bucket) {
+    NavigableMap<String, StoredObject> objects = buckets.get(bucket);
+    return objects != null ? objects.size() : 0;
+  }
+
+  /** @return number of requests received */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /** @return number of requests answered with an injected 503 SlowDown */
+  public long getSlowDownCount() {
+    return slowDownCount.get();
+  }
+
+  /** @return number of connections closed by fault injection */
+  public long getResetCount() {
+    return resetCount.get();
+  }
+
+  /** Delete all buckets, objects and uploads and reset the counters. */
+  public void clear() {
+    buckets.clear();
+    uploads.clear();
+    requestCount.set(0);
+    slowDownCount.set(0);
+    resetCount.set(0);
+  }
+
+  /** Stop the server and discard all objects. */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+    buckets.clear();
+    uploads.clear();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requestCount.incrementAndGet();
+    try {
+      byte[] body = readBody(exchange);
+      sleep(faults.getLatency().sample(random));
+
+      boolean reset = chance(faults.getResetRate());
+      if (reset && !isObjectGet(exchange)) {
+        resetCount.incrementAndGet();
+        throw new ConnectionReset();
+      }
+      if (chance(faults.getSlowDownRate())) {
+        slowDownCount.incrementAndGet();
+        sendError(exchange, 503, "SlowDown", "Please reduce your request rate.");
+        return;
+      }
+
+      Request request = new Request(exchange, body, reset);
+      if (request.bucket.isEmpty()) {
+        sendBucketList(request);
+      } else if (request.key == null) {
+        handleBucket(request);
+      } else {
+        handleObject(request);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void handleBucket(Request request) throws IOException {
+    String bucket = request.bucket;
+    if (request.method.equals("PUT")) {
+      createBucket(bucket);
+      send(request.exchange, 200, null);
+      return;
+    }
+    NavigableMap<String, StoredObject> objects = buckets.get(bucket);
+    if (objects == null) {
+      sendError(request.exchange, 404, "NoSuchBucket", bucket);
+    } else if (request.method.equals("HEAD")) {
+      send(request.exchange, 200, null);
+    } else if (request.method.equals("DELETE")) {
+      if (!objects.isEmpty()) {
+        sendError(request.exchange, 409, "BucketNotEmpty", bucket);
+        return;
+      }
+      buckets.remove(bucket);
+      send(request.exchange, 204, null);
+    } else if (request.method.equals("POST") && request.query.containsKey("delete")) {
+      deleteObjects(request, objects);
+    } else if (request.method.equals("GET") && !request.query.containsKey("uploads")) {
+      sendListing(request, objects);
+    } else {
+      sendError(request.exchange, 501, "NotImplemented", request.method + " " + bucket);
+    }
+  }
+
+  private void handleObject(Request request) throws IOException {
+    NavigableMap<String, StoredObject> objects = buckets.get(request.bucket);
+    if (objects == null) {
+      sendError(request.exchange, 404, "NoSuchBucket", request.bucket);
+      return;
+    }
+    String uploadId = request.query.get("uploadId");
+    switch (request.method) {
+      case "PUT":
+        if (uploadId != null) {
+          uploadPart(request, uploadId);
+        } else if (request.header("x-amz-copy-source") != null) {
+          copyObject(request, objects);
+        } else {
+          StoredObject stored = new StoredObject(request.body, request.metadata());
+          objects.put(request.key, stored);
+          request.exchange.getResponseHeaders().set("ETag", stored.etag);
+          send(request.exchange, 200, null);
+        }
+        return;
+      case "POST":
+        if (request.query.containsKey("uploads")) {
+          initiateUpload(request);
+        } else if (uploadId != null) {
+          completeUpload(request, uploadId, objects);
+        } else {
+          sendError(request.exchange, 501, "NotImplemented", "POST " + request.key);
+        }
+        return;
+      case "DELETE":
+        if (uploadId != null) {
+          uploads.remove(uploadId);
+        } else {
+          objects.remove(request.key);
+        }
+        send(request.exchange, 204, null);
+        return;
+      case "GET":
+      case "HEAD":
+        if (uploadId != null) {
+          listParts(request, uploadId);
+          return;
+        }
+        StoredObject object = objects.get(request.key);
+        if (object == null) {
+          sendError(request.exchange, 404, "NoSuchKey", request.key);
+          return;
+        }
+        sendObject(request, object);
+        return;
+      default:
+        sendError(request.exchange, 501, "NotImplemented", request.method + " " + request.key);
+    }
+  }
+
+  private void sendObject(Request request, StoredObject object) throws IOException {
+    HttpExchange exchange = request.exchange;
+    String ifMatch = request.header("If-Match");
+    if (ifMatch != null && !listsETag(ifMatch, object.etag)) {
+      sendError(exchange, 412, "PreconditionFailed", "If-Match " + ifMatch);
+      return;
+    }
+    Headers headers = exchange.getResponseHeaders();
+    headers.set("ETag", object.etag);
+    headers.set("Last-Modified", object.lastModified);
+    String ifNoneMatch = request.header("If-None-Match");
+    if (ifNoneMatch != null && listsETag(ifNoneMatch, object.etag)) {
+      send(exchange, 304, null);
+      return;
+    }
+    headers.set("Accept-Ranges", "bytes");
+    headers.set("Content-Type", "application/octet-stream");
+    for (Map.Entry<String, String> header : object.metadata.entrySet()) {
+      headers.set(header.getKey(), header.getValue());
+    }
+
+    int length = object.content.length;
+    int start = 0;
+    int end = length - 1;
+    String range = request.header("Range");
+    if (range != null && range.startsWith("bytes=")) {
+      String[] bounds = range.substring(6).split("-", 2);
+      if (bounds[0].isEmpty()) {
+        start = Math.max(0, length - Integer.parseInt(bounds[1]));
+      } else {
+        start = Integer.parseInt(bounds[0]);
+        if (!bounds[1].isEmpty()) {
+          end = (int) Math.min(end, Long.parseLong(bounds[1]));
+        }
+      }
+      if (start >= length) {
+        sendError(exchange, 416, "InvalidRange", range);
+        return;
+      }
+      headers.set("Content-Range", "bytes " + start + "-" + end + "/" + length);
+    }
+
+    int status = range != null ? 206 : 200;
+    if (request.method.equals("HEAD")) {
+      headers.set("Content-Length", Integer.toString(length));
+      exchange.sendResponseHeaders(status, -1);
+      return;
+    }
+    int count = end - start + 1;
+    exchange.sendResponseHeaders(status, count);
+    OutputStream body = exchange.getResponseBody();
+    if (request.reset) {
+      // announce the whole body, then drop the connection half way
+      write(body, object.content, start, count / 2);
+      body.flush();
+      resetCount.incrementAndGet();
+      throw new ConnectionReset();
+    }
+    write(body, object.content, start, count);
+    body.close();
+  }
+
+  /** @return whether an If-Match or If-None-Match header lists the quoted ETag of an object */
+  private static boolean listsETag(String condition, String etag) {
+    for (String candidate : condition.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals("*")
+          || candidate.equals(etag)
+          || ("\"" + candidate + "\"").equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void copyObject(Request request, NavigableMap<String, StoredObject> objects)
+      throws IOException {
+    String source = decode(request.header("x-amz-copy-source"));
+    if (source.startsWith("/")) {
+      source = source.substring(1);
+    }
+    int query = source.indexOf('?');
+    if (query >= 0) {
+      source = source.substring(0, query);
+    }
+    int slash = source.indexOf('/');
+    NavigableMap<String, StoredObject> sourceObjects =
+        slash < 0 ? null : buckets.get(source.substring(0, slash));
+    StoredObject original =
+        sourceObjects != null ? sourceObjects.get(source.substring(slash + 1)) : null;
+    if (original == null) {
+      sendError(request.exchange, 404, "NoSuchKey", source);
+      return;
+    }
+
+    StoredObject copy =
+        new StoredObject(
+            original.content,
+            "REPLACE".equals(request.header("x-amz-metadata-directive"))
+                ? request.metadata()
+                : original.metadata);
+    objects.put(request.key, copy);
+    sendXml(
+        request.exchange,
+        "<CopyObjectResult><LastModified>"
+            + copy.lastModifiedIso
+            + "</LastModified><ETag>"
+            + escape(copy.etag)
+            + "</ETag></CopyObjectResult>");
+  }
+
+  private void deleteObjects(Request request, NavigableMap<String, StoredObject> objects)
+      throws IOException {
+    String xml = new String(request.body, StandardCharsets.UTF_8);
+    boolean quiet = xml.contains("<Quiet>true</Quiet>");
+    StringBuilder result = new StringBuilder("<DeleteResult xmlns=\"" + XML_NAMESPACE + "\">");
+    Matcher keys = DELETE_KEY.matcher(xml);
+    while (keys.find()) {
+      String key = unescape(keys.group(1));
+      objects.remove(key);
+      if (!quiet) {
+        result.append("<Deleted><Key>").append(escape(key)).append("</Key></Deleted>");
+      }
+    }
+    sendXml(request.exchange, result.append("</DeleteResult>").toString());
+  }
+
+  private void initiateUpload(Request request) throws IOException {
+    String uploadId = UUID.randomUUID().toString();
+    uploads.put(uploadId, new Upload(request.bucket, request.key, request.metadata()));
+    sendXml(
+        request.exchange,
+        "<InitiateMultipartUploadResult xmlns=\""
+            + XML_NAMESPACE
+            + "\"><Bucket>"
+            + escape(request.bucket)
+            + "</Bucket><Key>"
+            + escape(request.key)
+            + "</Key><UploadId>"
+            + uploadId
+            + "</UploadId></InitiateMultipartUploadResult>");
+  }
+
+  private void uploadPart(Request request, String uploadId) throws IOException {
+    Upload upload = uploads.get(uploadId);
+    if (upload == null) {
+      sendError(request.exchange, 404, "NoSuchUpload", uploadId);
+      return;
+    }
+    int partNumber = Integer.parseInt(request.query.get("partNumber"));
+    upload.parts.put(partNumber, request.body);
+    request.exchange.getResponseHeaders().set("ETag", "\"" + md5Hex(request.body) + "\"");
+    send(request.exchange, 200, null);
+  }
+
+  /** Lists all parts in one page. */
+  private void listParts(Request request, String uploadId) throws IOException {
+    Upload upload = uploads.get(uploadId);
+    if (upload == null) {
+      sendError(request.exchange, 404, "NoSuchUpload", uploadId);
+      return;
+    }
+    StringBuilder xml = new StringBuilder("<ListPartsResult xmlns=\"" + XML_NAMESPACE + "\">");
+    xml.append("<Bucket>").append(escape(upload.bucket)).append("</Bucket>");
+    xml.append("<Key>").append(escape(upload.key)).append("</Key>");
+    xml.append("<UploadId>").append(uploadId).append("</UploadId>");
+    xml.append("<MaxParts>10000</MaxParts><IsTruncated>false</IsTruncated>");
+    for (Map.Entry<Integer, byte[]> part : new TreeMap<Integer, byte[]>(upload.parts).entrySet()) {
+      xml.append("<Part><PartNumber>").append(part.getKey()).append("</PartNumber>");
+      xml.append("<LastModified>2018-01-01T00:00:00.000Z</LastModified>");
+      xml.append("<ETag>\"").append(md5Hex(part.getValue())).append("\"</ETag>");
+      xml.append("<Size>").append(part.getValue().length).append("</Size></Part>");
+    }
+    sendXml(request.exchange, xml.append("</ListPartsResult>").toString());
+  }
+
+  private void completeUpload(
+      Request request, String uploadId, NavigableMap<String, StoredObject> objects)
+      throws IOException {
+    Upload upload = uploads.get(uploadId);
+    if (upload == null) {
+      sendError(request.exchange, 404, "NoSuchUpload", uploadId);
+      return;
+    }
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    ByteArrayOutputStream digests = new ByteArrayOutputStream();
+    Matcher partNumbers = PART_NUMBER.matcher(new String(request.body, StandardCharsets.UTF_8));
+    int count = 0;
+    while (partNumbers.find()) {
+      byte[] part = upload.parts.get(Integer.parseInt(partNumbers.group(1)));
+      if (part == null) {
+        sendError(request.exchange, 400, "InvalidPart", partNumbers.group(1));
+        return;
+      }
+      content.write(part);
+      digests.write(md5(part));
+      count++;
+    }
+    uploads.remove(uploadId);
+
+    String etag = "\"" + hex(md5(digests.toByteArray())) + "-" + count + "\"";
+    StoredObject stored = new StoredObject(content.toByteArray(), upload.metadata, etag);
+    objects.put(upload.key, stored);
+    sendXml(
+        request.exchange,
+        "<CompleteMultipartUploadResult xmlns=\""
+            + XML_NAMESPACE
+            + "\"><Location>"
+            + escape(getEndpoint() + "/" + upload.bucket + "/" + upload.key)
+            + "</Location><Bucket>"
+            + escape(upload.bucket)
+            + "</Bucket><Key>"
+            + escape(upload.key)
+            + "</Key><ETag>"
+            + escape(etag)
+            + "</ETag></CompleteMultipartUploadResult>");
+  }
+
+  private void sendBucketList(Request request) throws IOException {
+    StringBuilder xml =
+        new StringBuilder("<ListAllMyBucketsResult xmlns=\"" + XML_NAMESPACE + "\">");
+    xml.append("<Owner><ID>local</ID><DisplayName>local</DisplayName></Owner><Buckets>");
+    for (String bucket : new TreeSet<String>(buckets.keySet())) {
+      xml.append("<Bucket><Name>").append(escape(bucket)).append("</Name>");
+      xml.append("<CreationDate>2018-01-01T00:00:00.000Z</CreationDate></Bucket>");
+    }
+    sendXml(request.exchange, xml.append("</Buckets></ListAllMyBucketsResult>").toString());
+  }
+
+  private void sendListing(Request request, NavigableMap<String, StoredObject> objects)
+      throws IOException {
+    Map<String, String> query = request.query;
+    boolean v2 = "2".equals(query.get("list-type"));
+    String prefix = query.getOrDefault("prefix", "");
+    String delimiter = query.get("delimiter");
+    int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+    String after =
+        v2
+            ? query.getOrDefault("continuation-token", query.getOrDefault("start-after", ""))
+            : query.getOrDefault("marker", "");
+
+    StringBuilder contents = new StringBuilder();
+    StringBuilder prefixes = new StringBuilder();
+    String last = null;
+    String lastPrefix = null;
+    int count = 0;
+    boolean truncated = false;
+    for (Map.Entry<String, StoredObject> entry : objects.tailMap(after, false).entrySet()) {
+      String key = entry.getKey();
+      if (!key.startsWith(prefix)) {
+        if (key.compareTo(prefix) > 0) {
+          break;
+        }
+        continue;
+      }
+      if (delimiter != null && after.endsWith(delimiter) && key.startsWith(after)) {
+        // below the common prefix the previous page ended with
+        continue;
+      }
+      int split = delimiter != null ? key.indexOf(delimiter, prefix.length()) : -1;
+      String commonPrefix = split < 0 ? null : key.substring(0, split + delimiter.length());
+      if (commonPrefix != null && commonPrefix.equals(lastPrefix)) {
+        continue;
+      }
+      if (count == maxKeys) {
+        truncated = true;
+        break;
+      }
+      count++;
+      if (commonPrefix != null) {
+        lastPrefix = commonPrefix;
+        last = commonPrefix;
+        prefixes.append("<CommonPrefixes><Prefix>").append(escape(commonPrefix));
+        prefixes.append("</Prefix></CommonPrefixes>");
+      } else {
+        StoredObject object = entry.getValue();
+        last = key;
+        contents.append("<Contents><Key>").append(escape(key)).append("</Key>");
+        contents.append("<LastModified>").append(object.lastModifiedIso).append("</LastModified>");
+        contents.append("<ETag>").append(escape(object.etag)).append("</ETag>");
+        contents.append("<Size>").append(object.content.length).append("</Size>");
+        contents.append("<StorageClass>STANDARD</StorageClass></Contents>");
+      }
+    }
+
+    StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"" + XML_NAMESPACE + "\">");
+    xml.append("<Name>").append(escape(request.bucket)).append("</Name>");
+    xml.append("<Prefix>").append(escape(prefix)).append("</Prefix>");
+    xml.append("<MaxKeys>").append(maxKeys).append("</MaxKeys>");
+    if (delimiter != null) {
+      xml.append("<Delimiter>").append(escape(delimiter)).append("</Delimiter>");
+    }
+    xml.append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+    if (v2) {
+      xml.append("<KeyCount>").append(count).append("</KeyCount>");
+      if (truncated) {
+        xml.append("<NextContinuationToken>").append(escape(last));
+        xml.append("</NextContinuationToken>");
+      }
+    } else {
+      xml.append("<Marker>").append(escape(after)).append("</Marker>");
+      if (truncated) {
+        xml.append("<NextMarker>").append(escape(last)).append("</NextMarker>");
+      }
+    }
+    xml.append(contents).append(prefixes).append("</ListBucketResult>");
+    sendXml(request.exchange, xml.toString());
+  }
+
+  private byte[] readBody(HttpExchange exchange) throws IOException {
+    String contentSha256 = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    try (InputStream body = exchange.getRequestBody()) {
+      byte[] buffer = new byte[chunkSize()];
+      long start = System.nanoTime();
+      long total = 0;
+      int n;
+      while ((n = body.read(buffer)) >= 0) {
+        content.write(buffer, 0, n);
+        total += n;
+        throttle(start, total);
+      }
+    }
+    byte[] bytes = content.toByteArray();
+    return contentSha256 != null && contentSha256.startsWith("STREAMING-")
+        ? decodeChunked(bytes)
+        : bytes;
+  }
+
+  /** Decode a body in the aws-chunked encoding used by the SDK for signed PUTs over HTTP. */
+  private static byte[] decodeChunked(byte[] encoded) throws IOException {
+    ByteArrayOutputStream content = new ByteArrayOutputStream(encoded.length);
+    int position = 0;
+    while (position < encoded.length) {
+      int lineEnd = indexOf(encoded, position);
+      String header = new String(encoded, position, lineEnd - position, StandardCharsets.US_ASCII);
+      int semicolon = header.indexOf(';');
+      int size = Integer.parseInt(semicolon < 0 ? header : header.substring(0, semicolon), 16);
+      position = lineEnd + 2;
+      if (size == 0) {
+        break;
+      }
+      if (position + size > encoded.length) {
+        throw new IOException("truncated aws-chunked body");
+      }
+      content.write(encoded, position, size);
+      position += size + 2;
+    }
+    return content.toByteArray();
+  }
+
+  private static int indexOf(byte[] bytes, int from) throws IOException {
+    for (int i = from; i < bytes.length - 1; i++) {
+      if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+        return i;
+      }
+    }
+    throw new IOException("malformed aws-chunked body");
+  }
+
+  private void write(OutputStream output, byte[] content, int offset, int length)
+      throws IOException {
+    int chunkSize = chunkSize();
+    long start = System.nanoTime();
+    for (int written = 0; written < length; ) {
+      int n = Math.min(chunkSize, length - written);
+      output.write(content, offset + written, n);
+      written += n;
+      if (faults.getBandwidth() > 0) {
+        output.flush();
+        throttle(start, written);
+      }
+    }
+  }
+
+  private int chunkSize() {
+    long bandwidth = faults.getBandwidth();
+    // about 20 chunks per second keep a bandwidth limit smooth
+    return bandwidth > 0 ? (int) Math.max(1, Math.min(64 * 1024, bandwidth / 20)) : 64 * 1024;
+  }
+
+  private void throttle(long startNanos, long transferred) {
+    long bandwidth = faults.getBandwidth();
+    if (bandwidth > 0) {
+      long due = startNanos + transferred * TimeUnit.SECONDS.toNanos(1) / bandwidth;
+      sleep(TimeUnit.NANOSECONDS.toMillis(due - System.nanoTime()));
+    }
+  }
+
+  private boolean chance(double rate) {
+    return rate > 0 && random.nextDouble() < rate;
+  }
+
+  private static boolean isObjectGet(HttpExchange exchange) {
+    String path = exchange.getRequestURI().getRawPath();
+    int slash = path.indexOf('/', 1);
+    return exchange.getRequestMethod().equals("GET")
+        && slash > 0
+        && slash < path.length() - 1
+        && exchange.getRequestURI().getRawQuery() == null;
+  }
+
+  private static void sleep(long millis) {
+    if (millis > 0) {
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static void sendError(HttpExchange exchange, int status, String code, String message)
+      throws IOException {
+    if (exchange.getRequestMethod().equals("HEAD")) {
+      exchange.sendResponseHeaders(status, -1);
+      return;
+    }
+    exchange.getResponseHeaders().set("Content-Type", "application/xml");
+    send(
+        exchange,
+        status,
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>"
+            + code
+            + "</Code><Message>"
+            + escape(message)
+            + "</Message><RequestId>local</RequestId></Error>");
+  }
+
+  private static void sendXml(HttpExchange exchange, String xml) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/xml");
+    send(exchange, 200, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml);
+  }
+
+  private static void send(HttpExchange exchange, int status, String body) throws IOException {
+    exchange.getResponseHeaders().set("x-amz-request-id", "local");
+    if (body == null) {
+      exchange.sendResponseHeaders(status, -1);
+      return;
+    }
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(bytes);
+    }
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery) {
+    Map<String, String> query = new HashMap<String, String>();
+    if (rawQuery != null) {
+      for (String parameter : rawQuery.split("&")) {
+        int equals = parameter.indexOf('=');
+        query.put(
+            decode(equals < 0 ? parameter : parameter.substring(0, equals)),
+            equals < 0 ? "" : decode(parameter.substring(equals + 1)));
+      }
+    }
+    return query;
+  }
+
+  private static String decode(String value) {
+    try {
+      return URLDecoder.decode(value.replace("+", "%2B"), "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String escape(String value) {
+    return value
+        .replace("&", "&amp;")
+        .replace("<", "&lt;")
+        .replace(">", "&gt;")
+        .replace("\"", "&quot;");
+  }
+
+  private static String unescape(String value) {
+    return value
+        .replace("&lt;", "<")
+        .replace("&gt;", ">")
+        .replace("&quot;", "\"")
+        .replace("&apos;", "'")
+        .replace("&amp;", "&");
+  }
+
+  private static byte[] md5(byte[] content) {
+    try {
+      return MessageDigest.getInstance("MD5").digest(content);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String md5Hex(byte[] content) {
+    return hex(md5(content));
+  }
+
+  private static String hex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  /** Thrown to make the HTTP server close the connection without completing the response. */
+  private static final class ConnectionReset extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    ConnectionReset() {
+      super("injected connection reset");
+    }
+  }
+
+  private static final class Request {
+
+    final HttpExchange exchange;
+
+    final String method;
+
+    final String bucket;
+
+    /** null for bucket requests */
+    final String key;
+
+    final Map<String, String> query;
+
+    final byte[] body;
+
+    /** close the connection in the middle of the response body */
+    final boolean reset;
+
+    Request(HttpExchange exchange, byte[] body, boolean reset) {
+      this.exchange = exchange;
+      this.method = exchange.getRequestMethod();
+      this.body = body;
+      this.reset = reset;
+      String path = exchange.getRequestURI().getRawPath();
+      int slash = path.indexOf('/', 1);
+      this.bucket = decode(slash < 0 ? path.substring(1) : path.substring(1, slash));
+      this.key = slash < 0 || slash == path.length() - 1 ? null : decode(path.substring(slash + 1));
+      this.query = parseQuery(exchange.getRequestURI().getRawQuery());
+    }
+
+    String header(String name) {
+      return exchange.getRequestHeaders().getFirst(name);
+    }
+
+    /** @return the object metadata headers of the request */
+    Map<String, String> metadata() {
+      Map<String, String> metadata = new LinkedHashMap<String, String>();
+      for (String name : STORED_HEADERS) {
+        String value = header(name);
+        if (value != null) {
+          metadata.put(name, value);
+        }
+      }
+      // strip the encoding the SDK adds for signed chunked uploads
+      String encoding = metadata.get("Content-Encoding");
+      if (encoding != null) {
+        List<String> codings = new ArrayList<String>();
+        for (String coding : encoding.split(",")) {
+          if (!coding.trim().equals("aws-chunked") && !coding.trim().isEmpty()) {
+            codings.add(coding.trim());
+          }
+        }
+        if (codings.isEmpty()) {
+          metadata.remove("Content-Encoding");
+        } else {
+          metadata.put("Content-Encoding", String.join(",", codings));
+        }
+      }
+      for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+        String name = header.getKey().toLowerCase(Locale.ENGLISH);
+        if (name.startsWith("x-amz-meta-")) {
+          metadata.put(name, header.getValue().get(0));
+        }
+      }
+      return metadata;
+    }
+  }
+
+  private static final class Upload {
+
+    final String bucket;
+
+    final String key;
+
+    final Map<String, String> metadata;
+
+    final ConcurrentMap<Integer, byte[]> parts = new ConcurrentHashMap<Integer, byte[]>();
+
+    Upload(String bucket, String key, Map<String, String> metadata) {
+      this.bucket = bucket;
+      this.key = key;
+      this.metadata = metadata;
+    }
+  }
+
+  private static final class StoredObject {
+
+    final byte[] content;
+
+    final Map<String, String> metadata;
+
+    final String etag;
+
+    final String lastModified;
+
+    final String lastModifiedIso;
+
+    StoredObject(byte[] content, Map<String, String> metadata) {
+      this(content, metadata, "\"" + md5Hex(content) + "\"");
+    }
+
+    StoredObject(byte[] content, Map<String, String> metadata, String etag) {
+      this.content = content;
+      this.metadata = metadata;
+      this.etag = etag;
+      Date now = new Date();
+      this.lastModified = format("EEE, dd MMM yyyy HH:mm:ss 'GMT'", now);
+      this.lastModifiedIso = format("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", now);
+    }
+
+    private static String format(String pattern, Date date) {
+      SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.ENGLISH);
+      format.setTimeZone(TimeZone.getTimeZone("GMT"));
+      return format.format(date);
+    }
+  }
+}
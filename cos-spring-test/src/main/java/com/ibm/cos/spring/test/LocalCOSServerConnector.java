@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.test;
+
+import com.ibm.cloud.objectstorage.auth.AWSStaticCredentialsProvider;
+import com.ibm.cloud.objectstorage.auth.BasicAWSCredentials;
+import com.ibm.cloud.objectstorage.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.ibm.cloud.objectstorage.services.s3.AmazonS3ClientBuilder;
+import com.ibm.cos.spring.core.client.ClientBuilderCustomizer;
+
+/**
+ * Points clients built without an endpoint or credentials at the local server, with HMAC
+ * credentials instead of an API key. Clients configured by properties get the same values from the
+ * defaults of {@link LocalCOSServerRegistrar}, so an endpoint or credentials set by a test are
+ * kept.
+ */
+class LocalCOSServerConnector implements ClientBuilderCustomizer {
+
+  private final LocalCOSServer server;
+
+  public LocalCOSServerConnector(LocalCOSServer server) {
+    this.server = server;
+  }
+
+  public LocalCOSServer getServer() {
+    return server;
+  }
+
+  @Override
+  public void customize(String clientName, AmazonS3ClientBuilder builder) {
+    if (builder.getEndpoint() == null) {
+      builder
+          .withEndpointConfiguration(
+              new EndpointConfiguration(server.getEndpoint().toString(), null))
+          .withPathStyleAccessEnabled(true);
+    }
+    if (builder.getCredentials() == null) {
+      builder.withCredentials(
+          new AWSStaticCredentialsProvider(new BasicAWSCredentials("local", "local")));
+    }
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.test;
+
+import java.io.IOException;
+import java.util.Random;
+import org.springframework.util.StringUtils;
+
+/**
+ * Local server settings, bound from {@code cos.test-server.*}. Durations are in milliseconds. The
+ * server is started by {@link EnableLocalCOS}, or in Spring Boot applications when {@code
+ * cos.test-server.enabled} is set.
+ */
+public class LocalCOSServerProperties {
+
+  /** start a local server and connect all COS clients to it */
+  private boolean enabled;
+
+  /**
+   * latency added to each response: none, fixed:&lt;ms&gt;, uniform:&lt;min&gt;-&lt;max&gt;,
+   * exponential:&lt;mean&gt; or lognormal:&lt;median&gt;-&lt;p99&gt;
+   */
+  private String latency = "none";
+
+  /** bytes per second each request and response body is transferred at, 0 for no limit */
+  private long bandwidth;
+
+  /** share of requests answered with 503 SlowDown, between 0 and 1 */
+  private double slowDownRate;
+
+  /** share of requests whose connection is closed, between 0 and 1 */
+  private double resetRate;
+
+  /** (optional) seed of latencies and faults for reproducible runs */
+  private Long seed;
+
+  /** (optional) comma separated buckets created at startup */
+  private String buckets;
+
+  /**
+   * Validate these settings and start a server.
+   *
+   * @return a running server using these settings
+   * @throws IllegalArgumentException if a setting is out of range
+   * @throws IOException if the server cannot be started
+   */
+  public LocalCOSServer createServer() throws IOException {
+    FaultProfile faults = createFaults();
+    LocalCOSServer server =
+        LocalCOSServer.start(faults, seed != null ? new Random(seed) : new Random());
+    for (String bucket : StringUtils.commaDelimitedListToStringArray(buckets)) {
+      server.createBucket(bucket.trim());
+    }
+    return server;
+  }
+
+  /**
+   * Validate these settings and create the faults to inject.
+   *
+   * @return a fault profile using these settings
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public FaultProfile createFaults() {
+    validate();
+    FaultProfile faults = new FaultProfile();
+    faults.setLatency(LatencyDistribution.parse(latency));
+    faults.setBandwidth(bandwidth);
+    faults.setSlowDownRate(slowDownRate);
+    faults.setResetRate(resetRate);
+    return faults;
+  }
+
+  /**
+   * Check that all configured values are in range.
+   *
+   * @throws IllegalArgumentException if a setting is out of range
+   */
+  public void validate() {
+    try {
+      LatencyDistribution.parse(latency);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("cos.test-server.latency: " + e.getMessage(), e);
+    }
+    if (bandwidth < 0) {
+      throw new IllegalArgumentException("cos.test-server.bandwidth must not be negative");
+    }
+    requireRate("cos.test-server.slow-down-rate", slowDownRate);
+    requireRate("cos.test-server.reset-rate", resetRate);
+  }
+
+  private static void requireRate(String name, double rate) {
+    if (rate < 0 || rate > 1) {
+      throw new IllegalArgumentException(name + " must be between 0 and 1");
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public String getLatency() {
+    return latency;
+  }
+
+  public void setLatency(String latency) {
+    this.latency = latency;
+  }
+
+  public long getBandwidth() {
+    return bandwidth;
+  }
+
+  public void setBandwidth(long bandwidth) {
+    this.bandwidth = bandwidth;
+  }
+
+  public double getSlowDownRate() {
+    return slowDownRate;
+  }
+
+  public void setSlowDownRate(double slowDownRate) {
+    this.slowDownRate = slowDownRate;
+  }
+
+  public double getResetRate() {
+    return resetRate;
+  }
+
+  public void setResetRate(double resetRate) {
+    this.resetRate = resetRate;
+  }
+
+  public Long getSeed() {
+    return seed;
+  }
+
+  public void setSeed(Long seed) {
+    this.seed = seed;
+  }
+
+  public String getBuckets() {
+    return buckets;
+  }
+
+  public void setBuckets(String buckets) {
+    this.buckets = buckets;
+  }
+}
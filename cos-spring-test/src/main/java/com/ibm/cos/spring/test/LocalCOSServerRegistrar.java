@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2018 IBM Corp. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package com.ibm.cos.spring.test;
+
+import com.ibm.cos.spring.core.client.NamedClientsRegistrar;
+import com.ibm.cos.spring.core.env.PropertyTreeBinder;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.type.AnnotationMetadata;
+
+/**
+ * Starts the server while the configuration is parsed, before any COS bean binds its properties,
+ * and provides defaults for the connection properties the COS configuration requires, for the
+ * default client and every named client.
+ */
+class LocalCOSServerRegistrar implements ImportBeanDefinitionRegistrar, EnvironmentAware {
+
+  static final String SERVER_BEAN_NAME = "localCOSServer";
+
+  private static final String CONNECTOR_BEAN_NAME = "localCOSServerConnector";
+
+  private ConfigurableEnvironment environment;
+
+  @Override
+  public void setEnvironment(Environment environment) {
+    this.environment = (ConfigurableEnvironment) environment;
+  }
+
+  @Override
+  public void registerBeanDefinitions(
+      AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+    if (registry.containsBeanDefinition(SERVER_BEAN_NAME)) {
+      // imported by both the annotation and the auto-configuration
+      return;
+    }
+
+    LocalCOSServer server;
+    try {
+      server =
+          PropertyTreeBinder.bind(environment, "cos.test-server", new LocalCOSServerProperties())
+              .createServer();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to start local COS server", e);
+    }
+
+    // lowest precedence, so tests may still set their own endpoint and credentials
+    Map<String, Object> defaults = new HashMap<String, Object>();
+    putConnection(defaults, "cos.", server);
+    for (String name : PropertyTreeBinder.childNames(environment, NamedClientsRegistrar.PREFIX)) {
+      putConnection(defaults, NamedClientsRegistrar.PREFIX + "." + name + ".", server);
+    }
+    environment.getPropertySources().addLast(new MapPropertySource(SERVER_BEAN_NAME, defaults));
+
+    RootBeanDefinition connector = new RootBeanDefinition(LocalCOSServerConnector.class);
+    connector.getConstructorArgumentValues().addIndexedArgumentValue(0, server);
+    registry.registerBeanDefinition(CONNECTOR_BEAN_NAME, connector);
+
+    RootBeanDefinition serverDefinition = new RootBeanDefinition();
+    serverDefinition.setFactoryBeanName(CONNECTOR_BEAN_NAME);
+    serverDefinition.setFactoryMethodName("getServer");
+    serverDefinition.setDestroyMethodName("close");
+    registry.registerBeanDefinition(SERVER_BEAN_NAME, serverDefinition);
+  }
+
+  private static void putConnection(
+      Map<String, Object> defaults, String prefix, LocalCOSServer server) {
+    defaults.put(prefix + "endpoint", server.getEndpoint().toString());
+    defaults.put(prefix + "access-key", "local");
+    defaults.put(prefix + "secret-key", "local");
+  }
+}